@@ -18,10 +18,12 @@ package smile.data.formula;
 
 import java.util.ArrayList;
 import java.util.List;
+import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.type.DataType;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.ValueVector;
 
 /**
  * The term of abs function.
@@ -91,6 +93,15 @@ public class Abs extends AbstractFunction {
                 public double applyAsDouble(Tuple o) {
                     return Math.abs(feature.applyAsDouble(o));
                 }
+
+                @Override
+                public ValueVector apply(DataFrame data) {
+                    if (!ColumnKernels.isSupported(field.dtype())) {
+                        return Feature.super.apply(data);
+                    }
+
+                    return ColumnKernels.unary(field, feature.apply(data), Math::abs, Math::abs, Math::abs, Math::abs);
+                }
             });
         }
 
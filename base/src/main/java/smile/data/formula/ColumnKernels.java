@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.data.formula;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.IntStream;
+import smile.data.type.DataType;
+import smile.data.type.StructField;
+import smile.data.vector.*;
+
+/**
+ * Column-at-a-time kernels to evaluate bound features on a data frame.
+ * The default {@link Feature#apply(smile.data.DataFrame)} creates a tuple
+ * for each row and evaluates the feature through the chain of operand
+ * features per cell. The kernels instead take the operand columns,
+ * which are evaluated once, and fill the primitive array of output in
+ * parallel. Only non-nullable int, long, float and double outputs are
+ * supported. Other features fall back to the row-wise evaluation.
+ *
+ * @author Haifeng Li
+ */
+final class ColumnKernels {
+    /** Private constructor to prevent object creation. */
+    private ColumnKernels() {
+
+    }
+
+    /**
+     * The unary operator on a float operand.
+     */
+    interface FloatUnaryOperator {
+        /**
+         * Applies the operator.
+         * @param x the operand.
+         * @return the result.
+         */
+        float applyAsFloat(float x);
+    }
+
+    /**
+     * Returns true if the kernels support the output type.
+     * @param dtype the output data type.
+     * @return true if the kernels support the output type.
+     */
+    static boolean isSupported(DataType dtype) {
+        return !dtype.isNullable() && (dtype.isInt() || dtype.isLong() || dtype.isFloat() || dtype.isDouble());
+    }
+
+    /**
+     * Applies a unary operator on a column. The operator of output type
+     * is applied on the operand converted to the output type.
+     * @param field the output field.
+     * @param x the operand column.
+     * @param intOp the operator on int.
+     * @param longOp the operator on long.
+     * @param floatOp the operator on float.
+     * @param doubleOp the operator on double.
+     * @return the output column.
+     */
+    static ValueVector unary(StructField field, ValueVector x, IntUnaryOperator intOp, LongUnaryOperator longOp,
+                             FloatUnaryOperator floatOp, DoubleUnaryOperator doubleOp) {
+        int n = x.size();
+        return switch (field.dtype().id()) {
+            case Int -> {
+                int[] y = new int[n];
+                IntStream.range(0, n).parallel().forEach(i -> y[i] = intOp.applyAsInt(x.getInt(i)));
+                yield new IntVector(field, y);
+            }
+            case Long -> {
+                long[] y = new long[n];
+                IntStream.range(0, n).parallel().forEach(i -> y[i] = longOp.applyAsLong(x.getLong(i)));
+                yield new LongVector(field, y);
+            }
+            case Float -> {
+                float[] y = new float[n];
+                IntStream.range(0, n).parallel().forEach(i -> y[i] = floatOp.applyAsFloat(x.getFloat(i)));
+                yield new FloatVector(field, y);
+            }
+            case Double -> {
+                double[] y = new double[n];
+                IntStream.range(0, n).parallel().forEach(i -> y[i] = doubleOp.applyAsDouble(x.getDouble(i)));
+                yield new DoubleVector(field, y);
+            }
+            default -> throw new UnsupportedOperationException("Unsupported data type: " + field.dtype());
+        };
+    }
+
+    /**
+     * Applies a binary operator on two columns. The operator of output
+     * type is applied on the operands converted to the output type.
+     * The float operands are computed in double precision and then
+     * rounded, which is exact for the arithmetic operators.
+     * @param field the output field.
+     * @param x the left operand column.
+     * @param y the right operand column.
+     * @param intOp the operator on int.
+     * @param longOp the operator on long.
+     * @param doubleOp the operator on double, also used for float.
+     * @return the output column.
+     */
+    static ValueVector binary(StructField field, ValueVector x, ValueVector y, IntBinaryOperator intOp,
+                              LongBinaryOperator longOp, DoubleBinaryOperator doubleOp) {
+        int n = x.size();
+        return switch (field.dtype().id()) {
+            case Int -> {
+                int[] z = new int[n];
+                IntStream.range(0, n).parallel().forEach(i -> z[i] = intOp.applyAsInt(x.getInt(i), y.getInt(i)));
+                yield new IntVector(field, z);
+            }
+            case Long -> {
+                long[] z = new long[n];
+                IntStream.range(0, n).parallel().forEach(i -> z[i] = longOp.applyAsLong(x.getLong(i), y.getLong(i)));
+                yield new LongVector(field, z);
+            }
+            case Float -> {
+                float[] z = new float[n];
+                IntStream.range(0, n).parallel().forEach(i -> z[i] = (float) doubleOp.applyAsDouble(x.getFloat(i), y.getFloat(i)));
+                yield new FloatVector(field, z);
+            }
+            case Double -> {
+                double[] z = new double[n];
+                IntStream.range(0, n).parallel().forEach(i -> z[i] = doubleOp.applyAsDouble(x.getDouble(i), y.getDouble(i)));
+                yield new DoubleVector(field, z);
+            }
+            default -> throw new UnsupportedOperationException("Unsupported data type: " + field.dtype());
+        };
+    }
+}
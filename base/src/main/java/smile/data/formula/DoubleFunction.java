@@ -18,11 +18,13 @@ package smile.data.formula;
 
 import java.util.ArrayList;
 import java.util.List;
+import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.type.DataType;
 import smile.data.type.DataTypes;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.ValueVector;
 
 /**
  * The generic term of applying a double function.
@@ -78,6 +80,15 @@ public class DoubleFunction extends AbstractFunction {
                 public double applyAsDouble(Tuple o) {
                     return lambda.apply(feature.applyAsDouble(o));
                 }
+
+                @Override
+                public ValueVector apply(DataFrame data) {
+                    if (!ColumnKernels.isSupported(field.dtype())) {
+                        return Feature.super.apply(data);
+                    }
+
+                    return ColumnKernels.unary(field, feature.apply(data), null, null, null, lambda::apply);
+                }
             });
         }
 
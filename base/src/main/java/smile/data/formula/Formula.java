@@ -480,7 +480,10 @@ public class Formula implements AutoCloseable, Serializable {
 
     /**
      * Returns a data frame of predictors and optionally response variable
-     * (if input data frame has the related variable(s)).
+     * (if input data frame has the related variable(s)). The features are
+     * evaluated column at a time in parallel. The arithmetic operators and
+     * math functions on non-nullable numeric columns are evaluated by
+     * primitive array kernels without creating the row tuples.
      *
      * @param data The input data frame.
      * @return the output data frame.
@@ -489,13 +492,14 @@ public class Formula implements AutoCloseable, Serializable {
         bind(data.schema());
 
         Binding binding = this.binding.get();
-        ValueVector[] vectors = Arrays.stream(binding.yx != null ? binding.yx : binding.x)
+        ValueVector[] vectors = Arrays.stream(binding.yx != null ? binding.yx : binding.x).parallel()
                 .map(term -> term.apply(data)).toArray(ValueVector[]::new);
         return new DataFrame(vectors);
     }
 
     /**
-     * Returns a data frame of predictors.
+     * Returns a data frame of predictors. The features are evaluated
+     * column at a time in parallel as in {@link #frame(DataFrame)}.
      *
      * @param data The input data frame.
      * @return the data frame of predictors.
@@ -503,7 +507,7 @@ public class Formula implements AutoCloseable, Serializable {
     public DataFrame x(DataFrame data) {
         bind(data.schema());
         Binding binding = this.binding.get();
-        ValueVector[] vectors = Arrays.stream(binding.x)
+        ValueVector[] vectors = Arrays.stream(binding.x).parallel()
                 .map(term -> term.apply(data)).toArray(ValueVector[]::new);
         return new DataFrame(vectors);
     }
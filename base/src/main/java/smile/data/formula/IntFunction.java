@@ -16,11 +16,13 @@
  */
 package smile.data.formula;
 
+import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.type.DataType;
 import smile.data.type.DataTypes;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.ValueVector;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -79,6 +81,15 @@ public class IntFunction extends AbstractFunction {
                 public int applyAsInt(Tuple o) {
                     return lambda.apply(feature.applyAsInt(o));
                 }
+
+                @Override
+                public ValueVector apply(DataFrame data) {
+                    if (!ColumnKernels.isSupported(field.dtype())) {
+                        return Feature.super.apply(data);
+                    }
+
+                    return ColumnKernels.unary(field, feature.apply(data), lambda::apply, null, null, null);
+                }
             });
         }
 
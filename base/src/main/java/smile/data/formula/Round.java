@@ -16,10 +16,12 @@
  */
 package smile.data.formula;
 
+import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.type.DataType;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.ValueVector;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -78,6 +80,15 @@ public class Round extends AbstractFunction {
                 public double applyAsDouble(Tuple o) {
                     return Math.round(feature.applyAsDouble(o));
                 }
+
+                @Override
+                public ValueVector apply(DataFrame data) {
+                    if (!ColumnKernels.isSupported(field.dtype())) {
+                        return Feature.super.apply(data);
+                    }
+
+                    return ColumnKernels.unary(field, feature.apply(data), null, null, Math::round, Math::round);
+                }
             });
         }
 
@@ -0,0 +1,713 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.graph;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import smile.tensor.SparseMatrix;
+import smile.util.IntArrayList;
+import smile.util.function.ArrayElementConsumer;
+import smile.util.function.ArrayElementFunction;
+
+/**
+ * An immutable compressed sparse row (CSR) representation of a graph.
+ * The targets and weights of edges are stored in primitive arrays,
+ * where the edges of a vertex are consecutive and sorted by target.
+ * An undirected edge is stored in both directions. Compared to
+ * {@link AdjacencyList}, there is no per-edge object so that graphs of
+ * tens of millions of edges take only 12 bytes per edge, or 4 bytes per
+ * edge if unweighted.
+ * <p>
+ * Besides the algorithms of {@link Graph}, this class provides parallel
+ * breadth-first search, delta-stepping single-source shortest paths,
+ * connected components and PageRank.
+ *
+ * @author Haifeng Li
+ */
+public class CSRGraph extends Graph implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CSRGraph.class);
+    /**
+     * BFS switches to bottom-up steps if the frontier is larger than
+     * the number of vertices divided by this ratio.
+     */
+    private static final int BOTTOM_UP_RATIO = 20;
+    /** The offset of edges of each vertex. The size is n + 1. */
+    private final int[] offset;
+    /** The target of edges. */
+    private final int[] target;
+    /** The weight of edges, or null if the graph is unweighted. */
+    private final double[] weight;
+    /** The in-degree of vertices of digraph, or null if undirected. */
+    private final int[] inDegree;
+
+    /**
+     * Constructor.
+     * @param digraph true if this is a directed graph.
+     * @param offset the offset of edges of each vertex.
+     * @param target the target of edges.
+     * @param weight the weight of edges, or null if the graph is unweighted.
+     */
+    private CSRGraph(boolean digraph, int[] offset, int[] target, double[] weight) {
+        super(digraph);
+        this.offset = offset;
+        this.target = target;
+        this.weight = weight;
+
+        if (digraph) {
+            inDegree = new int[offset.length - 1];
+            for (int v : target) {
+                inDegree[v]++;
+            }
+        } else {
+            inDegree = null;
+        }
+    }
+
+    /**
+     * Creates a graph from the edge lists. The edges of zero weight are
+     * ignored. If an edge occurs multiple times, the last one is kept.
+     *
+     * @param n the number of vertices.
+     * @param digraph true if this is a directed graph.
+     * @param source the source vertex of edges.
+     * @param target the target vertex of edges.
+     * @param weight the weight of edges, or null if the graph is unweighted.
+     * @return the graph.
+     */
+    public static CSRGraph of(int n, boolean digraph, int[] source, int[] target, double[] weight) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Invalid number of vertices: " + n);
+        }
+
+        if (source.length != target.length) {
+            throw new IllegalArgumentException(String.format("source.length (%d) != target.length (%d)", source.length, target.length));
+        }
+
+        if (weight != null && weight.length != source.length) {
+            throw new IllegalArgumentException(String.format("weight.length (%d) != source.length (%d)", weight.length, source.length));
+        }
+
+        // Counts the edges of each vertex in both directions if undirected.
+        int m = source.length;
+        int[] count = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            int u = source[e];
+            int v = target[e];
+            if (u < 0 || u >= n) {
+                throw new IllegalArgumentException("Invalid vertex: " + u);
+            }
+            if (v < 0 || v >= n) {
+                throw new IllegalArgumentException("Invalid vertex: " + v);
+            }
+            if (weight != null && weight[e] == 0.0) continue;
+
+            count[u + 1]++;
+            if (!digraph && u != v) {
+                count[v + 1]++;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            count[i + 1] += count[i];
+        }
+
+        // The edges of a vertex are in the input order. The key is the
+        // target in the high bits and the position in the low bits so that
+        // sorting the keys orders the edges by target and then position.
+        long[] key = new long[count[n]];
+        double[] w = weight == null ? null : new double[count[n]];
+        int[] pos = Arrays.copyOf(count, n);
+        for (int e = 0; e < m; e++) {
+            if (weight != null && weight[e] == 0.0) continue;
+            int u = source[e];
+            int v = target[e];
+            int p = pos[u]++;
+            key[p] = ((long) v << 32) | (p - count[u]);
+            if (w != null) w[p] = weight[e];
+            if (!digraph && u != v) {
+                p = pos[v]++;
+                key[p] = ((long) u << 32) | (p - count[v]);
+                if (w != null) w[p] = weight[e];
+            }
+        }
+
+        // Sorts the edges by target and removes the duplicates.
+        int[] size = new int[n + 1];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int start = count[i];
+            int end = count[i + 1];
+            Arrays.sort(key, start, end);
+            for (int p = start; p < end; p++) {
+                if (p + 1 == end || (key[p] >>> 32) != (key[p + 1] >>> 32)) {
+                    size[i + 1]++;
+                }
+            }
+        });
+
+        for (int i = 0; i < n; i++) {
+            size[i + 1] += size[i];
+        }
+
+        int[] targets = new int[size[n]];
+        double[] weights = w == null ? null : new double[size[n]];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int start = count[i];
+            int end = count[i + 1];
+            int q = size[i];
+            for (int p = start; p < end; p++) {
+                if (p + 1 == end || (key[p] >>> 32) != (key[p + 1] >>> 32)) {
+                    targets[q] = (int) (key[p] >>> 32);
+                    if (weights != null) {
+                        weights[q] = w[start + (int) key[p]];
+                    }
+                    q++;
+                }
+            }
+        });
+
+        boolean unweighted = weights == null || Arrays.stream(weights).allMatch(x -> x == 1.0);
+        return new CSRGraph(digraph, size, targets, unweighted ? null : weights);
+    }
+
+    /**
+     * Creates a graph from the edge lists. The edges of zero weight are
+     * ignored. If an edge occurs multiple times, the last one is kept.
+     *
+     * @param n the number of vertices.
+     * @param digraph true if this is a directed graph.
+     * @param edges the edges.
+     * @return the graph.
+     */
+    public static CSRGraph of(int n, boolean digraph, Collection<Edge> edges) {
+        int m = edges.size();
+        int[] source = new int[m];
+        int[] target = new int[m];
+        double[] weight = new double[m];
+        int e = 0;
+        for (Edge edge : edges) {
+            source[e] = edge.u();
+            target[e] = edge.v();
+            weight[e] = edge.weight();
+            e++;
+        }
+        return of(n, digraph, source, target, weight);
+    }
+
+    /**
+     * Creates a graph from the nearest neighbor graph, where the edge
+     * weights are the distances to neighbors.
+     *
+     * @param graph the nearest neighbor graph.
+     * @param digraph create a directed graph if true.
+     * @return the graph.
+     */
+    public static CSRGraph of(NearestNeighborGraph graph, boolean digraph) {
+        int n = graph.size();
+        int m = 0;
+        for (int[] neighbor : graph.neighbors()) {
+            m += neighbor.length;
+        }
+
+        int[] source = new int[m];
+        int[] target = new int[m];
+        double[] weight = new double[m];
+        for (int i = 0, e = 0; i < n; i++) {
+            int[] neighbor = graph.neighbors()[i];
+            double[] distance = graph.distances()[i];
+            for (int j = 0; j < neighbor.length; j++, e++) {
+                source[e] = i;
+                target[e] = neighbor[j];
+                weight[e] = distance[j];
+            }
+        }
+        return of(n, digraph, source, target, weight);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CSRGraph(%d nodes, %d edges, digraph=%b)", getVertexCount(), target.length, isDigraph());
+    }
+
+    /**
+     * Returns the weight of edge.
+     * @param e the index of edge.
+     * @return the weight of edge.
+     */
+    private double weight(int e) {
+        return weight == null ? 1.0 : weight[e];
+    }
+
+    /**
+     * Returns the index of edge, or a negative value if the edge doesn't exist.
+     * @param source the id of source vertex of the edge.
+     * @param target the id of target vertex of the edge.
+     * @return the index of edge.
+     */
+    private int edge(int source, int target) {
+        return Arrays.binarySearch(this.target, offset[source], offset[source + 1], target);
+    }
+
+    @Override
+    public int getVertexCount() {
+        return offset.length - 1;
+    }
+
+    @Override
+    public boolean hasEdge(int source, int target) {
+        return edge(source, target) >= 0;
+    }
+
+    @Override
+    public double getWeight(int source, int target) {
+        int e = edge(source, target);
+        return e >= 0 ? weight(e) : 0.0;
+    }
+
+    /**
+     * Throws {@link UnsupportedOperationException} as the graph is immutable.
+     */
+    @Override
+    public CSRGraph setWeight(int source, int target, double weight) {
+        throw new UnsupportedOperationException("CSRGraph is immutable");
+    }
+
+    @Override
+    public List<Edge> getEdges(int vertex) {
+        List<Edge> edges = new ArrayList<>(getOutDegree(vertex));
+        for (int e = offset[vertex]; e < offset[vertex + 1]; e++) {
+            edges.add(new Edge(vertex, target[e], weight(e)));
+        }
+        return edges;
+    }
+
+    @Override
+    public void forEachEdge(int vertex, ArrayElementConsumer action) {
+        for (int e = offset[vertex]; e < offset[vertex + 1]; e++) {
+            action.apply(target[e], weight(e));
+        }
+    }
+
+    @Override
+    public DoubleStream mapEdges(int vertex, ArrayElementFunction mapper) {
+        return IntStream.range(offset[vertex], offset[vertex + 1]).mapToDouble(e -> mapper.apply(target[e], weight(e)));
+    }
+
+    /**
+     * Throws {@link UnsupportedOperationException} as the graph is immutable.
+     */
+    @Override
+    public void updateEdges(int vertex, ArrayElementFunction mapper) {
+        throw new UnsupportedOperationException("CSRGraph is immutable");
+    }
+
+    @Override
+    public int getInDegree(int vertex) {
+        return inDegree != null ? inDegree[vertex] : getOutDegree(vertex);
+    }
+
+    @Override
+    public int getOutDegree(int vertex) {
+        return offset[vertex + 1] - offset[vertex];
+    }
+
+    @Override
+    public CSRGraph subgraph(int[] vertices) {
+        int[] v = vertices.clone();
+        Arrays.sort(v);
+
+        IntArrayList source = new IntArrayList();
+        IntArrayList target = new IntArrayList();
+        List<Double> weight = new ArrayList<>();
+        for (int i = 0; i < v.length; i++) {
+            for (int e = offset[v[i]]; e < offset[v[i] + 1]; e++) {
+                int j = Arrays.binarySearch(v, this.target[e]);
+                // The undirected edges are added once.
+                if (j >= 0 && (isDigraph() || i <= j)) {
+                    source.add(i);
+                    target.add(j);
+                    weight.add(weight(e));
+                }
+            }
+        }
+
+        double[] w = weight.stream().mapToDouble(Double::doubleValue).toArray();
+        return of(v.length, isDigraph(), source.toArray(), target.toArray(), w);
+    }
+
+    @Override
+    public SparseMatrix toMatrix() {
+        int n = getVertexCount();
+        double[] w = weight != null ? weight.clone() : DoubleStream.generate(() -> 1.0).limit(target.length).toArray();
+        // The CSR arrays of a matrix are the CSC arrays of its transpose.
+        return new SparseMatrix(n, n, w, target.clone(), offset.clone()).transpose();
+    }
+
+    /**
+     * Returns the number of hops from the source to all vertices by
+     * parallel level-synchronous breadth-first search. For undirected
+     * graphs, the search switches to bottom-up steps, in which the
+     * unvisited vertices look for a parent in the frontier, when the
+     * frontier is large.
+     *
+     * @param source the source vertex.
+     * @return the number of hops from the source, or -1 if unreachable.
+     */
+    public int[] bfs(int source) {
+        int n = getVertexCount();
+        AtomicIntegerArray level = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++) {
+            level.set(i, -1);
+        }
+        level.set(source, 0);
+
+        int[] frontier = {source};
+        for (int depth = 1; frontier.length > 0; depth++) {
+            int d = depth;
+            if (!isDigraph() && frontier.length > n / BOTTOM_UP_RATIO) {
+                frontier = IntStream.range(0, n).parallel().filter(v -> {
+                    if (level.get(v) >= 0) return false;
+                    for (int e = offset[v]; e < offset[v + 1]; e++) {
+                        if (level.get(target[e]) == d - 1) {
+                            level.set(v, d);
+                            return true;
+                        }
+                    }
+                    return false;
+                }).toArray();
+            } else {
+                frontier = Arrays.stream(frontier).parallel()
+                        .flatMap(u -> IntStream.range(offset[u], offset[u + 1])
+                                .map(e -> target[e])
+                                .filter(v -> level.compareAndSet(v, -1, d)))
+                        .toArray();
+            }
+        }
+
+        int[] hops = new int[n];
+        for (int i = 0; i < n; i++) {
+            hops[i] = level.get(i);
+        }
+        return hops;
+    }
+
+    /**
+     * Calculates the shortest path from a source to all other vertices by
+     * the parallel delta-stepping algorithm with the bucket width of the
+     * maximum edge weight divided by the average degree.
+     *
+     * @param source the source vertex.
+     * @return the distance to all vertices from the source.
+     */
+    public double[] deltaStepping(int source) {
+        int n = getVertexCount();
+        double max = weight == null ? 1.0 : Arrays.stream(weight).parallel().max().orElse(1.0);
+        double delta = n == 0 || target.length == 0 ? 1.0 : max * n / target.length;
+        return deltaStepping(source, delta);
+    }
+
+    /**
+     * Calculates the shortest path from a source to all other vertices by
+     * the parallel delta-stepping algorithm. The vertices are kept in the
+     * buckets of width delta by their tentative distance. The buckets are
+     * processed in order, where the light edges (weight &le; delta) of a
+     * bucket are relaxed in parallel until the bucket is empty and then
+     * the heavy edges are relaxed once. Small delta approaches Dijkstra's
+     * algorithm and large delta approaches Bellman-Ford algorithm.
+     *
+     * @param source the source vertex.
+     * @param delta the bucket width.
+     * @return the distance to all vertices from the source.
+     */
+    public double[] deltaStepping(int source, double delta) {
+        if (delta <= 0.0) {
+            throw new IllegalArgumentException("Invalid delta: " + delta);
+        }
+
+        if (weight != null && Arrays.stream(weight).parallel().anyMatch(w -> w < 0.0)) {
+            throw new UnsupportedOperationException("Delta-stepping cannot be applied on graph with negative weights");
+        }
+
+        int n = getVertexCount();
+        // The bits of nonnegative doubles preserve the order.
+        AtomicLongArray dist = new AtomicLongArray(n);
+        long infinity = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            dist.set(i, infinity);
+        }
+        dist.set(source, Double.doubleToLongBits(0.0));
+
+        List<IntArrayList> buckets = new ArrayList<>();
+        buckets.add(new IntArrayList(new int[]{source}));
+        int[] mark = new int[n];
+        int[] settledMark = new int[n];
+        int stamp = 0;
+        for (int i = 0; i < buckets.size(); i++) {
+            IntArrayList settled = new IntArrayList();
+            while (buckets.get(i) != null && !buckets.get(i).isEmpty()) {
+                // The vertices may be added multiple times or moved to a lower bucket.
+                stamp++;
+                IntArrayList bucket = buckets.get(i);
+                IntArrayList frontier = new IntArrayList(bucket.size());
+                for (int k = 0; k < bucket.size(); k++) {
+                    int v = bucket.get(k);
+                    if (mark[v] != stamp && bucket(dist, v, delta) == i) {
+                        mark[v] = stamp;
+                        frontier.add(v);
+                        if (settledMark[v] != i + 1) {
+                            settledMark[v] = i + 1;
+                            settled.add(v);
+                        }
+                    }
+                }
+                buckets.set(i, null);
+                relax(frontier.toArray(), true, delta, dist, buckets);
+            }
+            relax(settled.toArray(), false, delta, dist, buckets);
+        }
+
+        double[] d = new double[n];
+        for (int i = 0; i < n; i++) {
+            d[i] = Double.longBitsToDouble(dist.get(i));
+        }
+        return d;
+    }
+
+    /** Returns the bucket of vertex. */
+    private static int bucket(AtomicLongArray dist, int v, double delta) {
+        return (int) Math.min(Double.longBitsToDouble(dist.get(v)) / delta, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * Relaxes the light or heavy edges of vertices in parallel and adds
+     * the vertices of which the distance is improved to the buckets.
+     */
+    private void relax(int[] vertices, boolean light, double delta, AtomicLongArray dist, List<IntArrayList> buckets) {
+        int[] improved = Arrays.stream(vertices).parallel().flatMap(u -> {
+            double du = Double.longBitsToDouble(dist.get(u));
+            return IntStream.range(offset[u], offset[u + 1])
+                    .filter(e -> (weight(e) <= delta) == light && relax(dist, target[e], du + weight(e)))
+                    .map(e -> target[e]);
+        }).toArray();
+
+        for (int v : improved) {
+            int b = bucket(dist, v, delta);
+            while (buckets.size() <= b) {
+                buckets.add(null);
+            }
+            if (buckets.get(b) == null) {
+                buckets.set(b, new IntArrayList());
+            }
+            buckets.get(b).add(v);
+        }
+    }
+
+    /** Lowers the distance of vertex atomically. Returns true if the distance is improved. */
+    private static boolean relax(AtomicLongArray dist, int v, double d) {
+        long bits = Double.doubleToLongBits(d);
+        long current;
+        while (bits < (current = dist.get(v))) {
+            if (dist.compareAndSet(v, current, bits)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the connected components by parallel union-find with
+     * lock-free linking. For digraph, the weakly connected components
+     * are returned, which ignore the direction of edges.
+     *
+     * @return a two-dimensional array of which each row is the vertices
+     *         in the same connected component. The components are ordered
+     *         by their smallest vertex.
+     */
+    public int[][] cc() {
+        int n = getVertexCount();
+        AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++) {
+            parent.set(i, i);
+        }
+
+        IntStream.range(0, n).parallel().forEach(u -> {
+            for (int e = offset[u]; e < offset[u + 1]; e++) {
+                int v = target[e];
+                if (isDigraph() || u < v) {
+                    union(parent, u, v);
+                }
+            }
+        });
+
+        // The smallest vertex of a component is its root.
+        int[] root = new int[n];
+        IntStream.range(0, n).parallel().forEach(i -> root[i] = find(parent, i));
+
+        int numComponents = 0;
+        int[] id = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (root[i] == i) {
+                id[i] = numComponents++;
+            }
+        }
+
+        int[] size = new int[numComponents];
+        for (int i = 0; i < n; i++) {
+            size[id[root[i]]]++;
+        }
+
+        int[][] components = new int[numComponents][];
+        for (int c = 0; c < numComponents; c++) {
+            components[c] = new int[size[c]];
+        }
+
+        Arrays.fill(size, 0);
+        for (int i = 0; i < n; i++) {
+            int c = id[root[i]];
+            components[c][size[c]++] = i;
+        }
+        return components;
+    }
+
+    /** Returns the root of disjoint set with path halving. */
+    private static int find(AtomicIntegerArray parent, int x) {
+        while (true) {
+            int p = parent.get(x);
+            if (p == x) return x;
+            int gp = parent.get(p);
+            if (p != gp) {
+                parent.compareAndSet(x, p, gp);
+            }
+            x = gp;
+        }
+    }
+
+    /**
+     * Merges the disjoint sets. The larger root is linked to the smaller
+     * one so that no cycle is formed by concurrent linking.
+     */
+    private static void union(AtomicIntegerArray parent, int u, int v) {
+        while (true) {
+            int ru = find(parent, u);
+            int rv = find(parent, v);
+            if (ru == rv) return;
+            if (ru < rv) {
+                int t = ru;
+                ru = rv;
+                rv = t;
+            }
+            if (parent.compareAndSet(ru, ru, rv)) return;
+        }
+    }
+
+    /**
+     * Calculates the PageRank of vertices with the damping factor 0.85.
+     *
+     * @return the PageRank of vertices, which sums to 1.
+     */
+    public double[] pagerank() {
+        return pagerank(0.85, 1E-7, 57);
+    }
+
+    /**
+     * Calculates the PageRank of vertices by parallel power iteration.
+     * A random surfer follows an out-edge with the probability of its
+     * weight over the total weight of out-edges. The surfer at a vertex
+     * without out-edges jumps to a random vertex.
+     *
+     * @param damping the damping factor.
+     * @param tol the desired convergence tolerance.
+     * @param maxIter the maximum number of iterations in case that the
+     *                algorithm does not converge.
+     * @return the PageRank of vertices, which sums to 1.
+     */
+    public double[] pagerank(double damping, double tol, int maxIter) {
+        if (damping < 0.0 || damping > 1.0) {
+            throw new IllegalArgumentException("Invalid damping factor: " + damping);
+        }
+
+        if (tol <= 0.0) {
+            throw new IllegalArgumentException("Invalid tolerance: " + tol);
+        }
+
+        if (maxIter <= 0) {
+            throw new IllegalArgumentException("Invalid maximum number of iterations: " + maxIter);
+        }
+
+        int n = getVertexCount();
+        double[] outWeight = new double[n];
+        IntStream.range(0, n).parallel().forEach(u -> {
+            double sum = 0.0;
+            for (int e = offset[u]; e < offset[u + 1]; e++) {
+                sum += weight(e);
+            }
+            outWeight[u] = sum;
+        });
+
+        // Each vertex pulls the rank from its in-edges, which are
+        // the out-edges of transpose graph.
+        CSRGraph transpose = this;
+        if (isDigraph()) {
+            int[] source = new int[target.length];
+            for (int u = 0; u < n; u++) {
+                Arrays.fill(source, offset[u], offset[u + 1], u);
+            }
+            transpose = of(n, true, target, source, weight);
+        }
+
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        double[] contrib = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+        CSRGraph in = transpose;
+        for (int iter = 1; iter <= maxIter; iter++) {
+            double[] p = rank;
+            IntStream.range(0, n).parallel().forEach(u -> contrib[u] = outWeight[u] > 0.0 ? p[u] / outWeight[u] : 0.0);
+            double dangling = IntStream.range(0, n).parallel().filter(u -> outWeight[u] == 0.0).mapToDouble(u -> p[u]).sum();
+            double teleport = (1.0 - damping + damping * dangling) / n;
+
+            double[] q = next;
+            double delta = IntStream.range(0, n).parallel().mapToDouble(v -> {
+                double sum = 0.0;
+                for (int e = in.offset[v]; e < in.offset[v + 1]; e++) {
+                    sum += in.weight(e) * contrib[in.target[e]];
+                }
+                q[v] = teleport + damping * sum;
+                return Math.abs(q[v] - p[v]);
+            }).sum();
+
+            next = rank;
+            rank = q;
+
+            if (iter % 10 == 0 || delta < tol) {
+                logger.info("PageRank residual after {} power iterations: {}", iter, delta);
+            }
+
+            if (delta < tol) return rank;
+        }
+
+        logger.error("PageRank iteration exceeded the maximum number of iterations.");
+        return rank;
+    }
+}
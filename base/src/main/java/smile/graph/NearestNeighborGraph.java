@@ -21,6 +21,7 @@ import java.util.stream.IntStream;
 import smile.math.MathEx;
 import smile.math.distance.Distance;
 import smile.math.distance.Metric;
+import smile.neighbor.KNNSearch;
 import smile.neighbor.RandomProjectionTree;
 
 /**
@@ -152,6 +153,42 @@ public record NearestNeighborGraph(int k, int[][] neighbors, double[][] distance
         return toGraph(heap, k);
     }
 
+    /**
+     * Creates a nearest neighbor graph with a nearest neighbor search data
+     * structure, e.g. an approximate index such as HNSW for large datasets.
+     * The index of neighbors returned by the search must be the index of
+     * samples in the dataset, and the query object itself must be excluded
+     * from the search results.
+     *
+     * @param knn the nearest neighbor search data structure of the dataset.
+     * @param data the dataset.
+     * @param k k-nearest neighbor.
+     * @param <T> the type of data objects.
+     * @return k-nearest neighbor graph.
+     */
+    public static <T> NearestNeighborGraph of(KNNSearch<T, ?> knn, T[] data, int k) {
+        if (k < 2) {
+            throw new IllegalArgumentException("k must be greater than 1: " + k);
+        }
+
+        int n = data.length;
+        int[][] neighbors = new int[n][k];
+        double[][] distances = new double[n][k];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            var result = knn.search(data[i], k);
+            if (result.length < k) {
+                throw new IllegalStateException(String.format("Only %d neighbors found for sample %d", result.length, i));
+            }
+
+            for (int j = 0; j < k; j++) {
+                neighbors[i][j] = result[j].index();
+                distances[i][j] = result[j].distance();
+            }
+        });
+
+        return new NearestNeighborGraph(k, neighbors, distances);
+    }
+
     /**
      * Creates a random neighbor graph.
      *
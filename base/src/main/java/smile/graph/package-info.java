@@ -42,6 +42,11 @@
  * <i>Adjacency list</i> Much like the incidence list, each vertex has a list
  * of which vertices it is adjacent to. This causes redundancy in an undirected
  * graph. Adjacency queries are faster, at the cost of extra storage space.
+ * <p>
+ * <i>Compressed sparse row</i> The adjacency lists of all vertices are
+ * concatenated into one array of targets (and one of weights), with an
+ * array of the offset of each vertex. It is immutable but takes the least
+ * memory and suits the parallel algorithms on large graphs.
  * </dd>
  * <dt>Matrix structures</dt>
  * <dd>
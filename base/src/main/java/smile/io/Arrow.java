@@ -19,6 +19,8 @@ package smile.io;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
 import java.math.BigDecimal;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
@@ -26,6 +28,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.*;
 import java.util.*;
+import java.util.stream.Stream;
 
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.memory.RootAllocator;
@@ -40,6 +43,7 @@ import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.apache.arrow.vector.types.pojo.Field;
 import org.apache.arrow.vector.types.pojo.FieldType;
 import org.apache.arrow.vector.types.pojo.Schema;
+import org.apache.arrow.vector.util.TransferPair;
 import smile.data.DataFrame;
 import smile.data.type.*;
 
@@ -141,32 +145,171 @@ public class Arrow {
      * @return the data frame.
      */
     public DataFrame read(InputStream input, int limit) throws IOException {
-        try (BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
-             ArrowStreamReader reader = new ArrowStreamReader(input, allocator)) {
-            List<DataFrame> frames = new ArrayList<>();
-            int rowCount = 0;
-            while (reader.loadNextBatch() && rowCount < limit) {
-                try (VectorSchemaRoot root = reader.getVectorSchemaRoot()) {
-                    DataFrame frame = read(root);
-                    frames.add(frame);
-                    rowCount += frames.size();
+        return RecordBatchIterator.collect(stream(input), limit);
+    }
+
+    /**
+     * Reads an arrow file without copying the data to the Java heap.
+     *
+     * @param path the input file path.
+     * @param arena the arena that controls the lifetime of the data.
+     * @throws IOException when fails to read the file.
+     * @return the data frame.
+     * @see #read(InputStream, Arena)
+     */
+    public DataFrame read(Path path, Arena arena) throws IOException {
+        return read(Files.newInputStream(path), arena);
+    }
+
+    /**
+     * Reads an arrow stream without copying the data to the Java heap.
+     * The numeric, boolean and string columns of the returned data frame
+     * are read-only views of the off-heap Arrow buffers, which are
+     * released when the arena is closed. After that, accessing these
+     * columns throws {@link IllegalStateException}. Other column types
+     * are copied to the Java heap as in {@link #read(InputStream, int)}.
+     * Use a shared arena if the data frame will be accessed by multiple
+     * threads.
+     *
+     * @param input the input stream.
+     * @param arena the arena that controls the lifetime of the data.
+     * @throws IOException when fails to read the file.
+     * @return the data frame.
+     */
+    public DataFrame read(InputStream input, Arena arena) throws IOException {
+        BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+        List<FieldVector> owned = new ArrayList<>();
+        // The catch clause also covers the failure of reader constructor,
+        // which would otherwise leak the allocator.
+        try (ArrowStreamReader reader = new ArrowStreamReader(input, allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            List<Field> fields = root.getSchema().getFields();
+            List<List<FieldVector>> chunks = new ArrayList<>();
+            for (int j = 0; j < fields.size(); j++) {
+                chunks.add(new ArrayList<>());
+            }
+
+            // Take over the buffers of each batch so that the reader
+            // doesn't reuse them when it loads the next batch.
+            while (reader.loadNextBatch()) {
+                List<FieldVector> vectors = root.getFieldVectors();
+                for (int j = 0; j < vectors.size(); j++) {
+                    TransferPair transfer = vectors.get(j).getTransferPair(allocator);
+                    transfer.transfer();
+                    FieldVector chunk = (FieldVector) transfer.getTo();
+                    owned.add(chunk);
+                    chunks.get(j).add(chunk);
                 }
             }
 
-            if (frames.isEmpty()) {
-                throw new IllegalStateException("No record batch");
-            } else if (frames.size() == 1) {
-                return frames.getFirst();
-            } else {
-                DataFrame df = frames.getFirst();
-                return df.concat(frames.subList(1, frames.size()).toArray(new DataFrame[frames.size() - 1]));
+            smile.data.vector.ValueVector[] columns = new smile.data.vector.ValueVector[fields.size()];
+            for (int j = 0; j < columns.length; j++) {
+                Field field = fields.get(j);
+                List<FieldVector> column = chunks.get(j);
+                if (ArrowVector.isSupported(field)) {
+                    columns[j] = ArrowVector.of(field, column, arena);
+                } else if (column.isEmpty()) {
+                    columns[j] = read(List.of(root.getVector(j))).column(0);
+                } else {
+                    DataFrame[] frames = column.stream().map(chunk -> read(List.of(chunk))).toArray(DataFrame[]::new);
+                    columns[j] = frames[0].concat(Arrays.copyOfRange(frames, 1, frames.length)).column(0);
+                }
+            }
+
+            DataFrame df = new DataFrame(columns);
+            // Release the Arrow buffers when the arena is closed.
+            MemorySegment.NULL.reinterpret(arena, segment -> release(owned, allocator));
+            return df;
+        } catch (IOException | RuntimeException ex) {
+            release(owned, allocator);
+            throw ex;
+        }
+    }
+
+    /**
+     * Releases the Arrow vectors and their allocator.
+     * @param vectors the Arrow vectors.
+     * @param allocator the allocator.
+     */
+    private static void release(List<FieldVector> vectors, BufferAllocator allocator) {
+        vectors.forEach(FieldVector::close);
+        allocator.close();
+    }
+
+    /**
+     * Returns the stream of record batches in an arrow file. Only one
+     * record batch is loaded into memory at a time so that arbitrarily
+     * large files can be processed in constant memory. The stream holds
+     * the file open until it is closed or consumed to the end. Therefore,
+     * it should be used in a try-with-resources statement.
+     *
+     * @param path the input file path.
+     * @param columns the columns to read. If empty, all columns are read.
+     * @throws IOException when fails to read the file.
+     * @return the stream of record batches.
+     */
+    public Stream<DataFrame> stream(Path path, String... columns) throws IOException {
+        return stream(Files.newInputStream(path), columns);
+    }
+
+    /**
+     * Returns the stream of record batches in an arrow stream. Only one
+     * record batch is loaded into memory at a time so that arbitrarily
+     * large inputs can be processed in constant memory. The input stream
+     * is closed when the returned stream is closed or consumed to the end.
+     * Therefore, it should be used in a try-with-resources statement.
+     * Only the selected columns are converted to data frame columns.
+     *
+     * @param input the input stream.
+     * @param columns the columns to read. If empty, all columns are read.
+     * @throws IOException when fails to read the file.
+     * @return the stream of record batches.
+     */
+    public Stream<DataFrame> stream(InputStream input, String... columns) throws IOException {
+        BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+        try {
+            ArrowStreamReader reader = new ArrowStreamReader(input, allocator);
+            return new RecordBatchIterator(reader, columns, allocator).stream();
+        } catch (RuntimeException ex) {
+            allocator.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Converts a record batch to a data frame.
+     * @param root the record batch.
+     * @param columns the columns to read. If empty, all columns are read.
+     * @return the data frame.
+     */
+    static DataFrame read(VectorSchemaRoot root, String... columns) {
+        if (columns.length == 0) {
+            return read(root);
+        }
+
+        List<FieldVector> fieldVectors = new ArrayList<>(columns.length);
+        for (var column : columns) {
+            FieldVector vector = root.getVector(column);
+            if (vector == null) {
+                throw new IllegalArgumentException("Column doesn't exist: " + column);
             }
+            fieldVectors.add(vector);
         }
+        return read(fieldVectors);
     }
 
     static DataFrame read(VectorSchemaRoot root) {
-        List<FieldVector> fieldVectors = root.getFieldVectors();
-        logger.info("read {} rows and {} columns", root.getRowCount(), fieldVectors.size());
+        return read(root.getFieldVectors());
+    }
+
+    /**
+     * Converts Arrow field vectors to a data frame.
+     * @param fieldVectors the field vectors of a record batch.
+     * @return the data frame.
+     */
+    private static DataFrame read(List<FieldVector> fieldVectors) {
+        int rowCount = fieldVectors.isEmpty() ? 0 : fieldVectors.getFirst().getValueCount();
+        logger.debug("read {} rows and {} columns", rowCount, fieldVectors.size());
 
         smile.data.vector.ValueVector[] vectors = new smile.data.vector.ValueVector[fieldVectors.size()];
         for (int j = 0; j < fieldVectors.size(); j++) {
@@ -1164,7 +1307,7 @@ public class Arrow {
                 };
             }
 
-            case Bool -> DataTypes.BooleanType;
+            case Bool -> nullable ? DataTypes.NullableBooleanType : DataTypes.BooleanType;
             case Decimal -> DataTypes.DecimalType;
             case Utf8 -> DataTypes.StringType;
             case Date -> DataTypes.DateType;
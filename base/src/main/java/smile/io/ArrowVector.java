@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.io;
+
+import java.io.Serial;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import smile.data.type.DataType;
+import smile.data.type.StructField;
+import smile.data.vector.*;
+import smile.math.MathEx;
+import smile.util.Index;
+
+import static java.lang.foreign.ValueLayout.*;
+
+/**
+ * A read-only vector that views the off-heap buffers of Arrow field vectors
+ * without copying. The buffers are accessed through memory segments bound
+ * to an arena. Once the arena is closed, any access to the vector throws
+ * {@link IllegalStateException} rather than reading freed memory.
+ * A column may consist of multiple chunks, one per record batch.
+ * <p>
+ * Selecting rows with {@link #get(Index)} or serializing the vector
+ * materializes an on-heap copy, which stays valid after the arena is closed.
+ *
+ * @author Haifeng Li
+ */
+class ArrowVector extends AbstractVector {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** The data type ID. */
+    private final DataType.ID id;
+    /** The value buffer of each chunk. */
+    private final MemorySegment[] data;
+    /** The validity bitmap of each chunk. Null if the chunk has no nulls. */
+    private final MemorySegment[] validity;
+    /** The offset buffer of each chunk of variable width type. */
+    private final MemorySegment[] offsets;
+    /** The index of first row of each chunk, followed by the vector size. */
+    private final int[] start;
+    /** The number of null values. */
+    private final int nullCount;
+
+    /**
+     * Constructor.
+     * @param field the struct field of vector.
+     * @param data the value buffer of each chunk.
+     * @param validity the validity bitmap of each chunk.
+     * @param offsets the offset buffer of each chunk of variable width type.
+     * @param start the index of first row of each chunk, followed by the vector size.
+     * @param nullCount the number of null values.
+     */
+    private ArrowVector(StructField field, MemorySegment[] data, MemorySegment[] validity, MemorySegment[] offsets, int[] start, int nullCount) {
+        super(field);
+        this.id = field.dtype().id();
+        this.data = data;
+        this.validity = validity;
+        this.offsets = offsets;
+        this.start = start;
+        this.nullCount = nullCount;
+    }
+
+    /**
+     * Returns true if the Arrow field can be viewed without copying.
+     * @param field the Arrow field.
+     * @return true if the Arrow field can be viewed without copying.
+     */
+    static boolean isSupported(Field field) {
+        ArrowType type = field.getType();
+        return switch (type.getTypeID()) {
+            case Int -> {
+                ArrowType.Int itype = (ArrowType.Int) type;
+                int bitWidth = itype.getBitWidth();
+                yield bitWidth == 8 || bitWidth == 32 || bitWidth == 64 || (bitWidth == 16 && itype.getIsSigned());
+            }
+            case FloatingPoint -> ((ArrowType.FloatingPoint) type).getPrecision() != FloatingPointPrecision.HALF;
+            case Bool, Utf8 -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Returns a view of the chunks of a column. The memory segments
+     * are bound to the arena, which should also be responsible for
+     * releasing the Arrow vectors.
+     *
+     * @param field the Arrow field.
+     * @param chunks the field vectors of the column, one per record batch.
+     * @param arena the arena that controls the lifetime of the view.
+     * @return the vector.
+     */
+    static ArrowVector of(Field field, List<FieldVector> chunks, Arena arena) {
+        chunks = chunks.stream().filter(chunk -> chunk.getValueCount() > 0).toList();
+        int n = chunks.size();
+        MemorySegment[] data = new MemorySegment[n];
+        MemorySegment[] validity = new MemorySegment[n];
+        MemorySegment[] offsets = new MemorySegment[n];
+        int[] start = new int[n + 1];
+        int nullCount = 0;
+
+        boolean variableWidth = field.getType().getTypeID() == ArrowType.ArrowTypeID.Utf8;
+        for (int c = 0; c < n; c++) {
+            FieldVector chunk = chunks.get(c);
+            start[c + 1] = start[c] + chunk.getValueCount();
+            data[c] = segment(chunk.getDataBuffer(), arena);
+            if (variableWidth) {
+                offsets[c] = segment(chunk.getOffsetBuffer(), arena);
+            }
+
+            int nulls = chunk.getNullCount();
+            if (nulls > 0) {
+                validity[c] = segment(chunk.getValidityBuffer(), arena);
+                nullCount += nulls;
+            }
+        }
+
+        StructField structField = new StructField(field.getName(), Arrow.toDataType(field));
+        return new ArrowVector(structField, data, validity, offsets, start, nullCount);
+    }
+
+    /**
+     * Returns the memory segment of an Arrow buffer.
+     * @param buffer the Arrow buffer.
+     * @param arena the arena that controls the lifetime of the segment.
+     * @return the memory segment.
+     */
+    private static MemorySegment segment(ArrowBuf buffer, Arena arena) {
+        return MemorySegment.ofAddress(buffer.memoryAddress()).reinterpret(buffer.capacity(), arena, null);
+    }
+
+    /**
+     * Returns the chunk that contains the i-th element.
+     * @param i the index.
+     * @return the chunk index.
+     */
+    private int chunk(int i) {
+        if (i < 0 || i >= start[start.length - 1]) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size());
+        }
+
+        if (data.length == 1) return 0;
+        int k = Arrays.binarySearch(start, 0, data.length, i);
+        return k >= 0 ? k : -k - 2;
+    }
+
+    /**
+     * Returns the bit of a bitmap.
+     * @param bitmap the bitmap.
+     * @param i the bit index.
+     * @return the bit value.
+     */
+    private static boolean bit(MemorySegment bitmap, long i) {
+        return (bitmap.get(JAVA_BYTE, i >> 3) & (1 << (i & 7))) != 0;
+    }
+
+    /**
+     * Returns the i-th element as long. The null value is read as is.
+     * @param c the chunk index.
+     * @param k the element index in the chunk.
+     * @return the element value.
+     */
+    private long longValue(int c, long k) {
+        MemorySegment segment = data[c];
+        return switch (id) {
+            case Byte -> segment.get(JAVA_BYTE, k);
+            case Short -> segment.getAtIndex(JAVA_SHORT_UNALIGNED, k);
+            case Int -> segment.getAtIndex(JAVA_INT_UNALIGNED, k);
+            case Long -> segment.getAtIndex(JAVA_LONG_UNALIGNED, k);
+            case Float -> (long) segment.getAtIndex(JAVA_FLOAT_UNALIGNED, k);
+            case Double -> (long) segment.getAtIndex(JAVA_DOUBLE_UNALIGNED, k);
+            case Boolean -> bit(segment, k) ? 1 : 0;
+            case String -> Long.parseLong(string(c, k));
+            default -> throw new UnsupportedOperationException("Unsupported data type: " + field().dtype());
+        };
+    }
+
+    /**
+     * Returns the i-th element as double. The null value is read as is.
+     * @param c the chunk index.
+     * @param k the element index in the chunk.
+     * @return the element value.
+     */
+    private double doubleValue(int c, long k) {
+        MemorySegment segment = data[c];
+        return switch (id) {
+            case Float -> segment.getAtIndex(JAVA_FLOAT_UNALIGNED, k);
+            case Double -> segment.getAtIndex(JAVA_DOUBLE_UNALIGNED, k);
+            case String -> Double.parseDouble(string(c, k));
+            default -> longValue(c, k);
+        };
+    }
+
+    /**
+     * Returns the i-th element of UTF-8 string vector.
+     * @param c the chunk index.
+     * @param k the element index in the chunk.
+     * @return the element value.
+     */
+    private String string(int c, long k) {
+        int begin = offsets[c].getAtIndex(JAVA_INT_UNALIGNED, k);
+        int end = offsets[c].getAtIndex(JAVA_INT_UNALIGNED, k + 1);
+        byte[] bytes = data[c].asSlice(begin, end - begin).toArray(JAVA_BYTE);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns true if the element in the chunk is null.
+     * @param c the chunk index.
+     * @param k the element index in the chunk.
+     * @return true if the element is null.
+     */
+    private boolean isNull(int c, long k) {
+        return validity[c] != null && !bit(validity[c], k);
+    }
+
+    @Override
+    public int size() {
+        return start[start.length - 1];
+    }
+
+    @Override
+    public ArrowVector withName(String name) {
+        return new ArrowVector(field().withName(name), data, validity, offsets, start, nullCount);
+    }
+
+    @Override
+    public boolean isNullable() {
+        return field().dtype().isNullable();
+    }
+
+    @Override
+    public boolean isNullAt(int i) {
+        int c = chunk(i);
+        long k = i - start[c];
+        return isNull(c, k);
+    }
+
+    @Override
+    public int getNullCount() {
+        return nullCount;
+    }
+
+    @Override
+    public Object get(int i) {
+        int c = chunk(i);
+        long k = i - start[c];
+        if (isNull(c, k)) return null;
+        MemorySegment segment = data[c];
+        return switch (id) {
+            case Byte -> segment.get(JAVA_BYTE, k);
+            case Short -> segment.getAtIndex(JAVA_SHORT_UNALIGNED, k);
+            case Int -> segment.getAtIndex(JAVA_INT_UNALIGNED, k);
+            case Long -> segment.getAtIndex(JAVA_LONG_UNALIGNED, k);
+            case Float -> segment.getAtIndex(JAVA_FLOAT_UNALIGNED, k);
+            case Double -> segment.getAtIndex(JAVA_DOUBLE_UNALIGNED, k);
+            case Boolean -> bit(segment, k);
+            case String -> string(c, k);
+            default -> throw new UnsupportedOperationException("Unsupported data type: " + field().dtype());
+        };
+    }
+
+    @Override
+    public String getString(int i) {
+        if (id == DataType.ID.String) {
+            int c = chunk(i);
+            long k = i - start[c];
+            return isNull(c, k) ? null : string(c, k);
+        }
+        return super.getString(i);
+    }
+
+    /**
+     * The vector is read-only.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void set(int i, Object value) {
+        throw new UnsupportedOperationException("Arrow vector is read-only");
+    }
+
+    @Override
+    public boolean getBoolean(int i) {
+        int c = chunk(i);
+        long k = i - start[c];
+        return switch (id) {
+            case Boolean -> bit(data[c], k);
+            case Float, Double -> !MathEx.isZero(doubleValue(c, k));
+            case String -> Boolean.parseBoolean(string(c, k));
+            default -> longValue(c, k) != 0;
+        };
+    }
+
+    @Override
+    public char getChar(int i) {
+        int c = chunk(i);
+        long k = i - start[c];
+        return switch (id) {
+            case Boolean -> bit(data[c], k) ? 'T' : 'F';
+            case String -> string(c, k).charAt(0);
+            default -> (char) longValue(c, k);
+        };
+    }
+
+    @Override
+    public byte getByte(int i) {
+        return (byte) getLong(i);
+    }
+
+    @Override
+    public short getShort(int i) {
+        return (short) getLong(i);
+    }
+
+    @Override
+    public int getInt(int i) {
+        return (int) getLong(i);
+    }
+
+    @Override
+    public long getLong(int i) {
+        int c = chunk(i);
+        return longValue(c, i - start[c]);
+    }
+
+    @Override
+    public float getFloat(int i) {
+        return (float) getDouble(i);
+    }
+
+    @Override
+    public double getDouble(int i) {
+        int c = chunk(i);
+        long k = i - start[c];
+        return isNull(c, k) ? Double.NaN : doubleValue(c, k);
+    }
+
+    @Override
+    public IntStream intStream() {
+        return IntStream.range(0, size()).map(i -> isNullAt(i) ? Integer.MIN_VALUE : getInt(i));
+    }
+
+    @Override
+    public LongStream longStream() {
+        return IntStream.range(0, size()).mapToLong(i -> isNullAt(i) ? Long.MIN_VALUE : getLong(i));
+    }
+
+    @Override
+    public DoubleStream doubleStream() {
+        return IntStream.range(0, size()).mapToDouble(this::getDouble);
+    }
+
+    @Override
+    public ValueVector get(Index index) {
+        int n = index.size();
+        String name = name();
+        BitSet mask = new BitSet(n);
+        if (nullCount > 0) {
+            for (int i = 0; i < n; i++) {
+                int c = chunk(index.apply(i));
+                mask.set(i, isNull(c, index.apply(i) - start[c]));
+            }
+        }
+
+        boolean nullable = isNullable();
+        return switch (id) {
+            case Byte -> {
+                byte[] values = new byte[n];
+                for (int i = 0; i < n; i++) values[i] = getByte(index.apply(i));
+                yield nullable ? new NullableByteVector(name, values, mask) : new ByteVector(name, values);
+            }
+            case Short -> {
+                short[] values = new short[n];
+                for (int i = 0; i < n; i++) values[i] = getShort(index.apply(i));
+                yield nullable ? new NullableShortVector(name, values, mask) : new ShortVector(name, values);
+            }
+            case Int -> {
+                int[] values = new int[n];
+                for (int i = 0; i < n; i++) values[i] = getInt(index.apply(i));
+                yield nullable ? new NullableIntVector(name, values, mask) : new IntVector(name, values);
+            }
+            case Long -> {
+                long[] values = new long[n];
+                for (int i = 0; i < n; i++) values[i] = getLong(index.apply(i));
+                yield nullable ? new NullableLongVector(name, values, mask) : new LongVector(name, values);
+            }
+            case Float -> {
+                float[] values = new float[n];
+                for (int i = 0; i < n; i++) values[i] = getFloat(index.apply(i));
+                yield nullable ? new NullableFloatVector(name, values, mask) : new FloatVector(name, values);
+            }
+            case Double -> {
+                double[] values = new double[n];
+                for (int i = 0; i < n; i++) values[i] = getDouble(index.apply(i));
+                yield nullable ? new NullableDoubleVector(name, values, mask) : new DoubleVector(name, values);
+            }
+            case Boolean -> {
+                BitSet values = new BitSet(n);
+                for (int i = 0; i < n; i++) values.set(i, getBoolean(index.apply(i)));
+                yield nullable ? new NullableBooleanVector(name, n, values, mask) : new BooleanVector(name, n, values);
+            }
+            case String -> {
+                String[] values = new String[n];
+                for (int i = 0; i < n; i++) values[i] = getString(index.apply(i));
+                yield new StringVector(name, values);
+            }
+            default -> throw new UnsupportedOperationException("Unsupported data type: " + field().dtype());
+        };
+    }
+
+    /**
+     * Replaces the view with an on-heap copy in serialization.
+     * @return the on-heap copy of vector.
+     */
+    @Serial
+    private Object writeReplace() {
+        return get(Index.range(0, size()));
+    }
+}
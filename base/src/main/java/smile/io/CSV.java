@@ -47,12 +47,18 @@ import smile.data.type.StructType;
  */
 public class CSV {
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CSV.class);
+    /**
+     * The default number of bytes of chunks to read in parallel.
+     */
+    public static final long DEFAULT_CHUNK_SIZE = 32L << 20;
     /** The schema of data structure. */
     private StructType schema;
     /** The CSV file format. */
     private final CSVFormat format;
     /** Charset of file. */
     private Charset charset = StandardCharsets.UTF_8;
+    /** The number of bytes of chunks to read in parallel. */
+    private long chunkSize = DEFAULT_CHUNK_SIZE;
 
     /**
      * Constructor.
@@ -91,6 +97,26 @@ public class CSV {
         return this;
     }
 
+    /**
+     * Sets the number of bytes of chunks to read in parallel. A file
+     * larger than a chunk is split into chunks at record boundaries,
+     * which are parsed in parallel straight into columns without
+     * creating the intermediate tuples. It applies to the whole file
+     * reading of {@link #read(Path)} if the format has a single character
+     * delimiter and the charset is UTF-8, US-ASCII or ISO-8859-1.
+     * If a record is too long for a chunk to end at a record boundary
+     * within 1 GB, the file is read sequentially.
+     * @param chunkSize the number of bytes of chunks, at most 1 GB.
+     * @return this object.
+     */
+    public CSV chunkSize(long chunkSize) {
+        if (chunkSize <= 0 || chunkSize > CSVChunkReader.MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
     /**
      * Reads a CSV file.
      * @param path the input file path.
@@ -137,6 +163,14 @@ public class CSV {
      * @return the data frame.
      */
     public DataFrame read(Path path, int limit) throws IOException {
+        if (limit == Integer.MAX_VALUE && Files.size(path) > chunkSize && CSVChunkReader.supports(format, charset)) {
+            DataFrame data = new CSVChunkReader(format, charset).read(path, schema, chunkSize);
+            if (data != null) {
+                schema = data.schema();
+                return data;
+            }
+        }
+
         if (schema == null) {
             // infer the schema from top 1000 rows.
             schema = inferSchema(Files.newBufferedReader(path, charset), Math.min(1000, limit));
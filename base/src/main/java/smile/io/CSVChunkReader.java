@@ -0,0 +1,859 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.io;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.DuplicateHeaderMode;
+import smile.data.DataFrame;
+import smile.data.type.DataType;
+import smile.data.type.DataTypes;
+import smile.data.type.StructField;
+import smile.data.type.StructType;
+import smile.data.vector.*;
+
+/**
+ * Multithreaded CSV reader of large files. The file is memory mapped and
+ * split into chunks at record boundaries, which are found by running the
+ * quote-aware state machine of every chunk for all possible starting states
+ * in parallel and then chaining the chunks from the beginning of file.
+ * The chunks are tokenized in parallel and the fields are parsed straight
+ * into the primitive arrays of columns, which are finally concatenated.
+ * Unlike the row-wise reading, no boxed values or tuples are created.
+ * If the schema is not given, it is inferred from the top records of
+ * file as the sequential reader does, so that the schema doesn't depend
+ * on the chunk size.
+ * <p>
+ * It supports the formats with a single character delimiter, the quote,
+ * escape and comment characters, and the header options. The records may
+ * end with LF, CRLF or CR. The formats that trim the fields, set the quote
+ * mode, have a trailing delimiter, allow missing column names, or restrict
+ * duplicate header names are left to the sequential reader. The charset
+ * must be ASCII compatible so that the special characters can be found
+ * in bytes.
+ * <p>
+ * A chunk is decoded into one string, so that it may not be larger than
+ * {@link #MAX_CHUNK_SIZE} bytes. If a record is so long that a chunk
+ * can't end at a record boundary within the limit, the file is left to
+ * the sequential reader.
+ *
+ * @author Haifeng Li
+ */
+final class CSVChunkReader {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CSVChunkReader.class);
+    /** The number of top records to infer the schema. */
+    private static final int SAMPLE_SIZE = 1000;
+    /** The initial number of bytes to read the header or samples. */
+    private static final int SAMPLE_BYTES = 1 << 20;
+    /**
+     * The maximum number of bytes of chunks, which is decoded into
+     * a string of at most as many characters. The limit leaves
+     * room for the UTF-16 strings, whose length is at most half
+     * of the maximum array size.
+     */
+    static final long MAX_CHUNK_SIZE = 1L << 30;
+    /** The buffer size of record boundary scanner. */
+    private static final int SCAN_BUFFER_SIZE = 1 << 16;
+    /** The missing special character. */
+    private static final int NONE = -1;
+
+    /** The states of record boundary scanner. */
+    private static final int RECORD_START = 0;
+    private static final int FIELD_START = 1;
+    private static final int FIELD = 2;
+    private static final int QUOTED = 3;
+    private static final int QUOTE_END = 4;
+    private static final int TRAILING = 5;
+    private static final int ESCAPE = 6;
+    private static final int QUOTED_ESCAPE = 7;
+    private static final int COMMENT = 8;
+    private static final int NUM_STATES = 9;
+
+    /** The CSV file format. */
+    private final CSVFormat format;
+    /** Charset of file. */
+    private final Charset charset;
+    /** The field delimiter. */
+    private final char delimiter;
+    /** The quote character. */
+    private final int quote;
+    /** The escape character. */
+    private final int escape;
+    /** The comment marker. */
+    private final int comment;
+    /** The flag to skip empty lines. */
+    private final boolean ignoreEmptyLines;
+    /** The flag to ignore the spaces around the quoted fields. */
+    private final boolean ignoreSurroundingSpaces;
+    /** The string of null value. */
+    private final String nullString;
+    /** The transition table of record boundary state machine. */
+    private final byte[] transition = new byte[NUM_STATES * 256];
+
+    /**
+     * Constructor.
+     * @param format the CSV file format.
+     * @param charset the charset of file.
+     */
+    CSVChunkReader(CSVFormat format, Charset charset) {
+        if (!supports(format, charset)) {
+            throw new IllegalArgumentException("Unsupported CSV format or charset: " + charset);
+        }
+
+        this.format = format;
+        this.charset = charset;
+        this.delimiter = format.getDelimiterString().charAt(0);
+        this.quote = format.getQuoteCharacter() == null ? NONE : format.getQuoteCharacter();
+        this.escape = format.getEscapeCharacter() == null ? NONE : format.getEscapeCharacter();
+        this.comment = format.getCommentMarker() == null ? NONE : format.getCommentMarker();
+        this.ignoreEmptyLines = format.getIgnoreEmptyLines();
+        this.ignoreSurroundingSpaces = format.getIgnoreSurroundingSpaces();
+        this.nullString = format.getNullString();
+        for (int state = 0; state < NUM_STATES; state++) {
+            for (int c = 0; c < 256; c++) {
+                transition[state * 256 + c] = (byte) next(state, c);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the format and charset are supported.
+     * @param format the CSV file format.
+     * @param charset the charset of file.
+     * @return true if the format and charset are supported.
+     */
+    static boolean supports(CSVFormat format, Charset charset) {
+        if (!charset.equals(StandardCharsets.UTF_8) && !charset.equals(StandardCharsets.US_ASCII)
+                && !charset.equals(StandardCharsets.ISO_8859_1)) {
+            return false;
+        }
+
+        // The options that the tokenizer doesn't implement.
+        if (format.getTrim() || format.getQuoteMode() != null || format.getTrailingDelimiter()
+                || format.getAllowMissingColumnNames() || format.getDuplicateHeaderMode() != DuplicateHeaderMode.ALLOW_ALL) {
+            return false;
+        }
+
+        String delimiter = format.getDelimiterString();
+        return delimiter.length() == 1 && delimiter.charAt(0) < 128 && delimiter.charAt(0) != '\n' && delimiter.charAt(0) != '\r'
+                && ascii(format.getQuoteCharacter()) && ascii(format.getEscapeCharacter()) && ascii(format.getCommentMarker());
+    }
+
+    /** Returns true if the character is null or ASCII. */
+    private static boolean ascii(Character c) {
+        return c == null || c < 128;
+    }
+
+    /**
+     * Reads a CSV file.
+     * @param path the input file path.
+     * @param schema the data schema. If null, it is inferred from samples.
+     * @param chunkSize the number of bytes of chunks.
+     * @return the data frame, or null if a chunk would be larger than
+     *         {@link #MAX_CHUNK_SIZE} bytes because of long records.
+     * @throws IOException when fails to read the file.
+     */
+    DataFrame read(Path path, StructType schema, long chunkSize) throws IOException {
+        if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ);
+             Arena arena = Arena.ofShared()) {
+            long size = channel.size();
+            if (size == 0) {
+                throw new IOException("Empty file");
+            }
+
+            MemorySegment data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+
+            // The header record.
+            String[] names = null;
+            long start = 0;
+            String[] header = format.getHeader();
+            if (header != null) {
+                Tokenizer tokenizer = tokenizer(data, 0, Math.min(size, SAMPLE_BYTES));
+                long window = SAMPLE_BYTES;
+                while (!tokenizer.next() && window < size) {
+                    if (window >= MAX_CHUNK_SIZE) {
+                        logger.info("The header of {} is longer than {} bytes", path, MAX_CHUNK_SIZE);
+                        return null;
+                    }
+                    window *= 2;
+                    tokenizer = tokenizer(data, 0, Math.min(size, window));
+                }
+
+                if (header.length == 0 && tokenizer.fields.isEmpty()) {
+                    throw new IOException("Empty file");
+                }
+
+                if (header.length == 0 || format.getSkipHeaderRecord()) {
+                    start = tokenizer.text.substring(0, tokenizer.pos).getBytes(charset).length;
+                }
+                names = header.length > 0 ? header : tokenizer.fields.toArray(new String[0]);
+            }
+
+            long[] splits = split(data, start, size, chunkSize);
+            int chunks = splits.length - 1;
+            for (int i = 0; i < chunks; i++) {
+                if (splits[i + 1] - splits[i] > MAX_CHUNK_SIZE) {
+                    logger.info("The chunk of {} at {} is longer than {} bytes", path, splits[i], MAX_CHUNK_SIZE);
+                    return null;
+                }
+            }
+            logger.info("Read {} in {} chunks", path, chunks);
+
+            if (schema == null) {
+                schema = inferSchema(data, start, names);
+            }
+
+            StructType structType = schema;
+            Column[][] columns = IntStream.range(0, chunks).parallel()
+                    .mapToObj(i -> parse(data, splits[i], splits[i + 1], structType))
+                    .toArray(Column[][]::new);
+            return concat(schema, columns);
+        }
+    }
+
+    /**
+     * Splits the file into chunks at record boundaries.
+     * @param data the file content.
+     * @param start the offset of first record.
+     * @param end the end of file.
+     * @param chunkSize the number of bytes of chunks.
+     * @return the offsets of chunks and the end of file.
+     */
+    private long[] split(MemorySegment data, long start, long end, long chunkSize) {
+        int n = (int) Math.max(1, (end - start + chunkSize - 1) / chunkSize);
+        // The end state and the first record boundary of each chunk for every starting state.
+        long[][] scans = IntStream.range(0, n).parallel()
+                .mapToObj(i -> scan(data, start + i * chunkSize, Math.min(end, start + (i + 1) * chunkSize)))
+                .toArray(long[][]::new);
+
+        List<Long> splits = new ArrayList<>();
+        splits.add(start);
+        int state = RECORD_START;
+        for (int i = 1; i < n; i++) {
+            state = (int) scans[i - 1][state];
+            long offset = start + i * chunkSize;
+            long boundary;
+            if (state != RECORD_START) {
+                boundary = scans[i][NUM_STATES + state];
+            } else if (data.get(ValueLayout.JAVA_BYTE, offset - 1) == '\r' && data.get(ValueLayout.JAVA_BYTE, offset) == '\n') {
+                // Don't split CRLF.
+                boundary = offset + 1;
+            } else {
+                boundary = offset;
+            }
+            if (boundary >= 0 && boundary > splits.getLast() && boundary < end) {
+                splits.add(boundary);
+            }
+        }
+        splits.add(end);
+        return splits.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Runs the state machine of record boundaries on a chunk for every
+     * starting state. The starting states that reach the same state
+     * and boundary are merged after each buffer.
+     * @param data the file content.
+     * @param from the start of chunk.
+     * @param to the end of chunk.
+     * @return the end states, followed by the offsets after the first
+     *         record boundaries (-1 if none), of every starting state.
+     */
+    private long[] scan(MemorySegment data, long from, long to) {
+        // The group of starting states and the current state of groups.
+        int[] group = new int[NUM_STATES];
+        int[] state = new int[NUM_STATES];
+        long[] boundary = new long[NUM_STATES];
+        for (int s = 0; s < NUM_STATES; s++) {
+            group[s] = s;
+            state[s] = s;
+        }
+        Arrays.fill(boundary, -1);
+        int groups = NUM_STATES;
+        int[] map = new int[NUM_STATES];
+
+        byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+        for (long offset = from; offset < to; offset += buffer.length) {
+            int length = (int) Math.min(buffer.length, to - offset);
+            MemorySegment.copy(data, ValueLayout.JAVA_BYTE, offset, buffer, 0, length);
+            for (int g = 0; g < groups; g++) {
+                byte[] table = transition;
+                int current = state[g];
+                long found = boundary[g];
+                for (int i = 0; i < length; i++) {
+                    int b = buffer[i] & 0xFF;
+                    current = table[current << 8 | b];
+                    if (found < 0 && current == RECORD_START && (b == '\n' || b == '\r')) {
+                        // The boundary of CRLF is after LF.
+                        long after = offset + i + 1;
+                        if (b == '\n' || after >= data.byteSize() || data.get(ValueLayout.JAVA_BYTE, after) != '\n') {
+                            found = after;
+                        }
+                    }
+                }
+                state[g] = current;
+                boundary[g] = found;
+            }
+
+            if (groups > 1) {
+                // Merge the groups of same state and boundary.
+                int merged = 0;
+                for (int g = 0; g < groups; g++) {
+                    int k = 0;
+                    while (k < merged && (state[k] != state[g] || boundary[k] != boundary[g])) k++;
+                    if (k == merged) {
+                        state[merged] = state[g];
+                        boundary[merged] = boundary[g];
+                        merged++;
+                    }
+                    map[g] = k;
+                }
+
+                if (merged < groups) {
+                    for (int s = 0; s < NUM_STATES; s++) {
+                        group[s] = map[group[s]];
+                    }
+                    groups = merged;
+                }
+            }
+        }
+
+        long[] result = new long[2 * NUM_STATES];
+        for (int s = 0; s < NUM_STATES; s++) {
+            result[s] = state[group[s]];
+            result[NUM_STATES + s] = boundary[group[s]];
+        }
+        return result;
+    }
+
+    /**
+     * The transition of record boundary state machine.
+     * @param state the current state.
+     * @param c the input character.
+     * @return the next state.
+     */
+    private int next(int state, int c) {
+        return switch (state) {
+            case RECORD_START -> c == comment ? COMMENT : next(FIELD_START, c);
+            case FIELD_START -> {
+                if (c == delimiter) yield FIELD_START;
+                if (c == '\n' || c == '\r') yield RECORD_START;
+                if (c == quote) yield QUOTED;
+                if (c == escape) yield ESCAPE;
+                if (ignoreSurroundingSpaces && (c == ' ' || c == '\t')) yield FIELD_START;
+                yield FIELD;
+            }
+            case FIELD -> {
+                if (c == delimiter) yield FIELD_START;
+                if (c == '\n' || c == '\r') yield RECORD_START;
+                if (c == escape) yield ESCAPE;
+                yield FIELD;
+            }
+            case QUOTED -> c == quote ? QUOTE_END : c == escape ? QUOTED_ESCAPE : QUOTED;
+            case QUOTE_END -> {
+                if (c == quote) yield QUOTED;
+                if (c == delimiter) yield FIELD_START;
+                if (c == '\n' || c == '\r') yield RECORD_START;
+                yield TRAILING;
+            }
+            case TRAILING -> c == delimiter ? FIELD_START : c == '\n' || c == '\r' ? RECORD_START : TRAILING;
+            case ESCAPE -> FIELD;
+            case QUOTED_ESCAPE -> QUOTED;
+            default -> c == '\n' || c == '\r' ? RECORD_START : COMMENT;
+        };
+    }
+
+    /**
+     * Returns the tokenizer of a chunk.
+     * @param data the file content.
+     * @param from the start of chunk.
+     * @param to the end of chunk.
+     * @return the tokenizer.
+     */
+    private Tokenizer tokenizer(MemorySegment data, long from, long to) {
+        byte[] bytes = data.asSlice(from, to - from).toArray(ValueLayout.JAVA_BYTE);
+        return new Tokenizer(new String(bytes, charset), to < data.byteSize());
+    }
+
+    /**
+     * Infers the schema from the top records of file. The sample window
+     * is doubled until it holds {@code SAMPLE_SIZE} records, the rest
+     * of file, or {@code MAX_CHUNK_SIZE} bytes.
+     * @param data the file content.
+     * @param start the offset of first record.
+     * @param names the column names, or null if no header.
+     * @return the schema.
+     */
+    private StructType inferSchema(MemorySegment data, long start, String[] names) {
+        long size = data.byteSize();
+        List<List<String>> records = new ArrayList<>();
+        for (long window = SAMPLE_BYTES; ; window *= 2) {
+            records.clear();
+            Tokenizer tokenizer = tokenizer(data, start, Math.min(size, start + window));
+            while (records.size() < SAMPLE_SIZE && tokenizer.next()) {
+                records.add(List.copyOf(tokenizer.fields));
+            }
+            if (records.size() >= SAMPLE_SIZE || start + window >= size || window >= MAX_CHUNK_SIZE) break;
+        }
+
+        if (names == null) {
+            if (records.isEmpty()) {
+                throw new IllegalArgumentException("Empty CSV file");
+            }
+            names = new String[records.getFirst().size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = String.format("V%d", i + 1);
+            }
+        }
+
+        int p = names.length;
+        DataType[] types = new DataType[p];
+        for (var record : records) {
+            if (record.size() < p) continue;
+            for (int j = 0; j < p; j++) {
+                types[j] = DataType.coerce(types[j], DataType.infer(record.get(j).trim()));
+            }
+        }
+
+        StructField[] fields = new StructField[p];
+        for (int j = 0; j < p; j++) {
+            fields[j] = new StructField(names[j], types[j] == null ? DataTypes.StringType : types[j]);
+        }
+        return new StructType(fields);
+    }
+
+    /**
+     * Parses a chunk into columns.
+     * @param data the file content.
+     * @param from the start of chunk.
+     * @param to the end of chunk.
+     * @param schema the data schema.
+     * @return the columns of chunk.
+     */
+    private Column[] parse(MemorySegment data, long from, long to, StructType schema) {
+        var fields = schema.fields();
+        int p = fields.size();
+        int capacity = (int) Math.min(1 << 20, Math.max(16, (to - from) / (4L * p)));
+        Column[] columns = new Column[p];
+        for (int j = 0; j < p; j++) {
+            columns[j] = new Column(fields.get(j), capacity);
+        }
+
+        byte[] bytes = data.asSlice(from, to - from).toArray(ValueLayout.JAVA_BYTE);
+        Tokenizer tokenizer = new Tokenizer(new String(bytes, charset), false);
+        while (tokenizer.next()) {
+            var record = tokenizer.fields;
+            if (record.size() < p) {
+                logger.warn("Expected {} fields. Skip record with {} fields: {}", p, record.size(), record);
+                continue;
+            }
+
+            for (int j = 0; j < p; j++) {
+                String s = record.get(j);
+                if (s.equals(nullString)) {
+                    columns[j].add(null);
+                } else {
+                    s = s.trim();
+                    columns[j].add(s.isEmpty() ? null : s);
+                }
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Concatenates the columns of chunks.
+     * @param schema the data schema.
+     * @param chunks the columns of chunks.
+     * @return the data frame.
+     */
+    private static DataFrame concat(StructType schema, Column[][] chunks) {
+        var fields = schema.fields();
+        int p = fields.size();
+        int n = 0;
+        for (var chunk : chunks) n += chunk[0].size;
+
+        ValueVector[] vectors = new ValueVector[p];
+        for (int j = 0; j < p; j++) {
+            StructField field = fields.get(j);
+            BitSet nulls = new BitSet(n);
+            Object values = Column.allocate(field, n);
+            int offset = 0;
+            for (var chunk : chunks) {
+                Column column = chunk[j];
+                System.arraycopy(column.values, 0, values, offset, column.size);
+                for (int i = column.nulls.nextSetBit(0); i >= 0; i = column.nulls.nextSetBit(i + 1)) {
+                    nulls.set(offset + i);
+                }
+                offset += column.size;
+                // Release the chunk early.
+                chunk[j] = null;
+            }
+
+            // Set a field to nullable if any missing value in the column.
+            DataType dtype = field.dtype();
+            if (!nulls.isEmpty() && dtype.isPrimitive() && !dtype.isNullable()) {
+                field = new StructField(field.name(), nullable(dtype), field.measure());
+            }
+
+            vectors[j] = vector(field, values, nulls);
+        }
+        return new DataFrame(vectors);
+    }
+
+    /**
+     * Returns the nullable type of primitive type.
+     * @param dtype the primitive type.
+     * @return the nullable type.
+     */
+    private static DataType nullable(DataType dtype) {
+        return switch (dtype.id()) {
+            case Int -> DataTypes.NullableIntType;
+            case Long -> DataTypes.NullableLongType;
+            case Float -> DataTypes.NullableFloatType;
+            case Double -> DataTypes.NullableDoubleType;
+            case Boolean -> DataTypes.NullableBooleanType;
+            case Byte -> DataTypes.NullableByteType;
+            case Short -> DataTypes.NullableShortType;
+            case Char -> DataTypes.NullableCharType;
+            default -> dtype;
+        };
+    }
+
+    /**
+     * Returns the vector of a column.
+     * @param field the struct field.
+     * @param values the array of column values.
+     * @param nulls the null mask.
+     * @return the vector.
+     */
+    private static ValueVector vector(StructField field, Object values, BitSet nulls) {
+        boolean nullable = field.dtype().isNullable();
+        return switch (field.dtype().id()) {
+            case Int -> nullable ? new NullableIntVector(field, (int[]) values, nulls) : new IntVector(field, (int[]) values);
+            case Long -> nullable ? new NullableLongVector(field, (long[]) values, nulls) : new LongVector(field, (long[]) values);
+            case Double -> nullable ? new NullableDoubleVector(field, (double[]) values, nulls) : new DoubleVector(field, (double[]) values);
+            case Float -> nullable ? new NullableFloatVector(field, (float[]) values, nulls) : new FloatVector(field, (float[]) values);
+            case Boolean -> nullable ? new NullableBooleanVector(field, (boolean[]) values, nulls) : new BooleanVector(field, (boolean[]) values);
+            case Byte -> nullable ? new NullableByteVector(field, (byte[]) values, nulls) : new ByteVector(field, (byte[]) values);
+            case Short -> nullable ? new NullableShortVector(field, (short[]) values, nulls) : new ShortVector(field, (short[]) values);
+            case Char -> nullable ? new NullableCharVector(field, (char[]) values, nulls) : new CharVector(field, (char[]) values);
+            case String -> new StringVector(field, (String[]) values);
+            case Decimal -> new NumberVector<>(field, (BigDecimal[]) values);
+            default -> new ObjectVector<>(field, (Object[]) values);
+        };
+    }
+
+    /**
+     * The column builder of a chunk, which parses the fields straight into
+     * the primitive array.
+     */
+    private static class Column {
+        /** The struct field. */
+        final StructField field;
+        /** The array of values. */
+        Object values;
+        /** The null mask. */
+        final BitSet nulls = new BitSet();
+        /** The number of values. */
+        int size = 0;
+        /** The capacity of array. */
+        int capacity;
+
+        /**
+         * Constructor.
+         * @param field the struct field.
+         * @param capacity the initial capacity.
+         */
+        Column(StructField field, int capacity) {
+            this.field = field;
+            this.capacity = capacity;
+            this.values = allocate(field, capacity);
+        }
+
+        /**
+         * Allocates the array of values.
+         * @param field the struct field.
+         * @param n the array size.
+         * @return the array.
+         */
+        static Object allocate(StructField field, int n) {
+            return switch (field.dtype().id()) {
+                case Int -> new int[n];
+                case Long -> new long[n];
+                case Double -> new double[n];
+                case Float -> new float[n];
+                case Boolean -> new boolean[n];
+                case Byte -> new byte[n];
+                case Short -> new short[n];
+                case Char -> new char[n];
+                case String -> new String[n];
+                case Decimal -> new BigDecimal[n];
+                default -> new Object[n];
+            };
+        }
+
+        /**
+         * Adds a value.
+         * @param s the string of value, or null if missing.
+         */
+        void add(String s) {
+            if (size == capacity) {
+                capacity *= 2;
+                Object array = allocate(field, capacity);
+                System.arraycopy(values, 0, array, 0, size);
+                values = array;
+            }
+
+            if (s == null) {
+                nulls.set(size);
+                switch (values) {
+                    case int[] a -> a[size] = Integer.MIN_VALUE;
+                    case long[] a -> a[size] = Long.MIN_VALUE;
+                    case double[] a -> a[size] = Double.NaN;
+                    case float[] a -> a[size] = Float.NaN;
+                    case byte[] a -> a[size] = Byte.MIN_VALUE;
+                    case short[] a -> a[size] = Short.MIN_VALUE;
+                    default -> { }
+                }
+            } else if (field.measure() != null) {
+                // The measure, e.g. nominal scale, maps the string to the value.
+                Object value = field.valueOf(s);
+                switch (values) {
+                    case int[] a -> a[size] = ((Number) value).intValue();
+                    case long[] a -> a[size] = ((Number) value).longValue();
+                    case double[] a -> a[size] = ((Number) value).doubleValue();
+                    case float[] a -> a[size] = ((Number) value).floatValue();
+                    case byte[] a -> a[size] = ((Number) value).byteValue();
+                    case short[] a -> a[size] = ((Number) value).shortValue();
+                    case Object[] a -> a[size] = value;
+                    default -> throw new IllegalStateException("Unsupported measure of " + field);
+                }
+            } else {
+                switch (values) {
+                    case int[] a -> a[size] = Integer.parseInt(s);
+                    case long[] a -> a[size] = Long.parseLong(s);
+                    case double[] a -> a[size] = Double.parseDouble(s);
+                    case float[] a -> a[size] = Float.parseFloat(s);
+                    case boolean[] a -> a[size] = Boolean.parseBoolean(s);
+                    case byte[] a -> a[size] = Byte.parseByte(s);
+                    case short[] a -> a[size] = Short.parseShort(s);
+                    case char[] a -> a[size] = s.charAt(0);
+                    case String[] a -> a[size] = s;
+                    case Object[] a -> a[size] = field.valueOf(s);
+                    default -> throw new IllegalStateException("Unsupported type of " + field);
+                }
+            }
+            size++;
+        }
+    }
+
+    /**
+     * The tokenizer of records in a chunk.
+     */
+    private class Tokenizer {
+        /** The chunk text. */
+        final String text;
+        /** The flag if the text is a prefix of chunk, of which the last incomplete record is dropped. */
+        final boolean partial;
+        /** The fields of current record. */
+        final List<String> fields = new ArrayList<>();
+        /** The buffer of quoted or escaped field. */
+        final StringBuilder buffer = new StringBuilder();
+        /** The current position. */
+        int pos = 0;
+
+        /**
+         * Constructor.
+         * @param text the chunk text.
+         * @param partial the flag if the text is a prefix of chunk.
+         */
+        Tokenizer(String text, boolean partial) {
+            this.text = text;
+            this.partial = partial;
+        }
+
+        /**
+         * Reads the next record into the fields.
+         * @return false if no more records.
+         */
+        boolean next() {
+            int end = text.length();
+            while (pos < end) {
+                fields.clear();
+                char c = text.charAt(pos);
+                if (c == comment) {
+                    int eol = pos;
+                    while (eol < end && text.charAt(eol) != '\n' && text.charAt(eol) != '\r') eol++;
+                    if (eol == end) {
+                        pos = end;
+                        return false;
+                    }
+                    pos = lineEnd(eol);
+                    continue;
+                }
+
+                if (c == '\n' || c == '\r') {
+                    int start = pos;
+                    pos = lineEnd(pos);
+                    if (partial && pos == end && c == '\r') {
+                        pos = start;
+                        return false;
+                    }
+                    if (ignoreEmptyLines) continue;
+                    fields.add("");
+                    return true;
+                }
+
+                int start = pos;
+                int terminator;
+                do {
+                    terminator = field();
+                } while (terminator == delimiter);
+
+                if (terminator < 0 && partial) {
+                    // The record may be incomplete.
+                    pos = start;
+                    fields.clear();
+                    return false;
+                }
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Returns the position after the line end.
+         * @param p the position of line end.
+         * @return the position after the line end.
+         */
+        private int lineEnd(int p) {
+            if (text.charAt(p) == '\r' && p + 1 < text.length() && text.charAt(p + 1) == '\n') {
+                return p + 2;
+            }
+            return p + 1;
+        }
+
+        /**
+         * Reads a field.
+         * @return the delimiter, '\n' for line end, or -1 for the end of text.
+         */
+        private int field() {
+            int end = text.length();
+            int p = pos;
+            if (ignoreSurroundingSpaces) {
+                while (p < end && text.charAt(p) != delimiter && (text.charAt(p) == ' ' || text.charAt(p) == '\t')) p++;
+            }
+
+            if (p < end && text.charAt(p) == quote) {
+                buffer.setLength(0);
+                p++;
+                while (p < end) {
+                    char c = text.charAt(p++);
+                    if (c == quote) {
+                        if (p < end && text.charAt(p) == quote) {
+                            buffer.append(c);
+                            p++;
+                        } else {
+                            break;
+                        }
+                    } else if (c == escape && p < end) {
+                        buffer.append(unescape(text.charAt(p++)));
+                    } else {
+                        buffer.append(c);
+                    }
+                }
+
+                // Skip the characters between the closing quote and delimiter.
+                while (p < end) {
+                    char c = text.charAt(p);
+                    if (c == delimiter || c == '\n' || c == '\r') break;
+                    p++;
+                }
+                fields.add(buffer.toString());
+            } else {
+                int start = p;
+                boolean escaped = false;
+                while (p < end) {
+                    char c = text.charAt(p);
+                    if (c == delimiter || c == '\n' || c == '\r') break;
+                    if (c == escape) {
+                        if (!escaped) {
+                            buffer.setLength(0);
+                            buffer.append(text, start, p);
+                            escaped = true;
+                        }
+                        p++;
+                        if (p < end) buffer.append(unescape(text.charAt(p++)));
+                        continue;
+                    }
+                    if (escaped) buffer.append(c);
+                    p++;
+                }
+                fields.add(escaped ? buffer.toString() : text.substring(start, p));
+            }
+
+            if (p >= end) {
+                pos = end;
+                return -1;
+            }
+
+            char c = text.charAt(p);
+            if (c == delimiter) {
+                pos = p + 1;
+                return delimiter;
+            }
+
+            pos = lineEnd(p);
+            return '\n';
+        }
+
+        /**
+         * Returns the escaped character.
+         * @param c the character after the escape character.
+         * @return the escaped character.
+         */
+        private char unescape(char c) {
+            return switch (c) {
+                case 'r' -> '\r';
+                case 'n' -> '\n';
+                case 't' -> '\t';
+                case 'b' -> '\b';
+                case 'f' -> '\f';
+                default -> c;
+            };
+        }
+    }
+}
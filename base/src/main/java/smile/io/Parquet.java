@@ -18,10 +18,12 @@ package smile.io;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
-import java.time.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.memory.RootAllocator;
@@ -32,11 +34,8 @@ import org.apache.arrow.dataset.scanner.Scanner;
 import org.apache.arrow.dataset.scanner.ScanOptions;
 import org.apache.arrow.dataset.source.Dataset;
 import org.apache.arrow.dataset.source.DatasetFactory;
-import org.apache.arrow.vector.VectorSchemaRoot;
 import org.apache.arrow.vector.ipc.ArrowReader;
-import org.apache.arrow.vector.types.pojo.Schema;
 import smile.data.DataFrame;
-import smile.data.type.*;
 
 /**
  * Apache Parquet is a columnar storage format that supports
@@ -47,6 +46,8 @@ import smile.data.type.*;
  */
 public class Parquet {
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Parquet.class);
+    /** The default number of rows in a record batch. */
+    private static final int BATCH_SIZE = 32768;
 
     /** Private constructor to prevent object creation. */
     private Parquet() {
@@ -72,11 +73,7 @@ public class Parquet {
      * @return the data frame.
      */
     public static DataFrame read(Path path, int limit) throws Exception {
-        String file = path.toAbsolutePath().toString();
-        // prefix slash on Windows
-        if (!file.startsWith("/")) file = "/" + file;
-        String uri = "file://" + file;
-        return read(uri, limit);
+        return read(uri(path), limit);
     }
 
     /**
@@ -98,33 +95,102 @@ public class Parquet {
      * @return the data frame.
      */
     public static DataFrame read(String uri, int limit) throws Exception {
-        ScanOptions options = new ScanOptions(32768); // batch size
-        try (BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
-             DatasetFactory factory = new FileSystemDatasetFactory(allocator, NativeMemoryPool.getDefault(), FileFormat.PARQUET, uri);
-             Dataset dataset = factory.finish();
-             Scanner scanner = dataset.newScan(options);
-             ArrowReader reader = scanner.scanBatches()) {
+        return RecordBatchIterator.collect(stream(uri), limit);
+    }
 
-            int rowCount = 0;
-            Schema schema = factory.inspect();
-            StructType struct = Arrow.toStructType(schema);
-            List<DataFrame> frames = new ArrayList<>();
-            while (reader.loadNextBatch() && rowCount < limit) {
-                try (VectorSchemaRoot root = reader.getVectorSchemaRoot()) {
-                    DataFrame frame = Arrow.read(root);
-                    frames.add(frame);
-                    rowCount += frames.size();
-                }
-            }
+    /**
+     * Returns the stream of record batches in a parquet file.
+     * @param path the input file path.
+     * @param columns the columns to read. If empty, all columns are read.
+     * @throws Exception when fails to open the dataset.
+     * @return the stream of record batches.
+     */
+    public static Stream<DataFrame> stream(Path path, String... columns) throws Exception {
+        return stream(uri(path), BATCH_SIZE, columns, null);
+    }
+
+    /**
+     * Returns the stream of record batches in a parquet file.
+     * @param uri the input file URI.
+     * @param columns the columns to read. If empty, all columns are read.
+     * @throws Exception when fails to open the dataset.
+     * @return the stream of record batches.
+     */
+    public static Stream<DataFrame> stream(String uri, String... columns) throws Exception {
+        return stream(uri, BATCH_SIZE, columns, null);
+    }
 
-            if (frames.isEmpty()) {
-                throw new IllegalStateException("No record batch");
-            } else if (frames.size() == 1) {
-                return frames.getFirst();
-            } else {
-                DataFrame df = frames.getFirst();
-                return df.concat(frames.subList(1, frames.size()).toArray(new DataFrame[frames.size() - 1]));
+    /**
+     * Returns the stream of record batches in a parquet file. Only one
+     * record batch is loaded into memory at a time so that arbitrarily
+     * large files can be processed in constant memory. The column
+     * projection and the filter are pushed down into the Arrow Dataset
+     * scanner so that the skipped columns are never decoded and the
+     * row groups that don't match the filter may be pruned by their
+     * statistics.
+     * <p>
+     * The stream holds native resources until it is closed or consumed
+     * to the end. Therefore, it should be used in a try-with-resources
+     * statement.
+     *
+     * @param uri the input file URI.
+     * @param batchSize the maximum number of rows in a record batch.
+     * @param columns the columns to read. If null or empty, all columns are read.
+     * @param filter the Substrait extended expression of a boolean filter,
+     *               serialized in a direct byte buffer. If null, all
+     *               rows are read.
+     * @throws Exception when fails to open the dataset.
+     * @return the stream of record batches.
+     */
+    public static Stream<DataFrame> stream(String uri, int batchSize, String[] columns, ByteBuffer filter) throws Exception {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+
+        var builder = new ScanOptions.Builder(batchSize);
+        if (columns != null && columns.length > 0) {
+            builder.columns(Optional.of(columns));
+        }
+        if (filter != null) {
+            builder.substraitFilter(filter);
+        }
+        ScanOptions options = builder.build();
+
+        List<AutoCloseable> resources = new ArrayList<>();
+        try {
+            BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+            resources.add(allocator);
+            DatasetFactory factory = new FileSystemDatasetFactory(allocator, NativeMemoryPool.getDefault(), FileFormat.PARQUET, uri);
+            resources.add(factory);
+            Dataset dataset = factory.finish();
+            resources.add(dataset);
+            Scanner scanner = dataset.newScan(options);
+            resources.add(scanner);
+            ArrowReader reader = scanner.scanBatches();
+            // The scanner has already projected the columns.
+            var iterator = new RecordBatchIterator(reader, null, resources.toArray(new AutoCloseable[0]));
+            return iterator.stream();
+        } catch (Exception ex) {
+            for (int i = resources.size(); i-- > 0; ) {
+                try {
+                    resources.get(i).close();
+                } catch (Exception e) {
+                    ex.addSuppressed(e);
+                }
             }
+            throw ex;
         }
     }
+
+    /**
+     * Returns the file URI of a path.
+     * @param path the file path.
+     * @return the file URI.
+     */
+    private static String uri(Path path) {
+        String file = path.toAbsolutePath().toString();
+        // prefix slash on Windows
+        if (!file.startsWith("/")) file = "/" + file;
+        return "file://" + file;
+    }
 }
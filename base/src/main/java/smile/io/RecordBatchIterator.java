@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowReader;
+import smile.data.DataFrame;
+
+/**
+ * A pull-based iterator of Arrow record batches. Each call of
+ * {@code next()} loads one record batch and converts it to a data frame,
+ * so that only one batch is held in memory at a time. The iterator owns
+ * the reader and the resources (e.g. allocator, dataset, scanner) that
+ * back it, and releases them in the reverse order on {@code close()}.
+ *
+ * @author Haifeng Li
+ */
+class RecordBatchIterator implements Iterator<DataFrame>, AutoCloseable {
+    /** The record batch reader. */
+    private final ArrowReader reader;
+    /** The selected columns. If empty, all columns are returned. */
+    private final String[] columns;
+    /** The resources to release after the reader in the reverse order. */
+    private final AutoCloseable[] resources;
+    /** True if the next batch has been loaded but not returned yet. */
+    private boolean loaded = false;
+    /** True if the reader reaches the end of stream. */
+    private boolean done = false;
+    /** True if the iterator has been closed. */
+    private boolean closed = false;
+
+    /**
+     * Constructor.
+     * @param reader the record batch reader.
+     * @param columns the selected columns. If empty, all columns are returned.
+     * @param resources the resources to release after the reader in the reverse order.
+     */
+    RecordBatchIterator(ArrowReader reader, String[] columns, AutoCloseable... resources) {
+        this.reader = reader;
+        this.columns = columns == null ? new String[0] : columns;
+        this.resources = resources;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (loaded) return true;
+        if (done) return false;
+
+        try {
+            loaded = reader.loadNextBatch();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        if (!loaded) {
+            done = true;
+            close();
+        }
+        return loaded;
+    }
+
+    @Override
+    public DataFrame next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        loaded = false;
+        try {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            return Arrow.read(root, columns);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+
+        Exception error = null;
+        try {
+            reader.close();
+        } catch (Exception ex) {
+            error = ex;
+        }
+
+        for (int i = resources.length; i-- > 0; ) {
+            try {
+                resources[i].close();
+            } catch (Exception ex) {
+                if (error == null) error = ex;
+                else error.addSuppressed(ex);
+            }
+        }
+
+        if (error != null) {
+            throw new IllegalStateException("Failed to release record batch resources", error);
+        }
+    }
+
+    /**
+     * Returns a sequential stream of the record batches. The stream
+     * must be closed (e.g. with try-with-resources) if it is not
+     * consumed to the end.
+     * @return the stream of record batches.
+     */
+    Stream<DataFrame> stream() {
+        Spliterator<DataFrame> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    /**
+     * Collects a limited number of records from a stream of record batches.
+     * @param batches the stream of record batches.
+     * @param limit the number of records to read.
+     * @return the data frame.
+     */
+    static DataFrame collect(Stream<DataFrame> batches, int limit) {
+        try (batches) {
+            List<DataFrame> frames = new ArrayList<>();
+            int rowCount = 0;
+            var iter = batches.iterator();
+            while (rowCount < limit && iter.hasNext()) {
+                DataFrame frame = iter.next();
+                if (frame.size() > limit - rowCount) {
+                    frame = frame.slice(0, limit - rowCount);
+                }
+                frames.add(frame);
+                rowCount += frame.size();
+            }
+
+            if (frames.isEmpty()) {
+                throw new IllegalStateException("No record batch");
+            } else if (frames.size() == 1) {
+                return frames.getFirst();
+            } else {
+                DataFrame df = frames.getFirst();
+                return df.concat(frames.subList(1, frames.size()).toArray(new DataFrame[frames.size() - 1]));
+            }
+        }
+    }
+}
@@ -0,0 +1,844 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.neighbor;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+import smile.math.MathEx;
+import smile.util.IntHashSet;
+
+/**
+ * Hierarchical Navigable Small World (HNSW) graph for approximate nearest
+ * neighbor search. HNSW builds a multi-layer proximity graph, in which
+ * the upper layers are sparse subsets of the lower ones. The level of a
+ * new element is drawn from an exponentially decaying distribution so
+ * that the layers form a skip list like hierarchy. A search starts from
+ * the top layer, greedily moves toward the query and descends layer by
+ * layer. On the bottom layer, a beam search of width {@code ef} collects
+ * the nearest neighbors. The search complexity scales logarithmically with
+ * the number of elements, which makes HNSW one of the best performing
+ * methods on large sets of high-dimensional embedding vectors.
+ * <p>
+ * The parameter {@code M} is the number of links of each element per
+ * layer (twice on the bottom layer). The parameter {@code efConstruction}
+ * is the beam width during the construction, which controls the quality
+ * of graph. The parameter {@code efSearch} is the beam width during the
+ * search, which controls the tradeoff between recall and latency, and
+ * may be changed at any time.
+ * <p>
+ * Elements may be inserted by many threads concurrently, also while other
+ * threads search the index. The index has a fixed capacity. The index of
+ * an element is the order of insertion, or the index in the data array
+ * for {@link #of(float[][], Space)}. As other nearest neighbor search
+ * data structures, the query object (reference equality) is excluded
+ * from the neighborhood.
+ * <p>
+ * The index can be saved to a file and loaded back with the vectors
+ * memory-mapped, so that an index larger than the heap can be searched.
+ * The loaded index is read-only.
+ *
+ * <h2>References</h2>
+ * <ol>
+ * <li>Yu. A. Malkov and D. A. Yashunin. Efficient and robust approximate
+ *     nearest neighbor search using Hierarchical Navigable Small World
+ *     graphs. IEEE TPAMI, 42(4):824-836, 2020.</li>
+ * </ol>
+ *
+ * @param <E> the type of data objects.
+ *
+ * @author Haifeng Li
+ */
+public class HNSW<E> implements KNNSearch<float[], E>, RNNSearch<float[], E> {
+    /**
+     * The distance measure of vectors.
+     */
+    public enum Space {
+        /** Euclidean distance. */
+        L2,
+        /** Cosine distance, i.e. one minus the cosine similarity. */
+        COSINE,
+        /**
+         * Inner product distance, i.e. one minus the inner product. It is
+         * not a metric and may be negative. Used with maximum inner product
+         * search of embeddings that are not normalized.
+         */
+        INNER_PRODUCT
+    }
+
+    /** The magic number of index file. */
+    private static final int MAGIC = 0x57534E48;
+    /** The version of index file format. */
+    private static final int VERSION = 1;
+    /** The size of index file header in bytes. */
+    private static final long HEADER_SIZE = 64;
+    /** The int layout of index file. */
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    /** The float layout of index file. */
+    private static final ValueLayout.OfFloat FLOAT = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    /** The order of candidates by distance. */
+    private static final Comparator<Candidate> NEAREST = Comparator.comparingDouble(Candidate::distance);
+    /** The reverse order of candidates by distance. */
+    private static final Comparator<Candidate> FARTHEST = NEAREST.reversed();
+
+    /** A candidate element and its distance to the query. */
+    private record Candidate(int id, double distance) { }
+
+    /** The dimension of vectors. */
+    private final int dim;
+    /** The maximum number of elements. */
+    private final int capacity;
+    /** The distance measure. */
+    private final Space space;
+    /** The number of links per element on the upper layers. */
+    private final int M;
+    /** The number of links per element on the bottom layer. */
+    private final int M0;
+    /** The beam width during the construction. */
+    private final int efConstruction;
+    /** The normalization factor of level generation. */
+    private final double mL;
+    /** The beam width during the search. */
+    private volatile int efSearch;
+    /** The vectors. Null if the vectors are memory-mapped. */
+    private final float[][] vectors;
+    /** The memory-mapped vectors. */
+    private final MemorySegment segment;
+    /** The data objects. Null if the index is loaded from file. */
+    private final Object[] data;
+    /** The L2 norm of vectors. */
+    private final float[] norms;
+    /** The links of elements. links[i][l] is the neighbor list of element i on layer l, the first of which is its size. */
+    private final int[][][] links;
+    /** The lock of each element. Null if the index is read-only. */
+    private final Object[] locks;
+    /** The number of elements. */
+    private final AtomicInteger count = new AtomicInteger();
+    /** The lock to raise the top layer. */
+    private final ReentrantLock entryLock = new ReentrantLock();
+    /** The top layer (high 32 bits) and the entry point (low 32 bits). -1 if empty. */
+    private volatile long entry = -1L;
+
+    /**
+     * Constructor with M = 16 and efConstruction = 200.
+     * @param dim the dimension of vectors.
+     * @param capacity the maximum number of elements.
+     * @param space the distance measure.
+     */
+    public HNSW(int dim, int capacity, Space space) {
+        this(dim, capacity, space, 16, 200);
+    }
+
+    /**
+     * Constructor.
+     * @param dim the dimension of vectors.
+     * @param capacity the maximum number of elements.
+     * @param space the distance measure.
+     * @param M the number of links per element on the upper layers.
+     *          The bottom layer has 2 * M links per element.
+     * @param efConstruction the beam width during the construction.
+     */
+    public HNSW(int dim, int capacity, Space space, int M, int efConstruction) {
+        if (dim < 1) {
+            throw new IllegalArgumentException("Invalid dimension: " + dim);
+        }
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        if (M < 2) {
+            throw new IllegalArgumentException("Invalid M: " + M);
+        }
+
+        if (efConstruction < 1) {
+            throw new IllegalArgumentException("Invalid efConstruction: " + efConstruction);
+        }
+
+        this.dim = dim;
+        this.capacity = capacity;
+        this.space = space;
+        this.M = M;
+        this.M0 = 2 * M;
+        this.efConstruction = Math.max(efConstruction, M);
+        this.mL = 1.0 / Math.log(M);
+        this.efSearch = 50;
+        this.vectors = new float[capacity][];
+        this.segment = null;
+        this.data = new Object[capacity];
+        this.norms = new float[capacity];
+        this.links = new int[capacity][][];
+        this.locks = new Object[capacity];
+    }
+
+    /**
+     * Constructor of read-only index with memory-mapped vectors.
+     */
+    private HNSW(int dim, int size, Space space, int M, int efConstruction, int efSearch,
+                 MemorySegment segment, float[] norms, int[][][] links, long entry) {
+        this.dim = dim;
+        this.capacity = size;
+        this.space = space;
+        this.M = M;
+        this.M0 = 2 * M;
+        this.efConstruction = efConstruction;
+        this.mL = 1.0 / Math.log(M);
+        this.efSearch = efSearch;
+        this.vectors = null;
+        this.segment = segment;
+        this.data = null;
+        this.norms = norms;
+        this.links = links;
+        this.locks = null;
+        this.count.set(size);
+        this.entry = entry;
+    }
+
+    /**
+     * Builds an HNSW index with M = 16 and efConstruction = 200.
+     * The vectors are inserted in parallel.
+     *
+     * @param data the vectors, which are also used as data objects.
+     * @param space the distance measure.
+     * @return the index.
+     */
+    public static HNSW<float[]> of(float[][] data, Space space) {
+        return of(data, space, 16, 200);
+    }
+
+    /**
+     * Builds an HNSW index. The vectors are inserted in parallel.
+     * The index of element is the index in the data array.
+     *
+     * @param data the vectors, which are also used as data objects.
+     * @param space the distance measure.
+     * @param M the number of links per element on the upper layers.
+     * @param efConstruction the beam width during the construction.
+     * @return the index.
+     */
+    public static HNSW<float[]> of(float[][] data, Space space, int M, int efConstruction) {
+        if (data.length == 0) {
+            throw new IllegalArgumentException("Empty data");
+        }
+
+        HNSW<float[]> index = new HNSW<>(data[0].length, data.length, space, M, efConstruction);
+        index.count.set(data.length);
+        IntStream.range(0, data.length).parallel().forEach(i -> index.insert(i, data[i], data[i]));
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HNSW(%s, M=%d, efConstruction=%d, efSearch=%d)", space, M, efConstruction, efSearch);
+    }
+
+    /**
+     * Returns the number of elements.
+     * @return the number of elements.
+     */
+    public int size() {
+        return count.get();
+    }
+
+    /**
+     * Returns the dimension of vectors.
+     * @return the dimension of vectors.
+     */
+    public int dim() {
+        return dim;
+    }
+
+    /**
+     * Returns the distance measure.
+     * @return the distance measure.
+     */
+    public Space space() {
+        return space;
+    }
+
+    /**
+     * Returns the beam width during the search.
+     * @return the beam width during the search.
+     */
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    /**
+     * Sets the beam width during the search. A larger value improves
+     * the recall at the cost of latency. The actual beam width is at
+     * least the number of neighbors to search for.
+     *
+     * @param efSearch the beam width during the search.
+     */
+    public void setEfSearch(int efSearch) {
+        if (efSearch < 1) {
+            throw new IllegalArgumentException("Invalid efSearch: " + efSearch);
+        }
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * Inserts a vector into the index. This method is thread-safe.
+     *
+     * @param key the vector.
+     * @param value the data object.
+     */
+    public void put(float[] key, E value) {
+        if (locks == null) {
+            throw new UnsupportedOperationException("The index loaded from file is read-only");
+        }
+
+        if (key.length != dim) {
+            throw new IllegalArgumentException(String.format("Invalid key dimension: %d != %d", key.length, dim));
+        }
+
+        int id = count.getAndUpdate(n -> n < capacity ? n + 1 : n);
+        if (id >= capacity) {
+            throw new IllegalStateException("The index is full: " + capacity);
+        }
+        insert(id, key, value);
+    }
+
+    /**
+     * Inserts an element into the graph.
+     * @param id the index of element.
+     * @param key the vector.
+     * @param value the data object.
+     */
+    private void insert(int id, float[] key, E value) {
+        if (key.length != dim) {
+            throw new IllegalArgumentException(String.format("Invalid key dimension: %d != %d", key.length, dim));
+        }
+
+        int level = (int) (-Math.log(1.0 - MathEx.random()) * mL);
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[(l == 0 ? M0 : M) + 1];
+        }
+
+        float qnorm = norm(key);
+        vectors[id] = key;
+        data[id] = value;
+        norms[id] = qnorm;
+        links[id] = nodeLinks;
+        locks[id] = new Object();
+
+        // Holds the entry lock during the insertion if the element raises the top layer.
+        long e = entry;
+        boolean locked = false;
+        if (e == -1L || level > top(e)) {
+            entryLock.lock();
+            locked = true;
+            e = entry;
+            if (e != -1L && level <= top(e)) {
+                entryLock.unlock();
+                locked = false;
+            }
+        }
+
+        try {
+            if (e == -1L) {
+                entry = entry(level, id);
+                return;
+            }
+
+            int top = top(e);
+            int ep = (int) e;
+            double epDist = distance(key, qnorm, ep);
+            for (int l = top; l > level; l--) {
+                var nearest = greedy(key, qnorm, ep, epDist, l);
+                ep = nearest.id;
+                epDist = nearest.distance;
+            }
+
+            for (int l = Math.min(top, level); l >= 0; l--) {
+                var candidates = sort(searchLayer(key, qnorm, ep, epDist, efConstruction, l));
+                candidates.removeIf(c -> c.id == id);
+                if (candidates.isEmpty()) continue;
+
+                var neighbors = prune(candidates, M);
+                synchronized (locks[id]) {
+                    int[] list = nodeLinks[l];
+                    list[0] = neighbors.size();
+                    for (int i = 0; i < neighbors.size(); i++) {
+                        list[i + 1] = neighbors.get(i).id;
+                    }
+                }
+
+                for (var neighbor : neighbors) {
+                    link(neighbor.id, id, neighbor.distance, l);
+                }
+
+                ep = candidates.getFirst().id;
+                epDist = candidates.getFirst().distance;
+            }
+
+            if (level > top) {
+                entry = entry(level, id);
+            }
+        } finally {
+            if (locked) {
+                entryLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Adds a link from an existing element to the new element. If the
+     * neighbor list is full, the links are pruned with the heuristic.
+     * @param node the existing element.
+     * @param id the new element.
+     * @param distance the distance between the two elements.
+     * @param level the layer.
+     */
+    private void link(int node, int id, double distance, int level) {
+        int maxM = level == 0 ? M0 : M;
+        synchronized (locks[node]) {
+            int[] list = links[node][level];
+            int size = list[0];
+            if (size < maxM) {
+                list[size + 1] = id;
+                list[0] = size + 1;
+                return;
+            }
+
+            List<Candidate> candidates = new ArrayList<>(size + 1);
+            candidates.add(new Candidate(id, distance));
+            for (int i = 1; i <= size; i++) {
+                candidates.add(new Candidate(list[i], distance(vectors[node], norms[node], list[i])));
+            }
+            candidates.sort(NEAREST);
+
+            var neighbors = prune(candidates, maxM);
+            list[0] = neighbors.size();
+            for (int i = 0; i < neighbors.size(); i++) {
+                list[i + 1] = neighbors.get(i).id;
+            }
+        }
+    }
+
+    /**
+     * Selects the neighbors with the heuristic that prefers diverse
+     * directions. A candidate is skipped if it is closer to an already
+     * selected neighbor than to the base element.
+     * @param candidates the candidates in the ascending order of distance.
+     * @param m the maximum number of neighbors.
+     * @return the selected neighbors.
+     */
+    private List<Candidate> prune(List<Candidate> candidates, int m) {
+        if (candidates.size() <= m) {
+            return candidates;
+        }
+
+        List<Candidate> neighbors = new ArrayList<>(m);
+        for (var candidate : candidates) {
+            if (neighbors.size() >= m) break;
+
+            boolean diverse = true;
+            float[] x = vectors[candidate.id];
+            float xnorm = norms[candidate.id];
+            for (var neighbor : neighbors) {
+                if (distance(x, xnorm, neighbor.id) < candidate.distance) {
+                    diverse = false;
+                    break;
+                }
+            }
+
+            if (diverse) {
+                neighbors.add(candidate);
+            }
+        }
+        return neighbors;
+    }
+
+    /**
+     * Returns the neighbors of an element on a layer.
+     * @param id the element.
+     * @param level the layer.
+     * @return the neighbors.
+     */
+    private int[] neighbors(int id, int level) {
+        if (locks == null) {
+            int[] list = links[id][level];
+            return Arrays.copyOfRange(list, 1, list[0] + 1);
+        }
+
+        synchronized (locks[id]) {
+            int[] list = links[id][level];
+            return Arrays.copyOfRange(list, 1, list[0] + 1);
+        }
+    }
+
+    /**
+     * Moves greedily toward the query on a layer.
+     * @param q the query vector.
+     * @param qnorm the norm of query vector.
+     * @param ep the entry point.
+     * @param epDist the distance between the query and the entry point.
+     * @param level the layer.
+     * @return the nearest element found.
+     */
+    private Candidate greedy(float[] q, float qnorm, int ep, double epDist, int level) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int neighbor : neighbors(ep, level)) {
+                double d = distance(q, qnorm, neighbor);
+                if (d < epDist) {
+                    ep = neighbor;
+                    epDist = d;
+                    changed = true;
+                }
+            }
+        }
+        return new Candidate(ep, epDist);
+    }
+
+    /**
+     * Beam search on a layer.
+     * @param q the query vector.
+     * @param qnorm the norm of query vector.
+     * @param ep the entry point.
+     * @param epDist the distance between the query and the entry point.
+     * @param ef the beam width.
+     * @param level the layer.
+     * @return the max-heap of the nearest elements found.
+     */
+    private PriorityQueue<Candidate> searchLayer(float[] q, float qnorm, int ep, double epDist, int ef, int level) {
+        var visited = new IntHashSet();
+        var candidates = new PriorityQueue<>(NEAREST);
+        var results = new PriorityQueue<>(FARTHEST);
+
+        var start = new Candidate(ep, epDist);
+        visited.add(ep);
+        candidates.add(start);
+        results.add(start);
+
+        while (!candidates.isEmpty()) {
+            var c = candidates.poll();
+            if (c.distance > results.peek().distance && results.size() >= ef) break;
+
+            for (int neighbor : neighbors(c.id, level)) {
+                if (visited.add(neighbor)) {
+                    double d = distance(q, qnorm, neighbor);
+                    if (results.size() < ef || d < results.peek().distance) {
+                        var candidate = new Candidate(neighbor, d);
+                        candidates.add(candidate);
+                        results.add(candidate);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Searches the bottom layer for the query.
+     * @param q the query vector.
+     * @param ef the beam width.
+     * @return the nearest elements found in the ascending order of distance.
+     */
+    private List<Candidate> beamSearch(float[] q, int ef) {
+        if (q.length != dim) {
+            throw new IllegalArgumentException(String.format("Invalid query dimension: %d != %d", q.length, dim));
+        }
+
+        long e = entry;
+        if (e == -1L) {
+            return new ArrayList<>();
+        }
+
+        float qnorm = norm(q);
+        int ep = (int) e;
+        double epDist = distance(q, qnorm, ep);
+        for (int l = top(e); l > 0; l--) {
+            var nearest = greedy(q, qnorm, ep, epDist, l);
+            ep = nearest.id;
+            epDist = nearest.distance;
+        }
+
+        return sort(searchLayer(q, qnorm, ep, epDist, ef, 0));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Neighbor<float[], E>[] search(float[] q, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+
+        var candidates = beamSearch(q, Math.max(efSearch, k + 1));
+        List<Neighbor<float[], E>> neighbors = new ArrayList<>(k);
+        for (var candidate : candidates) {
+            if (neighbors.size() >= k) break;
+            if (vectors == null || vectors[candidate.id] != q) {
+                neighbors.add(neighbor(candidate));
+            }
+        }
+        return neighbors.toArray(new Neighbor[0]);
+    }
+
+    @Override
+    public void search(float[] q, double radius, List<Neighbor<float[], E>> neighbors) {
+        if (radius <= 0.0) {
+            throw new IllegalArgumentException("Invalid radius: " + radius);
+        }
+
+        // Widens the beam until its farthest element is out of the range.
+        double r = space == Space.L2 ? radius * radius : radius;
+        int size = size();
+        int ef = efSearch;
+        List<Candidate> candidates = beamSearch(q, ef);
+        while (!candidates.isEmpty() && candidates.size() >= ef && ef < size
+                && candidates.getLast().distance <= r) {
+            ef = (int) Math.min(2L * ef, size);
+            candidates = beamSearch(q, ef);
+        }
+
+        for (var candidate : candidates) {
+            if (candidate.distance > r) break;
+            if (vectors == null || vectors[candidate.id] != q) {
+                neighbors.add(neighbor(candidate));
+            }
+        }
+    }
+
+    /**
+     * Returns the neighbor object of a candidate.
+     * @param candidate the candidate.
+     * @return the neighbor object.
+     */
+    @SuppressWarnings("unchecked")
+    private Neighbor<float[], E> neighbor(Candidate candidate) {
+        int id = candidate.id;
+        double d = space == Space.L2 ? Math.sqrt(candidate.distance) : candidate.distance;
+        if (vectors != null) {
+            return new Neighbor<>(vectors[id], (E) data[id], id, d);
+        }
+
+        float[] key = segment.asSlice(HEADER_SIZE + 4L * dim * id, 4L * dim).toArray(FLOAT);
+        return new Neighbor<>(key, (E) key, id, d);
+    }
+
+    /**
+     * Returns the candidates in the ascending order of distance.
+     * @param heap the max-heap of candidates.
+     * @return the sorted candidates.
+     */
+    private static List<Candidate> sort(PriorityQueue<Candidate> heap) {
+        var list = new ArrayList<>(heap);
+        list.sort(NEAREST);
+        return list;
+    }
+
+    /**
+     * Returns the distance between a vector and an element. The Euclidean
+     * distance is squared.
+     * @param q the vector.
+     * @param qnorm the norm of vector.
+     * @param id the element.
+     * @return the distance.
+     */
+    private double distance(float[] q, float qnorm, int id) {
+        if (space == Space.L2) {
+            float sum = 0.0f;
+            if (vectors != null) {
+                float[] x = vectors[id];
+                for (int i = 0; i < dim; i++) {
+                    float d = q[i] - x[i];
+                    sum += d * d;
+                }
+            } else {
+                long offset = HEADER_SIZE + 4L * dim * id;
+                for (int i = 0; i < dim; i++, offset += 4) {
+                    float d = q[i] - segment.get(FLOAT, offset);
+                    sum += d * d;
+                }
+            }
+            return sum;
+        }
+
+        float dot = 0.0f;
+        if (vectors != null) {
+            float[] x = vectors[id];
+            for (int i = 0; i < dim; i++) {
+                dot += q[i] * x[i];
+            }
+        } else {
+            long offset = HEADER_SIZE + 4L * dim * id;
+            for (int i = 0; i < dim; i++, offset += 4) {
+                dot += q[i] * segment.get(FLOAT, offset);
+            }
+        }
+
+        if (space == Space.COSINE) {
+            float norm = qnorm * norms[id];
+            return norm == 0.0f ? 1.0 : 1.0 - dot / norm;
+        }
+        return 1.0 - dot;
+    }
+
+    /** Returns the L2 norm of vector. */
+    private static float norm(float[] x) {
+        float sum = 0.0f;
+        for (float xi : x) {
+            sum += xi * xi;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    /** Returns the top layer of entry. */
+    private static int top(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    /** Returns the entry of top layer and entry point. */
+    private static long entry(int level, int id) {
+        return ((long) level << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Saves the index to a file. The data objects are not saved.
+     * The index should not be modified during the save.
+     *
+     * @param path the file path.
+     * @throws IOException if fails to write the file.
+     */
+    public void save(Path path) throws IOException {
+        if (vectors == null) {
+            throw new UnsupportedOperationException("The index loaded from file is read-only");
+        }
+
+        int n = size();
+        long e = entry;
+        long vectorSize = 4L * dim * n;
+        long linkSize = 0;
+        for (int i = 0; i < n; i++) {
+            for (int[] list : links[i]) {
+                linkSize += 4L * (list[0] + 1);
+            }
+        }
+        long fileSize = HEADER_SIZE + vectorSize + 8L * n + linkSize;
+
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+             var arena = Arena.ofConfined()) {
+            var file = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize, arena);
+            file.set(INT, 0, MAGIC);
+            file.set(INT, 4, VERSION);
+            file.set(INT, 8, dim);
+            file.set(INT, 12, n);
+            file.set(INT, 16, space.ordinal());
+            file.set(INT, 20, M);
+            file.set(INT, 24, efConstruction);
+            file.set(INT, 28, efSearch);
+            file.set(INT, 32, e == -1L ? -1 : top(e));
+            file.set(INT, 36, (int) e);
+
+            long offset = HEADER_SIZE;
+            for (int i = 0; i < n; i++, offset += 4L * dim) {
+                MemorySegment.copy(vectors[i], 0, file, FLOAT, offset, dim);
+            }
+
+            MemorySegment.copy(norms, 0, file, FLOAT, offset, n);
+            offset += 4L * n;
+
+            for (int i = 0; i < n; i++, offset += 4) {
+                file.set(INT, offset, links[i].length - 1);
+            }
+
+            for (int i = 0; i < n; i++) {
+                for (int[] list : links[i]) {
+                    int size = list[0] + 1;
+                    MemorySegment.copy(list, 0, file, INT, offset, size);
+                    offset += 4L * size;
+                }
+            }
+            file.force();
+        }
+    }
+
+    /**
+     * Loads an index from a file. The vectors are memory-mapped and
+     * the graph is loaded into the heap. The loaded index is read-only.
+     * The data objects are the vectors.
+     *
+     * @param path the file path.
+     * @return the index.
+     * @throws IOException if fails to read the file.
+     */
+    public static HNSW<float[]> load(Path path) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto());
+            if (file.byteSize() < HEADER_SIZE || file.get(INT, 0) != MAGIC) {
+                throw new IOException("Invalid HNSW index file: " + path);
+            }
+
+            int version = file.get(INT, 4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported HNSW index file version: " + version);
+            }
+
+            int dim = file.get(INT, 8);
+            int n = file.get(INT, 12);
+            var space = Space.values()[file.get(INT, 16)];
+            int M = file.get(INT, 20);
+            int efConstruction = file.get(INT, 24);
+            int efSearch = file.get(INT, 28);
+            int top = file.get(INT, 32);
+            int ep = file.get(INT, 36);
+
+            long offset = HEADER_SIZE + 4L * dim * n;
+            float[] norms = file.asSlice(offset, 4L * n).toArray(FLOAT);
+            offset += 4L * n;
+
+            int[] levels = file.asSlice(offset, 4L * n).toArray(INT);
+            offset += 4L * n;
+
+            int[][][] links = new int[n][][];
+            for (int i = 0; i < n; i++) {
+                links[i] = new int[levels[i] + 1][];
+                for (int l = 0; l <= levels[i]; l++) {
+                    int size = file.get(INT, offset);
+                    links[i][l] = file.asSlice(offset, 4L * (size + 1)).toArray(INT);
+                    offset += 4L * (size + 1);
+                }
+            }
+
+            long e = top < 0 ? -1L : entry(top, ep);
+            return new HNSW<>(dim, n, space, M, efConstruction, efSearch, file, norms, links, e);
+        }
+    }
+}
@@ -53,6 +53,11 @@
  * The cover tree has a theoretical bound that is based on the dataset's
  * doubling constant. The bound on search time is O(c12 log n) where c is
  * the expansion constant of the dataset.
+ * <p>
+ * Hierarchical navigable small world (HNSW) graph is a multi-layer proximity
+ * graph that supports approximate nearest neighbor search of large sets of
+ * high-dimensional vectors (e.g. embeddings) with high recall and
+ * logarithmic search complexity.
  * 
  * @author Haifeng Li
  */
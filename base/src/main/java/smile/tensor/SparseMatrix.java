@@ -23,6 +23,8 @@ import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -89,6 +91,27 @@ public class SparseMatrix implements Matrix, Iterable<SparseMatrix.Entry>, Seria
      * The array of nonzero values stored column by column.
      */
     private final double[] nonzeros;
+    /**
+     * The row-compressed index of nonzeros for row-partitioned
+     * matrix-vector products, built lazily.
+     */
+    private transient volatile CSR csr;
+
+    /**
+     * The minimum number of nonzeros to run the kernels in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 16384;
+
+    /**
+     * The row-compressed (CSR) index of nonzeros. The values are not copied
+     * but referred by their positions in the column-compressed storage, so
+     * that the index remains valid when the values are updated.
+     *
+     * @param rowPtr the index of the start of rows.
+     * @param colIndex the column indices of nonzero values, sorted in each row.
+     * @param position the positions of nonzero values in the column-compressed storage.
+     */
+    private record CSR(int[] rowPtr, int[] colIndex, int[] position) { }
 
     /**
      * Encapsulates an entry in a matrix for use in streaming. As typical stream object,
@@ -425,48 +448,107 @@ public class SparseMatrix implements Matrix, Iterable<SparseMatrix.Entry>, Seria
 
     @Override
     public void mv(Transpose trans, double alpha, Vector x, double beta, Vector y) {
-        int k = trans == NO_TRANSPOSE ? m : n;
-        double[] ax = new double[y.size()];
+        // The output is written in place, so x and y must not alias.
+        Vector v = x == y ? x.copy() : x;
 
         if (trans == NO_TRANSPOSE) {
-            for (int j = 0; j < n; j++) {
-                for (int i = colIndex[j]; i < colIndex[j + 1]; i++) {
-                    ax[rowIndex[i]] += nonzeros[i] * x.get(j);
+            CSR index = csr();
+            int[] rowPtr = index.rowPtr;
+            int[] cols = index.colIndex;
+            int[] pos = index.position;
+            range(m).forEach(i -> {
+                double ax = 0.0;
+                for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                    ax += nonzeros[pos[k]] * v.get(cols[k]);
                 }
-            }
+                y.set(i, alpha * ax + beta * y.get(i));
+            });
         } else {
-            for (int i = 0; i < n; i++) {
-                for (int j = colIndex[i]; j < colIndex[i + 1]; j++) {
-                    ax[i] += nonzeros[j] * x.get(rowIndex[j]);
+            range(n).forEach(j -> {
+                double ax = 0.0;
+                for (int k = colIndex[j]; k < colIndex[j + 1]; k++) {
+                    ax += nonzeros[k] * v.get(rowIndex[k]);
                 }
-            }
-        }
-
-        for (int i = 0; i < k; i++) {
-            y.set(i, alpha * ax[i] + beta * y.get(i));
+                y.set(j, alpha * ax + beta * y.get(j));
+            });
         }
     }
 
     @Override
     public void mv(Vector work, int inputOffset, int outputOffset) {
-        work.fill(outputOffset, outputOffset + m, 0.0);
-
-        for (int j = 0; j < n; j++) {
-            for (int i = colIndex[j]; i < colIndex[j + 1]; i++) {
-                work.add(outputOffset + rowIndex[i], nonzeros[i] * work.get(inputOffset + j));
+        CSR index = csr();
+        int[] rowPtr = index.rowPtr;
+        int[] cols = index.colIndex;
+        int[] pos = index.position;
+        range(m).forEach(i -> {
+            double ax = 0.0;
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                ax += nonzeros[pos[k]] * work.get(inputOffset + cols[k]);
             }
-        }
+            work.set(outputOffset + i, ax);
+        });
     }
 
     @Override
     public void tv(Vector work, int inputOffset, int outputOffset) {
-        work.fill(outputOffset, outputOffset + n, 0.0);
+        range(n).forEach(j -> {
+            double ax = 0.0;
+            for (int k = colIndex[j]; k < colIndex[j + 1]; k++) {
+                ax += nonzeros[k] * work.get(inputOffset + rowIndex[k]);
+            }
+            work.set(outputOffset + j, ax);
+        });
+    }
 
-        for (int i = 0; i < n; i++) {
-            for (int j = colIndex[i]; j < colIndex[i + 1]; j++) {
-                work.add(outputOffset + i, nonzeros[j] * work.get(inputOffset + rowIndex[j]));
+    /**
+     * Returns the stream of row or column indices, which is parallel
+     * if the matrix is large enough to pay off the overhead.
+     * @param size the number of rows or columns.
+     * @return the stream of indices.
+     */
+    private IntStream range(int size) {
+        IntStream stream = IntStream.range(0, size);
+        return colIndex[n] >= PARALLEL_THRESHOLD ? stream.parallel() : stream;
+    }
+
+    /**
+     * Returns the row-compressed index of nonzeros, which is built
+     * on the first call and cached.
+     * @return the row-compressed index of nonzeros.
+     */
+    private CSR csr() {
+        CSR index = csr;
+        if (index == null) {
+            synchronized (this) {
+                index = csr;
+                if (index == null) {
+                    int[] rowPtr = new int[m + 1];
+                    for (int k = 0; k < colIndex[n]; k++) {
+                        rowPtr[rowIndex[k] + 1]++;
+                    }
+
+                    for (int i = 0; i < m; i++) {
+                        rowPtr[i + 1] += rowPtr[i];
+                    }
+
+                    // Scan the columns in order so that each row is sorted by column.
+                    int[] next = Arrays.copyOf(rowPtr, m);
+                    int[] cols = new int[colIndex[n]];
+                    int[] pos = new int[colIndex[n]];
+                    for (int j = 0; j < n; j++) {
+                        for (int k = colIndex[j]; k < colIndex[j + 1]; k++) {
+                            int l = next[rowIndex[k]]++;
+                            cols[l] = j;
+                            pos[l] = k;
+                        }
+                    }
+
+                    index = new CSR(rowPtr, cols, pos);
+                    csr = index;
+                }
             }
         }
+        return index;
     }
 
     /**
@@ -474,32 +556,46 @@ public class SparseMatrix implements Matrix, Iterable<SparseMatrix.Entry>, Seria
      * @return the transpose of matrix.
      */
     public SparseMatrix transpose() {
-        SparseMatrix trans = new SparseMatrix(n, m, nonzeros.length);
-
-        int[] count = new int[m];
-        for (int i = 0; i < n; i++) {
-            for (int j = colIndex[i]; j < colIndex[i + 1]; j++) {
-                int k = rowIndex[j];
-                count[k]++;
-            }
+        CSR index = csr();
+        int[] pos = index.position;
+        double[] values = new double[pos.length];
+        for (int k = 0; k < pos.length; k++) {
+            values[k] = nonzeros[pos[k]];
         }
+        return new SparseMatrix(n, m, values, index.colIndex.clone(), index.rowPtr.clone());
+    }
 
-        for (int j = 0; j < m; j++) {
-            trans.colIndex[j + 1] = trans.colIndex[j] + count[j];
+    /**
+     * Sparse-dense matrix multiplication {@code A * B}. The columns
+     * of product are computed in parallel.
+     * @param B the operand.
+     * @return the multiplication.
+     */
+    public DenseMatrix mm(DenseMatrix B) {
+        if (n != B.nrow()) {
+            throw new IllegalArgumentException(String.format("Matrix dimensions do not match for matrix multiplication: %d x %d vs %d x %d", nrow(), ncol(), B.nrow(), B.ncol()));
         }
 
-        Arrays.fill(count, 0);
-        for (int i = 0; i < n; i++) {
-            for (int j = colIndex[i]; j < colIndex[i + 1]; j++) {
-                int k = rowIndex[j];
-                int index = trans.colIndex[k] + count[k];
-                trans.rowIndex[index] = i;
-                trans.nonzeros[index] = nonzeros[j];
-                count[k]++;
+        int p = B.ncol();
+        DenseMatrix C = DenseMatrix.zeros(B.scalarType(), m, p);
+        IntStream stream = IntStream.range(0, p);
+        if ((long) colIndex[n] * p >= PARALLEL_THRESHOLD) stream = stream.parallel();
+        stream.forEach(j -> {
+            double[] c = new double[m];
+            for (int k = 0; k < n; k++) {
+                double b = B.get(k, j);
+                if (b != 0.0) {
+                    for (int l = colIndex[k]; l < colIndex[k + 1]; l++) {
+                        c[rowIndex[l]] += nonzeros[l] * b;
+                    }
+                }
             }
-        }
 
-        return trans;
+            for (int i = 0; i < m; i++) {
+                C.set(i, j, c[i]);
+            }
+        });
+        return C;
     }
 
     /**
@@ -512,75 +608,119 @@ public class SparseMatrix implements Matrix, Iterable<SparseMatrix.Entry>, Seria
             throw new IllegalArgumentException(String.format("Matrix dimensions do not match for matrix multiplication: %d x %d vs %d x %d", nrow(), ncol(), B.nrow(), B.ncol()));
         }
 
-        int n = B.n;
-        int anz = colIndex[n];
+        return multiply(B, false);
+    }
+
+    /**
+     * Returns {@code A * B}. The columns of product are computed
+     * in blocks in parallel, which are concatenated at the end.
+     * @param B the operand.
+     * @param sorted if true, the row indices of each column are sorted.
+     * @return the multiplication.
+     */
+    private SparseMatrix multiply(SparseMatrix B, boolean sorted) {
+        int p = B.n;
+        long nnz = (long) colIndex[n] + B.colIndex[p];
+        int blocks = nnz < PARALLEL_THRESHOLD ? 1 : Math.min(p, 8 * ForkJoinPool.getCommonPoolParallelism());
+        if (blocks <= 1) {
+            return multiply(B, 0, p, sorted);
+        }
+
+        List<SparseMatrix> slices = IntStream.range(0, blocks).parallel()
+                .mapToObj(b -> multiply(B, (int) ((long) b * p / blocks), (int) ((long) (b + 1) * p / blocks), sorted))
+                .toList();
+
+        int size = 0;
+        for (var slice : slices) {
+            size += slice.colIndex[slice.n];
+        }
+
+        SparseMatrix C = new SparseMatrix(m, p, size);
+        int col = 0;
+        int offset = 0;
+        for (var slice : slices) {
+            int length = slice.colIndex[slice.n];
+            System.arraycopy(slice.rowIndex, 0, C.rowIndex, offset, length);
+            System.arraycopy(slice.nonzeros, 0, C.nonzeros, offset, length);
+            for (int j = 0; j < slice.n; j++) {
+                C.colIndex[col + j] = offset + slice.colIndex[j];
+            }
+            col += slice.n;
+            offset += length;
+        }
+        C.colIndex[p] = size;
+        return C;
+    }
+
+    /**
+     * Returns the columns {@code [begin, end)} of {@code A * B}.
+     * Each column of product is a linear combination of columns of A,
+     * which is accumulated in a dense workspace.
+     * @param B the operand.
+     * @param begin the beginning column, inclusive.
+     * @param end the end column, exclusive.
+     * @param sorted if true, the row indices of each column are sorted.
+     * @return the columns of product.
+     */
+    private SparseMatrix multiply(SparseMatrix B, int begin, int end, boolean sorted) {
         int[] Bp = B.colIndex;
         int[] Bi = B.rowIndex;
         double[] Bx = B.nonzeros;
-        int bnz = Bp[n];
 
+        // w[i] == j + 1 if row i is in the pattern of column j.
         int[] w = new int[m];
-        double[] abj = new double[m];
+        double[] x = new double[m];
 
-        int nzmax = Math.max(anz + bnz, m);
-
-        SparseMatrix C = new SparseMatrix(m, n, nzmax);
-        int[] Cp = C.colIndex;
-        int[] Ci = C.rowIndex;
-        double[] Cx = C.nonzeros;
+        int[] Cp = new int[end - begin + 1];
+        int[] Ci = new int[Math.max(16, Bp[end] - Bp[begin])];
+        double[] Cx = new double[Ci.length];
 
         int nz = 0;
-        for (int j = 0; j < n; j++) {
-            if (nz + m > nzmax) {
-                nzmax = 2 * nzmax + m;
-                double[] Cx2 = new double[nzmax];
-                int[] Ci2 = new int[nzmax];
-                System.arraycopy(Ci, 0, Ci2, 0, nz);
-                System.arraycopy(Cx, 0, Cx2, 0, nz);
-                Ci = Ci2;
-                Cx = Cx2;
-                C = new SparseMatrix(m, n, Cx2, Ci2, Cp);
+        for (int j = begin; j < end; j++) {
+            // the upper bound of nonzeros in column j
+            int bound = 0;
+            for (int q = Bp[j]; q < Bp[j + 1] && bound < m; q++) {
+                int k = Bi[q];
+                bound += colIndex[k + 1] - colIndex[k];
             }
 
-            // column j of C starts here
-            Cp[j] = nz;
-
-            for (int p = Bp[j]; p < Bp[j + 1]; p++) {
-                nz = scatter(this, Bi[p], Bx[p], w, abj, j + 1, C, nz);
+            if (nz + Math.min(bound, m) > Ci.length) {
+                int size = Math.max(2 * Ci.length, nz + Math.min(bound, m));
+                Ci = Arrays.copyOf(Ci, size);
+                Cx = Arrays.copyOf(Cx, size);
             }
 
-            for (int p = Cp[j]; p < nz; p++) {
-                Cx[p] = abj[Ci[p]];
+            // column j of C starts here
+            int start = nz;
+            Cp[j - begin] = start;
+            int mark = j + 1;
+            for (int q = Bp[j]; q < Bp[j + 1]; q++) {
+                int k = Bi[q];
+                double beta = Bx[q];
+                for (int l = colIndex[k]; l < colIndex[k + 1]; l++) {
+                    int i = rowIndex[l];          // A(i,k) is nonzero
+                    if (w[i] < mark) {
+                        w[i] = mark;              // i is new entry in column j
+                        Ci[nz++] = i;             // add i to pattern of C(:,j)
+                        x[i] = beta * nonzeros[l];
+                    } else {
+                        x[i] += beta * nonzeros[l];
+                    }
+                }
             }
-        }
-
-        // finalize the last column of C
-        Cp[n] = nz;
 
-        return C;
-    }
-
-    /**
-     * x = x + beta * A(:,j), where x is a dense vector and A(:,j) is sparse.
-     */
-    private static int scatter(SparseMatrix A, int j, double beta, int[] w, double[] x, int mark, SparseMatrix C, int nz) {
-        int[] Ap = A.colIndex;
-        int[] Ai = A.rowIndex;
-        double[] Ax = A.nonzeros;
+            if (sorted) {
+                Arrays.sort(Ci, start, nz);
+            }
 
-        int[] Ci = C.rowIndex;
-        for (int p = Ap[j]; p < Ap[j + 1]; p++) {
-            int i = Ai[p];                // A(i,j) is nonzero
-            if (w[i] < mark) {
-                w[i] = mark;              // i is new entry in column j
-                Ci[nz++] = i;             // add i to pattern of C(:,j)
-                x[i] = beta * Ax[p];      // x(i) = beta*A(i,j)
-            } else {
-                x[i] += beta * Ax[p];     // i exists in C(:,j) already
+            for (int l = start; l < nz; l++) {
+                Cx[l] = x[Ci[l]];
             }
         }
 
-        return nz;
+        // finalize the last column of C
+        Cp[end - begin] = nz;
+        return new SparseMatrix(m, end - begin, Cx, Ci, Cp);
     }
 
     /**
@@ -588,8 +728,7 @@ public class SparseMatrix implements Matrix, Iterable<SparseMatrix.Entry>, Seria
      * @return {@code A' * A}
      */
     public SparseMatrix ata() {
-        SparseMatrix AT = transpose();
-        return AT.aat(this);
+        return transpose().multiply(this, true);
     }
 
     /**
@@ -597,86 +736,7 @@ public class SparseMatrix implements Matrix, Iterable<SparseMatrix.Entry>, Seria
      * @return {@code A * A'}
      */
     public SparseMatrix aat() {
-        SparseMatrix AT = transpose();
-        return aat(AT);
-    }
-
-    /** Returns A * A' */
-    private SparseMatrix aat(SparseMatrix AT) {
-        int[] done = new int[m];
-        for (int i = 0; i < m; i++) {
-            done[i] = -1;
-        }
-
-        // First pass determines the number of nonzeros.
-        int nvals = 0;
-        // Outer loop over columns of A' in AA'
-        for (int j = 0; j < m; j++) {
-            for (int i = AT.colIndex[j]; i < AT.colIndex[j + 1]; i++) {
-                int k = AT.rowIndex[i];
-                for (int l = colIndex[k]; l < colIndex[k + 1]; l++) {
-                    int h = rowIndex[l];
-                    // Test if contribution already included.
-                    if (done[h] != j) {
-                        done[h] = j;
-                        nvals++;
-                    }
-                }
-            }
-        }
-
-        SparseMatrix aat = new SparseMatrix(m, m, nvals);
-
-        nvals = 0;
-        for (int i = 0; i < m; i++) {
-            done[i] = -1;
-        }
-
-        // Second pass determines columns of aat. Code is identical to first
-        // pass except colIndex and rowIndex get assigned at appropriate places.
-        for (int j = 0; j < m; j++) {
-            aat.colIndex[j] = nvals;
-            for (int i = AT.colIndex[j]; i < AT.colIndex[j + 1]; i++) {
-                int k = AT.rowIndex[i];
-                for (int l = colIndex[k]; l < colIndex[k + 1]; l++) {
-                    int h = rowIndex[l];
-                    if (done[h] != j) {
-                        done[h] = j;
-                        aat.rowIndex[nvals] = h;
-                        nvals++;
-                    }
-                }
-            }
-        }
-
-        // Set last value.
-        aat.colIndex[m] = nvals;
-
-        // Sort columns.
-        for (int j = 0; j < m; j++) {
-            if (aat.colIndex[j + 1] - aat.colIndex[j] > 1) {
-                Arrays.sort(aat.rowIndex, aat.colIndex[j], aat.colIndex[j + 1]);
-            }
-        }
-
-        double[] temp = new double[m];
-        for (int i = 0; i < m; i++) {
-            for (int j = AT.colIndex[i]; j < AT.colIndex[i + 1]; j++) {
-                int k = AT.rowIndex[j];
-                for (int l = colIndex[k]; l < colIndex[k + 1]; l++) {
-                    int h = rowIndex[l];
-                    temp[h] += AT.nonzeros[j] * nonzeros[l];
-                }
-            }
-
-            for (int j = aat.colIndex[i]; j < aat.colIndex[i + 1]; j++) {
-                int k = aat.rowIndex[j];
-                aat.nonzeros[j] = temp[k];
-                temp[k] = 0.0;
-            }
-        }
-
-        return aat;
+        return multiply(transpose(), true);
     }
 
     @Override
@@ -26,8 +26,10 @@ import smile.data.measure.NominalScale;
 import smile.data.type.DataTypes;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.*;
 import smile.io.Read;
 import smile.io.Paths;
+import smile.math.MathEx;
 import smile.tensor.Matrix;
 import static smile.data.formula.Terms.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -725,4 +727,66 @@ public class FormulaTest {
         assertEquals("overcast:hot", output.getString(12, 3));
         assertEquals("rainy:mild", output.getString(13, 3));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testColumnKernels() {
+        System.out.println("column kernels");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        int n = 10000;
+        int[] a = new int[n];
+        long[] b = new long[n];
+        float[] c = new float[n];
+        double[] d = new double[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = MathEx.randomInt(-1000, 1000);
+            b[i] = a[i] * 1000000007L;
+            c[i] = (float) MathEx.random(-100, 100);
+            d[i] = MathEx.random(0.1, 100);
+        }
+
+        DataFrame data = new DataFrame(
+                new IntVector("a", a),
+                new LongVector("b", b),
+                new FloatVector("c", c),
+                new DoubleVector("d", d));
+
+        Formula formula = Formula.rhs(
+                add("a", "b"),
+                sub("c", "d"),
+                mul("a", "c"),
+                div("b", val(7L)),
+                div(add("a", val(5000)), val(3)),
+                abs("a"),
+                abs(sub("c", "a")),
+                round("c"),
+                log(mul("d", "d")),
+                sign("a"),
+                exp(div("c", val(100.0))));
+
+        DataFrame output = formula.x(data);
+        System.out.println(output.schema());
+        assertEquals(n, output.size());
+        assertEquals(11, output.ncol());
+        assertEquals(DataTypes.LongType, output.schema().field(0).dtype());
+        assertEquals(DataTypes.DoubleType, output.schema().field(1).dtype());
+        assertEquals(DataTypes.FloatType, output.schema().field(2).dtype());
+        assertEquals(DataTypes.IntType, output.schema().field(4).dtype());
+
+        for (int i = 0; i < n; i++) {
+            var row = formula.x(data.get(i));
+            for (int j = 0; j < output.ncol(); j++) {
+                var dtype = output.schema().field(j).dtype();
+                if (dtype.isInt()) assertEquals(row.getInt(j), output.getInt(i, j));
+                else if (dtype.isLong()) assertEquals(row.getLong(j), output.getLong(i, j));
+                else if (dtype.isFloat()) assertEquals(row.getFloat(j), output.getFloat(i, j));
+                else assertEquals(row.getDouble(j), output.getDouble(i, j));
+            }
+        }
+
+        var matrix = formula.matrix(data, false);
+        assertEquals(n, matrix.nrow());
+        assertEquals(11, matrix.ncol());
+        assertEquals(a[5] + b[5], matrix.get(5, 0), 1E-10);
+        assertEquals(Math.log(d[5] * d[5]), matrix.get(5, 8), 1E-10);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.graph;
+
+import java.util.List;
+import smile.math.MathEx;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class CSRGraphTest {
+    /** Random sparse graph of a few components. */
+    int n = 2000;
+    int[] source;
+    int[] target;
+    double[] weight;
+
+    public CSRGraphTest() {
+        MathEx.setSeed(19650218); // to get repeatable results.
+        int m = 6000;
+        source = new int[m];
+        target = new int[m];
+        weight = new double[m];
+        for (int e = 0; e < m; e++) {
+            // Vertices i and j are connected only if i % 3 == j % 3.
+            int u = MathEx.randomInt(n);
+            source[e] = u;
+            target[e] = MathEx.randomInt(n / 3) * 3 + u % 3;
+            weight[e] = MathEx.random(0.1, 10.0);
+        }
+    }
+
+    /** Returns the adjacency list of same edges. */
+    private AdjacencyList adjacencyList(boolean digraph) {
+        AdjacencyList graph = new AdjacencyList(n, digraph);
+        for (int e = 0; e < source.length; e++) {
+            graph.setWeight(source[e], target[e], weight[e]);
+        }
+        return graph;
+    }
+
+    /** Asserts that two graphs have the same edges. */
+    private static void assertSameEdges(Graph expected, Graph actual) {
+        assertEquals(expected.getVertexCount(), actual.getVertexCount());
+        for (int i = 0; i < expected.getVertexCount(); i++) {
+            assertEquals(expected.getOutDegree(i), actual.getOutDegree(i));
+            for (var edge : expected.getEdges(i)) {
+                assertEquals(edge.weight(), actual.getWeight(i, edge.v()));
+            }
+        }
+    }
+
+    @Test
+    public void testEdges() {
+        System.out.println("edges");
+        List<Graph.Edge> edges = List.of(
+                new Graph.Edge(0, 1, 2.0),
+                new Graph.Edge(1, 2, 3.0),
+                new Graph.Edge(0, 1, 5.0),
+                new Graph.Edge(2, 3, 0.0),
+                new Graph.Edge(3, 3, 1.0));
+        CSRGraph graph = CSRGraph.of(4, false, edges);
+        assertEquals(4, graph.getVertexCount());
+        assertEquals(5.0, graph.getWeight(0, 1));
+        assertEquals(5.0, graph.getWeight(1, 0));
+        assertEquals(3.0, graph.getWeight(2, 1));
+        assertFalse(graph.hasEdge(2, 3));
+        assertTrue(graph.hasEdge(3, 3));
+        assertEquals(2, graph.getDegree(1));
+        assertEquals(1, graph.getDegree(3));
+        assertEquals(List.of(new Graph.Edge(1, 0, 5.0), new Graph.Edge(1, 2, 3.0)), graph.getEdges(1));
+
+        CSRGraph digraph = CSRGraph.of(4, true, edges);
+        assertTrue(digraph.hasEdge(0, 1));
+        assertFalse(digraph.hasEdge(1, 0));
+        assertEquals(1, digraph.getInDegree(1));
+        assertEquals(1, digraph.getOutDegree(1));
+        assertEquals(2, digraph.getDegree(1));
+
+        assertThrows(UnsupportedOperationException.class, () -> graph.addEdge(0, 2));
+        assertThrows(IllegalArgumentException.class, () -> CSRGraph.of(4, true, List.of(new Graph.Edge(0, 4))));
+    }
+
+    @Test
+    public void testAdjacencyList() {
+        System.out.println("adjacency list");
+        for (boolean digraph : new boolean[]{false, true}) {
+            AdjacencyList list = adjacencyList(digraph);
+            CSRGraph graph = CSRGraph.of(n, digraph, source, target, weight);
+            assertSameEdges(list, graph);
+            for (int i = 0; i < n; i++) {
+                assertEquals(list.getInDegree(i), graph.getInDegree(i));
+            }
+
+            int[] vertices = {5, 8, 11, 14, 17, 20, 1000, 1001};
+            assertSameEdges(list.subgraph(vertices), graph.subgraph(vertices));
+        }
+    }
+
+    @Test
+    public void testBFS() {
+        System.out.println("bfs");
+        for (boolean digraph : new boolean[]{false, true}) {
+            AdjacencyList list = adjacencyList(digraph);
+            CSRGraph graph = CSRGraph.of(n, digraph, source, target, weight);
+            for (int s : new int[]{0, 1, 999}) {
+                double[] expected = list.dijkstra(s, false);
+                int[] hops = graph.bfs(s);
+                for (int i = 0; i < n; i++) {
+                    assertEquals(expected[i], hops[i] < 0 ? Double.POSITIVE_INFINITY : hops[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDeltaStepping() {
+        System.out.println("delta-stepping");
+        for (boolean digraph : new boolean[]{false, true}) {
+            AdjacencyList list = adjacencyList(digraph);
+            CSRGraph graph = CSRGraph.of(n, digraph, source, target, weight);
+            for (int s : new int[]{0, 1, 999}) {
+                double[] expected = list.dijkstra(s);
+                assertArrayEquals(expected, graph.deltaStepping(s), 1E-10);
+                assertArrayEquals(expected, graph.deltaStepping(s, 0.5), 1E-10);
+                assertArrayEquals(expected, graph.deltaStepping(s, 100), 1E-10);
+            }
+        }
+    }
+
+    @Test
+    public void testConnectedComponents() {
+        System.out.println("connected components");
+        AdjacencyList list = adjacencyList(false);
+        CSRGraph graph = CSRGraph.of(n, false, source, target, weight);
+        int[][] expected = list.bfcc();
+        int[][] cc = graph.cc();
+        assertEquals(expected.length, cc.length);
+        for (int i = 0; i < cc.length; i++) {
+            assertArrayEquals(expected[i], cc[i]);
+        }
+    }
+
+    @Test
+    public void testPageRank() {
+        System.out.println("PageRank");
+        // Without damping, the rank of connected undirected graph is proportional to the degree.
+        CSRGraph graph = CSRGraph.of(5, false, List.of(
+                new Graph.Edge(0, 1), new Graph.Edge(1, 2), new Graph.Edge(2, 0),
+                new Graph.Edge(2, 3), new Graph.Edge(3, 4)));
+        double[] rank = graph.pagerank(1.0, 1E-12, 1000);
+        double[] degree = {2, 2, 3, 2, 1};
+        for (int i = 0; i < 5; i++) {
+            assertEquals(degree[i] / 10, rank[i], 1E-8);
+        }
+
+        // The cycle with a dangling vertex.
+        CSRGraph digraph = CSRGraph.of(4, true, List.of(
+                new Graph.Edge(0, 1), new Graph.Edge(1, 2), new Graph.Edge(2, 0), new Graph.Edge(2, 3)));
+        rank = digraph.pagerank();
+        assertEquals(1.0, MathEx.sum(rank), 1E-7);
+        assertEquals(rank[0], rank[3], 1E-7);
+        assertTrue(rank[2] > rank[1]);
+    }
+
+    @Test
+    public void testNearestNeighborGraph() {
+        System.out.println("nearest neighbor graph");
+        double[][] data = MathEx.randn(500, 3);
+        NearestNeighborGraph nng = NearestNeighborGraph.of(data, 5);
+        for (boolean digraph : new boolean[]{false, true}) {
+            assertSameEdges(nng.graph(digraph), CSRGraph.of(nng, digraph));
+        }
+    }
+}
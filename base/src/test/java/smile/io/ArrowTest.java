@@ -20,9 +20,13 @@ import smile.data.DataFrame;
 import smile.data.type.DataTypes;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.DoubleVector;
+import smile.data.vector.NullableBooleanVector;
 import smile.tensor.Matrix;
 import java.io.File;
+import java.lang.foreign.Arena;
 import java.nio.file.Path;
+import java.util.BitSet;
 import java.sql.*;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -168,4 +172,79 @@ public class ArrowTest {
         assertEquals(5.94, output.get(2, 0), 1E-10);
         assertEquals(0.99, output.get(3, 0), 1E-10);
     }
+
+    @Test
+    public void testStream() throws Exception {
+        System.out.println("stream");
+        Arrow batched = new Arrow(100);
+        Path path = File.createTempFile("chinook", "arrow").toPath();
+        batched.write(df, path);
+
+        int[] rows = {0, 0};
+        try (var stream = batched.stream(path, "Country", "Total")) {
+            stream.forEach(batch -> {
+                assertTrue(batch.size() <= 100);
+                assertArrayEquals(new String[]{"Country", "Total"}, batch.names());
+                rows[0] += batch.size();
+                rows[1]++;
+            });
+        }
+        assertEquals(412, rows[0]);
+        assertEquals(5, rows[1]);
+
+        DataFrame head = batched.read(path, 150);
+        assertEquals(150, head.size());
+        assertEquals("Brazil", head.getString(0, 4));
+        assertEquals(3.98, head.getDouble(0, 5), 1E-10);
+    }
+
+    @Test
+    public void testZeroCopy() throws Exception {
+        System.out.println("zero copy");
+        Arrow batched = new Arrow(100);
+        Path path = File.createTempFile("chinook", "arrow").toPath();
+        batched.write(df, path);
+
+        DataFrame view;
+        try (var arena = Arena.ofConfined()) {
+            view = batched.read(path, arena);
+            assertEquals(df.schema(), view.schema());
+            assertEquals(412, view.size());
+            for (int i = 0; i < view.size(); i++) {
+                assertEquals(df.getString(i, 0), view.getString(i, 0));
+                assertEquals(df.getString(i, 4), view.getString(i, 4));
+                assertEquals(df.getDouble(i, 5), view.getDouble(i, 5), 1E-10);
+            }
+
+            DataFrame copy = view.slice(200, 210);
+            assertEquals("Germany", view.getString(7, 4));
+            assertEquals(df.getDouble(205, 5), copy.getDouble(5, 5), 1E-10);
+        }
+
+        assertThrows(IllegalStateException.class, () -> view.getDouble(0, 5));
+    }
+
+    @Test
+    public void testZeroCopyNulls() throws Exception {
+        System.out.println("zero copy nulls");
+        BitSet mask = new BitSet();
+        mask.set(1);
+        DataFrame data = new DataFrame(
+                new NullableBooleanVector("flag", new boolean[]{true, false, false}, mask),
+                new DoubleVector("x", new double[]{1.0, Double.NaN, 3.0}));
+        Path path = File.createTempFile("nulls", "arrow").toPath();
+        arrow.write(data, path);
+
+        DataFrame copy = arrow.read(path);
+        try (var arena = Arena.ofConfined()) {
+            DataFrame view = arrow.read(path, arena);
+            assertEquals(copy.schema(), view.schema());
+            assertEquals(DataTypes.NullableBooleanType, view.schema().field(0).dtype());
+            assertTrue(view.column(0).isNullAt(1));
+            assertFalse(view.column(0).isNullAt(0));
+            // NaN is a valid value, not null.
+            assertFalse(view.column(1).isNullAt(1));
+            assertTrue(Double.isNaN(view.getDouble(1, 1)));
+        }
+    }
 }
@@ -16,7 +16,13 @@
  */
 package smile.io;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.DuplicateHeaderMode;
+import org.apache.commons.csv.QuoteMode;
 import smile.data.DataFrame;
 import smile.data.type.DataTypes;
 import smile.data.type.StructField;
@@ -276,4 +282,98 @@ public class CSVTest {
         assertEquals("Internal Auditor", df.getString(0, 11));
         assertEquals("1E+02", df.getString(0, 12));
     }
+
+    /** Asserts that two data frames have the same schema and values. */
+    private static void assertSameData(DataFrame expected, DataFrame actual) {
+        assertEquals(expected.schema(), actual.schema());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            for (int j = 0; j < expected.ncol(); j++) {
+                assertEquals(expected.get(i, j), actual.get(i, j), "row " + i + ", column " + j);
+            }
+        }
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        System.out.println("parallel");
+        Path path = Files.createTempFile("smile-csv", ".csv");
+        path.toFile().deleteOnExit();
+        List<String> lines = new ArrayList<>();
+        lines.add("id,name,score,flag,count");
+        lines.add("# comment with \"unbalanced quote");
+        for (int i = 0; i < 1000; i++) {
+            String name = switch (i % 5) {
+                case 0 -> "\"multi\nline, \"\"quoted\"\" " + i + "\"";
+                case 1 -> "plain " + i;
+                case 2 -> "\"" + i + "\"";
+                case 3 -> "";
+                default -> "caf\u00e9 " + i;
+            };
+            String score = i % 7 == 0 ? "" : String.valueOf(i * 0.5);
+            lines.add(String.format("%d,%s,%s,%b,%d", i, name, score, i % 3 == 0, 10000000000L + i));
+            if (i % 100 == 0) lines.add("");
+        }
+        Files.write(path, lines);
+
+        CSVFormat format = CSVFormat.Builder.create()
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .setCommentMarker('#')
+                .get();
+        DataFrame expected = new CSV(format).read(path);
+        System.out.println(expected);
+
+        assertEquals(1000, expected.size());
+        StructType schema = new StructType(
+                new StructField("id", DataTypes.IntType),
+                new StructField("name", DataTypes.StringType),
+                new StructField("score", DataTypes.NullableDoubleType),
+                new StructField("flag", DataTypes.BooleanType),
+                new StructField("count", DataTypes.LongType)
+        );
+        assertEquals(schema, expected.schema());
+
+        for (long chunkSize : new long[]{1, 7, 64, 1000, 1 << 20}) {
+            DataFrame data = new CSV(format).chunkSize(chunkSize).read(path);
+            assertSameData(expected, data);
+        }
+
+        DataFrame data = new CSV(format).chunkSize(100).read(path);
+        assertEquals("multi\nline, \"quoted\" 0", data.get(0, 1));
+        assertEquals("2", data.get(2, 1));
+        assertNull(data.get(3, 1));
+        assertEquals("caf\u00e9 999", data.get(999, 1));
+        assertTrue(data.isNullAt(0, 2));
+        assertEquals(0.5, data.getDouble(1, 2), 1E-10);
+        assertEquals(true, data.get(999, 3));
+        assertEquals(10000000999L, data.getLong(999, 4));
+
+        // With the given schema.
+        DataFrame typed = new CSV(format).schema(schema).chunkSize(100).read(path);
+        assertSameData(expected, typed);
+        assertThrows(IllegalArgumentException.class, () -> new CSV(format).chunkSize(0));
+        assertThrows(IllegalArgumentException.class, () -> new CSV(format).chunkSize(4L << 30));
+
+        // The records end with CRLF or CR.
+        for (String eol : new String[]{"\r\n", "\r"}) {
+            Files.writeString(path, String.join(eol, lines) + eol);
+            for (long chunkSize : new long[]{1, 7, 64, 1000}) {
+                assertSameData(expected, new CSV(format).chunkSize(chunkSize).read(path));
+            }
+        }
+    }
+
+    @Test
+    public void testChunkReaderSupports() {
+        System.out.println("chunk reader supports");
+        var utf8 = java.nio.charset.StandardCharsets.UTF_8;
+        assertTrue(CSVChunkReader.supports(CSVFormat.DEFAULT, utf8));
+        assertFalse(CSVChunkReader.supports(CSVFormat.DEFAULT, java.nio.charset.StandardCharsets.UTF_16));
+        assertFalse(CSVChunkReader.supports(CSVFormat.DEFAULT.builder().setTrim(true).get(), utf8));
+        assertFalse(CSVChunkReader.supports(CSVFormat.DEFAULT.builder().setQuoteMode(QuoteMode.ALL).get(), utf8));
+        assertFalse(CSVChunkReader.supports(CSVFormat.DEFAULT.builder().setTrailingDelimiter(true).get(), utf8));
+        assertFalse(CSVChunkReader.supports(CSVFormat.DEFAULT.builder().setAllowMissingColumnNames(true).get(), utf8));
+        assertFalse(CSVChunkReader.supports(CSVFormat.DEFAULT.builder().setDuplicateHeaderMode(DuplicateHeaderMode.DISALLOW).get(), utf8));
+    }
 }
@@ -161,4 +161,32 @@ public class ParquetTest {
         assertEquals(90263.05, output.get(3, 1), 1E-10);
         assertTrue(Double.isNaN(output.get(4, 1)));
     }
+
+    @Test
+    public void testStream() throws Exception {
+        System.out.println("stream");
+        int rows = 0;
+        try (var stream = Parquet.stream(Paths.getTestData("kylo/userdata1.parquet"), "id", "salary")) {
+            var iter = stream.iterator();
+            while (iter.hasNext()) {
+                DataFrame batch = iter.next();
+                assertArrayEquals(new String[]{"id", "salary"}, batch.names());
+                if (rows == 0) {
+                    assertEquals(1, batch.getInt(0, 0));
+                    assertEquals(49756.53, batch.getDouble(0, 1), 1E-10);
+                }
+                rows += batch.size();
+            }
+        }
+        assertEquals(1000, rows);
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        System.out.println("limit");
+        DataFrame head = Parquet.read(Paths.getTestData("kylo/userdata1.parquet"), 10);
+        assertEquals(10, head.size());
+        assertEquals(13, head.ncol());
+        assertEquals("Amanda", head.getString(0, 2));
+    }
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.neighbor;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import smile.graph.NearestNeighborGraph;
+import smile.math.MathEx;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class HNSWTest {
+    float[][] x;
+    float[][] testx;
+
+    public HNSWTest() {
+        MathEx.setSeed(19650218); // to get repeatable results.
+        x = random(2000, 32);
+        testx = random(100, 32);
+    }
+
+    /** Returns random vectors of a few gaussian clusters. */
+    private static float[][] random(int n, int d) {
+        float[][] data = new float[n][d];
+        for (int i = 0; i < n; i++) {
+            int cluster = i % 10;
+            for (int j = 0; j < d; j++) {
+                data[i][j] = (float) (cluster * ((j % 3) - 1) + MathEx.random(-1.0, 1.0));
+            }
+        }
+        return data;
+    }
+
+    /** Returns the distance function of space. */
+    private static double distance(HNSW.Space space, float[] x, float[] y) {
+        double dot = 0.0, xx = 0.0, yy = 0.0, l2 = 0.0;
+        for (int i = 0; i < x.length; i++) {
+            dot += x[i] * y[i];
+            xx += x[i] * x[i];
+            yy += y[i] * y[i];
+            l2 += (x[i] - y[i]) * (x[i] - y[i]);
+        }
+
+        return switch (space) {
+            case L2 -> Math.sqrt(l2);
+            case COSINE -> 1.0 - dot / Math.sqrt(xx * yy);
+            case INNER_PRODUCT -> 1.0 - dot;
+        };
+    }
+
+    /** Returns the average recall of k-nearest neighbors. */
+    private double recall(HNSW<float[]> hnsw, HNSW.Space space, int k) {
+        var naive = LinearSearch.of(x, (float[] a, float[] b) -> distance(space, a, b));
+        int hits = 0;
+        for (float[] q : testx) {
+            var n1 = hnsw.search(q, k);
+            var n2 = naive.search(q, k);
+            assertEquals(k, n1.length);
+            for (var m2 : n2) {
+                for (var m1 : n1) {
+                    if (m1.index() == m2.index()) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+        }
+        return hits / (double) (k * testx.length);
+    }
+
+    @Test
+    public void testKnn() {
+        System.out.println("knn");
+        for (var space : HNSW.Space.values()) {
+            var hnsw = HNSW.of(x, space);
+            hnsw.setEfSearch(100);
+            double recall = recall(hnsw, space, 10);
+            System.out.format("%s recall = %.4f%n", space, recall);
+            assertTrue(recall > 0.9);
+
+            var neighbors = hnsw.search(testx[0], 5);
+            for (int i = 0; i < neighbors.length; i++) {
+                assertEquals(distance(space, testx[0], x[neighbors[i].index()]), neighbors[i].distance(), 1E-4);
+                assertSame(x[neighbors[i].index()], neighbors[i].key());
+                if (i > 0) {
+                    assertTrue(neighbors[i-1].distance() <= neighbors[i].distance());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testExcludeQuery() {
+        System.out.println("exclude query");
+        var hnsw = HNSW.of(x, HNSW.Space.L2);
+        var neighbors = hnsw.search(x[7], 3);
+        assertEquals(3, neighbors.length);
+        for (var neighbor : neighbors) {
+            assertNotEquals(7, neighbor.index());
+        }
+    }
+
+    @Test
+    public void testRange() {
+        System.out.println("range");
+        var hnsw = HNSW.of(x, HNSW.Space.L2);
+        var naive = LinearSearch.of(x, (float[] a, float[] b) -> distance(HNSW.Space.L2, a, b));
+        double radius = 4.5;
+        int hits = 0, total = 0;
+        for (float[] q : testx) {
+            List<Neighbor<float[], float[]>> n1 = new ArrayList<>();
+            List<Neighbor<float[], float[]>> n2 = new ArrayList<>();
+            hnsw.search(q, radius, n1);
+            naive.search(q, radius, n2);
+            for (var neighbor : n1) {
+                assertTrue(neighbor.distance() <= radius);
+            }
+            hits += n1.size();
+            total += n2.size();
+        }
+
+        System.out.format("range recall = %d / %d%n", hits, total);
+        assertTrue(total > 0);
+        assertTrue(hits >= 0.9 * total);
+    }
+
+    @Test
+    public void testConcurrentInsert() {
+        System.out.println("concurrent insert");
+        var hnsw = new HNSW<Integer>(32, x.length, HNSW.Space.L2, 16, 100);
+        IntStream.range(0, x.length).parallel().forEach(i -> hnsw.put(x[i], i));
+        assertEquals(x.length, hnsw.size());
+
+        var naive = LinearSearch.of(x, (float[] a, float[] b) -> distance(HNSW.Space.L2, a, b));
+        int hits = 0;
+        for (float[] q : testx) {
+            var nearest = hnsw.nearest(q);
+            assertSame(x[nearest.value()], nearest.key());
+            if (nearest.value() == naive.nearest(q).index()) hits++;
+        }
+        assertTrue(hits >= 0.9 * testx.length);
+
+        assertThrows(IllegalStateException.class, () -> hnsw.put(x[0], 0));
+        assertThrows(IllegalArgumentException.class, () -> hnsw.search(new float[3], 1));
+    }
+
+    @Test
+    public void testEfSearch() {
+        System.out.println("efSearch");
+        var hnsw = HNSW.of(x, HNSW.Space.L2, 4, 8);
+        hnsw.setEfSearch(1);
+        double low = recall(hnsw, HNSW.Space.L2, 10);
+        hnsw.setEfSearch(200);
+        double high = recall(hnsw, HNSW.Space.L2, 10);
+        System.out.format("recall = %.4f with efSearch = 1, %.4f with efSearch = 200%n", low, high);
+        assertTrue(high >= low);
+        assertThrows(IllegalArgumentException.class, () -> hnsw.setEfSearch(0));
+    }
+
+    @Test
+    public void testSaveLoad() throws Exception {
+        System.out.println("save/load");
+        var hnsw = HNSW.of(x, HNSW.Space.COSINE);
+        var file = Files.createTempFile("smile-hnsw", ".idx");
+        try {
+            hnsw.save(file);
+            var index = HNSW.load(file);
+            assertEquals(hnsw.size(), index.size());
+            assertEquals(hnsw.dim(), index.dim());
+            assertEquals(HNSW.Space.COSINE, index.space());
+
+            for (float[] q : testx) {
+                var n1 = hnsw.search(q, 10);
+                var n2 = index.search(q, 10);
+                assertEquals(n1.length, n2.length);
+                for (int i = 0; i < n1.length; i++) {
+                    assertEquals(n1[i].index(), n2[i].index());
+                    assertEquals(n1[i].distance(), n2[i].distance(), 1E-7);
+                    assertArrayEquals(n1[i].key(), n2[i].key());
+                }
+            }
+
+            assertThrows(UnsupportedOperationException.class, () -> index.put(x[0], x[0]));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testGraph() {
+        System.out.println("graph");
+        var hnsw = HNSW.of(x, HNSW.Space.L2);
+        var graph = NearestNeighborGraph.of(hnsw, x, 7);
+        assertEquals(x.length, graph.size());
+        for (int i = 0; i < x.length; i++) {
+            assertEquals(7, graph.neighbors()[i].length);
+            for (int j : graph.neighbors()[i]) {
+                assertNotEquals(i, j);
+            }
+        }
+        assertEquals(distance(HNSW.Space.L2, x[100], x[graph.neighbors()[100][2]]), graph.distances()[100][2], 1E-4);
+    }
+}
@@ -196,6 +196,84 @@ public class SparseMatrixTest {
         }
     }
 
+    @Test
+    public void testParallel() {
+        System.out.println("parallel kernels");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        int m = 500, n = 300;
+        double[][] d = new double[m][n];
+        for (int k = 0; k < 30000; k++) {
+            d[MathEx.randomInt(m)][MathEx.randomInt(n)] = MathEx.random(-1.0, 1.0);
+        }
+        SparseMatrix a = new SparseMatrix(d, 1E-10);
+
+        double[] x = MathEx.random(n);
+        double[] y = MathEx.random(m);
+        double[] ax = new double[m];
+        double[] aty = new double[n];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                ax[i] += d[i][j] * x[j];
+                aty[j] += d[i][j] * y[i];
+            }
+        }
+
+        double[] z = y.clone();
+        a.mv(NO_TRANSPOSE, 2.0, Vector.column(x), 0.5, Vector.column(z));
+        for (int i = 0; i < m; i++) {
+            assertEquals(2.0 * ax[i] + 0.5 * y[i], z[i], 1E-10);
+        }
+
+        z = new double[n];
+        a.mv(TRANSPOSE, 1.0, Vector.column(y), 0.0, Vector.column(z));
+        assertArrayEquals(aty, z, 1E-10);
+
+        double[] work = new double[m + n];
+        System.arraycopy(x, 0, work, 0, n);
+        a.mv(Vector.column(work), 0, n);
+        assertArrayEquals(ax, Arrays.copyOfRange(work, n, n + m), 1E-10);
+
+        work = new double[m + n];
+        System.arraycopy(y, 0, work, 0, m);
+        a.tv(Vector.column(work), 0, m);
+        assertArrayEquals(aty, Arrays.copyOfRange(work, m, m + n), 1E-10);
+
+        SparseMatrix at = a.transpose();
+        SparseMatrix ata = a.ata();
+        SparseMatrix aat = a.aat();
+        SparseMatrix mm = at.mm(a);
+        DenseMatrix dense = a.mm(DenseMatrix.of(MathEx.transpose(d)));
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                assertEquals(d[j][i], at.get(i, j), 0);
+            }
+
+            for (int j = 0; j < n; j++) {
+                double s = 0.0;
+                for (int k = 0; k < m; k++) s += d[k][i] * d[k][j];
+                assertEquals(s, ata.get(i, j), 1E-10);
+                assertEquals(s, mm.get(i, j), 1E-10);
+            }
+        }
+
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < m; j++) {
+                double s = 0.0;
+                for (int k = 0; k < n; k++) s += d[i][k] * d[j][k];
+                assertEquals(s, aat.get(i, j), 1E-10);
+                assertEquals(s, dense.get(i, j), 1E-10);
+            }
+        }
+
+        // The cached row index refers to the updated values.
+        a.scale(2.0);
+        z = new double[m];
+        a.mv(NO_TRANSPOSE, 1.0, Vector.column(x), 0.0, Vector.column(z));
+        for (int i = 0; i < m; i++) {
+            assertEquals(2.0 * ax[i], z[i], 1E-10);
+        }
+    }
+
     @Test
     public void testIteration() {
         System.out.println("iteration");
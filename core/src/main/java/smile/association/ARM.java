@@ -17,6 +17,7 @@
 package smile.association;
 
 import java.util.*;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import smile.association.TotalSupportTree.Node;
@@ -128,6 +129,40 @@ public class ARM implements Iterable<AssociationRule> {
         return StreamSupport.stream(arm.spliterator(), false);
     }
 
+    /**
+     * Mines the association rules in parallel.
+     * @param confidence the confidence threshold for association rules.
+     * @param tree the FP-tree.
+     * @return the parallel stream of association rules.
+     */
+    public static Stream<AssociationRule> parallel(double confidence, FPTree tree) {
+        return parallel(confidence, new FPTree[]{tree});
+    }
+
+    /**
+     * Mines the association rules in parallel on the partitioned FP-trees.
+     * Both the frequent item sets and the rules of different subtrees of
+     * T-tree are generated in parallel.
+     * @param confidence the confidence threshold for association rules.
+     * @param shards the shards of FP-tree.
+     * @return the parallel stream of association rules.
+     */
+    public static Stream<AssociationRule> parallel(double confidence, FPTree[] shards) {
+        if (confidence < 0.0 || confidence > 1.0) {
+            throw new IllegalArgumentException("confidence must be in [0, 1]: " + confidence);
+        }
+        TotalSupportTree ttree = new TotalSupportTree(shards);
+        Node[] children = ttree.root().children;
+        return IntStream.range(0, children.length).parallel()
+                .filter(i -> children[i] != null)
+                .mapToObj(i -> {
+                    ARM arm = new ARM(confidence, ttree);
+                    arm.generate(new int[]{children[i].id}, i, children[i]);
+                    return arm.buffer;
+                })
+                .flatMap(Collection::stream);
+    }
+
     /**
      * Generates association rules from a T-tree.
      * @param itemset the label for a T-tree node as generated so far.
@@ -17,6 +17,7 @@
 package smile.association;
 
 import java.util.*;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import smile.association.FPTree.HeaderTableItem;
@@ -47,6 +48,13 @@ import smile.association.FPTree.Node;
  * links between the branches, is exploited to quickly find the
  * transactions containing a given item and also to remove this
  * item from the transactions after it has been processed.
+ * <p>
+ * The recursive elimination of different items is independent of each
+ * other as the FP-tree is read only during mining. Therefore, the items
+ * of header table can be mined in parallel, each with its own conditional
+ * FP-trees. With the partitioned FP-trees of {@link FPTree#of(int, java.util.function.Supplier, int)},
+ * which may be built in parallel too, each item is mined on the shard
+ * that contains its conditional patterns.
  * 
  * <h2>References</h2>
  * <ol>
@@ -140,6 +148,38 @@ public class FPGrowth implements Iterable<ItemSet> {
         return StreamSupport.stream(growth.spliterator(), false);
     }
 
+    /**
+     * Mines the frequent item sets in parallel.
+     * @param tree the FP-tree of item sets.
+     * @return the parallel stream of frequent item sets.
+     */
+    public static Stream<ItemSet> parallel(FPTree tree) {
+        return parallel(new FPTree[]{tree});
+    }
+
+    /**
+     * Mines the frequent item sets in parallel on the partitioned FP-trees.
+     * @param shards the shards of FP-tree.
+     * @return the parallel stream of frequent item sets.
+     */
+    public static Stream<ItemSet> parallel(FPTree[] shards) {
+        FPTree.check(shards);
+        return IntStream.range(0, shards[0].numFreqItems).parallel()
+                .mapToObj(i -> new FPGrowth(FPTree.shard(shards, i)).grow(i))
+                .flatMap(Collection::stream);
+    }
+
+    /**
+     * Mines the frequent item sets of which the least frequent item
+     * is the i-th item in the header table.
+     * @param i the index of item in the header table.
+     * @return the frequent item sets.
+     */
+    Queue<ItemSet> grow(int i) {
+        grow(T0.headerTable[i], null, new int[T0.numItems], new int[T0.maxItemSetSize]);
+        return buffer;
+    }
+
     /**
      * Mines frequent item sets. Start with the bottom of the header table and
      * work upwards. For each available FP tree node:
@@ -34,6 +34,20 @@ import smile.util.OS;
  * The list can be accessed through a head element, which also
  * states the total number of occurrences of the item in the
  * database.
+ * <p>
+ * For large databases, the FP-tree may be partitioned into shards as
+ * in parallel FP-growth (PFP). The frequent items are assigned to the
+ * shards in the round-robin order of frequency. Each transaction is
+ * projected to every shard as its longest prefix (in the descending
+ * order of frequency) that ends with an item of the shard. The shard
+ * FP-tree of these group-dependent transactions contains all the
+ * conditional patterns of its items, so that the shards can be built
+ * and mined independently and concurrently.
+ *
+ * <h2>References</h2>
+ * <ol>
+ * <li> Haoyuan Li, Yi Wang, Dong Zhang, Ming Zhang, and Edward Chang. PFP: Parallel FP-growth for query recommendation. RecSys, 107-114, 2008.</li>
+ * </ol>
  *
  * @author Haifeng Li
  */
@@ -223,6 +237,14 @@ public class FPTree {
      * The order of items according to their supports.
      */
     int[] order;
+    /**
+     * The index of this tree in the shards of partitioned FP-trees.
+     */
+    int shard = 0;
+    /**
+     * The number of shards of partitioned FP-trees.
+     */
+    int shards = 1;
 
     /**
      * Constructor.
@@ -391,6 +413,172 @@ public class FPTree {
         return tree;
     }
 
+    /**
+     * Builds the partitioned FP-trees in parallel if the database is available
+     * as stream. The frequent items are counted and the shards are built
+     * by two parallel scans of the database.
+     * @param minSupport the required minimum support of item sets in terms
+     *                   of frequency.
+     * @param supplier a supplier provides an itemset stream. For example, a code block to
+     *                 open a file and parse lines into a stream of itemsets.
+     *                 This function will be called twice.
+     * @param shards the number of shards.
+     * @return the shards of FP-tree.
+     */
+    public static FPTree[] of(int minSupport, Supplier<Stream<int[]>> supplier, int shards) {
+        if (minSupport < 1) {
+            throw new IllegalArgumentException("minSupport must be >= 1: " + minSupport);
+        }
+        int[] count = count(supplier.get());
+        return partition(minSupport, count, supplier.get(), shards);
+    }
+
+    /**
+     * Builds the partitioned FP-trees in parallel if the database is available
+     * as stream. The frequent items are counted and the shards are built
+     * by two parallel scans of the database.
+     * @param minSupport the required minimum support of item sets in terms
+     *                   of percentage.
+     * @param supplier a supplier provides an itemset stream. For example, a code block to
+     *                 open a file and parse lines into a stream of itemsets.
+     *                 This function will be called twice.
+     * @param shards the number of shards.
+     * @return the shards of FP-tree.
+     */
+    public static FPTree[] of(double minSupport, Supplier<Stream<int[]>> supplier, int shards) {
+        if (minSupport <= 0 || minSupport > 1) {
+            throw new IllegalArgumentException("minSupport (percentage) must be in (0, 1]: " + minSupport);
+        }
+        int[] count = count(supplier.get());
+        int numTransactions = count[count.length - 1];
+        return partition((int) Math.round(minSupport * numTransactions), count, supplier.get(), shards);
+    }
+
+    /**
+     * Counts the frequency of single items in parallel.
+     * @param itemsets the transaction database.
+     * @return the frequency of single items, followed by the number of transactions.
+     */
+    private static int[] count(Stream<int[]> itemsets) {
+        int n = OS.getProperty("smile.arm.items", 65536);
+        int[] count = itemsets.parallel().collect(() -> new int[n + 1], (freq, itemset) -> {
+            freq[n]++;
+            // Support is transaction-level presence, not multiplicity within a transaction.
+            Arrays.sort(itemset);
+            int prev = -1;
+            for (int item : itemset) {
+                if (item != prev) {
+                    freq[item]++;
+                    prev = item;
+                }
+            }
+        }, (a, b) -> {
+            for (int i = 0; i <= n; i++) a[i] += b[i];
+        });
+
+        int numTransactions = count[n];
+        if (numTransactions == 0) {
+            throw new IllegalArgumentException("Empty stream of itemsets");
+        }
+
+        // Find the effective number of items.
+        int m = n;
+        while (m > 0 && count[m - 1] == 0) m--;
+        int[] freq = Arrays.copyOf(count, m + 1);
+        freq[m] = numTransactions;
+        return freq;
+    }
+
+    /**
+     * Builds the shards of FP-tree in parallel.
+     * @param minSupport the required minimum support of item sets in terms of frequency.
+     * @param count the frequency of single items, followed by the number of transactions.
+     * @param itemsets the transaction database.
+     * @param shards the number of shards.
+     * @return the shards of FP-tree.
+     */
+    private static FPTree[] partition(int minSupport, int[] count, Stream<int[]> itemsets, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Invalid number of shards: " + shards);
+        }
+
+        int[] itemSupport = Arrays.copyOf(count, count.length - 1);
+        FPTree[] trees = new FPTree[shards];
+        for (int g = 0; g < shards; g++) {
+            FPTree tree = new FPTree(minSupport, itemSupport);
+            tree.numTransactions = count[count.length - 1];
+            tree.shard = g;
+            tree.shards = shards;
+            trees[g] = tree;
+        }
+
+        int[] order = trees[0].order;
+        int numItems = itemSupport.length;
+        itemsets.parallel().forEach(itemset -> {
+            // Keep the unique frequent items in the order of header table.
+            int[] o = new int[itemset.length];
+            int m = 0;
+            for (int item : itemset) {
+                if (item < numItems && itemSupport[item] >= minSupport) {
+                    o[m++] = order[item];
+                }
+            }
+
+            if (m == 0) return;
+            Arrays.sort(o, 0, m);
+            int[] items = new int[m];
+            int unique = 0;
+            for (int i = 0; i < m; i++) {
+                if (unique == 0 || o[i] != o[unique - 1]) {
+                    o[unique] = o[i];
+                    items[unique++] = trees[0].headerTable[o[i]].id;
+                }
+            }
+
+            // Add the longest prefix ending with an item of the shard.
+            boolean[] projected = new boolean[shards];
+            for (int i = unique; i-- > 0; ) {
+                int g = o[i] % shards;
+                if (!projected[g]) {
+                    projected[g] = true;
+                    FPTree tree = trees[g];
+                    synchronized (tree) {
+                        tree.add(0, i + 1, items, 1);
+                    }
+                }
+            }
+        });
+
+        return trees;
+    }
+
+    /**
+     * Checks if the trees are the complete shards in order.
+     * @param shards the shards of FP-tree.
+     */
+    static void check(FPTree[] shards) {
+        if (shards.length == 0 || shards[0].shards != shards.length) {
+            throw new IllegalArgumentException("Incomplete shards of FP-tree: " + shards.length);
+        }
+
+        for (int g = 0; g < shards.length; g++) {
+            if (shards[g].shard != g) {
+                throw new IllegalArgumentException("Invalid shard of FP-tree at " + g + ": " + shards[g].shard);
+            }
+        }
+    }
+
+    /**
+     * Returns the FP-tree that contains the conditional patterns of
+     * the i-th item in the header table.
+     * @param shards the shards of FP-tree.
+     * @param i the index of item in the header table.
+     * @return the shard of item.
+     */
+    static FPTree shard(FPTree[] shards, int i) {
+        return shards[i % shards.length];
+    }
+
     /**
      * Returns the number transactions in the database.
      * @return the number transactions in the database.
@@ -20,6 +20,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.NoSuchElementException;
 import java.util.Queue;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -95,6 +96,27 @@ public class TotalSupportTree implements Iterable<ItemSet> {
         FPGrowth.apply(tree).forEach(itemset -> add(itemset.items(), itemset.support()));
     }
 
+    /**
+     * Constructor with the frequent item sets mined in parallel.
+     * The item sets of which the least frequent item is the i-th
+     * item in the header table all go to the i-th subtree of root.
+     * So the subtrees are built concurrently without locking.
+     * @param shards the shards of FP-tree of transactions.
+     */
+    public TotalSupportTree(FPTree[] shards) {
+        FPTree.check(shards);
+        FPTree tree = shards[0];
+        this.numTransactions = tree.numTransactions;
+        this.minSupport = tree.minSupport;
+        this.order = tree.order;
+        root.children = new Node[tree.numFreqItems];
+        IntStream.range(0, tree.numFreqItems).parallel().forEach(i -> {
+            for (var itemset : new FPGrowth(FPTree.shard(shards, i)).grow(i)) {
+                add(itemset.items(), itemset.support());
+            }
+        });
+    }
+
     /**
      * Returns the number transactions in the database.
      * @return the number transactions in the database.
@@ -186,9 +186,17 @@ public class DecisionTree extends CART implements Classifier<Tuple>, DataFrameCl
         } else {
             double splitValue = 0.0;
             int[] trueCount = new int[k];
+            // The samples of node in ascending order of column j are
+            // at [lo, hi) of the per-tree sorted index, or sorted on
+            // demand if the sorted index is shared.
             int[] orderj = order[j];
+            int base = 0;
+            if (rank != null) {
+                orderj = sort(j, lo, hi);
+                base = lo;
+            }
 
-            int first = orderj[lo];
+            int first = orderj[lo - base];
             double prevx = xj.getDouble(first);
             int prevy = y[first];
 
@@ -196,7 +204,7 @@ public class DecisionTree extends CART implements Classifier<Tuple>, DataFrameCl
                 int tc = 0;
                 int fc = 0;
 
-                int o = orderj[i];
+                int o = orderj[i - base];
                 int yi = y[o];
                 double xij = xj.getDouble(o);
 
@@ -236,6 +244,71 @@ public class DecisionTree extends CART implements Classifier<Tuple>, DataFrameCl
         return Optional.ofNullable(split);
     }
 
+    @Override
+    protected int histogramWidth() {
+        return k;
+    }
+
+    @Override
+    protected void accumulate(double[] histogram, int offset, int sample) {
+        histogram[offset + y[sample]] += samples[sample];
+    }
+
+    @Override
+    protected Optional<Split> findBestSplit(LeafNode leaf, int j, double impurity, int lo, int hi, double[] histogram) {
+        DecisionNode node = (DecisionNode) leaf;
+        int[] trueCount = new int[k];
+        int[] falseCount = new int[k];
+
+        int splitBin = -1;
+        double splitScore = 0.0;
+        int splitTrueCount = 0;
+        int splitFalseCount = 0;
+
+        // The last bin is not a candidate as the false branch would be empty.
+        int tc = 0;
+        int m = bins.size(j) - 1;
+        for (int b = 0; b < m; b++) {
+            int count = 0;
+            for (int l = 0; l < k; l++) {
+                int c = (int) histogram[b * k + l];
+                trueCount[l] += c;
+                count += c;
+            }
+
+            // An empty bin yields the same split as the previous one.
+            if (count == 0) continue;
+
+            tc += count;
+            int fc = node.size() - tc;
+            if (tc < nodeSize) continue;
+            if (fc < nodeSize) break;
+
+            for (int l = 0; l < k; l++) {
+                falseCount[l] = node.count()[l] - trueCount[l];
+            }
+
+            double gain = impurity - (double) tc / node.size() * DecisionNode.impurity(rule, tc, trueCount) - (double) fc / node.size() * DecisionNode.impurity(rule, fc, falseCount);
+
+            // new best split
+            if (gain > splitScore) {
+                splitBin = b;
+                splitTrueCount = tc;
+                splitFalseCount = fc;
+                splitScore = gain;
+            }
+        }
+
+        if (splitScore > 0.0) {
+            final int bin = splitBin;
+            final Bins quantizer = bins;
+            Split split = new OrdinalSplit(leaf, j, bins.cut(j, bin), splitScore, lo, hi, splitTrueCount, splitFalseCount, (int o) -> quantizer.bin(j, o) <= bin);
+            return Optional.of(split);
+        }
+
+        return Optional.empty();
+    }
+
     /**
      * Constructor. Fits a classification tree for AdaBoost and Random Forest.
      * @param x the data frame of the explanatory variable.
@@ -255,7 +328,59 @@ public class DecisionTree extends CART implements Classifier<Tuple>, DataFrameCl
      *              that only numeric attributes need be sorted.
      */
     public DecisionTree(DataFrame x, int[] y, StructField response, int k, SplitRule rule, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order) {
-        super(x, response, maxDepth, maxNodes, nodeSize, mtry, samples, order);
+        this(x, y, response, k, rule, maxDepth, maxNodes, nodeSize, mtry, samples, order, null);
+    }
+
+    /**
+     * Constructor. Fits a classification tree for AdaBoost and Random Forest.
+     * @param x the data frame of the explanatory variable.
+     * @param y the response variables.
+     * @param response the metadata of response variable.
+     * @param k the number of classes.
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the minimum size of leaf nodes.
+     * @param mtry the number of input variables to pick to split on at each
+     *             node. It seems that sqrt(p) give generally good performance,
+     *             where p is the number of variables.
+     * @param rule the splitting rule.
+     * @param samples the sample set of instances for stochastic learning.
+     *               samples[i] is the number of sampling for instance i.
+     * @param order the index of training values in ascending order. Note
+     *              that only numeric attributes need be sorted.
+     * @param bins the quantized numeric columns for histogram-based split
+     *             finding. If null, the exact split finding is employed.
+     */
+    public DecisionTree(DataFrame x, int[] y, StructField response, int k, SplitRule rule, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order, Bins bins) {
+        this(x, y, response, k, rule, maxDepth, maxNodes, nodeSize, mtry, samples, order, null, bins);
+    }
+
+    /**
+     * Constructor. Fits a classification tree on the sorted index shared
+     * with other trees, e.g. the trees of random forests that are trained
+     * on the same data by concurrent trials of hyperparameter search.
+     * @param x the data frame of the explanatory variable.
+     * @param y the response variables.
+     * @param response the metadata of response variable.
+     * @param k the number of classes.
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the minimum size of leaf nodes.
+     * @param mtry the number of input variables to pick to split on at each
+     *             node. It seems that sqrt(p) give generally good performance,
+     *             where p is the number of variables.
+     * @param rule the splitting rule.
+     * @param samples the sample set of instances for stochastic learning.
+     *               samples[i] is the number of sampling for instance i.
+     * @param order the index of training values in ascending order. Note
+     *              that only numeric attributes need be sorted.
+     * @param rank the rank of samples in the sorted index. If not null,
+     *             the sorted index is shared read-only.
+     * @param bins the quantized numeric columns for histogram-based split
+     *             finding. If null, the exact split finding is employed.
+     */
+    public DecisionTree(DataFrame x, int[] y, StructField response, int k, SplitRule rule, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order, int[][] rank, Bins bins) {
+        super(x, response, maxDepth, maxNodes, nodeSize, mtry, samples, order, rank, bins);
         this.k = k;
         this.y = y;
         this.rule = rule;
@@ -296,8 +421,11 @@ public class DecisionTree extends CART implements Classifier<Tuple>, DataFrameCl
      * @param maxDepth the maximum depth of the tree.
      * @param maxNodes the maximum number of leaf nodes in the tree.
      * @param nodeSize the minimum size of leaf nodes.
+     * @param bins the maximum number of bins per numeric column for
+     *             histogram-based split finding. If 0, the exact split
+     *             finding on sorted values is employed.
      */
-    public record Options(SplitRule rule, int maxDepth, int maxNodes, int nodeSize) {
+    public record Options(SplitRule rule, int maxDepth, int maxNodes, int nodeSize, int bins) {
         /** Constructor. */
         public Options {
             if (maxDepth < 2) {
@@ -307,6 +435,21 @@ public class DecisionTree extends CART implements Classifier<Tuple>, DataFrameCl
             if (nodeSize < 1) {
                 throw new IllegalArgumentException("Invalid node size: " + nodeSize);
             }
+
+            if (bins != 0 && (bins < 2 || bins > 65536)) {
+                throw new IllegalArgumentException("Invalid number of bins: " + bins);
+            }
+        }
+
+        /**
+         * Constructor with exact split finding.
+         * @param rule the splitting rule.
+         * @param maxDepth the maximum depth of the tree.
+         * @param maxNodes the maximum number of leaf nodes in the tree.
+         * @param nodeSize the minimum size of leaf nodes.
+         */
+        public Options(SplitRule rule, int maxDepth, int maxNodes, int nodeSize) {
+            this(rule, maxDepth, maxNodes, nodeSize, 0);
         }
 
         /** Constructor. */
@@ -321,6 +464,7 @@ public class DecisionTree extends CART implements Classifier<Tuple>, DataFrameCl
          * <li><code>smile.cart.max_depth</code>
          * <li><code>smile.cart.max_nodes</code>
          * <li><code>smile.cart.node_size</code>
+         * <li><code>smile.cart.bins</code>
          * </ul>
          * @return the persistent set.
          */
@@ -330,6 +474,7 @@ public class DecisionTree extends CART implements Classifier<Tuple>, DataFrameCl
             props.setProperty("smile.cart.max_depth", Integer.toString(maxDepth));
             props.setProperty("smile.cart.max_nodes", Integer.toString(maxNodes));
             props.setProperty("smile.cart.node_size", Integer.toString(nodeSize));
+            props.setProperty("smile.cart.bins", Integer.toString(bins));
             return props;
         }
 
@@ -344,7 +489,8 @@ public class DecisionTree extends CART implements Classifier<Tuple>, DataFrameCl
             int maxDepth = Integer.parseInt(props.getProperty("smile.cart.max_depth", "20"));
             int maxNodes = Integer.parseInt(props.getProperty("smile.cart.max_nodes", "0"));
             int nodeSize = Integer.parseInt(props.getProperty("smile.cart.node_size", "5"));
-            return new Options(rule, maxDepth, maxNodes, nodeSize);
+            int bins = Integer.parseInt(props.getProperty("smile.cart.bins", "0"));
+            return new Options(rule, maxDepth, maxNodes, nodeSize, bins);
         }
     }
 
@@ -373,7 +519,8 @@ public class DecisionTree extends CART implements Classifier<Tuple>, DataFrameCl
 
         int mtry = x.ncol();
         int maxNodes = options.maxNodes > 0 ?  options.maxNodes : data.size() / options.nodeSize;
-        DecisionTree tree = new DecisionTree(x, codec.y, y.field(), codec.k, options.rule, options.maxDepth, maxNodes, options.nodeSize, mtry, null, null);
+        Bins bins = options.bins > 0 ? Bins.of(x, options.bins) : null;
+        DecisionTree tree = new DecisionTree(x, codec.y, y.field(), codec.k, options.rule, options.maxDepth, maxNodes, options.nodeSize, mtry, null, null, bins);
         tree.formula = formula;
         tree.classes = codec.classes;
         return tree;
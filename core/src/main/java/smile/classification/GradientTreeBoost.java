@@ -18,6 +18,8 @@ package smile.classification;
 
 import java.io.Serial;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 import java.util.stream.IntStream;
 import smile.data.DataFrame;
@@ -141,6 +143,10 @@ public class GradientTreeBoost extends AbstractClassifier<Tuple> implements Data
      * The shrinkage parameter in (0, 1] controls the learning rate of procedure.
      */
     private final double shrinkage;
+    /**
+     * The compiled trees for batch inference.
+     */
+    private transient volatile FlatForest compiled;
 
     /**
      * Constructor of binary class.
@@ -227,9 +233,12 @@ public class GradientTreeBoost extends AbstractClassifier<Tuple> implements Data
      * @param subsample the sampling fraction for stochastic tree boosting.
      * @param test the optional test data for validation per epoch.
      * @param controller the optional training controller.
+     * @param bins the maximum number of bins per numeric column for
+     *             histogram-based split finding. If 0, the exact split
+     *             finding on sorted values is employed.
      */
     public record Options(int ntrees, int maxDepth, int maxNodes, int nodeSize, double shrinkage, double subsample,
-                          DataFrame test, IterativeAlgorithmController<TrainingStatus> controller) {
+                          DataFrame test, IterativeAlgorithmController<TrainingStatus> controller, int bins) {
         /** Constructor. */
         public Options {
             if (ntrees < 1) {
@@ -248,6 +257,10 @@ public class GradientTreeBoost extends AbstractClassifier<Tuple> implements Data
                 throw new IllegalArgumentException("Invalid node size: " + nodeSize);
             }
 
+            if (bins != 0 && (bins < 2 || bins > 65536)) {
+                throw new IllegalArgumentException("Invalid number of bins: " + bins);
+            }
+
             if (shrinkage <= 0 || shrinkage > 1) {
                 throw new IllegalArgumentException("Invalid shrinkage: " + shrinkage);
             }
@@ -265,6 +278,22 @@ public class GradientTreeBoost extends AbstractClassifier<Tuple> implements Data
             this(ntrees, 20, 6, 5, 0.05, 0.7, null, null);
         }
 
+        /**
+         * Constructor with exact split finding.
+         * @param ntrees the number of iterations (trees).
+         * @param maxDepth the maximum depth of the tree.
+         * @param maxNodes the maximum number of leaf nodes in the tree.
+         * @param nodeSize the minimum size of leaf nodes.
+         * @param shrinkage the shrinkage parameter in (0, 1] controls the learning rate of procedure.
+         * @param subsample the sampling fraction for stochastic tree boosting.
+         * @param test the optional test data for validation per epoch.
+         * @param controller the optional training controller.
+         */
+        public Options(int ntrees, int maxDepth, int maxNodes, int nodeSize, double shrinkage, double subsample,
+                       DataFrame test, IterativeAlgorithmController<TrainingStatus> controller) {
+            this(ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, test, controller, 0);
+        }
+
         /**
          * Returns the persistent set of hyperparameters.
          * @return the persistent set.
@@ -275,6 +304,7 @@ public class GradientTreeBoost extends AbstractClassifier<Tuple> implements Data
             props.setProperty("smile.gradient_boost.max_depth", Integer.toString(maxDepth));
             props.setProperty("smile.gradient_boost.max_nodes", Integer.toString(maxNodes));
             props.setProperty("smile.gradient_boost.node_size", Integer.toString(nodeSize));
+            props.setProperty("smile.gradient_boost.bins", Integer.toString(bins));
             props.setProperty("smile.gradient_boost.shrinkage", Double.toString(shrinkage));
             props.setProperty("smile.gradient_boost.sampling_rate", Double.toString(subsample));
             return props;
@@ -291,9 +321,10 @@ public class GradientTreeBoost extends AbstractClassifier<Tuple> implements Data
             int maxDepth = Integer.parseInt(props.getProperty("smile.gradient_boost.max_depth", "20"));
             int maxNodes = Integer.parseInt(props.getProperty("smile.gradient_boost.max_nodes", "6"));
             int nodeSize = Integer.parseInt(props.getProperty("smile.gradient_boost.node_size", "5"));
+            int bins = Integer.parseInt(props.getProperty("smile.gradient_boost.bins", "0"));
             double shrinkage = Double.parseDouble(props.getProperty("smile.gradient_boost.shrinkage", "0.05"));
             double subsample = Double.parseDouble(props.getProperty("smile.gradient_boost.sampling_rate", "0.7"));
-            return new Options(ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, null, null);
+            return new Options(ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, null, null, bins);
         }
     }
 
@@ -317,17 +348,44 @@ public class GradientTreeBoost extends AbstractClassifier<Tuple> implements Data
      * @return the model.
      */
     public static GradientTreeBoost fit(Formula formula, DataFrame data, Options options) {
+        return fit(formula, data, options, null, null);
+    }
+
+    /**
+     * Fits a gradient tree boosting for classification on the sorted
+     * index that is shared read-only with other models, e.g. the
+     * concurrent trials of hyperparameter search on the same data.
+     *
+     * @param formula a symbolic description of the model to be fitted.
+     * @param data the data frame of the explanatory and response variables.
+     * @param options the hyperparameters.
+     * @param order the index of training values in ascending order of the
+     *              predictors {@code formula.x(data)}, which is computed by
+     *              {@link CART#order(DataFrame)}. If null, it is computed
+     *              from the data. Ignored by the histogram-based split finding.
+     * @param rank the rank of samples in the sorted index, which is computed
+     *             by {@link CART#rank(int[][])}. If null, each tree works on
+     *             its own copy of the sorted index.
+     * @return the model.
+     */
+    public static GradientTreeBoost fit(Formula formula, DataFrame data, Options options, int[][] order, int[][] rank) {
+        if (rank != null && order == null) {
+            throw new IllegalArgumentException("The sorted index is required with the ranks");
+        }
+
         formula = formula.expand(data.schema());
         DataFrame x = formula.x(data);
         ValueVector y = formula.y(data);
 
-        int[][] order = CART.order(x);
+        Bins bins = options.bins > 0 ? Bins.of(x, options.bins) : null;
+        int[][] sorted = bins != null ? null : order != null ? order : CART.order(x);
+        int[][] ranks = bins != null ? null : rank;
         ClassLabels codec = ClassLabels.fit(y);
 
         if (codec.k == 2) {
-            return train2(formula, x, codec, order, options);
+            return train2(formula, x, codec, sorted, ranks, bins, options);
         } else {
-            return traink(formula, x, codec, order, options);
+            return traink(formula, x, codec, sorted, ranks, bins, options);
         }
     }
 
@@ -357,7 +415,7 @@ public class GradientTreeBoost extends AbstractClassifier<Tuple> implements Data
     /**
      * Train L2 tree boost.
      */
-    private static GradientTreeBoost train2(Formula formula, DataFrame x, ClassLabels codec, int[][] order, Options options) {
+    private static GradientTreeBoost train2(Formula formula, DataFrame x, ClassLabels codec, int[][] order, int[][] rank, Bins bins, Options options) {
         long startTime = System.nanoTime();
         int n = x.nrow();
         int p = x.ncol();
@@ -395,12 +453,10 @@ public class GradientTreeBoost extends AbstractClassifier<Tuple> implements Data
         for (int t = 0; t < ntrees; t++) {
             sampling(samples, permutation, nc, y, options.subsample);
 
-            RegressionTree tree = new RegressionTree(x, loss, field, options.maxDepth, options.maxNodes, options.nodeSize, p, samples, order);
+            RegressionTree tree = new RegressionTree(x, loss, field, options.maxDepth, options.maxNodes, options.nodeSize, p, samples, order, rank, bins);
             trees[t] = tree;
 
-            for (int i = 0; i < n; i++) {
-                h[i] += shrinkage * tree.predict(x.get(i));
-            }
+            IntStream.range(0, n).parallel().forEach(i -> h[i] += shrinkage * tree.predict(x.get(i)));
 
             double lossValue = loss.value();
             logger.info("Tree {}: loss = {}", t+1, lossValue);
@@ -443,7 +499,7 @@ public class GradientTreeBoost extends AbstractClassifier<Tuple> implements Data
     /**
      * Train L-k tree boost.
      */
-    private static GradientTreeBoost traink(Formula formula, DataFrame x, ClassLabels codec, int[][] order, Options options) {
+    private static GradientTreeBoost traink(Formula formula, DataFrame x, ClassLabels codec, int[][] order, int[][] rank, Bins bins, Options options) {
         long startTime = System.nanoTime();
         int n = x.size();
         int p = x.ncol();
@@ -480,27 +536,36 @@ public class GradientTreeBoost extends AbstractClassifier<Tuple> implements Data
         }
 
         int[] permutation = IntStream.range(0, n).toArray();
-        int[] samples = new int[n];
+        int[][] samples = new int[k][n];
+        // The per-class trees share the sorted index instead of
+        // rearranging their own copies concurrently.
+        int[][] ranks = rank != null || order == null ? rank : CART.rank(order);
 
         for (int t = 0; t < ntrees; t++) {
-            for (int i = 0; i < n; i++) {
+            IntStream.range(0, n).parallel().forEach(i -> {
                 for (int j = 0; j < k; j++) {
                     prob[i][j] = h[j][i];
                 }
                 MathEx.softmax(prob[i]);
-            }
+            });
 
+            // Draw the samples sequentially for reproducibility.
             for (int j = 0; j < k; j++) {
-                sampling(samples, permutation, nc, y, options.subsample);
+                sampling(samples[j], permutation, nc, y, options.subsample);
+            }
 
-                RegressionTree tree = new RegressionTree(x, loss[j], field, options.maxDepth, options.maxNodes, options.nodeSize, p, samples, order);
-                forest[j][t] = tree;
+            // The per-class trees depend only on the posteriori
+            // probabilities of previous iteration.
+            final int tree = t;
+            IntStream.range(0, k).parallel().forEach(j -> {
+                var model = new RegressionTree(x, loss[j], field, options.maxDepth, options.maxNodes, options.nodeSize, p, samples[j], order, ranks, bins);
+                forest[j][tree] = model;
 
                 double[] hj = h[j];
                 for (int i = 0; i < n; i++) {
-                    hj[i] += shrinkage * tree.predict(x.get(i));
+                    hj[i] += shrinkage * model.predict(x.get(i));
                 }
-            }
+            });
 
             double lossValue = loss[0].value();
             logger.info("Tree {}: loss = {}", t+1, lossValue);
@@ -705,6 +770,115 @@ public class GradientTreeBoost extends AbstractClassifier<Tuple> implements Data
         }
     }
 
+    /**
+     * Compiles the trees into flat arrays for fast batch inference.
+     * For binary classification, the output of compiled model is the
+     * log-odds of class 1. For multi-class, the output is the score
+     * of each class.
+     *
+     * @return the compiled model.
+     */
+    public FlatForest compile() {
+        if (compiled == null) {
+            Node[] roots = Arrays.stream(trees).flatMap(Arrays::stream).map(CART::root).toArray(Node[]::new);
+            double[] weight = new double[roots.length];
+            Arrays.fill(weight, shrinkage);
+            int[] output = new int[roots.length];
+            for (int j = 0, t = 0; j < trees.length; j++) {
+                for (int i = 0; i < trees[j].length; i++, t++) {
+                    output[t] = j;
+                }
+            }
+            double[] bias = k == 2 ? new double[]{b} : new double[k];
+            compiled = FlatForest.of(roots, weight, output, bias);
+        }
+        return compiled;
+    }
+
+    @Override
+    public int[] predict(DataFrame data) {
+        double[][] score = compile().score(formula.x(data));
+        return Arrays.stream(score).mapToInt(this::label).toArray();
+    }
+
+    @Override
+    public int[] predict(DataFrame data, List<double[]> posteriori) {
+        return posteriori(compile().score(formula.x(data)), posteriori);
+    }
+
+    /**
+     * Predicts a batch of samples with the compiled trees.
+     *
+     * @param x the predictors, of which the columns are in the order of
+     *          {@code schema()}.
+     * @return the predicted class labels.
+     */
+    public int[] predict(double[][] x) {
+        double[][] score = compile().score(x);
+        return Arrays.stream(score).mapToInt(this::label).toArray();
+    }
+
+    /**
+     * Predicts a batch of samples with the compiled trees and also
+     * calculates a posteriori probabilities.
+     *
+     * @param x the predictors, of which the columns are in the order of
+     *          {@code schema()}.
+     * @param posteriori an empty list to store a posteriori probabilities on output.
+     * @return the predicted class labels.
+     */
+    public int[] predict(double[][] x, List<double[]> posteriori) {
+        return posteriori(compile().score(x), posteriori);
+    }
+
+    /**
+     * Returns the class label of the output of compiled model.
+     * @param score the output of compiled model.
+     * @return the class label.
+     */
+    private int label(double[] score) {
+        if (k == 2) {
+            return classes.valueOf(score[0] > 0 ? 1 : 0);
+        } else {
+            return classes.valueOf(MathEx.whichMax(score));
+        }
+    }
+
+    /**
+     * Converts the outputs of compiled model into posteriori probabilities
+     * and returns the class labels.
+     * @param score the outputs of compiled model.
+     * @param posteriori an empty list to store a posteriori probabilities on output.
+     * @return the predicted class labels.
+     */
+    private int[] posteriori(double[][] score, List<double[]> posteriori) {
+        int n = score.length;
+        int[] y = new int[n];
+        double[][] prob = new double[n][k];
+        for (int i = 0; i < n; i++) {
+            double[] p = prob[i];
+            y[i] = label(score[i]);
+            if (k == 2) {
+                p[0] = 1.0 / (1.0 + Math.exp(2 * score[i][0]));
+                p[1] = 1.0 - p[0];
+            } else {
+                double max = MathEx.max(score[i]);
+                double Z = 0.0;
+                for (int j = 0; j < k; j++) {
+                    p[j] = Math.exp(score[i][j] - max);
+                    Z += p[j];
+                }
+
+                for (int j = 0; j < k; j++) {
+                    p[j] /= Z;
+                }
+            }
+        }
+
+        Collections.addAll(posteriori, prob);
+        return y;
+    }
+
     /**
      * Test the model on a validation dataset.
      *
@@ -27,7 +27,11 @@ import smile.data.type.StructType;
 import smile.data.vector.ValueVector;
 import smile.feature.importance.TreeSHAP;
 import smile.math.MathEx;
+import smile.model.cart.Bins;
 import smile.model.cart.CART;
+import smile.model.cart.DecisionNode;
+import smile.model.cart.FlatForest;
+import smile.model.cart.Node;
 import smile.model.cart.SplitRule;
 import smile.util.IntSet;
 import smile.util.IterativeAlgorithmController;
@@ -135,6 +139,16 @@ public class RandomForest extends AbstractClassifier<Tuple> implements DataFrame
      */
     private final double[] importance;
 
+    /**
+     * The compiled forest for soft voting.
+     */
+    private transient volatile FlatForest compiled;
+
+    /**
+     * The compiled forest for hard voting.
+     */
+    private transient volatile FlatForest voting;
+
     /**
      * Constructor.
      *
@@ -197,9 +211,12 @@ public class RandomForest extends AbstractClassifier<Tuple> implements DataFrame
      *                    1 is of positive).
      * @param seeds optional RNG seeds for each decision tree.
      * @param controller the optional training controller.
+     * @param bins the maximum number of bins per numeric column for
+     *             histogram-based split finding. If 0, the exact split
+     *             finding on sorted values is employed.
      */
     public record Options(int ntrees, int mtry, SplitRule rule, int maxDepth, int maxNodes, int nodeSize, double subsample,
-                          int[] classWeight, long[] seeds, IterativeAlgorithmController<TrainingStatus> controller) {
+                          int[] classWeight, long[] seeds, IterativeAlgorithmController<TrainingStatus> controller, int bins) {
         /** Constructor. */
         public Options {
             if (ntrees < 1) {
@@ -214,6 +231,10 @@ public class RandomForest extends AbstractClassifier<Tuple> implements DataFrame
                 throw new IllegalArgumentException("Invalid node size: " + nodeSize);
             }
 
+            if (bins != 0 && (bins < 2 || bins > 65536)) {
+                throw new IllegalArgumentException("Invalid number of bins: " + bins);
+            }
+
             if (subsample <= 0 || subsample > 1) {
                 throw new IllegalArgumentException("Invalid sampling rate: " + subsample);
             }
@@ -246,6 +267,25 @@ public class RandomForest extends AbstractClassifier<Tuple> implements DataFrame
             this(ntrees, mtry, SplitRule.GINI, maxDepth, maxNodes, nodeSize, 1.0, null, null, null);
         }
 
+        /**
+         * Constructor with exact split finding.
+         * @param ntrees the number of trees.
+         * @param mtry the number of input variables to be used to determine the
+         *             decision at a node of the tree.
+         * @param rule Decision tree split rule.
+         * @param maxDepth the maximum depth of the tree.
+         * @param maxNodes the maximum number of leaf nodes in the tree.
+         * @param nodeSize the minimum size of leaf nodes.
+         * @param subsample the sampling rate for training tree.
+         * @param classWeight Priors of the classes.
+         * @param seeds optional RNG seeds for each decision tree.
+         * @param controller the optional training controller.
+         */
+        public Options(int ntrees, int mtry, SplitRule rule, int maxDepth, int maxNodes, int nodeSize, double subsample,
+                       int[] classWeight, long[] seeds, IterativeAlgorithmController<TrainingStatus> controller) {
+            this(ntrees, mtry, rule, maxDepth, maxNodes, nodeSize, subsample, classWeight, seeds, controller, 0);
+        }
+
         /**
          * Returns the persistent set of hyperparameters.
          * @return the persistent set.
@@ -258,6 +298,7 @@ public class RandomForest extends AbstractClassifier<Tuple> implements DataFrame
             props.setProperty("smile.random_forest.max_depth", Integer.toString(maxDepth));
             props.setProperty("smile.random_forest.max_nodes", Integer.toString(maxNodes));
             props.setProperty("smile.random_forest.node_size", Integer.toString(nodeSize));
+            props.setProperty("smile.random_forest.bins", Integer.toString(bins));
             props.setProperty("smile.random_forest.sampling_rate", Double.toString(subsample));
             if (classWeight != null) {
                 props.setProperty("smile.random_forest.class_weight", Arrays.toString(classWeight));
@@ -278,9 +319,10 @@ public class RandomForest extends AbstractClassifier<Tuple> implements DataFrame
             int maxDepth = Integer.parseInt(props.getProperty("smile.random_forest.max_depth", "20"));
             int maxNodes = Integer.parseInt(props.getProperty("smile.random_forest.max_nodes", "0"));
             int nodeSize = Integer.parseInt(props.getProperty("smile.random_forest.node_size", "5"));
+            int bins = Integer.parseInt(props.getProperty("smile.random_forest.bins", "0"));
             double subsample = Double.parseDouble(props.getProperty("smile.random_forest.sampling_rate", "1.0"));
             int[] classWeight = Strings.parseIntArray(props.getProperty("smile.random_forest.class_weight"));
-            return new Options(ntrees, mtry, rule, maxDepth, maxNodes, nodeSize, subsample, classWeight, null, null);
+            return new Options(ntrees, mtry, rule, maxDepth, maxNodes, nodeSize, subsample, classWeight, null, null, bins);
         }
     }
 
@@ -304,6 +346,31 @@ public class RandomForest extends AbstractClassifier<Tuple> implements DataFrame
      * @return the model.
      */
     public static RandomForest fit(Formula formula, DataFrame data, Options options) {
+        return fit(formula, data, options, null, null);
+    }
+
+    /**
+     * Fits a random forest for classification on the sorted index that is shared
+     * read-only with other models, e.g. the concurrent trials of
+     * hyperparameter search on the same training data.
+     *
+     * @param formula a symbolic description of the model to be fitted.
+     * @param data the data frame of the explanatory and response variables.
+     * @param options the hyperparameters.
+     * @param order the index of training values in ascending order of the
+     *              predictors {@code formula.x(data)}, which is computed by
+     *              {@link CART#order(DataFrame)}. If null, it is computed
+     *              from the data. Ignored by the histogram-based split finding.
+     * @param rank the rank of samples in the sorted index, which is computed
+     *             by {@link CART#rank(int[][])}. If null, each tree works on
+     *             its own copy of the sorted index.
+     * @return the model.
+     */
+    public static RandomForest fit(Formula formula, DataFrame data, Options options, int[][] order, int[][] rank) {
+        if (rank != null && order == null) {
+            throw new IllegalArgumentException("The sorted index is required with the ranks");
+        }
+
         formula = formula.expand(data.schema());
         DataFrame x = formula.x(data);
         ValueVector y = formula.y(data);
@@ -324,7 +391,10 @@ public class RandomForest extends AbstractClassifier<Tuple> implements DataFrame
 
         final int[] weight = options.classWeight != null ? options.classWeight : Collections.nCopies(k, 1).stream().mapToInt(i -> i).toArray();
 
-        final int[][] order = CART.order(x);
+        // The quantized features or the sorted index are shared by all trees.
+        final Bins bins = options.bins > 0 ? Bins.of(x, options.bins) : null;
+        final int[][] sorted = bins != null ? null : order != null ? order : CART.order(x);
+        final int[][] ranks = bins != null ? null : rank;
         final int[][] prediction = new int[n][k]; // out-of-bag prediction
 
         // # of samples in each class
@@ -379,7 +449,7 @@ public class RandomForest extends AbstractClassifier<Tuple> implements DataFrame
             }
 
             long start = System.nanoTime();
-            DecisionTree tree = new DecisionTree(x, codec.y, y.field(), k, options.rule, options.maxDepth, maxNodes, options.nodeSize, mtry, samples, order);
+            DecisionTree tree = new DecisionTree(x, codec.y, y.field(), k, options.rule, options.maxDepth, maxNodes, options.nodeSize, mtry, samples, sorted, ranks, bins);
             double fitTime = (System.nanoTime() - start) / 1E6;
 
             // estimate OOB metrics
@@ -530,11 +600,13 @@ public class RandomForest extends AbstractClassifier<Tuple> implements DataFrame
             throw new IllegalArgumentException("Invalid new model size: " + ntrees);
         }
 
-        Arrays.sort(models);
+        // Sorts a copy so that the trees of this model stay in order.
+        Model[] forest = models.clone();
+        Arrays.sort(forest);
 
         // The OOB metrics are still the old one
         // as we don't access to the training data here.
-        return new RandomForest(formula, k, Arrays.copyOf(models, ntrees), metrics, importance(models), classes);
+        return new RandomForest(formula, k, Arrays.copyOf(forest, ntrees), metrics, importance(models), classes);
     }
 
     /**
@@ -643,6 +715,97 @@ public class RandomForest extends AbstractClassifier<Tuple> implements DataFrame
         return classes.valueOf(MathEx.whichMax(posteriori));
     }
 
+    /**
+     * Compiles the forest into flat arrays for fast batch inference.
+     * The output of compiled forest is the sum of leaf posteriori
+     * probabilities weighted by the tree weights, which is proportional
+     * to the posteriori probabilities of soft voting.
+     *
+     * @return the compiled forest.
+     */
+    public FlatForest compile() {
+        if (compiled == null) {
+            Node[] roots = Arrays.stream(models).map(model -> model.tree.root()).toArray(Node[]::new);
+            double[] weight = Arrays.stream(models).mapToDouble(Model::weight).toArray();
+            compiled = FlatForest.of(roots, k, (leaf, prob) -> ((DecisionNode) leaf).posteriori(prob),
+                    weight, new int[models.length], new double[k]);
+        }
+        return compiled;
+    }
+
+    /**
+     * Compiles the forest for hard voting. The output of compiled forest
+     * is the number of votes of each class.
+     *
+     * @return the compiled forest.
+     */
+    private FlatForest voting() {
+        if (voting == null) {
+            int ntrees = models.length;
+            Node[] roots = Arrays.stream(models).map(model -> model.tree.root()).toArray(Node[]::new);
+            double[] weight = new double[ntrees];
+            Arrays.fill(weight, 1.0);
+            voting = FlatForest.of(roots, k, (leaf, vote) -> vote[((DecisionNode) leaf).output()] = 1.0,
+                    weight, new int[ntrees], new double[k]);
+        }
+        return voting;
+    }
+
+    @Override
+    public int[] predict(DataFrame data) {
+        double[][] votes = voting().score(formula.x(data));
+        return Arrays.stream(votes).mapToInt(vote -> classes.valueOf(MathEx.whichMax(vote))).toArray();
+    }
+
+    @Override
+    public int[] predict(DataFrame data, List<double[]> posteriori) {
+        double[][] prob = compile().score(formula.x(data));
+        Collections.addAll(posteriori, prob);
+        return soft(prob);
+    }
+
+    /**
+     * Predicts a batch of samples with the compiled forest by voting.
+     *
+     * @param x the predictors, of which the columns are in the order of
+     *          {@code schema()}.
+     * @return the predicted class labels.
+     */
+    public int[] predict(double[][] x) {
+        double[][] votes = voting().score(x);
+        return Arrays.stream(votes).mapToInt(vote -> classes.valueOf(MathEx.whichMax(vote))).toArray();
+    }
+
+    /**
+     * Predicts a batch of samples with the compiled forest and also
+     * calculates a posteriori probabilities.
+     *
+     * @param x the predictors, of which the columns are in the order of
+     *          {@code schema()}.
+     * @param posteriori an empty list to store a posteriori probabilities on output.
+     * @return the predicted class labels.
+     */
+    public int[] predict(double[][] x, List<double[]> posteriori) {
+        double[][] prob = compile().score(x);
+        Collections.addAll(posteriori, prob);
+        return soft(prob);
+    }
+
+    /**
+     * Normalizes the outputs of compiled forest into posteriori
+     * probabilities and returns the class labels.
+     * @param prob the outputs of compiled forest.
+     * @return the predicted class labels.
+     */
+    private int[] soft(double[][] prob) {
+        int[] y = new int[prob.length];
+        for (int i = 0; i < prob.length; i++) {
+            MathEx.unitize1(prob[i]);
+            y[i] = classes.valueOf(MathEx.whichMax(prob[i]));
+        }
+        return y;
+    }
+
     /**
      * Test the model on a validation dataset.
      *
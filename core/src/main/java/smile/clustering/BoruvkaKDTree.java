@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.clustering;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * The k-d tree of Boruvka's algorithm for the minimum spanning tree of
+ * mutual reachability graph with Euclidean distance. The mutual reachability
+ * distance between two points is {@code max(core[i], core[j], d(i, j))}.
+ * <p>
+ * Boruvka's algorithm merges every component with its nearest component
+ * in each round, which takes O(log n) rounds. In a round, the nearest
+ * point of other components is searched for each point on the k-d tree,
+ * where the nodes of which all points belong to the same component as
+ * the query are skipped and the nodes are pruned by the lower bound
+ * {@code max(core[i], min core in node, distance to bounding box)}.
+ * The best edge found so far of each component is shared by its points
+ * to prune the search further. Only the tree and a few arrays of size n
+ * are allocated so that the memory is O(n).
+ *
+ * @author Haifeng Li
+ */
+class BoruvkaKDTree {
+    /** The maximum number of points in a leaf. */
+    private static final int LEAF_SIZE = 32;
+    /** The points. */
+    private final double[][] data;
+    /** The core distances. */
+    private final double[] core;
+    /** The dimension of points. */
+    private final int d;
+    /** The permutation of points. The points of a node are consecutive. */
+    private final int[] index;
+    /** The first point of nodes in the permutation. */
+    private int[] start;
+    /** The end (exclusive) of points of nodes in the permutation. */
+    private int[] end;
+    /** The left child of nodes, or -1 if leaf. */
+    private int[] left;
+    /** The right child of nodes, or -1 if leaf. */
+    private int[] right;
+    /** The lower bounds of bounding boxes. */
+    private double[] lower;
+    /** The upper bounds of bounding boxes. */
+    private double[] upper;
+    /** The minimum core distance in nodes. */
+    private double[] minCore;
+    /** The component of nodes, or -1 if the points belong to several components. */
+    private int[] component;
+    /** The number of nodes. */
+    private int size = 0;
+
+    /**
+     * Constructor.
+     * @param data the points.
+     * @param core the core distances.
+     */
+    public BoruvkaKDTree(double[][] data, double[] core) {
+        this.data = data;
+        this.core = core;
+        this.d = data[0].length;
+
+        int n = data.length;
+        index = new int[n];
+        for (int i = 0; i < n; i++) {
+            index[i] = i;
+        }
+
+        int capacity = 2 * (n / LEAF_SIZE + 1);
+        start = new int[capacity];
+        end = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        lower = new double[capacity * d];
+        upper = new double[capacity * d];
+        minCore = new double[capacity];
+        build(0, n);
+        component = new int[size];
+    }
+
+    /** Builds the subtree of points in [lo, hi) and returns the node id. */
+    private int build(int lo, int hi) {
+        int node = newNode();
+        start[node] = lo;
+        end[node] = hi;
+        left[node] = -1;
+        right[node] = -1;
+
+        int offset = node * d;
+        Arrays.fill(lower, offset, offset + d, Double.POSITIVE_INFINITY);
+        Arrays.fill(upper, offset, offset + d, Double.NEGATIVE_INFINITY);
+        double mc = Double.POSITIVE_INFINITY;
+        for (int p = lo; p < hi; p++) {
+            int i = index[p];
+            double[] x = data[i];
+            for (int k = 0; k < d; k++) {
+                lower[offset + k] = Math.min(lower[offset + k], x[k]);
+                upper[offset + k] = Math.max(upper[offset + k], x[k]);
+            }
+            mc = Math.min(mc, core[i]);
+        }
+        minCore[node] = mc;
+
+        if (hi - lo <= LEAF_SIZE) {
+            return node;
+        }
+
+        // Splits on the widest dimension at the median.
+        int dim = 0;
+        double width = -1.0;
+        for (int k = 0; k < d; k++) {
+            double w = upper[offset + k] - lower[offset + k];
+            if (w > width) {
+                width = w;
+                dim = k;
+            }
+        }
+
+        // All points are duplicates.
+        if (width <= 0.0) {
+            return node;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, dim);
+        int l = build(lo, mid);
+        int r = build(mid, hi);
+        left[node] = l;
+        right[node] = r;
+        return node;
+    }
+
+    /** Allocates a new node. */
+    private int newNode() {
+        if (size == start.length) {
+            int capacity = 2 * size;
+            start = Arrays.copyOf(start, capacity);
+            end = Arrays.copyOf(end, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            lower = Arrays.copyOf(lower, capacity * d);
+            upper = Arrays.copyOf(upper, capacity * d);
+            minCore = Arrays.copyOf(minCore, capacity);
+        }
+        return size++;
+    }
+
+    /**
+     * Partially sorts the permutation in [lo, hi] so that the k-th point
+     * is in its sorted position on the given dimension.
+     */
+    private void select(int lo, int hi, int k, int dim) {
+        while (hi > lo) {
+            double pivot = data[index[(lo + hi) >>> 1]][dim];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (data[index[i]][dim] < pivot) i++;
+                while (data[index[j]][dim] > pivot) j--;
+                if (i <= j) {
+                    int t = index[i];
+                    index[i] = index[j];
+                    index[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the minimum spanning tree of mutual reachability graph.
+     * The edges are stored in the output arrays in no particular order.
+     *
+     * @param from the output endpoints of edges.
+     * @param to the other output endpoints of edges.
+     * @param weight the output mutual reachability distances of edges.
+     */
+    public void mst(int[] from, int[] to, double[] weight) {
+        int n = data.length;
+        int[] parent = new int[n];
+        int[] comp = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+
+        // The nearest point of other components to each point.
+        int[] nearest = new int[n];
+        double[] distance = new double[n];
+        // The nearest edge of components found so far.
+        AtomicLongArray bound = new AtomicLongArray(n);
+        long infinity = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+        int[] bestFrom = new int[n];
+        int[] bestTo = new int[n];
+        double[] bestWeight = new double[n];
+
+        int m = 0;
+        while (m < n - 1) {
+            for (int i = 0; i < n; i++) {
+                comp[i] = find(parent, i);
+                bound.set(comp[i], infinity);
+                bestWeight[comp[i]] = Double.POSITIVE_INFINITY;
+            }
+            updateComponent(0, comp);
+
+            IntStream.range(0, n).parallel().forEach(i -> {
+                nearest[i] = -1;
+                int ci = comp[i];
+                double best = Double.longBitsToDouble(bound.get(ci));
+                if (core[i] >= best) return;
+
+                double[] result = {best, -1};
+                search(0, i, ci, comp, result);
+                if (result[1] >= 0) {
+                    nearest[i] = (int) result[1];
+                    distance[i] = result[0];
+                    // The bits of nonnegative doubles preserve the order.
+                    long bits = Double.doubleToLongBits(result[0]);
+                    long current;
+                    while (bits < (current = bound.get(ci))) {
+                        if (bound.compareAndSet(ci, current, bits)) break;
+                    }
+                }
+            });
+
+            for (int i = 0; i < n; i++) {
+                int j = nearest[i];
+                int ci = comp[i];
+                if (j >= 0 && distance[i] < bestWeight[ci]) {
+                    bestWeight[ci] = distance[i];
+                    bestFrom[ci] = i;
+                    bestTo[ci] = j;
+                }
+            }
+
+            int merged = m;
+            for (int i = 0; i < n; i++) {
+                if (comp[i] == i && bestWeight[i] < Double.POSITIVE_INFINITY) {
+                    int u = bestFrom[i];
+                    int v = bestTo[i];
+                    int ru = find(parent, u);
+                    int rv = find(parent, v);
+                    if (ru != rv) {
+                        parent[ru] = rv;
+                        from[m] = u;
+                        to[m] = v;
+                        weight[m] = bestWeight[i];
+                        m++;
+                    }
+                }
+            }
+
+            if (m == merged) {
+                throw new IllegalStateException("Boruvka's algorithm makes no progress");
+            }
+        }
+    }
+
+    /** Returns the root of disjoint set with path halving. */
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /** Updates the component of nodes in the subtree. */
+    private int updateComponent(int node, int[] comp) {
+        int c;
+        if (left[node] < 0) {
+            c = comp[index[start[node]]];
+            for (int p = start[node] + 1; p < end[node]; p++) {
+                if (comp[index[p]] != c) {
+                    c = -1;
+                    break;
+                }
+            }
+        } else {
+            int l = updateComponent(left[node], comp);
+            int r = updateComponent(right[node], comp);
+            c = l == r ? l : -1;
+        }
+        component[node] = c;
+        return c;
+    }
+
+    /** Returns the squared distance between a point and the bounding box of node. */
+    private double boxDistance(int node, double[] x) {
+        int offset = node * d;
+        double dist = 0.0;
+        for (int k = 0; k < d; k++) {
+            double diff = 0.0;
+            if (x[k] < lower[offset + k]) {
+                diff = lower[offset + k] - x[k];
+            } else if (x[k] > upper[offset + k]) {
+                diff = x[k] - upper[offset + k];
+            }
+            dist += diff * diff;
+        }
+        return dist;
+    }
+
+    /**
+     * Searches the nearest point of other components in the subtree.
+     * @param node the root of subtree.
+     * @param i the query point.
+     * @param ci the component of query point.
+     * @param comp the component of points.
+     * @param result the mutual reachability distance and the index
+     *               of nearest point found so far.
+     */
+    private void search(int node, int i, int ci, int[] comp, double[] result) {
+        if (component[node] == ci) return;
+
+        double[] x = data[i];
+        double lb = Math.max(core[i], minCore[node]);
+        if (lb >= result[0]) return;
+        if (Math.max(lb, Math.sqrt(boxDistance(node, x))) >= result[0]) return;
+
+        if (left[node] < 0) {
+            for (int p = start[node]; p < end[node]; p++) {
+                int j = index[p];
+                if (comp[j] == ci) continue;
+
+                double mr = Math.max(core[i], core[j]);
+                if (mr >= result[0]) continue;
+
+                double[] y = data[j];
+                double dist = 0.0;
+                for (int k = 0; k < d; k++) {
+                    double diff = x[k] - y[k];
+                    dist += diff * diff;
+                }
+
+                mr = Math.max(mr, Math.sqrt(dist));
+                if (mr < result[0]) {
+                    result[0] = mr;
+                    result[1] = j;
+                }
+            }
+            return;
+        }
+
+        // Visits the closer child first.
+        int l = left[node];
+        int r = right[node];
+        if (boxDistance(l, x) <= boxDistance(r, x)) {
+            search(l, i, ci, comp, result);
+            search(r, i, ci, comp, result);
+        } else {
+            search(r, i, ci, comp, result);
+            search(l, i, ci, comp, result);
+        }
+    }
+}
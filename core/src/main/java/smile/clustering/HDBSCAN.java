@@ -21,8 +21,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.stream.IntStream;
+import smile.math.MathEx;
 import smile.math.distance.Distance;
-import smile.math.distance.EuclideanDistance;
+import smile.neighbor.CoverTree;
+import smile.neighbor.KDTree;
+import smile.neighbor.KNNSearch;
 import static smile.clustering.Clustering.OUTLIER;
 
 /**
@@ -42,6 +46,12 @@ import static smile.clustering.Clustering.OUTLIER;
  * <li> convert to a hierarchy and perform stability-based cluster selection
  * with {@code minClusterSize}</li>
  * </ol>
+ * <p>
+ * With a general distance function, the pairwise distance matrix is
+ * computed, which takes O(n<sup>2</sup>) memory. For Euclidean distance,
+ * the core distances are computed with a nearest neighbor search index
+ * and the minimum spanning tree is built with Boruvka's algorithm on a
+ * k-d tree, which takes only O(n) memory and scales to millions of points.
  *
  * <h2>References</h2>
  * <ol>
@@ -166,17 +176,74 @@ public class HDBSCAN<T> extends Partitioning {
      * @return the model.
      */
     public static HDBSCAN<double[]> fit(double[][] data, int minPoints, int minClusterSize) {
-        return fit(data, new EuclideanDistance(), new Options(minPoints, minClusterSize));
+        return fit(data, new Options(minPoints, minClusterSize));
     }
 
     /**
-     * Clusters the data with Euclidean distance.
+     * Clusters the data with Euclidean distance. The core distances are
+     * computed with a k-d tree in low dimensional space or a cover tree
+     * otherwise. The memory is O(n).
      * @param data the observations.
      * @param options the hyperparameters.
      * @return the model.
      */
     public static HDBSCAN<double[]> fit(double[][] data, Options options) {
-        return fit(data, new EuclideanDistance(), options);
+        if (data.length < 2) {
+            throw new IllegalArgumentException("Invalid data size: " + data.length);
+        }
+
+        KNNSearch<double[], double[]> knn;
+        if (data[0].length < 10) {
+            knn = KDTree.of(data);
+        } else {
+            knn = CoverTree.of(data, MathEx::distance);
+        }
+        return fit(data, knn, options);
+    }
+
+    /**
+     * Clusters the data with Euclidean distance. The core distances are
+     * computed with the nearest neighbor search index and the minimum
+     * spanning tree of mutual reachability graph is built with Boruvka's
+     * algorithm on a k-d tree. Different from the other methods, the
+     * pairwise distance matrix is never materialized so that the memory
+     * is O(n).
+     *
+     * @param data the observations.
+     * @param knn the nearest neighbor search index of data with Euclidean
+     *            distance, which excludes the query object from the results.
+     * @param options the hyperparameters.
+     * @return the model.
+     */
+    public static HDBSCAN<double[]> fit(double[][] data, KNNSearch<double[], ?> knn, Options options) {
+        if (data.length < 2) {
+            throw new IllegalArgumentException("Invalid data size: " + data.length);
+        }
+
+        int n = data.length;
+        int kth = Math.min(options.minPoints - 1, n - 1);
+        double[] core = new double[n];
+        if (kth > 0) {
+            IntStream.range(0, n).parallel().forEach(i -> {
+                double max = 0.0;
+                for (var neighbor : knn.search(data[i], kth)) {
+                    max = Math.max(max, neighbor.distance());
+                }
+                core[i] = max;
+            });
+        }
+
+        int[] from = new int[n - 1];
+        int[] to = new int[n - 1];
+        double[] weight = new double[n - 1];
+        new BoruvkaKDTree(data, core).mst(from, to, weight);
+
+        Edge[] mst = new Edge[n - 1];
+        for (int i = 0; i < mst.length; i++) {
+            mst[i] = new Edge(from[i], to[i], weight[i]);
+        }
+        Arrays.sort(mst);
+        return fit(n, mst, core, options);
     }
 
     /**
@@ -205,13 +272,25 @@ public class HDBSCAN<T> extends Partitioning {
             throw new IllegalArgumentException("Invalid data size: " + data.length);
         }
 
-        int minPoints = options.minPoints;
-        int minClusterSize = options.minClusterSize;
-
-        int n = data.length;
         double[][] pairwise = pairwiseDistances(data, distance);
-        double[] core = coreDistances(pairwise, minPoints);
+        double[] core = coreDistances(pairwise, options.minPoints);
         Edge[] mst = mutualReachabilityMST(pairwise, core);
+        return fit(data.length, mst, core, options);
+    }
+
+    /**
+     * Clusters the data with the minimum spanning tree of mutual
+     * reachability graph.
+     * @param n the number of observations.
+     * @param mst the edges of minimum spanning tree in ascending order of weight.
+     * @param core the core distances.
+     * @param options the hyperparameters.
+     * @param <T> the data type.
+     * @return the model.
+     */
+    private static <T> HDBSCAN<T> fit(int n, Edge[] mst, double[] core, Options options) {
+        int minPoints = options.minPoints;
+        int minClusterSize = options.minClusterSize;
         Dendrogram dendrogram = hierarchyFromMST(n, mst);
         Selection selection = selectClusters(dendrogram, minClusterSize);
         int[] group = label(selection.selected, dendrogram.nodes, n);
@@ -344,82 +423,79 @@ public class HDBSCAN<T> extends Partitioning {
     }
 
     private static Selection selectClusters(Dendrogram tree, int minClusterSize) {
-        List<Integer> selected = new ArrayList<>();
-        List<Double> scores = new ArrayList<>();
-        select(tree.root, 0.0, tree, minClusterSize, selected, scores);
-        double[] stability = new double[scores.size()];
-        for (int i = 0; i < scores.size(); i++) {
-            stability[i] = scores.get(i);
-        }
-        return new Selection(selected.stream().mapToInt(i -> i).toArray(), stability);
-    }
-
-    private static double select(int id, double parentLambda, Dendrogram tree, int minClusterSize,
-                                 List<Integer> selected, List<Double> selectedScores) {
-        Node node = tree.nodes[id];
-        if (node.size < minClusterSize) {
-            return 0.0;
-        }
+        // The children are created before the parent so that the nodes
+        // are visited in post order by id without recursion, which may
+        // be as deep as the number of points.
+        Node[] nodes = tree.nodes;
+        double[] score = new double[tree.root + 1];
+        boolean[] flagged = new boolean[tree.root + 1];
+        for (int id = tree.n; id <= tree.root; id++) {
+            Node node = nodes[id];
+            if (node.size < minClusterSize) {
+                continue;
+            }
 
-        if (node.isLeaf()) {
-            return 0.0;
+            double parentLambda = node.parent >= 0 ? nodes[node.parent].lambda : 0.0;
+            double children = score[node.left] + score[node.right];
+            double own = (node.lambda - parentLambda) * node.size;
+            if (own >= children) {
+                flagged[id] = true;
+                score[id] = own;
+            } else {
+                score[id] = children;
+            }
         }
 
-        double left = select(node.left, node.lambda, tree, minClusterSize, selected, selectedScores);
-        double right = select(node.right, node.lambda, tree, minClusterSize, selected, selectedScores);
-        double children = left + right;
-        double own = (node.lambda - parentLambda) * node.size;
-
-        if (own >= children) {
-            removeDescendants(id, tree, selected, selectedScores);
-            selected.add(id);
-            selectedScores.add(own);
-            return own;
-        } else {
-            return children;
-        }
-    }
+        // The selected clusters are the flagged nodes without flagged
+        // ancestors, from left to right.
+        List<Integer> selected = new ArrayList<>();
+        List<Double> scores = new ArrayList<>();
+        int[] stack = new int[tree.root + 1];
+        int top = 0;
+        stack[top++] = tree.root;
+        while (top > 0) {
+            int id = stack[--top];
+            Node node = nodes[id];
+            if (node.size < minClusterSize || node.isLeaf()) {
+                continue;
+            }
 
-    private static void removeDescendants(int id, Dendrogram tree, List<Integer> selected, List<Double> selectedScores) {
-        for (int i = selected.size() - 1; i >= 0; i--) {
-            if (isDescendant(selected.get(i), id, tree)) {
-                selected.remove(i);
-                selectedScores.remove(i);
+            if (flagged[id]) {
+                selected.add(id);
+                scores.add(score[id]);
+            } else {
+                stack[top++] = node.right;
+                stack[top++] = node.left;
             }
         }
-    }
 
-    private static boolean isDescendant(int node, int ancestor, Dendrogram tree) {
-        int p = tree.nodes[node].parent;
-        while (p >= 0) {
-            if (p == ancestor) {
-                return true;
-            }
-            p = tree.nodes[p].parent;
+        double[] stability = new double[scores.size()];
+        for (int i = 0; i < scores.size(); i++) {
+            stability[i] = scores.get(i);
         }
-        return false;
+        return new Selection(selected.stream().mapToInt(i -> i).toArray(), stability);
     }
 
     private static int[] label(int[] selected, Node[] nodes, int n) {
         int[] group = new int[n];
         Arrays.fill(group, OUTLIER);
+        int[] stack = new int[nodes.length];
         for (int c = 0; c < selected.length; c++) {
-            assign(selected[c], c, nodes, group);
+            int top = 0;
+            stack[top++] = selected[c];
+            while (top > 0) {
+                Node node = nodes[stack[--top]];
+                if (node.isLeaf()) {
+                    group[node.id] = c;
+                } else {
+                    stack[top++] = node.left;
+                    stack[top++] = node.right;
+                }
+            }
         }
         return group;
     }
 
-    private static void assign(int nodeId, int label, Node[] nodes, int[] group) {
-        Node node = nodes[nodeId];
-        if (node.isLeaf()) {
-            group[node.id] = label;
-            return;
-        }
-
-        assign(node.left, label, nodes, group);
-        assign(node.right, label, nodes, group);
-    }
-
     private static final class IntDisjointSet {
         private final int[] parent;
         private final int[] rank;
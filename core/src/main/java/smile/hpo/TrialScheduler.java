@@ -0,0 +1,552 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.hpo;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.ToDoubleFunction;
+import smile.classification.DataFrameClassifier;
+import smile.data.DataFrame;
+import smile.data.formula.Formula;
+import smile.model.cart.CART;
+import smile.regression.DataFrameRegression;
+import smile.util.Index;
+import smile.validation.*;
+
+/**
+ * Parallel hyperparameter search with successive halving and Hyperband.
+ * Successive halving evaluates a set of configurations with a small budget
+ * (e.g. the number of trees or epochs), keeps the best {@code 1/eta} of
+ * them, and evaluates the survivors again with {@code eta} times the budget
+ * until the maximum budget is reached. Hyperband runs successive halving
+ * in multiple brackets of different trade-offs between the number of
+ * configurations and the starting budget, which hedges against the case
+ * that the performance with small budgets is not indicative.
+ * <p>
+ * The trials of a rung run concurrently on a bounded thread pool. If
+ * the budget property is given, the budget of a trial is set to its
+ * hyperparameters so that the trainer gets it through the
+ * {@code Options.of(Properties)} of algorithm. A trial may report its
+ * intermediate scores, e.g. the running mean over cross validation folds
+ * or the metrics of {@code TrainingStatus} published by the iterative
+ * algorithms. The trial is pruned if the score is worse than the median
+ * of other trials at the same step of the rung. Pruned trials are never
+ * promoted.
+ * <p>
+ * The objective score is the higher the better. Losses, or the model
+ * selection criteria such as AIC and BIC, should be negated.
+ * <p>
+ * The cross validation objectives materialize the data splits once and
+ * share them by all trials. The objectives of tree-based models also
+ * share the sorted index of predictors of each split and the ranks of
+ * samples in it, which the trees read without copying.
+ *
+ * <pre>{@code
+ * var hp = new Hyperparameters()
+ *     .add("smile.random_forest.mtry", new int[] {2, 3, 4})
+ *     .add("smile.random_forest.max_nodes", 100, 500, 50);
+ *
+ * var formula = Formula.lhs("class");
+ * var objective = TrialScheduler.classification(formula, data, CrossValidation.of(data.size(), 5),
+ *     (f, x, params, order, rank) -> RandomForest.fit(f, x, RandomForest.Options.of(params), order, rank),
+ *     ClassificationMetrics::accuracy);
+ *
+ * var scheduler = new TrialScheduler(8, "smile.random_forest.trees", 10, 810, 3);
+ * var best = scheduler.hyperband(hp, objective).getFirst();
+ * }</pre>
+ *
+ * <h2>References</h2>
+ * <ol>
+ * <li>K. Jamieson and A. Talwalkar. Non-stochastic Best Arm Identification and Hyperparameter Optimization. AISTATS, 2016.</li>
+ * <li>L. Li, K. Jamieson, G. DeSalvo, A. Rostamizadeh and A. Talwalkar. Hyperband: A Novel Bandit-Based Approach to Hyperparameter Optimization. JMLR, 18(185):1-52, 2018.</li>
+ * </ol>
+ *
+ * @author Haifeng Li
+ */
+public class TrialScheduler {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TrialScheduler.class);
+
+    /**
+     * The minimum number of other trials reported at the same step
+     * before a trial may be pruned.
+     */
+    private static final int MIN_REPORTS = 3;
+
+    /** The maximum number of concurrent trials. */
+    private final int parallelism;
+    /** The property name of budget. May be null. */
+    private final String budgetProperty;
+    /** The minimum budget of a trial. */
+    private final int minBudget;
+    /** The maximum budget of a trial. */
+    private final int maxBudget;
+    /** The reduction factor of successive halving. */
+    private final int eta;
+
+    /**
+     * The objective function of trials.
+     */
+    @FunctionalInterface
+    public interface Objective {
+        /**
+         * Trains and evaluates a model with the hyperparameters of trial.
+         * @param trial the trial.
+         * @return the score, the higher the better.
+         */
+        double apply(Trial trial);
+    }
+
+    /**
+     * Trains a model with hyperparameters.
+     * @param <M> the model type.
+     */
+    @FunctionalInterface
+    public interface Trainer<M> {
+        /**
+         * Fits a model.
+         * @param formula the model formula.
+         * @param data the training data.
+         * @param params the hyperparameters.
+         * @return the model.
+         */
+        M fit(Formula formula, DataFrame data, Properties params);
+    }
+
+    /**
+     * Trains a tree-based model with hyperparameters on the sorted index
+     * shared by trials.
+     * @param <M> the model type.
+     */
+    @FunctionalInterface
+    public interface TreeTrainer<M> {
+        /**
+         * Fits a model.
+         * @param formula the model formula.
+         * @param data the training data.
+         * @param params the hyperparameters.
+         * @param order the index of training values in ascending order of
+         *              the predictors, which is read-only.
+         * @param rank the rank of samples in the sorted index, which is read-only.
+         * @return the model.
+         */
+        M fit(Formula formula, DataFrame data, Properties params, int[][] order, int[][] rank);
+    }
+
+    /**
+     * The result of a trial.
+     * @param id the configuration id.
+     * @param params the hyperparameters, including the budget if the
+     *               budget property is given.
+     * @param budget the budget of trial.
+     * @param score the score of trial. If the trial failed, it is NaN.
+     * @param pruned true if the trial was pruned.
+     */
+    public record Result(int id, Properties params, int budget, double score, boolean pruned) {
+        /** Orders by budget descending, pruned last, then score descending. */
+        static final Comparator<Result> RANK = Comparator.comparingInt(Result::budget).reversed()
+                .thenComparing(Result::pruned)
+                .thenComparing(Comparator.comparingDouble(Result::rank).reversed());
+
+        /** Returns the score for ranking, which is -Infinity for failed trials. */
+        double rank() {
+            return Double.isNaN(score) ? Double.NEGATIVE_INFINITY : score;
+        }
+    }
+
+    /**
+     * A trial, i.e. the evaluation of a hyperparameter configuration with
+     * a budget.
+     */
+    public static class Trial {
+        /** The configuration id. */
+        private final int id;
+        /** The hyperparameters. */
+        private final Properties params;
+        /** The budget. */
+        private final int budget;
+        /** The intermediate scores of trials in the same rung by step. */
+        private final ConcurrentHashMap<Integer, List<Double>> rung;
+        /** The flag if the trial is pruned. */
+        private volatile boolean pruned = false;
+
+        /**
+         * Constructor.
+         * @param id the configuration id.
+         * @param params the hyperparameters.
+         * @param budget the budget.
+         * @param rung the intermediate scores of trials in the same rung.
+         */
+        Trial(int id, Properties params, int budget, ConcurrentHashMap<Integer, List<Double>> rung) {
+            this.id = id;
+            this.params = params;
+            this.budget = budget;
+            this.rung = rung;
+        }
+
+        /**
+         * Returns the configuration id.
+         * @return the configuration id.
+         */
+        public int id() {
+            return id;
+        }
+
+        /**
+         * Returns the hyperparameters.
+         * @return the hyperparameters.
+         */
+        public Properties params() {
+            return params;
+        }
+
+        /**
+         * Returns the budget.
+         * @return the budget.
+         */
+        public int budget() {
+            return budget;
+        }
+
+        /**
+         * Returns true if the trial is pruned.
+         * @return true if the trial is pruned.
+         */
+        public boolean isPruned() {
+            return pruned;
+        }
+
+        /**
+         * Reports an intermediate score. The trial is pruned if the score
+         * is worse than the median of other trials at the same step.
+         * @param step the step, e.g. the fold or the number of trees.
+         * @param score the intermediate score, the higher the better.
+         * @return true to continue, false if the trial is pruned and should stop.
+         */
+        public boolean report(int step, double score) {
+            List<Double> scores = rung.computeIfAbsent(step, k -> new ArrayList<>());
+            synchronized (scores) {
+                if (scores.size() >= MIN_REPORTS) {
+                    double[] others = scores.stream().mapToDouble(Double::doubleValue).toArray();
+                    Arrays.sort(others);
+                    int m = others.length;
+                    double median = m % 2 == 1 ? others[m / 2] : (others[m / 2 - 1] + others[m / 2]) / 2;
+                    if (score < median) pruned = true;
+                }
+                scores.add(score);
+            }
+            return !pruned;
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param parallelism the maximum number of concurrent trials.
+     * @param budgetProperty the property name to set the budget of trials.
+     *                       If null, the objective takes the budget from
+     *                       {@link Trial#budget()}.
+     * @param minBudget the minimum budget of a trial.
+     * @param maxBudget the maximum budget of a trial.
+     * @param eta the reduction factor of successive halving.
+     */
+    public TrialScheduler(int parallelism, String budgetProperty, int minBudget, int maxBudget, int eta) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+
+        if (minBudget <= 0) {
+            throw new IllegalArgumentException("Invalid minimum budget: " + minBudget);
+        }
+
+        if (maxBudget < minBudget) {
+            throw new IllegalArgumentException("Invalid maximum budget: " + maxBudget);
+        }
+
+        if (eta < 2) {
+            throw new IllegalArgumentException("Invalid eta: " + eta);
+        }
+
+        this.parallelism = parallelism;
+        this.budgetProperty = budgetProperty;
+        this.minBudget = minBudget;
+        this.maxBudget = maxBudget;
+        this.eta = eta;
+    }
+
+    /**
+     * Runs successive halving from the minimum budget.
+     * @param configs the hyperparameter configurations.
+     * @param objective the objective function.
+     * @return the results of all trials, ranked by budget and then score.
+     *         The first one is the best configuration.
+     */
+    public List<Result> successiveHalving(List<Properties> configs, Objective objective) {
+        if (configs.isEmpty()) {
+            throw new IllegalArgumentException("Empty hyperparameter configurations");
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Result> results = halving(pool, 0, configs, minBudget, objective);
+            results.sort(Result.RANK);
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs Hyperband with the configurations randomly sampled from
+     * the search space.
+     * @param hp the hyperparameter search space.
+     * @param objective the objective function.
+     * @return the results of all trials, ranked by budget and then score.
+     *         The first one is the best configuration.
+     */
+    public List<Result> hyperband(Hyperparameters hp, Objective objective) {
+        int smax = 0;
+        for (long r = minBudget; r * eta <= maxBudget; r *= eta) smax++;
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Result> results = new ArrayList<>();
+            int id = 0;
+            for (int s = smax; s >= 0; s--) {
+                int n = (int) Math.ceil((smax + 1.0) / (s + 1) * Math.pow(eta, s));
+                int budget = (int) Math.max(minBudget, maxBudget / Math.pow(eta, s));
+                List<Properties> configs = hp.random(n).toList();
+                logger.info("Hyperband bracket {}: {} configurations with budget {}", s, n, budget);
+                results.addAll(halving(pool, id, configs, budget, objective));
+                id += n;
+            }
+
+            results.sort(Result.RANK);
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs successive halving.
+     * @param pool the thread pool.
+     * @param id the id of first configuration.
+     * @param configs the hyperparameter configurations.
+     * @param budget the starting budget.
+     * @param objective the objective function.
+     * @return the results of all trials.
+     */
+    private List<Result> halving(ExecutorService pool, int id, List<Properties> configs, int budget, Objective objective) {
+        List<Result> results = new ArrayList<>();
+        List<Integer> survivors = new ArrayList<>();
+        for (int i = 0; i < configs.size(); i++) survivors.add(i);
+
+        while (true) {
+            final int rungBudget = budget;
+            var rung = new ConcurrentHashMap<Integer, List<Double>>();
+            List<Callable<Result>> trials = survivors.stream().map(i -> (Callable<Result>) () -> {
+                Properties params = new Properties();
+                params.putAll(configs.get(i));
+                if (budgetProperty != null) {
+                    params.setProperty(budgetProperty, String.valueOf(rungBudget));
+                }
+
+                Trial trial = new Trial(id + i, params, rungBudget, rung);
+                double score;
+                try {
+                    score = objective.apply(trial);
+                } catch (RuntimeException ex) {
+                    logger.warn("Trial {} with budget {} failed: {}", trial.id, rungBudget, ex.getMessage());
+                    score = Double.NaN;
+                }
+                return new Result(trial.id, params, rungBudget, score, trial.isPruned());
+            }).toList();
+
+            List<Result> rungResults = new ArrayList<>(trials.size());
+            try {
+                for (var future : pool.invokeAll(trials)) {
+                    rungResults.add(future.get());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Hyperparameter search is interrupted");
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("Trial failed", ex.getCause());
+            }
+            results.addAll(rungResults);
+
+            if (survivors.size() <= 1 || budget >= maxBudget) break;
+
+            // Promote the best non-pruned trials.
+            int k = Math.max(1, survivors.size() / eta);
+            survivors = rungResults.stream()
+                    .filter(result -> !result.pruned())
+                    .sorted(Comparator.comparingDouble(Result::rank).reversed())
+                    .limit(k)
+                    .map(result -> result.id() - id)
+                    .toList();
+            if (survivors.isEmpty()) break;
+            budget = (int) Math.min(maxBudget, (long) budget * eta);
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the objective of cross validation for classification.
+     * The data splits are materialized once and shared by all trials.
+     * The running mean of metric over folds is reported after each
+     * fold so that the poor trials are pruned early.
+     * @param formula the model formula.
+     * @param data the data.
+     * @param bags the data splits.
+     * @param trainer the lambda to train a model.
+     * @param metric the metric to maximize.
+     * @param <M> the model type.
+     * @return the objective.
+     */
+    public static <M extends DataFrameClassifier> Objective classification(Formula formula, DataFrame data, Bag[] bags, Trainer<M> trainer,
+                                                                           ToDoubleFunction<ClassificationMetrics> metric) {
+        return crossValidation(formula, data, bags, false, (f, train, test, params, order, rank) -> {
+            var validation = ClassificationValidation.of(f, train, test, (g, x) -> trainer.fit(g, x, params));
+            return metric.applyAsDouble(validation.metrics());
+        });
+    }
+
+    /**
+     * Returns the objective of cross validation for classification with
+     * tree-based models. Besides the data splits, the sorted index of
+     * predictors of each training split and the ranks of samples in it
+     * are computed once and shared read-only by all trials, so that the
+     * trees don't sort or copy the columns in every trial.
+     * @param formula the model formula.
+     * @param data the data.
+     * @param bags the data splits.
+     * @param trainer the lambda to train a model, e.g.
+     *                {@code (f, x, params, order, rank) -> RandomForest.fit(f, x, RandomForest.Options.of(params), order, rank)}.
+     * @param metric the metric to maximize.
+     * @param <M> the model type.
+     * @return the objective.
+     */
+    public static <M extends DataFrameClassifier> Objective classification(Formula formula, DataFrame data, Bag[] bags, TreeTrainer<M> trainer,
+                                                                           ToDoubleFunction<ClassificationMetrics> metric) {
+        return crossValidation(formula, data, bags, true, (f, train, test, params, order, rank) -> {
+            var validation = ClassificationValidation.of(f, train, test, (g, x) -> trainer.fit(g, x, params, order, rank));
+            return metric.applyAsDouble(validation.metrics());
+        });
+    }
+
+    /**
+     * Returns the objective of cross validation for regression.
+     * The data splits are materialized once and shared by all trials.
+     * The running mean of metric over folds is reported after each
+     * fold so that the poor trials are pruned early.
+     * @param formula the model formula.
+     * @param data the data.
+     * @param bags the data splits.
+     * @param trainer the lambda to train a model.
+     * @param metric the metric to maximize, e.g. {@code m -> -m.rmse()}.
+     * @param <M> the model type.
+     * @return the objective.
+     */
+    public static <M extends DataFrameRegression> Objective regression(Formula formula, DataFrame data, Bag[] bags, Trainer<M> trainer,
+                                                                       ToDoubleFunction<RegressionMetrics> metric) {
+        return crossValidation(formula, data, bags, false, (f, train, test, params, order, rank) -> {
+            var validation = RegressionValidation.of(f, train, test, (g, x) -> trainer.fit(g, x, params));
+            return metric.applyAsDouble(validation.metrics());
+        });
+    }
+
+    /**
+     * Returns the objective of cross validation for regression with
+     * tree-based models. Besides the data splits, the sorted index of
+     * predictors of each training split and the ranks of samples in it
+     * are computed once and shared read-only by all trials.
+     * @param formula the model formula.
+     * @param data the data.
+     * @param bags the data splits.
+     * @param trainer the lambda to train a model, e.g.
+     *                {@code (f, x, params, order, rank) -> RandomForest.fit(f, x, RandomForest.Options.of(params), order, rank)}.
+     * @param metric the metric to maximize, e.g. {@code m -> -m.rmse()}.
+     * @param <M> the model type.
+     * @return the objective.
+     */
+    public static <M extends DataFrameRegression> Objective regression(Formula formula, DataFrame data, Bag[] bags, TreeTrainer<M> trainer,
+                                                                       ToDoubleFunction<RegressionMetrics> metric) {
+        return crossValidation(formula, data, bags, true, (f, train, test, params, order, rank) -> {
+            var validation = RegressionValidation.of(f, train, test, (g, x) -> trainer.fit(g, x, params, order, rank));
+            return metric.applyAsDouble(validation.metrics());
+        });
+    }
+
+    /**
+     * Evaluates a trial on a data split.
+     */
+    private interface Fold {
+        /**
+         * Returns the metric of a model trained on a data split.
+         * @param formula the model formula.
+         * @param train the training data.
+         * @param test the validation data.
+         * @param params the hyperparameters.
+         * @param order the sorted index of training predictors. May be null.
+         * @param rank the rank of samples in the sorted index. May be null.
+         * @return the metric.
+         */
+        double apply(Formula formula, DataFrame train, DataFrame test, Properties params, int[][] order, int[][] rank);
+    }
+
+    /**
+     * Returns the objective of cross validation. The score of a pruned
+     * trial is the mean metric over the folds evaluated before pruning.
+     * @param formula the model formula.
+     * @param data the data.
+     * @param bags the data splits.
+     * @param sort the flag to compute the sorted index of training predictors.
+     * @param fold the evaluation on a data split.
+     * @return the objective.
+     */
+    private static Objective crossValidation(Formula formula, DataFrame data, Bag[] bags, boolean sort, Fold fold) {
+        int k = bags.length;
+        DataFrame[] train = new DataFrame[k];
+        DataFrame[] test = new DataFrame[k];
+        int[][][] order = new int[k][][];
+        int[][][] rank = new int[k][][];
+        for (int i = 0; i < k; i++) {
+            train[i] = data.get(Index.of(bags[i].samples()));
+            test[i] = data.get(Index.of(bags[i].oob()));
+            if (sort) {
+                // The same predictors as the trainer gets from the formula.
+                Formula copy = new Formula(formula.response(), formula.predictors()).expand(train[i].schema());
+                order[i] = CART.order(copy.x(train[i]));
+                rank[i] = CART.rank(order[i]);
+            }
+        }
+
+        return trial -> {
+            double sum = 0.0;
+            int folds = 0;
+            for (int i = 0; i < k; i++) {
+                // The formula caches the schema binding, which shouldn't be shared by concurrent trials.
+                Formula copy = new Formula(formula.response(), formula.predictors());
+                sum += fold.apply(copy, train[i], test[i], trial.params(), order[i], rank[i]);
+                folds++;
+                if (!trial.report(i, sum / folds)) break;
+            }
+            return sum / folds;
+        };
+    }
+}
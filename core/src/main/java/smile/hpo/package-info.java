@@ -24,6 +24,11 @@
  * loss function on given independent data. The objective function takes
  * a tuple of hyperparameters and returns the associated loss. Cross
  * validation is often used to estimate this generalization performance.
+ * <p>
+ * {@link Hyperparameters} defines the search space and generates the
+ * configurations of grid or random search. {@link TrialScheduler}
+ * evaluates the configurations concurrently with successive halving
+ * or Hyperband, which allocate more budget to the promising ones.
  *
  * @author Haifeng Li
  */
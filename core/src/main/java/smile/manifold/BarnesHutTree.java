@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.manifold;
+
+import java.util.Arrays;
+
+/**
+ * The space-partitioning tree (quadtree in 2-D and octree in 3-D) of
+ * Barnes-Hut approximation of the repulsive forces in t-SNE. Each cell
+ * is split into 2<sup>d</sup> children. A cell that is small and far
+ * enough from a point, i.e. {@code width / distance < theta}, is
+ * summarized by its center of mass in the force computation, which
+ * reduces the cost per point from O(n) to O(log n).
+ *
+ * <p>The tree is built once per iteration and is read-only afterward, so
+ * that the forces of different points can be computed in parallel.
+ *
+ * @author Haifeng Li
+ */
+class BarnesHutTree {
+    /** The maximum depth of tree. Deeper points share the leaf. */
+    private static final int MAX_DEPTH = 64;
+    /** The points. */
+    private final double[][] Y;
+    /** The dimension of points. */
+    private final int d;
+    /** The number of children per cell. */
+    private final int m;
+    /** The center of cells. */
+    private double[] center;
+    /** The half width of cells. */
+    private double[] width;
+    /** The sum of points in cells, i.e. the mass times the center of mass. */
+    private double[] sum;
+    /** The number of points in cells. */
+    private int[] count;
+    /** The first child of cells, or 0 if leaf. The children are consecutive. */
+    private int[] children;
+    /** The first point of leaves, or -1 if empty. */
+    private int[] head;
+    /** The next point in the same leaf, or -1. */
+    private final int[] next;
+    /** The number of cells. */
+    private int size = 0;
+
+    /**
+     * Constructor.
+     * @param Y the points.
+     */
+    public BarnesHutTree(double[][] Y) {
+        this.Y = Y;
+        this.d = Y[0].length;
+        this.m = 1 << d;
+
+        int n = Y.length;
+        int capacity = 2 * n + 1;
+        center = new double[capacity * d];
+        width = new double[capacity * d];
+        sum = new double[capacity * d];
+        count = new int[capacity];
+        children = new int[capacity];
+        head = new int[capacity];
+        next = new int[n];
+
+        double[] lo = new double[d];
+        double[] hi = new double[d];
+        Arrays.fill(lo, Double.POSITIVE_INFINITY);
+        Arrays.fill(hi, Double.NEGATIVE_INFINITY);
+        for (double[] y : Y) {
+            for (int k = 0; k < d; k++) {
+                lo[k] = Math.min(lo[k], y[k]);
+                hi[k] = Math.max(hi[k], y[k]);
+            }
+        }
+
+        int root = newCell();
+        for (int k = 0; k < d; k++) {
+            center[k] = (lo[k] + hi[k]) / 2;
+            width[k] = Math.max((hi[k] - lo[k]) / 2, 1E-5) + 1E-5;
+        }
+
+        for (int i = 0; i < n; i++) {
+            insert(root, i);
+        }
+    }
+
+    /** Allocates a new empty cell. */
+    private int newCell() {
+        if (size == count.length) {
+            int capacity = 2 * size;
+            center = Arrays.copyOf(center, capacity * d);
+            width = Arrays.copyOf(width, capacity * d);
+            sum = Arrays.copyOf(sum, capacity * d);
+            count = Arrays.copyOf(count, capacity);
+            children = Arrays.copyOf(children, capacity);
+            head = Arrays.copyOf(head, capacity);
+        }
+
+        head[size] = -1;
+        return size++;
+    }
+
+    /** Inserts a point into the subtree. */
+    private void insert(int cell, int i) {
+        double[] y = Y[i];
+        for (int depth = 0; ; depth++) {
+            count[cell]++;
+            int offset = cell * d;
+            for (int k = 0; k < d; k++) {
+                sum[offset + k] += y[k];
+            }
+
+            if (children[cell] == 0) {
+                // A leaf holds either nothing or the duplicates of one point.
+                int first = head[cell];
+                if (first < 0 || depth >= MAX_DEPTH || Arrays.equals(Y[first], y)) {
+                    next[i] = first;
+                    head[cell] = i;
+                    return;
+                }
+                split(cell);
+            }
+
+            cell = children[cell] + quadrant(cell, y);
+        }
+    }
+
+    /** Splits a leaf and moves its points into the children. */
+    private void split(int cell) {
+        int first = newCell();
+        for (int c = 1; c < m; c++) {
+            newCell();
+        }
+        children[cell] = first;
+
+        int offset = cell * d;
+        for (int c = 0; c < m; c++) {
+            int child = (first + c) * d;
+            for (int k = 0; k < d; k++) {
+                double w = width[offset + k] / 2;
+                width[child + k] = w;
+                center[child + k] = center[offset + k] + (((c >> k) & 1) == 1 ? w : -w);
+            }
+        }
+
+        // The points of leaf are duplicates and go to the same child.
+        int i = head[cell];
+        head[cell] = -1;
+        int child = first + quadrant(cell, Y[i]);
+        int childOffset = child * d;
+        head[child] = i;
+        while (i >= 0) {
+            count[child]++;
+            for (int k = 0; k < d; k++) {
+                sum[childOffset + k] += Y[i][k];
+            }
+            i = next[i];
+        }
+    }
+
+    /** Returns the child index of a point in a cell. */
+    private int quadrant(int cell, double[] y) {
+        int offset = cell * d;
+        int c = 0;
+        for (int k = 0; k < d; k++) {
+            if (y[k] > center[offset + k]) {
+                c |= 1 << k;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Computes the repulsive force on a point, which is not normalized
+     * by the sum of all unnormalized q's.
+     *
+     * @param i the index of point.
+     * @param theta the accuracy of approximation.
+     * @param force the output repulsive force.
+     * @param stack the work space of depth first traversal.
+     * @return the sum of unnormalized q's between the point and others.
+     */
+    public double repulsiveForce(int i, double theta, double[] force, int[] stack) {
+        double[] y = Y[i];
+        double[] diff = new double[d];
+        Arrays.fill(force, 0.0);
+
+        double sumQ = 0.0;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int cell = stack[--top];
+            int n = count[cell];
+            if (n == 0) continue;
+
+            if (children[cell] == 0) {
+                // Leaf points are exact.
+                for (int j = head[cell]; j >= 0; j = next[j]) {
+                    if (j == i) continue;
+                    double[] yj = Y[j];
+                    double dist = 0.0;
+                    for (int k = 0; k < d; k++) {
+                        diff[k] = y[k] - yj[k];
+                        dist += diff[k] * diff[k];
+                    }
+
+                    double q = 1.0 / (1.0 + dist);
+                    sumQ += q;
+                    double mult = q * q;
+                    for (int k = 0; k < d; k++) {
+                        force[k] += mult * diff[k];
+                    }
+                }
+                continue;
+            }
+
+            int offset = cell * d;
+            double dist = 0.0;
+            double maxWidth = 0.0;
+            for (int k = 0; k < d; k++) {
+                diff[k] = y[k] - sum[offset + k] / n;
+                dist += diff[k] * diff[k];
+                maxWidth = Math.max(maxWidth, width[offset + k]);
+            }
+
+            // The cell width is twice the half width.
+            if (4 * maxWidth * maxWidth < theta * theta * dist) {
+                double q = 1.0 / (1.0 + dist);
+                double mult = n * q;
+                sumQ += mult;
+                mult *= q;
+                for (int k = 0; k < d; k++) {
+                    force[k] += mult * diff[k];
+                }
+            } else {
+                for (int c = 0; c < m; c++) {
+                    stack[top++] = children[cell] + c;
+                }
+            }
+        }
+
+        return sumQ;
+    }
+
+    /**
+     * Returns the size of work space for {@link #repulsiveForce}.
+     * @return the size of work space.
+     */
+    public int stackSize() {
+        return (m - 1) * (MAX_DEPTH + 1) + 1 + m;
+    }
+}
@@ -21,7 +21,9 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Properties;
 import java.util.stream.IntStream;
+import smile.graph.NearestNeighborGraph;
 import smile.math.MathEx;
+import smile.sort.QuickSort;
 import smile.stat.distribution.GaussianDistribution;
 import smile.util.AlgoStatus;
 import smile.util.IterativeAlgorithmController;
@@ -45,6 +47,13 @@ import smile.util.IterativeAlgorithmController;
  * of the points in the map. Note that while the original algorithm uses
  * the Euclidean distance between objects as the base of its similarity
  * metric, this should be changed as appropriate.
+ * <p>
+ * The exact t-SNE takes O(n<sup>2</sup>) memory and time per iteration.
+ * For large datasets, the Barnes-Hut approximation (with {@code theta > 0})
+ * calibrates the input similarities only on the {@code 3 * perplexity}
+ * nearest neighbors of each point, which gives a sparse P, and approximates
+ * the repulsive forces with a space-partitioning tree (quadtree in 2-D and
+ * octree in 3-D). It takes O(nk) memory and O(n log n) time per iteration.
  *
  * <h2>References</h2>
  * <ol>
@@ -71,6 +80,8 @@ public record TSNE(double cost, double[][] coordinates) implements Serializable
     @Serial
     private static final long serialVersionUID = 3L;
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TSNE.class);
+    /** Large data size threshold of exact nearest neighbor search. */
+    private static final int LARGE_DATA_SIZE = 10000;
 
     /**
      * The t-SNE hyperparameters.
@@ -104,12 +115,17 @@ public record TSNE(double cost, double[][] coordinates) implements Serializable
      * @param momentumSwitchIter the number of iterations at which switch the
      *                           momentum to finalMomentum.
      * @param minGain the floor of gain.
+     * @param theta the accuracy of Barnes-Hut approximation in [0, 1].
+     *              If 0, the exact t-SNE is performed, which takes O(n<sup>2</sup>)
+     *              memory and time per iteration. Otherwise, the Barnes-Hut
+     *              t-SNE is performed, which requires {@code d <= 3}.
+     *              A larger value is faster but less accurate. Usually 0.5.
      * @param controller the optional training controller.
      */
     public record Options(int d, double perplexity, double eta, double earlyExaggeration,
                           int maxIter, int maxIterWithoutProgress, double tol,
                           double momentum, double finalMomentum, int momentumSwitchIter,
-                          double minGain, IterativeAlgorithmController<AlgoStatus> controller) {
+                          double minGain, double theta, IterativeAlgorithmController<AlgoStatus> controller) {
         /** Constructor. */
         public Options {
             if (d < 2) {
@@ -145,6 +161,37 @@ public record TSNE(double cost, double[][] coordinates) implements Serializable
             if (minGain <= 0) {
                 throw new IllegalArgumentException("Invalid minimum gain: " + minGain);
             }
+            if (theta < 0 || theta > 1) {
+                throw new IllegalArgumentException("Invalid theta: " + theta);
+            }
+            if (theta > 0 && d > 3) {
+                throw new IllegalArgumentException("Barnes-Hut t-SNE supports only d <= 3: " + d);
+            }
+        }
+
+        /**
+         * Constructor of exact t-SNE.
+         * @param d the dimension of embedding space.
+         * @param perplexity the perplexity of the conditional distribution.
+         * @param eta the learning rate.
+         * @param earlyExaggeration the early exaggeration factor.
+         * @param maxIter the maximum number of iterations. Should be at least 250.
+         * @param maxIterWithoutProgress Maximum number of iterations without progress
+         *                               before aborting the optimization.
+         * @param tol the tolerance of convergence test.
+         * @param momentum the momentum factor.
+         * @param finalMomentum the momentum in later stage.
+         * @param momentumSwitchIter the number of iterations at which switch the
+         *                           momentum to finalMomentum.
+         * @param minGain the floor of gain.
+         * @param controller the optional training controller.
+         */
+        public Options(int d, double perplexity, double eta, double earlyExaggeration,
+                       int maxIter, int maxIterWithoutProgress, double tol,
+                       double momentum, double finalMomentum, int momentumSwitchIter,
+                       double minGain, IterativeAlgorithmController<AlgoStatus> controller) {
+            this(d, perplexity, eta, earlyExaggeration, maxIter, maxIterWithoutProgress, tol,
+                    momentum, finalMomentum, momentumSwitchIter, minGain, 0.0, controller);
         }
 
         /**
@@ -169,7 +216,21 @@ public record TSNE(double cost, double[][] coordinates) implements Serializable
          * @param maxIter the maximum number of iterations. Should be at least 250.
          */
         public Options(int d, double perplexity, double eta, double earlyExaggeration, int maxIter) {
-            this(d, perplexity, eta, earlyExaggeration, maxIter, 50, 1E-7, 0.5, 0.8, Math.min(250, maxIter - 1), 0.01, null);
+            this(d, perplexity, eta, earlyExaggeration, maxIter, 0.0);
+        }
+
+        /**
+         * Constructor.
+         * @param d the dimension of embedding space.
+         * @param perplexity the perplexity of the conditional distribution.
+         * @param eta the learning rate. Usually in the range [10.0, 1000.0].
+         * @param earlyExaggeration the early exaggeration factor.
+         * @param maxIter the maximum number of iterations. Should be at least 250.
+         * @param theta the accuracy of Barnes-Hut approximation in [0, 1].
+         *              If 0, the exact t-SNE is performed.
+         */
+        public Options(int d, double perplexity, double eta, double earlyExaggeration, int maxIter, double theta) {
+            this(d, perplexity, eta, earlyExaggeration, maxIter, 50, 1E-7, 0.5, 0.8, Math.min(250, maxIter - 1), 0.01, theta, null);
         }
 
         /**
@@ -189,6 +250,7 @@ public record TSNE(double cost, double[][] coordinates) implements Serializable
             props.setProperty("smile.t_sne.final_momentum", Double.toString(finalMomentum));
             props.setProperty("smile.t_sne.momentum_switch", Integer.toString(momentumSwitchIter));
             props.setProperty("smile.t_sne.min_gain", Double.toString(minGain));
+            props.setProperty("smile.t_sne.theta", Double.toString(theta));
             return props;
         }
 
@@ -210,8 +272,9 @@ public record TSNE(double cost, double[][] coordinates) implements Serializable
             double finalMomentum = Double.parseDouble(props.getProperty("smile.t_sne.final_momentum", "0.8"));
             int momentumSwitchIter = Integer.parseInt(props.getProperty("smile.t_sne.momentum_switch", "250"));
             double minGain = Double.parseDouble(props.getProperty("smile.t_sne.min_gain", "0.01"));
+            double theta = Double.parseDouble(props.getProperty("smile.t_sne.theta", "0"));
             return new Options(d, perplexity, eta, earlyExaggeration, maxIter, maxIterWithoutProgress, tol,
-                    momentum, finalMomentum, momentumSwitchIter, minGain, null);
+                    momentum, finalMomentum, momentumSwitchIter, minGain, theta, null);
         }
     }
 
@@ -235,6 +298,10 @@ public record TSNE(double cost, double[][] coordinates) implements Serializable
      * @return the model.
      */
     public static TSNE fit(double[][] X, Options options) {
+        if (options.theta > 0) {
+            return barnesHut(X, options);
+        }
+
         double eta = options.eta;
         int n = X.length;
         int d = options.d;
@@ -355,6 +422,270 @@ public record TSNE(double cost, double[][] coordinates) implements Serializable
         return new TSNE(cost, coordinates);
     }
 
+    /**
+     * Fits the Barnes-Hut t-SNE.
+     *
+     * @param X the input data. If X is a square matrix, it is assumed to be
+     *         the squared distance/dissimilarity matrix.
+     * @param options the hyperparameters.
+     * @return the model.
+     */
+    private static TSNE barnesHut(double[][] X, Options options) {
+        double eta = options.eta;
+        double theta = options.theta;
+        int n = X.length;
+        int d = options.d;
+        int k = Math.min(n - 1, (int) (3 * options.perplexity));
+
+        // The squared distances to k-nearest neighbors.
+        int[][] neighbors = new int[n][];
+        double[][] distances = new double[n][];
+        if (X.length == X[0].length) {
+            IntStream.range(0, n).parallel().forEach(i -> {
+                double[] Di = X[i].clone();
+                int[] index = IntStream.range(0, n).toArray();
+                Di[i] = Double.POSITIVE_INFINITY;
+                QuickSort.sort(Di, index);
+                neighbors[i] = Arrays.copyOf(index, k);
+                distances[i] = Arrays.copyOf(Di, k);
+            });
+        } else {
+            NearestNeighborGraph nng = n <= LARGE_DATA_SIZE ?
+                    NearestNeighborGraph.of(X, k) :
+                    NearestNeighborGraph.descent(X, k);
+            for (int i = 0; i < n; i++) {
+                neighbors[i] = nng.neighbors()[i];
+                distances[i] = nng.distances()[i];
+                for (int j = 0; j < k; j++) {
+                    distances[i][j] *= distances[i][j];
+                }
+            }
+        }
+
+        // Large tolerance to speed up the search of Gaussian kernel width
+        // A small difference of kernel width is not important.
+        IntStream.range(0, n).parallel().forEach(i -> expd(distances[i], options.perplexity, 1E-3));
+        SparseP P = SparseP.of(neighbors, distances, options.earlyExaggeration / (2 * n));
+
+        double[][] coordinates = new double[n][d];
+        double[][] gains = new double[n][d];
+        GaussianDistribution gaussian = new GaussianDistribution(0.0, 0.0001);
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(gains[i], 1.0);
+            double[] Yi = coordinates[i];
+            for (int j = 0; j < d; j++) {
+                Yi[j] = gaussian.rand();
+            }
+        }
+
+        double[][] dY = new double[n][d];
+        double[][] dC = new double[n][d];
+        double[][] repulsive = new double[n][d];
+        double[] rowQ = new double[n];
+
+        double cost = Double.MAX_VALUE;
+        double bestCost = cost;
+        int bestIter = 0;
+        double momentum = options.momentum;
+        for (int iter = 1; iter <= options.maxIter; iter++) {
+            BarnesHutTree tree = new BarnesHutTree(coordinates);
+            IntStream.range(0, n).parallel().forEach(i -> {
+                rowQ[i] = tree.repulsiveForce(i, theta, repulsive[i], new int[tree.stackSize()]);
+                P.attractiveForce(i, coordinates, dC[i]);
+            });
+
+            // DoubleStream.sum is unreproducible across machines.
+            final double Qsum = MathEx.sum(rowQ);
+            final double mu = momentum;
+            double gradNorm = IntStream.range(0, n).parallel().mapToDouble(i -> {
+                double[] Yi = coordinates[i];
+                double[] dYi = dY[i];
+                double[] dCi = dC[i];
+                double[] Fi = repulsive[i];
+                double[] g = gains[i];
+                for (int j = 0; j < d; j++) {
+                    dCi[j] = 4.0 * (dCi[j] - Fi[j] / Qsum);
+                }
+
+                updateGains(g, dCi, dYi, options.minGain);
+                double norm = 0;
+                for (int j = 0; j < d; j++) {
+                    dYi[j] = mu * dYi[j] - eta * g[j] * dCi[j];
+                    Yi[j] += dYi[j];
+                    norm = Math.max(norm, Math.abs(dYi[j] * g[j]));
+                }
+                return norm;
+            }).max().orElse(0);
+
+            if (iter == options.momentumSwitchIter) {
+                momentum = options.finalMomentum;
+                P.scale(1.0 / options.earlyExaggeration);
+            }
+
+            // Compute current value of cost function
+            if (iter % 10 == 0 || iter == options.maxIter) {
+                cost = P.cost(coordinates, Qsum);
+                logger.info("Iteration {}: error = {}", iter, cost);
+
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestIter = iter;
+                }
+
+                if (iter > options.momentumSwitchIter) {
+                    if (iter - bestIter > options.maxIterWithoutProgress) {
+                        logger.info("Iteration {}: did not make any progress in last {} episodes. Finished", iter, options.maxIterWithoutProgress);
+                        break;
+                    }
+
+                    if (gradNorm < options.tol) {
+                        logger.info("Iteration {}: gradient norm = {}. Finished", iter, gradNorm);
+                        break;
+                    }
+                }
+
+                if (options.controller != null) {
+                    options.controller.submit(new AlgoStatus(iter, cost));
+                    if (options.controller.isInterrupted()) break;
+                }
+            }
+        }
+
+        // Make solution zero-mean
+        double[] colMeans = MathEx.colMeans(coordinates);
+        IntStream.range(0, n).parallel().forEach(i -> {
+            double[] Yi = coordinates[i];
+            for (int j = 0; j < d; j++) {
+                Yi[j] -= colMeans[j];
+            }
+        });
+
+        return new TSNE(cost, coordinates);
+    }
+
+    /**
+     * The symmetric sparse input similarities in compressed sparse row format.
+     * @param rowIndex the index of first nonzero of each row.
+     * @param colIndex the column index of nonzeros.
+     * @param values the nonzeros.
+     */
+    private record SparseP(int[] rowIndex, int[] colIndex, double[] values) {
+        /**
+         * Returns the symmetrized similarities {@code scale * (P[i][j] + P[j][i])}.
+         * @param neighbors the neighbors of each point.
+         * @param P the conditional probabilities of neighbors.
+         * @param scale the scale factor.
+         * @return the symmetric sparse similarities.
+         */
+        static SparseP of(int[][] neighbors, double[][] P, double scale) {
+            int n = neighbors.length;
+            int[] size = new int[n];
+            for (int i = 0; i < n; i++) {
+                size[i] += neighbors[i].length;
+                for (int j : neighbors[i]) {
+                    size[j]++;
+                }
+            }
+
+            int[][] cols = new int[n][];
+            double[][] vals = new double[n][];
+            for (int i = 0; i < n; i++) {
+                cols[i] = new int[size[i]];
+                vals[i] = new double[size[i]];
+                size[i] = 0;
+            }
+
+            for (int i = 0; i < n; i++) {
+                for (int l = 0; l < neighbors[i].length; l++) {
+                    int j = neighbors[i][l];
+                    double p = scale * P[i][l];
+                    cols[i][size[i]] = j;
+                    vals[i][size[i]++] = p;
+                    cols[j][size[j]] = i;
+                    vals[j][size[j]++] = p;
+                }
+            }
+
+            // Merges the duplicates of mutual neighbors.
+            int[] rowIndex = new int[n + 1];
+            IntStream.range(0, n).parallel().forEach(i -> {
+                int[] col = cols[i];
+                double[] val = vals[i];
+                QuickSort.sort(col, val);
+                int m = 0;
+                for (int l = 0; l < col.length; l++) {
+                    if (m > 0 && col[m - 1] == col[l]) {
+                        val[m - 1] += val[l];
+                    } else {
+                        col[m] = col[l];
+                        val[m++] = val[l];
+                    }
+                }
+                cols[i] = Arrays.copyOf(col, m);
+                vals[i] = Arrays.copyOf(val, m);
+            });
+
+            for (int i = 0; i < n; i++) {
+                rowIndex[i + 1] = rowIndex[i] + cols[i].length;
+            }
+
+            int[] colIndex = new int[rowIndex[n]];
+            double[] values = new double[rowIndex[n]];
+            for (int i = 0; i < n; i++) {
+                System.arraycopy(cols[i], 0, colIndex, rowIndex[i], cols[i].length);
+                System.arraycopy(vals[i], 0, values, rowIndex[i], vals[i].length);
+            }
+            return new SparseP(rowIndex, colIndex, values);
+        }
+
+        /** Scales the similarities. */
+        void scale(double factor) {
+            for (int l = 0; l < values.length; l++) {
+                values[l] *= factor;
+            }
+        }
+
+        /**
+         * Computes the attractive force on a point.
+         * @param i the index of point.
+         * @param Y the coordinates.
+         * @param force the output attractive force.
+         */
+        void attractiveForce(int i, double[][] Y, double[] force) {
+            double[] Yi = Y[i];
+            int d = Yi.length;
+            Arrays.fill(force, 0.0);
+            for (int l = rowIndex[i]; l < rowIndex[i + 1]; l++) {
+                double[] Yj = Y[colIndex[l]];
+                double q = 1.0 / (1.0 + MathEx.squaredDistance(Yi, Yj));
+                double mult = values[l] * q;
+                for (int k = 0; k < d; k++) {
+                    force[k] += mult * (Yi[k] - Yj[k]);
+                }
+            }
+        }
+
+        /**
+         * Computes the cost function.
+         * @param Y the coordinates.
+         * @param Qsum the sum of all unnormalized q's.
+         * @return the cost.
+         */
+        double cost(double[][] Y, double Qsum) {
+            return IntStream.range(0, Y.length).parallel().mapToDouble(i -> {
+                double[] Yi = Y[i];
+                double C = 0.0;
+                for (int l = rowIndex[i]; l < rowIndex[i + 1]; l++) {
+                    double p = values[l];
+                    double q = 1.0 / (1.0 + MathEx.squaredDistance(Yi, Y[colIndex[l]])) / Qsum;
+                    if (Double.isNaN(q) || q < 1E-16) q = 1E-16;
+                    C += p * MathEx.log2(p / q);
+                }
+                return C;
+            }).sum();
+        }
+    }
+
     /** Computes the gradients and updates the coordinates. */
     private static void sne(int i, double[][] Y, double[][] P, double[][] Q, double[][] gains, double[] dY, double[] dC, double Qsum, double minGain) {
         int n = Y.length;
@@ -379,8 +710,12 @@ public record TSNE(double cost, double[][] coordinates) implements Serializable
             }
         }
 
-        // Update gains
-        for (int k = 0; k < d; k++) {
+        updateGains(g, dC, dY, minGain);
+    }
+
+    /** Updates the gains of a point. */
+    private static void updateGains(double[] g, double[] dC, double[] dY, double minGain) {
+        for (int k = 0; k < g.length; k++) {
             g[k] = (Math.signum(dC[k]) != Math.signum(dY[k])) ? (g[k] + .2) : (g[k] * .8);
             if (g[k] < minGain) g[k] = minGain;
         }
@@ -449,6 +784,55 @@ public record TSNE(double cost, double[][] coordinates) implements Serializable
         return P;
     }
 
+    /**
+     * Computes the Gaussian kernel of neighbors in place (search the width
+     * for given perplexity) and normalizes them to the conditional probabilities.
+     */
+    private static void expd(double[] D, double perplexity, double tol) {
+        int k = D.length;
+        double[] P = new double[k];
+        double logU = MathEx.log2(perplexity);
+
+        // Use sqrt(1 / avg of distance) to initialize beta
+        double beta = Math.sqrt(k / Math.max(MathEx.sum(D), Double.MIN_VALUE));
+        double betamin = 0.0;
+        double betamax = Double.POSITIVE_INFINITY;
+
+        double Pisum = 0.0;
+        double Hdiff = Double.MAX_VALUE;
+        for (int iter = 0; Math.abs(Hdiff) > tol && iter < 50; iter++) {
+            Pisum = 0.0;
+            double H = 0.0;
+            for (int j = 0; j < k; j++) {
+                double d = beta * D[j];
+                double p = Math.exp(-d);
+                P[j] = p;
+                Pisum += p;
+                H += p * d;
+            }
+
+            H = MathEx.log2(Pisum) + H / Pisum;
+            Hdiff = H - logU;
+
+            if (Math.abs(Hdiff) > tol) {
+                if (Hdiff > 0) {
+                    betamin = beta;
+                    if (Double.isInfinite(betamax))
+                        beta *= 2.0;
+                    else
+                        beta = (beta + betamax) / 2;
+                } else {
+                    betamax = beta;
+                    beta = (beta + betamin) / 2;
+                }
+            }
+        }
+
+        for (int j = 0; j < k; j++) {
+            D[j] = Pisum > 0 ? P[j] / Pisum : 1.0 / k;
+        }
+    }
+
     /**
      * Computes the Q matrix.
      */
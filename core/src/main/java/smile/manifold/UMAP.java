@@ -212,7 +212,9 @@ public class UMAP {
     }
 
     /**
-     * Runs the UMAP algorithm.
+     * Runs the UMAP algorithm. For large datasets, the k-nearest neighbor
+     * graph may be built with an approximate index, e.g.
+     * {@code NearestNeighborGraph.of(HNSW.of(data, HNSW.Space.L2), data, k)}.
      *
      * @param data    the input data.
      * @param nng     the k-nearest neighbor graph.
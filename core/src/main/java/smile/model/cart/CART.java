@@ -31,6 +31,7 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.IntStream;
 import java.util.AbstractMap.SimpleEntry;
 
@@ -108,6 +109,37 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
      */
     protected transient int[][] order;
 
+    /**
+     * The rank of each sample in the ascending order of each numeric column,
+     * i.e. {@code order[j][rank[j][i]] == i}. If not null, the sorted index
+     * {@link #order} is shared by multiple trees, which is read-only and
+     * not rearranged. The samples of a node in ascending order of a column
+     * are obtained by sorting their ranks instead.
+     */
+    protected transient int[][] rank;
+
+    /**
+     * The minimum number of samples in a node to search the best splits
+     * of its children and to partition the sorted index in parallel.
+     */
+    private static final int PARALLEL_NODE_SIZE = 8192;
+
+    /**
+     * The quantized numeric columns for histogram-based split finding.
+     * If not null, the sorted index {@link #order} is not used.
+     */
+    protected transient Bins bins;
+
+    /**
+     * The memory budget in bytes of the histograms kept by pending splits.
+     */
+    private static final long HISTOGRAM_BUDGET = 64L << 20;
+
+    /**
+     * The memory size in bytes of the histograms kept by pending splits.
+     */
+    private transient long histogramBytes;
+
     /**
      * The working buffer for reordering {@link #index} array.
      */
@@ -150,6 +182,59 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
      *              that only numeric attributes need be sorted.
      */
     public CART(DataFrame x, StructField y, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order) {
+        this(x, y, maxDepth, maxNodes, nodeSize, mtry, samples, order, null);
+    }
+
+    /**
+     * Constructor.
+     * @param x the data frame of the explanatory variable.
+     * @param y the response variables.
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the minimum size of leaf nodes.
+     * @param mtry the number of input variables to pick to split on at each
+     *             node. It seems that sqrt(p) give generally good performance,
+     *             where p is the number of variables.
+     * @param samples the sample set of instances for stochastic learning.
+     *               samples[i] is the number of sampling for instance i.
+     * @param order the index of training values in ascending order. Note
+     *              that only numeric attributes need be sorted. Ignored
+     *              if bins is not null.
+     * @param bins the quantized numeric columns for histogram-based split
+     *             finding. If null, the exact split finding on the sorted
+     *             index is employed.
+     */
+    public CART(DataFrame x, StructField y, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order, Bins bins) {
+        this(x, y, maxDepth, maxNodes, nodeSize, mtry, samples, order, null, bins);
+    }
+
+    /**
+     * Constructor. If rank is not null, the sorted index is shared with
+     * other trees without being copied. This saves the memory when many
+     * trees are trained on the same data concurrently, at the cost of
+     * sorting the ranks of samples in each node.
+     *
+     * @param x the data frame of the explanatory variable.
+     * @param y the response variables.
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the minimum size of leaf nodes.
+     * @param mtry the number of input variables to pick to split on at each
+     *             node. It seems that sqrt(p) give generally good performance,
+     *             where p is the number of variables.
+     * @param samples the sample set of instances for stochastic learning.
+     *               samples[i] is the number of sampling for instance i.
+     * @param order the index of training values in ascending order. Note
+     *              that only numeric attributes need be sorted. Ignored
+     *              if bins is not null.
+     * @param rank the rank of samples in the sorted index, which is computed
+     *             by {@link #rank(int[][])}. If not null, order must be the
+     *             sorted index of all samples and is shared read-only.
+     * @param bins the quantized numeric columns for histogram-based split
+     *             finding. If null, the exact split finding on the sorted
+     *             index is employed.
+     */
+    public CART(DataFrame x, StructField y, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order, int[][] rank, Bins bins) {
         int n = x.nrow();
         int p = x.ncol();
 
@@ -190,8 +275,17 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
         this.index = idx.toArray();
 
         buffer  = new int[index.length];
+        this.bins = bins;
 
-        if (order == null) {
+        if (bins != null) {
+            this.order = null;
+        } else if (rank != null) {
+            if (order == null) {
+                throw new IllegalArgumentException("The sorted index is required with the ranks");
+            }
+            this.order = order;
+            this.rank = rank;
+        } else if (order == null) {
             this.order = order(x);
         } else {
             this.order = new int[order.length][];
@@ -241,6 +335,53 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
         return order;
     }
 
+    /**
+     * Returns the rank of samples in the index of ordered samples.
+     * @param order the index of ordered samples for each ordinal column.
+     * @return the rank of samples for each ordinal column.
+     */
+    public static int[][] rank(int[][] order) {
+        int[][] rank = new int[order.length][];
+        IntStream.range(0, order.length).parallel().forEach(j -> {
+            int[] orderj = order[j];
+            if (orderj != null) {
+                int[] rankj = new int[orderj.length];
+                for (int r = 0; r < orderj.length; r++) {
+                    rankj[orderj[r]] = r;
+                }
+                rank[j] = rankj;
+            }
+        });
+        return rank;
+    }
+
+    /**
+     * Returns the samples of a node in ascending order of a numeric column
+     * when the sorted index is shared, by sorting the ranks of samples.
+     * The relative order of samples is the same as in the rearranged
+     * per-tree sorted index.
+     *
+     * @param j the column index.
+     * @param lo the inclusive lower bound of the data partition in the reordered sample index array.
+     * @param hi the exclusive upper bound of the data partition in the reordered sample index array.
+     * @return the samples of node in ascending order, of which the length is hi - lo.
+     */
+    protected int[] sort(int j, int lo, int hi) {
+        int[] rankj = rank[j];
+        int[] orderj = order[j];
+        int m = hi - lo;
+        int[] sorted = new int[m];
+        for (int i = 0; i < m; i++) {
+            sorted[i] = rankj[index[lo + i]];
+        }
+
+        Arrays.sort(sorted);
+        for (int i = 0; i < m; i++) {
+            sorted[i] = orderj[sorted[i]];
+        }
+        return sorted;
+    }
+
     /**
      * Returns the predictors by the model formula if it is not null.
      * Otherwise, return the input tuple.
@@ -255,9 +396,11 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
     protected void clear() {
         this.x = null;
         this.order = null;
+        this.rank = null;
         this.index = null;
         this.samples = null;
         this.buffer = null;
+        this.bins = null;
     }
 
     /**
@@ -272,6 +415,12 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
             throw new IllegalStateException("Split a node with invalid feature.");
         }
 
+        // Takes over the histograms so that they are released
+        // whether the node is split or not.
+        double[][] histograms = split.histograms;
+        split.histograms = null;
+        histogramBytes -= bytes(histograms);
+
         if (split.depth >= maxDepth) {
             logger.debug("Reach maximum depth");
             return false;
@@ -303,8 +452,36 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
 
         shuffle(split.lo, mid, split.hi, trues);
 
-        Optional<Split> trueSplit = findBestSplit(trueChild, split.lo, mid, split.unsplittable.clone());
-        Optional<Split> falseSplit = findBestSplit(falseChild, mid, split.hi, split.unsplittable); // reuse parent's array
+        Optional<Split> trueSplit;
+        Optional<Split> falseSplit;
+        if (bins == null) {
+            boolean[] trueUnsplittable = split.unsplittable.clone();
+            if (parallel(split.lo, split.hi)) {
+                // The children work on the disjoint ranges of sample index.
+                ForkJoinTask<Optional<Split>> task = ForkJoinTask.adapt(() -> findBestSplit(trueChild, split.lo, mid, trueUnsplittable)).fork();
+                falseSplit = findBestSplit(falseChild, mid, split.hi, split.unsplittable); // reuse parent's array
+                trueSplit = task.join();
+            } else {
+                trueSplit = findBestSplit(trueChild, split.lo, mid, trueUnsplittable);
+                falseSplit = findBestSplit(falseChild, mid, split.hi, split.unsplittable); // reuse parent's array
+            }
+        } else {
+            // Builds the histograms of the smaller child and derives
+            // those of the larger child by histogram subtraction.
+            int p = schema.length();
+            double[][] trueHistograms = new double[p][];
+            double[][] falseHistograms = new double[p][];
+            boolean[] trueUnsplittable = split.unsplittable.clone();
+            if (trueSamples.length <= falseSamples.length) {
+                trueSplit = findBestSplit(trueChild, split.lo, mid, trueUnsplittable, trueHistograms, null, null);
+                falseSplit = findBestSplit(falseChild, mid, split.hi, split.unsplittable, falseHistograms, histograms, trueHistograms);
+            } else {
+                falseSplit = findBestSplit(falseChild, mid, split.hi, split.unsplittable, falseHistograms, null, null);
+                trueSplit = findBestSplit(trueChild, split.lo, mid, trueUnsplittable, trueHistograms, histograms, falseHistograms);
+            }
+            trueSplit.ifPresent(this::retain);
+            falseSplit.ifPresent(this::retain);
+        }
 
         // Prune the branch if both children are leaf nodes and of same output value.
         if (trueChild.equals(falseChild) && trueSplit.isEmpty() && falseSplit.isEmpty()) {
@@ -348,6 +525,29 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
      * @return the best split candidate.
      */
     protected Optional<Split> findBestSplit(LeafNode node, int lo, int hi, boolean[] unsplittable) {
+        double[][] histograms = bins == null ? null : new double[schema.length()][];
+        Optional<Split> split = findBestSplit(node, lo, hi, unsplittable, histograms, null, null);
+        split.ifPresent(this::retain);
+        return split;
+    }
+
+    /**
+     * Finds the best attribute to split on a set of samples. at the current node. Returns
+     * <code>Optional.empty</code> if a split doesn't exist to reduce the impurity.
+     * In case of histogram-based split finding, the histogram of column j is
+     * derived from those of parent and sibling if both are available.
+     * Otherwise, it is built from the samples in the node.
+     *
+     * @param node the leaf node to split.
+     * @param lo the inclusive lower bound of the data partition in the reordered sample index array.
+     * @param hi the exclusive upper bound of the data partition in the reordered sample index array.
+     * @param unsplittable unsplittable[j] is true if the column j cannot be split further in the node.
+     * @param histograms the output histograms of node. Null if histogram-based split finding is not used.
+     * @param parent the histograms of parent node. May be null.
+     * @param sibling the histograms of sibling node. May be null.
+     * @return the best split candidate.
+     */
+    private Optional<Split> findBestSplit(LeafNode node, int lo, int hi, boolean[] unsplittable, double[][] histograms, double[][] parent, double[][] sibling) {
         if (node.size() < 2 * nodeSize) {
             return Optional.empty(); // one child will have less than nodeSize samples.
         }
@@ -369,7 +569,14 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
         IntStream stream = Arrays.stream(columns).limit(mtry);
         Optional<Split> split = (mtry < p ? stream : stream.parallel()) // random forest is in parallel already
                 .mapToObj(j -> {
-                    Optional<Split> s = findBestSplit(node, j, impurity, lo, hi);
+                    Optional<Split> s;
+                    if (bins != null && bins.isBinned(j)) {
+                        double[] histogram = histogram(j, lo, hi, parent, sibling);
+                        histograms[j] = histogram;
+                        s = findBestSplit(node, j, impurity, lo, hi, histogram);
+                    } else {
+                        s = findBestSplit(node, j, impurity, lo, hi);
+                    }
                     if (s.isEmpty()) unsplittable[j] = true;
                     return s;
                 })
@@ -377,10 +584,77 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
                 .map(Optional::get)
                 .max(Split.comparator);
 
-        split.ifPresent(s -> s.unsplittable = unsplittable);
+        split.ifPresent(s -> {
+            s.unsplittable = unsplittable;
+            s.histograms = histograms;
+        });
         return split;
     }
 
+    /**
+     * Returns the histogram of a quantized column in a node. The histogram
+     * has {@link #histogramWidth()} statistics per bin.
+     * @param j the column index.
+     * @param lo the inclusive lower bound of the data partition in the reordered sample index array.
+     * @param hi the exclusive upper bound of the data partition in the reordered sample index array.
+     * @param parent the histograms of parent node. May be null.
+     * @param sibling the histograms of sibling node. May be null.
+     * @return the histogram.
+     */
+    private double[] histogram(int j, int lo, int hi, double[][] parent, double[][] sibling) {
+        if (parent != null && sibling != null && parent[j] != null && sibling[j] != null) {
+            // The parent's histogram is subtracted in place as it is
+            // released after the children are built.
+            double[] histogram = parent[j];
+            parent[j] = null;
+            double[] other = sibling[j];
+            for (int b = 0; b < histogram.length; b++) {
+                histogram[b] -= other[b];
+            }
+            return histogram;
+        }
+
+        int width = histogramWidth();
+        double[] histogram = new double[bins.size(j) * width];
+        for (int i = lo; i < hi; i++) {
+            int o = index[i];
+            accumulate(histogram, bins.bin(j, o) * width, o);
+        }
+        return histogram;
+    }
+
+    /**
+     * Keeps the histograms of a pending split to derive the histograms
+     * of its children if they fit in the budget. Otherwise, they are
+     * dropped and the children build their histograms from the samples.
+     * @param split the pending split.
+     */
+    private void retain(Split split) {
+        long size = bytes(split.histograms);
+        if (histogramBytes + size > HISTOGRAM_BUDGET) {
+            split.histograms = null;
+        } else {
+            histogramBytes += size;
+        }
+    }
+
+    /**
+     * Returns the memory size of histograms.
+     * @param histograms the histograms of a node.
+     * @return the memory size in bytes.
+     */
+    private static long bytes(double[][] histograms) {
+        long size = 0;
+        if (histograms != null) {
+            for (double[] histogram : histograms) {
+                if (histogram != null) {
+                    size += (long) histogram.length * Double.BYTES;
+                }
+            }
+        }
+        return size;
+    }
+
     /**
      * Returns the impurity of node.
      * @param node the node to calculate the impurity.
@@ -406,6 +680,33 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
      */
     protected abstract Optional<Split> findBestSplit(LeafNode node, int column, double impurity, int lo, int hi);
 
+    /**
+     * Returns the number of statistics per bin in the histogram of a
+     * quantized column.
+     * @return the number of statistics per bin.
+     */
+    protected abstract int histogramWidth();
+
+    /**
+     * Adds a sample to the statistics of a histogram bin.
+     * @param histogram the histogram.
+     * @param offset the offset of bin statistics in the histogram.
+     * @param sample the sample index.
+     */
+    protected abstract void accumulate(double[] histogram, int offset, int sample);
+
+    /**
+     * Finds the best split for given quantized column by scanning its histogram.
+     * @param node the node to split.
+     * @param column the column to split on.
+     * @param impurity the impurity of node.
+     * @param lo the lower bound of sample index in the node.
+     * @param hi the upper bound of sample index in the node.
+     * @param histogram the histogram of column in the node.
+     * @return the best split.
+     */
+    protected abstract Optional<Split> findBestSplit(LeafNode node, int column, double impurity, int lo, int hi, double[] histogram);
+
     /**
      * Returns the variable importance. Every time a split of a node is made
      * on variable the (GINI, information gain, etc.) impurity criterion for
@@ -490,14 +791,36 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
      *                  the right side of the partition.
      */
     private void shuffle(int low, int split, int high, boolean[] predicate) {
-        // Arrays.stream(order).filter(Objects::nonNull).forEach(o -> shuffle(o, low, split, high, predicate));
-        // Use plain loop to avoid stream overhead
-        for (var column : order) {
-            if (column != null) {
-                shuffle(column, low, split, high, predicate);
+        // The shared sorted index is read-only.
+        if (order != null && rank == null) {
+            if (parallel(low, high)) {
+                // Each column needs its own scratch space.
+                Arrays.stream(order).parallel().filter(Objects::nonNull)
+                        .forEach(column -> shuffle(column, low, split, high, predicate, new int[high - split]));
+            } else {
+                // Use plain loop to avoid stream overhead
+                for (var column : order) {
+                    if (column != null) {
+                        shuffle(column, low, split, high, predicate, buffer);
+                    }
+                }
             }
         }
-        shuffle(index, low, split, high, predicate);
+        shuffle(index, low, split, high, predicate, buffer);
+    }
+
+    /**
+     * Returns true if a node is large enough to be processed in parallel.
+     * Random forest builds the trees in parallel already, so that the
+     * node level parallelism is employed only if all columns are candidates
+     * of each split, e.g. in gradient tree boosting.
+     *
+     * @param low the low bound of the node in the sample index.
+     * @param high the high bound of the node in the sample index.
+     * @return true if the node should be processed in parallel.
+     */
+    private boolean parallel(int low, int high) {
+        return mtry >= schema.length() && high - low >= PARALLEL_NODE_SIZE;
     }
 
     /**
@@ -506,9 +829,7 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
      * for which goesLeft(i) is true come before all elements for
      * which it is false, but element ordering is otherwise preserved.
      * The number of true values returned by goesLeft must equal
-     * {@code split - low}. buffer is scratch space large enough
-     * (i.e., at least {@code high - split} long) to hold all
-     * elements for which goesLeft is false.
+     * {@code split - low}.
      *
      * @param a the array to shuffle.
      * @param low the low bound of the segment of the order arrays
@@ -518,8 +839,11 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
      *             which will be partitioned.
      * @param predicate whether an element goes to the left side or
      *                  the right side of the partition.
+     * @param buffer the scratch space large enough (i.e., at least
+     *               {@code high - split} long) to hold all elements
+     *               for which goesLeft is false.
      */
-    private void shuffle(int[] a, int low, int split, int high, boolean[] predicate) {
+    private static void shuffle(int[] a, int low, int split, int high, boolean[] predicate, int[] buffer) {
         int k = 0;
         for (int i = low, j = low; i < high; i++) {
             if (predicate[a[i]]) {
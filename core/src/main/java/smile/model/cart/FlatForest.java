@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.model.cart;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+import smile.data.DataFrame;
+import smile.util.DoubleArrayList;
+import smile.util.IntArrayList;
+
+/**
+ * A tree ensemble compiled into flat arrays for fast batch inference.
+ * The nodes of all trees are laid out in struct-of-arrays form, i.e.
+ * the split feature of node i is {@code feature[i]}, and its true and
+ * false children are {@code child[2*i]} and {@code child[2*i+1]}.
+ * A sample goes to the true child if its feature value is in the
+ * closed interval {@code [bound[2*i], bound[2*i+1]]}, which is
+ * {@code (-inf, value]} for ordinal splits and {@code [value, value]}
+ * for nominal splits. Therefore, every node is tested by the same
+ * branch-free expression and the next node is selected by index
+ * arithmetic.
+ * <p>
+ * The leaves are nodes too, which contain all values and of which
+ * both children are the leaf itself. So a sample stays at its leaf
+ * once it arrives. This allows the batch methods to advance a block
+ * of rows through a tree in lockstep for as many steps as the depth
+ * of tree, without checking if each row has reached a leaf. The
+ * independent rows keep the CPU pipeline busy while the nodes of
+ * the tree stay in cache.
+ * Compared to walking the node objects with tuples, the compiled form
+ * avoids virtual calls, pointer chasing, branch misprediction and
+ * boxing.
+ * <p>
+ * The ensemble is additive. The output of a sample is a vector of
+ * {@code dim()} values that starts at the bias. Each tree adds its leaf
+ * values, scaled by the tree weight, to the output starting at the
+ * tree's output offset. The leaf values are scaled when the trees are
+ * compiled, which gives the same products as scaling them at inference.
+ * The trees are always evaluated in order so that the outputs are
+ * identical to summing the predictions of individual trees in a loop.
+ * The batch methods process the blocks of rows in parallel.
+ * <p>
+ * The feature indices refer to the columns of the predictor data frame,
+ * i.e. the output of {@code formula.x(data)}, on which the trees were
+ * trained. The nominal features are compared by their integer codes.
+ *
+ * @author Haifeng Li
+ */
+public class FlatForest implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    /** The number of rows in a block of batch inference. */
+    private static final int BLOCK_SIZE = 256;
+
+    /**
+     * The nodes, four integers per node: the split feature (0 for leaves),
+     * the true child, the false child, and the offset of leaf values (-1
+     * for internal nodes). A node is referred by the offset of its record,
+     * i.e. four times its index.
+     */
+    private final int[] node;
+    /**
+     * The closed interval of feature values that go to the true child,
+     * of which the lower and upper bounds of node k are
+     * {@code bound[k/2]} and {@code bound[k/2+1]}.
+     */
+    private final double[] bound;
+    /** The leaf values scaled by the tree weight, {@code width} values per leaf. */
+    private final double[] leaf;
+    /** The number of values per leaf. */
+    private final int width;
+    /** The root of trees. */
+    private final int[] root;
+    /** The depth of trees, i.e. the maximum number of steps from root to leaf. */
+    private final int[] depth;
+    /** The output offset of trees. */
+    private final int[] output;
+    /** The initial output. */
+    private final double[] bias;
+    /** The number of internal nodes. */
+    private final int nodes;
+    /** The number of features that the trees may test. */
+    private final int p;
+
+    /**
+     * Constructor.
+     * @param builder the builder with flattened trees.
+     * @param root the root of trees.
+     * @param depth the depth of trees.
+     * @param output the output offset of trees.
+     * @param bias the initial output.
+     */
+    private FlatForest(Builder builder, int[] root, int[] depth, int[] output, double[] bias) {
+        this.node = builder.node.toArray();
+        this.bound = builder.bound.toArray();
+        this.leaf = builder.leaf.toArray();
+        this.width = builder.width;
+        this.nodes = builder.nodes;
+        this.root = root;
+        this.depth = depth;
+        this.output = output;
+        this.bias = bias;
+
+        int max = -1;
+        for (int k = 0; k < node.length; k += 4) {
+            if (node[k + 3] < 0) {
+                max = Math.max(max, node[k]);
+            }
+        }
+        this.p = max + 1;
+    }
+
+    /**
+     * Compiles the regression trees with scalar leaf outputs. The output
+     * of a sample is {@code bias[o] + sum(weight[t] * tree[t](x))} over the
+     * trees with {@code output[t] == o}.
+     *
+     * @param trees the root of trees.
+     * @param weight the weight of trees.
+     * @param output the output offset of trees.
+     * @param bias the initial output.
+     * @return the compiled ensemble.
+     */
+    public static FlatForest of(Node[] trees, double[] weight, int[] output, double[] bias) {
+        return of(trees, 1, (node, value) -> value[0] = ((RegressionNode) node).output(), weight, output, bias);
+    }
+
+    /**
+     * Compiles the trees with a custom leaf encoder.
+     *
+     * @param trees the root of trees.
+     * @param width the number of values per leaf.
+     * @param encoder the function that writes the values of a leaf
+     *                into an array of length {@code width}.
+     * @param weight the weight of trees.
+     * @param output the output offset of trees.
+     * @param bias the initial output.
+     * @return the compiled ensemble.
+     */
+    public static FlatForest of(Node[] trees, int width, BiConsumer<LeafNode, double[]> encoder,
+                                double[] weight, int[] output, double[] bias) {
+        int ntrees = trees.length;
+        if (ntrees == 0) {
+            throw new IllegalArgumentException("Empty tree ensemble");
+        }
+
+        if (weight.length != ntrees || output.length != ntrees) {
+            throw new IllegalArgumentException(String.format("Invalid tree weight or output size: %d, %d, expected: %d", weight.length, output.length, ntrees));
+        }
+
+        if (width <= 0) {
+            throw new IllegalArgumentException("Invalid leaf width: " + width);
+        }
+
+        for (int o : output) {
+            if (o < 0 || o + width > bias.length) {
+                throw new IllegalArgumentException("Invalid tree output offset: " + o);
+            }
+        }
+
+        Builder builder = new Builder(width, encoder);
+        int[] root = new int[ntrees];
+        int[] depth = new int[ntrees];
+        for (int t = 0; t < ntrees; t++) {
+            builder.weight = weight[t];
+            builder.depth = 0;
+            root[t] = builder.add(trees[t], 0);
+            depth[t] = builder.depth;
+        }
+
+        return new FlatForest(builder, root, depth, output.clone(), bias.clone());
+    }
+
+    /** Flattens the nodes in depth-first order. */
+    private static class Builder {
+        final IntArrayList node = new IntArrayList();
+        final DoubleArrayList bound = new DoubleArrayList();
+        final DoubleArrayList leaf = new DoubleArrayList();
+        final int width;
+        final BiConsumer<LeafNode, double[]> encoder;
+        final double[] buffer;
+        /** The weight of current tree. */
+        double weight;
+        /** The depth of current tree. */
+        int depth;
+        /** The number of internal nodes. */
+        int nodes;
+
+        Builder(int width, BiConsumer<LeafNode, double[]> encoder) {
+            this.width = width;
+            this.encoder = encoder;
+            this.buffer = new double[width];
+        }
+
+        /** Adds a node and its descendants. Returns the node offset. */
+        int add(Node node, int level) {
+            depth = Math.max(depth, level);
+            return switch (node) {
+                case LeafNode l -> {
+                    Arrays.fill(buffer, 0.0);
+                    encoder.accept(l, buffer);
+                    int k = node(0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, leaf.size());
+                    for (double v : buffer) {
+                        leaf.add(weight * v);
+                    }
+                    // A sample stays at the leaf.
+                    this.node.set(k + 1, k);
+                    this.node.set(k + 2, k);
+                    yield k;
+                }
+                case OrdinalNode n -> add(n, Double.NEGATIVE_INFINITY, n.value, level);
+                case NominalNode n -> add(n, n.value, n.value, level);
+                default -> throw new IllegalArgumentException("Unsupported node type: " + node.getClass());
+            };
+        }
+
+        /** Adds an internal node. */
+        int add(InternalNode node, double lo, double hi, int level) {
+            int k = node(node.feature, lo, hi, -1);
+            nodes++;
+            this.node.set(k + 1, add(node.trueChild, level + 1));
+            this.node.set(k + 2, add(node.falseChild, level + 1));
+            return k;
+        }
+
+        /** Appends a node. Returns the node offset. */
+        int node(int j, double lo, double hi, int offset) {
+            int k = node.size();
+            node.add(j, 0, 0, offset);
+            bound.add(lo);
+            bound.add(hi);
+            return k;
+        }
+    }
+
+    /**
+     * Returns the number of trees.
+     * @return the number of trees.
+     */
+    public int size() {
+        return root.length;
+    }
+
+    /**
+     * Returns the number of internal nodes of all trees.
+     * @return the number of internal nodes.
+     */
+    public int nodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the dimension of outputs.
+     * @return the dimension of outputs.
+     */
+    public int dim() {
+        return bias.length;
+    }
+
+    /**
+     * Returns the next node of a sample.
+     * @param k the current node.
+     * @param v the value of split feature.
+     * @return the next node.
+     */
+    private int next(int k, double v) {
+        int b = k >> 1;
+        // Non-short-circuit AND to avoid branches. NaN goes to the false child.
+        boolean test = (v >= bound[b]) & (v <= bound[b + 1]);
+        return node[k + (test ? 1 : 2)];
+    }
+
+    /**
+     * Adds the leaf values of a tree to the output.
+     * @param t the tree index.
+     * @param k the leaf node.
+     * @param y the output.
+     */
+    private void add(int t, int k, double[] y) {
+        int l = node[k + 3];
+        int o = output[t];
+        for (int c = 0; c < width; c++) {
+            y[o + c] += leaf[l + c];
+        }
+    }
+
+    /**
+     * Evaluates the ensemble on a sample.
+     * @param x the sample.
+     * @return the output.
+     */
+    public double[] score(double[] x) {
+        if (x.length < p) {
+            throw new IllegalArgumentException(String.format("Invalid input vector size: %d, expected: %d", x.length, p));
+        }
+
+        double[] y = bias.clone();
+        for (int t = 0; t < root.length; t++) {
+            int k = root[t];
+            while (node[k + 3] < 0) {
+                k = next(k, x[node[k]]);
+            }
+            add(t, k, y);
+        }
+        return y;
+    }
+
+    /**
+     * Evaluates the ensemble on a batch of samples.
+     * @param x the samples.
+     * @return the outputs.
+     */
+    public double[][] score(double[][] x) {
+        for (double[] xi : x) {
+            if (xi.length < p) {
+                throw new IllegalArgumentException(String.format("Invalid input vector size: %d, expected: %d", xi.length, p));
+            }
+        }
+
+        int n = x.length;
+        double[][] y = new double[n][];
+        IntStream.range(0, (n + BLOCK_SIZE - 1) / BLOCK_SIZE).parallel().forEach(block -> {
+            int lo = block * BLOCK_SIZE;
+            int hi = Math.min(n, lo + BLOCK_SIZE);
+            int m = hi - lo;
+            for (int i = lo; i < hi; i++) {
+                y[i] = bias.clone();
+            }
+
+            int[] current = new int[m];
+            for (int t = 0; t < root.length; t++) {
+                Arrays.fill(current, root[t]);
+                for (int step = depth[t]; step > 0; step--) {
+                    for (int i = 0; i < m; i++) {
+                        int k = current[i];
+                        current[i] = next(k, x[lo + i][node[k]]);
+                    }
+                }
+
+                for (int i = 0; i < m; i++) {
+                    add(t, current[i], y[lo + i]);
+                }
+            }
+        });
+        return y;
+    }
+
+    /**
+     * Evaluates the ensemble on a batch of samples. The columns are
+     * read once into primitive arrays, so that the trees are evaluated
+     * without tuple access.
+     * @param x the predictor data frame.
+     * @return the outputs.
+     */
+    public double[][] score(DataFrame x) {
+        if (x.ncol() < p) {
+            throw new IllegalArgumentException(String.format("Invalid number of columns: %d, expected: %d", x.ncol(), p));
+        }
+
+        // The leaves test the column 0, which must be present too.
+        double[][] columns = new double[Math.max(p, 1)][];
+        int n = x.size();
+        IntStream.range(0, columns.length).parallel().forEach(j -> columns[j] = j < x.ncol() ? x.column(j).toDoubleArray() : new double[n]);
+
+        double[][] y = new double[n][];
+        IntStream.range(0, (n + BLOCK_SIZE - 1) / BLOCK_SIZE).parallel().forEach(block -> {
+            int lo = block * BLOCK_SIZE;
+            int hi = Math.min(n, lo + BLOCK_SIZE);
+            int m = hi - lo;
+            for (int i = lo; i < hi; i++) {
+                y[i] = bias.clone();
+            }
+
+            int[] current = new int[m];
+            for (int t = 0; t < root.length; t++) {
+                Arrays.fill(current, root[t]);
+                for (int step = depth[t]; step > 0; step--) {
+                    for (int i = 0; i < m; i++) {
+                        int k = current[i];
+                        current[i] = next(k, columns[node[k]][lo + i]);
+                    }
+                }
+
+                for (int i = 0; i < m; i++) {
+                    add(t, current[i], y[lo + i]);
+                }
+            }
+        });
+        return y;
+    }
+}
@@ -84,6 +84,13 @@ public abstract class Split {
     /** The depth of node in the tree. */
     int depth = 1;
 
+    /**
+     * The histograms of quantized columns in the node, which are
+     * used to derive the histograms of children by subtraction.
+     * Null if the histogram-based split finding is not used.
+     */
+    double[][] histograms;
+
     /**
      * Constructor.
      * @param leaf the node to split.
@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.model.svm;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * The least recently used (LRU) cache of kernel matrix rows with a bounded
+ * memory budget. SMO style solvers access only a few rows of kernel matrix
+ * in each iteration, and the rows of support vectors are accessed repeatedly.
+ * Instead of the full n x n kernel matrix, which is prohibitive for large
+ * data, the cache keeps as many recently used rows as fit in the budget and
+ * recomputes the evicted rows on demand. The rows may be stored in single
+ * precision to double the number of cached rows, which is usually accurate
+ * enough for the optimization.
+ * <p>
+ * To avoid allocating a new array of n values on every miss, the array
+ * of an evicted or removed row is recycled for the next miss. Therefore,
+ * a row returned by the cache is valid only until it is evicted. As at
+ * least two rows are cached, the two most recently returned rows are
+ * always valid, which is all that SMO needs. This class is not thread safe.
+ *
+ * @author Haifeng Li
+ */
+public class KernelCache implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default memory budget in bytes.
+     */
+    public static final long DEFAULT_CAPACITY = 256L << 20;
+
+    /**
+     * The row of kernel matrix.
+     */
+    public sealed interface Row extends Serializable permits DoubleRow, FloatRow {
+        /**
+         * Returns the kernel value of column j.
+         * @param j the column index.
+         * @return the kernel value, or NaN if it is not computed yet.
+         */
+        double get(int j);
+
+        /**
+         * Sets the kernel value of column j.
+         * @param j the column index.
+         * @param value the kernel value.
+         */
+        void set(int j, double value);
+    }
+
+    /**
+     * The row in double precision.
+     * @param data the kernel values.
+     */
+    record DoubleRow(double[] data) implements Row {
+        @Override
+        public double get(int j) {
+            return data[j];
+        }
+
+        @Override
+        public void set(int j, double value) {
+            data[j] = value;
+        }
+    }
+
+    /**
+     * The row in single precision.
+     * @param data the kernel values.
+     */
+    record FloatRow(float[] data) implements Row {
+        @Override
+        public double get(int j) {
+            return data[j];
+        }
+
+        @Override
+        public void set(int j, double value) {
+            data[j] = (float) value;
+        }
+    }
+
+    /** The number of rows/columns of kernel matrix. */
+    private final int n;
+    /** The flag if the rows are stored in single precision. */
+    private final boolean singlePrecision;
+    /** The maximum number of cached rows. */
+    private final int capacity;
+    /** The cached rows. */
+    private final Row[] rows;
+    /** The previous (more recently used) row in the LRU list. */
+    private final int[] prev;
+    /** The next (less recently used) row in the LRU list. */
+    private final int[] next;
+    /** The most recently used row. */
+    private int head = -1;
+    /** The least recently used row. */
+    private int tail = -1;
+    /** The number of cached rows. */
+    private int size = 0;
+    /** The number of cache hits. */
+    private long hits = 0;
+    /** The number of cache misses. */
+    private long misses = 0;
+    /** The number of evicted rows. */
+    private long evictions = 0;
+    /** The evicted or removed row to be recycled by the next miss. */
+    private transient Row spare;
+
+    /**
+     * Constructor with the default memory budget in double precision.
+     * @param n the number of rows/columns of kernel matrix.
+     */
+    public KernelCache(int n) {
+        this(n, DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * Constructor.
+     * @param n the number of rows/columns of kernel matrix.
+     * @param bytes the memory budget in bytes. At least two rows are
+     *              cached regardless of the budget as SMO works on a pair.
+     * @param singlePrecision if true, the rows are stored in single precision.
+     */
+    public KernelCache(int n, long bytes, boolean singlePrecision) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Invalid kernel matrix size: " + n);
+        }
+
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Invalid cache size: " + bytes);
+        }
+
+        this.n = n;
+        this.singlePrecision = singlePrecision;
+        long rowBytes = (long) n * (singlePrecision ? Float.BYTES : Double.BYTES);
+        this.capacity = (int) Math.min(n, Math.max(2, bytes / rowBytes));
+        this.rows = new Row[n];
+        this.prev = new int[n];
+        this.next = new int[n];
+    }
+
+    /**
+     * Returns the cached row. If the row is not cached, a row of
+     * which all values are NaN is cached and returned, to be filled
+     * lazily by the caller.
+     * @param i the row index.
+     * @return the row.
+     */
+    public Row row(int i) {
+        Row row = rows[i];
+        if (row != null) {
+            hits++;
+            moveToHead(i);
+            return row;
+        }
+
+        misses++;
+        row = newRow();
+        if (singlePrecision) {
+            Arrays.fill(((FloatRow) row).data, Float.NaN);
+        } else {
+            Arrays.fill(((DoubleRow) row).data, Double.NaN);
+        }
+        insert(i, row);
+        return row;
+    }
+
+    /**
+     * Returns the cached row. If the row is not cached, it is computed
+     * in parallel and cached.
+     * @param i the row index.
+     * @param kernel the function of column index to kernel value k(x_i, x_j).
+     * @return the row.
+     */
+    public Row row(int i, IntToDoubleFunction kernel) {
+        Row row = rows[i];
+        if (row != null) {
+            hits++;
+            moveToHead(i);
+            return row;
+        }
+
+        misses++;
+        row = newRow();
+        if (singlePrecision) {
+            float[] data = ((FloatRow) row).data;
+            IntStream.range(0, n).parallel().forEach(j -> data[j] = (float) kernel.applyAsDouble(j));
+        } else {
+            double[] data = ((DoubleRow) row).data;
+            IntStream.range(0, n).parallel().forEach(j -> data[j] = kernel.applyAsDouble(j));
+        }
+        insert(i, row);
+        return row;
+    }
+
+    /**
+     * Returns true if the row is cached. It doesn't change the LRU order.
+     * @param i the row index.
+     * @return true if the row is cached.
+     */
+    public boolean contains(int i) {
+        return rows[i] != null;
+    }
+
+    /**
+     * Removes a row from the cache.
+     * @param i the row index.
+     */
+    public void remove(int i) {
+        if (rows[i] != null) {
+            unlink(i);
+            spare = rows[i];
+            rows[i] = null;
+            size--;
+        }
+    }
+
+    /**
+     * Removes all rows from the cache. The statistics are kept.
+     */
+    public void clear() {
+        Arrays.fill(rows, null);
+        head = -1;
+        tail = -1;
+        size = 0;
+    }
+
+    /**
+     * Returns the number of cached rows.
+     * @return the number of cached rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of cached rows.
+     * @return the maximum number of cached rows.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of cache hits.
+     * @return the number of cache hits.
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of cache misses, i.e. the number of
+     * computed rows.
+     * @return the number of cache misses.
+     */
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of rows evicted to fit in the memory budget.
+     * @return the number of evicted rows.
+     */
+    public long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the cache hit rate.
+     * @return the cache hit rate.
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("KernelCache(%d/%d rows, %s precision, %d hits, %d misses, %d evictions, hit rate %.2f%%)",
+                size, capacity, singlePrecision ? "single" : "double", hits, misses, evictions, 100 * hitRate());
+    }
+
+    /**
+     * Returns the row to fill on a miss. It is the recycled spare row
+     * if any, or a newly allocated row otherwise.
+     */
+    private Row newRow() {
+        if (size == capacity) {
+            // Evict before filling so that the LRU row can be recycled.
+            evict();
+        }
+
+        Row row = spare;
+        if (row != null) {
+            spare = null;
+            return row;
+        }
+        return singlePrecision ? new FloatRow(new float[n]) : new DoubleRow(new double[n]);
+    }
+
+    /** Evicts the least recently used row and keeps it as the spare. */
+    private void evict() {
+        int lru = tail;
+        unlink(lru);
+        spare = rows[lru];
+        rows[lru] = null;
+        size--;
+        evictions++;
+    }
+
+    /** Inserts a row at the head. The room is made by newRow(). */
+    private void insert(int i, Row row) {
+        rows[i] = row;
+        size++;
+        prev[i] = -1;
+        next[i] = head;
+        if (head >= 0) prev[head] = i;
+        head = i;
+        if (tail < 0) tail = i;
+    }
+
+    /** Moves a cached row to the head of LRU list. */
+    private void moveToHead(int i) {
+        if (head == i) return;
+        unlink(i);
+        prev[i] = -1;
+        next[i] = head;
+        if (head >= 0) prev[head] = i;
+        head = i;
+        if (tail < 0) tail = i;
+    }
+
+    /** Unlinks a cached row from the LRU list. */
+    private void unlink(int i) {
+        int p = prev[i];
+        int q = next[i];
+        if (p >= 0) next[p] = q; else head = q;
+        if (q >= 0) prev[q] = p; else tail = p;
+    }
+}
@@ -96,9 +96,17 @@ public class LASVM<T> implements Serializable {
      */
     private T[] x;
     /**
-     * The kernel matrix.
+     * The memory budget of kernel cache in bytes.
      */
-    private double[][] K;
+    private final long cacheSize;
+    /**
+     * The flag if the kernel cache stores values in single precision.
+     */
+    private final boolean singlePrecision;
+    /**
+     * The cache of kernel matrix rows of support vectors.
+     */
+    private KernelCache cache;
 
     /**
      * Constructor.
@@ -118,6 +126,20 @@ public class LASVM<T> implements Serializable {
      * @param tol the tolerance of convergence test.
      */
     public LASVM(MercerKernel<T> kernel, double Cp, double Cn, double tol) {
+        this(kernel, Cp, Cn, tol, KernelCache.DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * Constructor.
+     * @param kernel the kernel.
+     * @param Cp the soft margin penalty parameter for positive instances.
+     * @param Cn the soft margin penalty parameter for negative instances.
+     * @param tol the tolerance of convergence test.
+     * @param cacheSize the memory budget of kernel cache in bytes.
+     * @param singlePrecision if true, the kernel cache stores values
+     *                        in single precision.
+     */
+    public LASVM(MercerKernel<T> kernel, double Cp, double Cn, double tol, long cacheSize, boolean singlePrecision) {
         if (Cp < 0) {
             throw new IllegalArgumentException("Invalid C: " + Cp);
         }
@@ -130,10 +152,25 @@ public class LASVM<T> implements Serializable {
             throw new IllegalArgumentException("Invalid tol: " + tol);
         }
 
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Invalid cache size: " + cacheSize);
+        }
+
         this.kernel = kernel;
         this.Cp = Cp;
         this.Cn = Cn;
         this.tol = tol;
+        this.cacheSize = cacheSize;
+        this.singlePrecision = singlePrecision;
+    }
+
+    /**
+     * Returns the kernel cache of last training, which reports
+     * the hit/miss statistics.
+     * @return the kernel cache, or null if not trained yet.
+     */
+    public KernelCache cache() {
+        return cache;
     }
 
     /**
@@ -157,7 +194,7 @@ public class LASVM<T> implements Serializable {
         }
 
         this.x = x;
-        this.K = new double[x.length][];
+        this.cache = new KernelCache(x.length, cacheSize, singlePrecision);
 
         // pick initial support vectors.
         init(x, y);
@@ -238,20 +275,16 @@ public class LASVM<T> implements Serializable {
 
     /**
      * Returns the cached kernel value.
+     * @param ki the cached kernel matrix row of support vector i.
      * @param i the index of support vector.
      * @param j the index of support vector.
      * @return the kernel value.
      */
-    private double k(int i, int j) {
-        double k = Double.NaN;
-        double[] ki = K[i];
-        if (ki != null) {
-            k = ki[j];
-        }
-
+    private double k(KernelCache.Row ki, int i, int j) {
+        double k = ki.get(j);
         if (Double.isNaN(k)) {
             k = kernel.k(x[i], x[j]);
-            if (ki != null) ki[j] = k;
+            ki.set(j, k);
         }
 
         return k;
@@ -286,9 +319,10 @@ public class LASVM<T> implements Serializable {
             double km = v1.k;
             double gm = v1.g;
             double best = 0.0;
+            KernelCache.Row k1 = cache.row(v1.i);
             for (SupportVector<T> v : vectors) {
                 double Z = v.g - gm;
-                double k = k(v1.i, v.i);
+                double k = k(k1, v1.i, v.i);
                 double curv = km + v.k - 2.0 * k;
                 if (curv <= 0.0) curv = TAU;
                 double mu = Z / curv;
@@ -308,9 +342,10 @@ public class LASVM<T> implements Serializable {
             double km = v2.k;
             double gm = v2.g;
             double best = 0.0;
+            KernelCache.Row k2 = cache.row(v2.i);
             for (SupportVector<T> v : vectors) {
                 double Z = gm - v.g;
-                double k = k(v2.i, v.i);
+                double k = k(k2, v2.i, v.i);
                 double curv = km + v.k - 2.0 * k;
                 if (curv <= 0.0) curv = TAU;
 
@@ -338,8 +373,10 @@ public class LASVM<T> implements Serializable {
         double step = getStep(v1, v2, k12);
         v1.alpha -= step;
         v2.alpha += step;
+        KernelCache.Row k1 = cache.row(v1.i);
+        KernelCache.Row k2 = cache.row(v2.i);
         for (SupportVector<T> v : vectors) {
-            v.g -= step * (k(v2.i, v.i) - k(v1.i, v.i));
+            v.g -= step * (k(k2, v2.i, v.i) - k(k1, v1.i, v.i));
         }
 
         // optimality test
@@ -402,19 +439,18 @@ public class LASVM<T> implements Serializable {
             if (v.x == x) return false;
         }
 
-        double[] cache = new double[K.length];
-        Arrays.fill(cache, Double.NaN);
-
         // Compute gradient
+        double[] kx = new double[vectors.size()];
         double g = y;
-        for (SupportVector<T> v : vectors) {
+        for (int j = 0; j < kx.length; j++) {
+            SupportVector<T> v = vectors.get(j);
             // Parallel stream may cause unreproducible results due to
             // different numeric round-off because of different data
             // partitions (i.e. different number of cores/threads).
             // The speedup of parallel stream is also limited as
             // the number of support vectors is often small.
             double k = kernel.k(v.x, x);
-            cache[v.i] = k;
+            kx[j] = k;
             g -= v.alpha * k;
         }
 
@@ -428,8 +464,11 @@ public class LASVM<T> implements Serializable {
 
         // Insert
         SupportVector<T> v = new SupportVector<>(i, x, y, 0.0, g, Cp, Cn, kernel.k(x, x));
+        KernelCache.Row ki = cache.row(i);
+        for (int j = 0; j < kx.length; j++) {
+            ki.set(vectors.get(j).i, kx[j]);
+        }
         vectors.add(v);
-        K[i] = cache;
 
         // Process
         if (y > 0) {
@@ -467,7 +506,7 @@ public class LASVM<T> implements Serializable {
         }
 
         logger.info("{} samples, {} support vectors, {} bounded", x.length, vectors.size(), bsv);
-
+        logger.info("{}", cache);
     }
 
     /**
@@ -500,7 +539,7 @@ public class LASVM<T> implements Serializable {
         vectors.removeIf(v -> {
             if (MathEx.isZero(v.alpha, 1E-4)) {
                 if ((v.g >= gmax && 0 >= v.cmax) || (v.g <= gmin && 0 <= v.cmin)) {
-                    K[v.i] = null;
+                    cache.remove(v.i);
                     return true;
                 }
             }
@@ -71,9 +71,21 @@ public class OCSVM<T> {
      */
     private double[] O;
     /**
-     * The kernel matrix.
+     * The memory budget of kernel cache in bytes.
      */
-    private double[][] K;
+    private final long cacheSize;
+    /**
+     * The flag if the kernel cache stores values in single precision.
+     */
+    private final boolean singlePrecision;
+    /**
+     * The cache of kernel matrix rows.
+     */
+    private KernelCache cache;
+    /**
+     * The diagonal of kernel matrix.
+     */
+    private double[] diag;
     /**
      * Most violating pair.
      * argmin gi of m_i < alpha_i
@@ -95,6 +107,21 @@ public class OCSVM<T> {
      * @param tol the tolerance of convergence test.
      */
     public OCSVM(MercerKernel<T> kernel, double nu, double tol) {
+        this(kernel, nu, tol, KernelCache.DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * Constructor.
+     * @param kernel the kernel function.
+     * @param nu the parameter sets an upper bound on the fraction of outliers
+     *           (training examples regarded out-of-class) and it is a lower
+     *           bound on the number of training examples used as Support Vector.
+     * @param tol the tolerance of convergence test.
+     * @param cacheSize the memory budget of kernel cache in bytes.
+     * @param singlePrecision if true, the kernel cache stores values
+     *                        in single precision.
+     */
+    public OCSVM(MercerKernel<T> kernel, double nu, double tol, long cacheSize, boolean singlePrecision) {
         if (nu <= 0 || nu > 1) {
             throw new IllegalArgumentException("Invalid nu: " + nu);
         }
@@ -103,9 +130,24 @@ public class OCSVM<T> {
             throw new IllegalArgumentException("Invalid tolerance of convergence test:" + tol);
         }
 
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Invalid cache size: " + cacheSize);
+        }
+
         this.kernel = kernel;
         this.nu = nu;
         this.tol = tol;
+        this.cacheSize = cacheSize;
+        this.singlePrecision = singlePrecision;
+    }
+
+    /**
+     * Returns the kernel cache of last training, which reports
+     * the hit/miss statistics.
+     * @return the kernel cache, or null if not trained yet.
+     */
+    public KernelCache cache() {
+        return cache;
     }
 
     /**
@@ -120,14 +162,9 @@ public class OCSVM<T> {
 
         this.x = x;
         int n = x.length;
-        K = new double[n][n];
-        IntStream.range(0, n).parallel().forEach(i -> {
-            T xi = x[i];
-            double[] Ki = K[i];
-            for (int j = 0; j < n; j++) {
-                Ki[j] = kernel.k(xi, x[j]);
-            }
-        });
+        cache = new KernelCache(n, cacheSize, singlePrecision);
+        diag = new double[n];
+        IntStream.range(0, n).parallel().forEach(i -> diag[i] = kernel.k(x[i], x[i]));
 
         // Initialize support vectors.
         // Math.max(1,...) guards against vl=0 (when nu*n < 0.5) which would set C=Infinity.
@@ -140,14 +177,21 @@ public class OCSVM<T> {
             alpha[index[i]] = C;
         }
 
+        // Only the initial support vectors contribute to O,
+        // which doesn't need the kernel matrix rows of all samples.
+        int[] sv = IntStream.range(0, n).filter(i -> alpha[i] > 0).toArray();
         O = new double[n];
-        rho = Double.NEGATIVE_INFINITY;
-        for (int i = 0; i < n; i++) {
-            double[] Ki = K[i];
-            for (int j = 0; j < n; j++) {
-                O[i] += Ki[j] * alpha[j];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            T xi = x[i];
+            double oi = 0.0;
+            for (int j : sv) {
+                oi += kernel.k(xi, x[j]) * alpha[j];
             }
+            O[i] = oi;
+        });
 
+        rho = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
             if (alpha[i] > 0 && rho < O[i]) {
                 rho = O[i];
             }
@@ -189,6 +233,7 @@ public class OCSVM<T> {
         }
 
         logger.info("{} samples, {} support vectors, {} bounded", n, nsv, bsv);
+        logger.info("{}", cache);
 
         return new KernelMachine<>(kernel, vectors, weight, b);
     }
@@ -217,6 +262,16 @@ public class OCSVM<T> {
         }
     }
 
+    /**
+     * Returns the row of kernel matrix, which is computed if not cached.
+     * @param i the row index.
+     * @return the row of kernel matrix.
+     */
+    private KernelCache.Row row(int i) {
+        T xi = x[i];
+        return cache.row(i, j -> kernel.k(xi, x[j]));
+    }
+
     /**
      * Sequential minimal optimization.
      */
@@ -229,12 +284,12 @@ public class OCSVM<T> {
         if (v2 < 0) {
             // determine imax
             double O1 = O[v1];
-            double[] K1 = K[v1];
-            double k11 = K1[v1];
+            KernelCache.Row K1 = row(v1);
+            double k11 = diag[v1];
             double best = 0.0;
             for (int i = 0; i < n; i++) {
                 double Z = O[i] - O1;
-                double curv = k11 + K[i][i] - 2 * K1[i];
+                double curv = k11 + diag[i] - 2 * K1.get(i);
                 if (curv <= 0.0) curv = TAU;
 
                 double mu = Z / curv;
@@ -251,12 +306,12 @@ public class OCSVM<T> {
         if (v1 < 0) {
             // determine imin
             double O2 = O[v2];
-            double[] K2 = K[v2];
-            double k22 = K2[v2];
+            KernelCache.Row K2 = row(v2);
+            double k22 = diag[v2];
             double best = 0.0;
             for (int i = 0; i < n; i++) {
                 double Z = O2 - O[i];
-                double curv = k22 + K[i][i] - 2.0 * K2[i];
+                double curv = k22 + diag[i] - 2.0 * K2.get(i);
                 if (curv <= 0.0) curv = TAU;
 
                 double mu = Z / curv;
@@ -274,11 +329,11 @@ public class OCSVM<T> {
 
         double old_alpha1 = alpha[v1];
         double old_alpha2 = alpha[v2];
-        double[] k1 = K[v1];
-        double[] k2 = K[v2];
+        KernelCache.Row k1 = row(v1);
+        KernelCache.Row k2 = row(v2);
 
         // Determine curvature
-        double curv = K[v1][v1] + K[v2][v2] - 2 * K[v1][v2];
+        double curv = diag[v1] + diag[v2] - 2 * k1.get(v2);
         if (curv <= 0.0) curv = TAU;
         double delta = (O[v1] - O[v2]) / curv;
         double sum = alpha[v1] + alpha[v2];
@@ -312,7 +367,7 @@ public class OCSVM<T> {
         double delta_alpha1 = alpha[v1] - old_alpha1;
         double delta_alpha2 = alpha[v2] - old_alpha2;
         for (int i = 0; i < n; i++) {
-            O[i] += k1[i] * delta_alpha1 + k2[i] * delta_alpha2;
+            O[i] += k1.get(i) * delta_alpha1 + k2.get(i) * delta_alpha2;
         }
 
         rho = (omax + omin) / 2;
@@ -92,9 +92,17 @@ public class SVR<T> {
     private int gmaxindex;
 
     /**
-     * The kernel matrix.
+     * The memory budget of kernel cache in bytes.
      */
-    private double[][] K;
+    private final long cacheSize;
+    /**
+     * The flag if the kernel cache stores values in single precision.
+     */
+    private final boolean singlePrecision;
+    /**
+     * The cache of kernel matrix rows.
+     */
+    private KernelCache cache;
 
     /**
      * Support vector.
@@ -144,6 +152,20 @@ public class SVR<T> {
      * @param tol the tolerance of convergence test.
      */
     public SVR(MercerKernel<T> kernel, double eps, double C, double tol) {
+        this(kernel, eps, C, tol, KernelCache.DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * Constructor.
+     * @param kernel the kernel function.
+     * @param eps the loss function error threshold.
+     * @param C the soft margin penalty parameter.
+     * @param tol the tolerance of convergence test.
+     * @param cacheSize the memory budget of kernel cache in bytes.
+     * @param singlePrecision if true, the kernel cache stores values
+     *                        in single precision.
+     */
+    public SVR(MercerKernel<T> kernel, double eps, double C, double tol, long cacheSize, boolean singlePrecision) {
         if (eps <= 0) {
             throw new IllegalArgumentException("Invalid error threshold: " + eps);
         }
@@ -156,10 +178,25 @@ public class SVR<T> {
             throw new IllegalArgumentException("Invalid tolerance of convergence test:" + tol);
         }
 
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Invalid cache size: " + cacheSize);
+        }
+
         this.kernel = kernel;
         this.eps = eps;
         this.C = C;
         this.tol = tol;
+        this.cacheSize = cacheSize;
+        this.singlePrecision = singlePrecision;
+    }
+
+    /**
+     * Returns the kernel cache of last training, which reports
+     * the hit/miss statistics.
+     * @return the kernel cache, or null if not trained yet.
+     */
+    public KernelCache cache() {
+        return cache;
     }
 
     /**
@@ -178,7 +215,7 @@ public class SVR<T> {
         }
 
         int n = x.length;
-        K = new double[n][];
+        cache = new KernelCache(n, cacheSize, singlePrecision);
 
         // Initialize support vectors.
         vectors = new ArrayList<>(n);
@@ -221,6 +258,7 @@ public class SVR<T> {
         }
 
         logger.info("{} samples, {} support vectors, {} bounded", n, nsv, bsv);
+        logger.info("{}", cache);
 
         return new KernelMachine<>(kernel, sv, alpha, b);
     }
@@ -265,13 +303,8 @@ public class SVR<T> {
      * Computes the row of kernel matrix for a vector i.
      * @param v data vector to evaluate kernel matrix.
      */
-    private double[] gram(SupportVector v) {
-        if (K[v.i] == null) {
-            double[] ki = new double[vectors.size()];
-            vectors.stream().parallel().forEach(vi -> ki[vi.i] = kernel.k(v.x, vi.x));
-            K[v.i] = ki;
-        }
-        return K[v.i];
+    private KernelCache.Row gram(SupportVector v) {
+        return cache.row(v.i, j -> kernel.k(v.x, vectors.get(j).x));
     }
 
     /**
@@ -282,7 +315,7 @@ public class SVR<T> {
         int i = gmaxindex;
         double old_alpha_i = v1.alpha[i];
 
-        double[] k1 = gram(v1);
+        KernelCache.Row k1 = gram(v1);
 
         SupportVector v2 = svmin;
         int j = gminindex;
@@ -292,7 +325,7 @@ public class SVR<T> {
         double best = 0.0;
         double gi = i == 0 ? -v1.g[0] : v1.g[1];
         for (SupportVector v : vectors) {
-            double curv = v1.k + v.k - 2 * k1[v.i];
+            double curv = v1.k + v.k - 2 * k1.get(v.i);
             if (curv <= 0.0) curv = TAU;
 
             double gj = -v.g[0];
@@ -318,10 +351,10 @@ public class SVR<T> {
             }
         }
 
-        double[] k2 = gram(v2);
+        KernelCache.Row k2 = gram(v2);
 
         // Determine curvature
-        double curv = v1.k + v2.k - 2 * k1[v2.i];
+        double curv = v1.k + v2.k - 2 * k1.get(v2.i);
         if (curv <= 0.0) curv = TAU;
 
         if (i != j) {
@@ -395,8 +428,10 @@ public class SVR<T> {
         int si = 2 * i - 1;
         int sj = 2 * j - 1;
         for (SupportVector v : vectors) {
-            v.g[0] -= si * k1[v.i] * delta_alpha_i + sj * k2[v.i] * delta_alpha_j;
-            v.g[1] += si * k1[v.i] * delta_alpha_i + sj * k2[v.i] * delta_alpha_j;
+            double k1i = k1.get(v.i);
+            double k2i = k2.get(v.i);
+            v.g[0] -= si * k1i * delta_alpha_i + sj * k2i * delta_alpha_j;
+            v.g[1] += si * k1i * delta_alpha_i + sj * k2i * delta_alpha_j;
         }
 
         // optimality test
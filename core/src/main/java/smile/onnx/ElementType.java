@@ -122,5 +122,21 @@ public enum ElementType {
             default          -> null;
         };
     }
+
+    /**
+     * Returns the number of bytes of an element, or {@code -1} for
+     * types without a fixed byte size such as strings and 4-bit integers.
+     * @return the number of bytes of an element, or -1.
+     */
+    public int byteSize() {
+        return switch (this) {
+            case UINT8, INT8, BOOL, FLOAT8E4M3FN, FLOAT8E4M3FNUZ, FLOAT8E5M2, FLOAT8E5M2FNUZ -> 1;
+            case UINT16, INT16, FLOAT16, BFLOAT16 -> 2;
+            case FLOAT, INT32, UINT32 -> 4;
+            case DOUBLE, INT64, UINT64, COMPLEX64 -> 8;
+            case COMPLEX128 -> 16;
+            default -> -1;
+        };
+    }
 }
 
@@ -62,6 +62,12 @@ import smile.util.OS;
  * <p>A single {@code InferenceSession} may be used concurrently from multiple
  * threads. Each call to {@link #run} is independent.
  *
+ * <h2>I/O binding</h2>
+ * <p>For serving, {@link #run(IoBinding, RunOptions)} runs the session on
+ * the inputs and outputs bound ahead by an {@link IoBinding}, which may be
+ * preallocated buffers reused across runs. Concurrent runs should use
+ * their own bindings and run options.
+ *
  * @author Haifeng Li
  */
 public class InferenceSession implements AutoCloseable {
@@ -255,6 +261,32 @@ public class InferenceSession implements AutoCloseable {
         }
     }
 
+    /**
+     * Creates an I/O binding of this session. The binding must be closed
+     * before the session.
+     *
+     * @return the I/O binding.
+     */
+    public IoBinding createIoBinding() {
+        return new IoBinding(api, session);
+    }
+
+    /**
+     * Runs inference on the bound inputs and outputs. The results are
+     * written into the preallocated output values, or may be retrieved
+     * by {@link IoBinding#outputs()}.
+     *
+     * @param binding    the I/O binding of this session.
+     * @param runOptions per-run options, or {@code null} for defaults.
+     */
+    public void run(IoBinding binding, RunOptions runOptions) {
+        MemorySegment runOptHandle = (runOptions != null)
+                ? runOptions.handle : MemorySegment.NULL;
+        MemorySegment st = OrtApi.RunWithBinding.invoke(
+                OrtApi.RunWithBinding(api), session, runOptHandle, binding.handle);
+        OrtRuntime.checkStatus(api, st);
+    }
+
     // ------------------------------------------------------------------
     // Model introspection
     // ------------------------------------------------------------------
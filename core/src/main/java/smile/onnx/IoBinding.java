@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.onnx;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import smile.onnx.foreign.OrtApi;
+import smile.onnx.foreign.onnxruntime_c_api_h;
+
+/**
+ * Binds the inputs and outputs of a session to {@link OrtValue}s ahead
+ * of {@link InferenceSession#run(IoBinding, RunOptions)}. Unlike
+ * {@link InferenceSession#run(java.util.Map)}, which creates the output
+ * tensors in every call, the bound tensors are reused across runs.
+ * Together with {@link OrtValue#fromMemorySegment}, the inputs and
+ * outputs may live in preallocated buffers so that a run allocates
+ * nothing on the Java side.
+ *
+ * <p>An output may also be bound to a device, in which case ORT allocates
+ * the output tensor in every run, which is needed when the output shape
+ * is not known in advance. Such outputs are retrieved by {@link #outputs()}.
+ *
+ * <pre>{@code
+ * try (var binding = session.createIoBinding();
+ *      var runOptions = new RunOptions()) {
+ *     binding.bindInput("input", input).bindOutput("output", output);
+ *     session.run(binding, runOptions);
+ *     // The result is in the memory of output.
+ * }
+ * }</pre>
+ *
+ * <p>A binding is not thread safe. Concurrent runs on a shared session
+ * should use their own bindings and run options.
+ *
+ * @author Haifeng Li
+ */
+public class IoBinding implements AutoCloseable {
+    /** The ORT API pointer. */
+    private final MemorySegment api;
+    /** The native OrtIoBinding pointer. */
+    final MemorySegment handle;
+    /** The CPU memory info to bind outputs to. */
+    private final MemorySegment cpuMemoryInfo;
+
+    /**
+     * Constructor.
+     * @param api the ORT API pointer.
+     * @param session the native OrtSession pointer.
+     */
+    IoBinding(MemorySegment api, MemorySegment session) {
+        this.api = api;
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment pBinding = arena.allocate(onnxruntime_c_api_h.C_POINTER);
+            MemorySegment st = OrtApi.CreateIoBinding.invoke(
+                    OrtApi.CreateIoBinding(api), session, pBinding);
+            OrtRuntime.checkStatus(api, st);
+            this.handle = pBinding.get(onnxruntime_c_api_h.C_POINTER, 0);
+
+            MemorySegment pMemInfo = arena.allocate(onnxruntime_c_api_h.C_POINTER);
+            st = OrtApi.CreateCpuMemoryInfo.invoke(
+                    OrtApi.CreateCpuMemoryInfo(api),
+                    /*OrtArenaAllocator=*/1, /*OrtMemTypeDefault=*/0, pMemInfo);
+            if (st != null && !st.equals(MemorySegment.NULL)) {
+                OrtApi.ReleaseIoBinding.invoke(OrtApi.ReleaseIoBinding(api), handle);
+                OrtRuntime.checkStatus(api, st);
+            }
+            this.cpuMemoryInfo = pMemInfo.get(onnxruntime_c_api_h.C_POINTER, 0);
+        }
+    }
+
+    /**
+     * Binds an input to a value. The value must stay open while it is bound.
+     * Binding the same name again replaces the previous value.
+     *
+     * @param name  the input name.
+     * @param value the input value.
+     * @return this object for chaining.
+     */
+    public IoBinding bindInput(String name, OrtValue value) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment st = OrtApi.BindInput.invoke(
+                    OrtApi.BindInput(api), handle, arena.allocateFrom(name), value.handle);
+            OrtRuntime.checkStatus(api, st);
+        }
+        return this;
+    }
+
+    /**
+     * Binds an output to a preallocated value, into which the runs write
+     * the output. The value must stay open while it is bound and its shape
+     * must match the output shape of runs.
+     *
+     * @param name  the output name.
+     * @param value the output value.
+     * @return this object for chaining.
+     */
+    public IoBinding bindOutput(String name, OrtValue value) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment st = OrtApi.BindOutput.invoke(
+                    OrtApi.BindOutput(api), handle, arena.allocateFrom(name), value.handle);
+            OrtRuntime.checkStatus(api, st);
+        }
+        return this;
+    }
+
+    /**
+     * Binds an output to the CPU. ORT allocates the output tensor in each
+     * run, which is retrieved by {@link #outputs()}. This is for outputs
+     * whose shape is not known before the run.
+     *
+     * @param name the output name.
+     * @return this object for chaining.
+     */
+    public IoBinding bindOutput(String name) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment st = OrtApi.BindOutputToDevice.invoke(
+                    OrtApi.BindOutputToDevice(api), handle, arena.allocateFrom(name), cpuMemoryInfo);
+            OrtRuntime.checkStatus(api, st);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the values of bound outputs of last run in the order of
+     * binding. The caller must close the returned values, which share
+     * the memory with the bound values if preallocated.
+     *
+     * @return the output values.
+     */
+    public OrtValue[] outputs() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment pAlloc = arena.allocate(onnxruntime_c_api_h.C_POINTER);
+            MemorySegment st = OrtApi.GetAllocatorWithDefaultOptions.invoke(
+                    OrtApi.GetAllocatorWithDefaultOptions(api), pAlloc);
+            OrtRuntime.checkStatus(api, st);
+            MemorySegment allocator = pAlloc.get(onnxruntime_c_api_h.C_POINTER, 0);
+
+            MemorySegment pValues = arena.allocate(onnxruntime_c_api_h.C_POINTER);
+            MemorySegment pCount = arena.allocate(ValueLayout.JAVA_LONG);
+            st = OrtApi.GetBoundOutputValues.invoke(
+                    OrtApi.GetBoundOutputValues(api), handle, allocator, pValues, pCount);
+            OrtRuntime.checkStatus(api, st);
+
+            int count = (int) pCount.get(ValueLayout.JAVA_LONG, 0);
+            OrtValue[] outputs = new OrtValue[count];
+            if (count > 0) {
+                MemorySegment values = pValues.get(onnxruntime_c_api_h.C_POINTER, 0)
+                        .reinterpret(count * onnxruntime_c_api_h.C_POINTER.byteSize());
+                for (int i = 0; i < count; i++) {
+                    outputs[i] = new OrtValue(values.getAtIndex(onnxruntime_c_api_h.C_POINTER, i), true);
+                }
+                OrtApi.AllocatorFree.invoke(OrtApi.AllocatorFree(api), allocator, values);
+            }
+            return outputs;
+        }
+    }
+
+    /**
+     * Removes all input bindings.
+     */
+    public void clearInputs() {
+        OrtApi.ClearBoundInputs.invoke(OrtApi.ClearBoundInputs(api), handle);
+    }
+
+    /**
+     * Removes all output bindings.
+     */
+    public void clearOutputs() {
+        OrtApi.ClearBoundOutputs.invoke(OrtApi.ClearBoundOutputs(api), handle);
+    }
+
+    @Override
+    public void close() {
+        OrtApi.ReleaseIoBinding.invoke(OrtApi.ReleaseIoBinding(api), handle);
+        OrtApi.ReleaseMemoryInfo.invoke(OrtApi.ReleaseMemoryInfo(api), cpuMemoryInfo);
+    }
+}
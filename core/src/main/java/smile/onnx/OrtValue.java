@@ -20,6 +20,7 @@ import java.lang.foreign.Arena;
 import java.lang.foreign.MemoryLayout;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
 import smile.onnx.foreign.OrtApi;
 import smile.onnx.foreign.onnxruntime_c_api_h;
 import smile.tensor.DenseMatrix;
@@ -336,6 +337,50 @@ public class OrtValue implements AutoCloseable {
         }
     }
 
+    /**
+     * Creates an OrtValue tensor over the given native memory without
+     * copying. This is the building block of preallocated input/output
+     * buffers, which are reused across inference calls to avoid the
+     * allocation per request. The memory is not owned by the OrtValue
+     * and must stay alive until the OrtValue is closed.
+     *
+     * @param data        the native memory of tensor data in the native
+     *                    byte order. It may be larger than the tensor.
+     * @param shape       the tensor dimensions.
+     * @param elementType the element type.
+     * @return a new OrtValue that borrows the memory.
+     * @throws IllegalArgumentException if the memory is not native, the
+     *         element type has no fixed size, or the memory is too small.
+     */
+    public static OrtValue fromMemorySegment(MemorySegment data, long[] shape, ElementType elementType) {
+        if (!data.isNative()) {
+            throw new IllegalArgumentException("Tensor data must be in native memory");
+        }
+
+        int elementSize = elementType.byteSize();
+        if (elementSize <= 0) {
+            throw new IllegalArgumentException("Unsupported element type: " + elementType);
+        }
+
+        long count = 1;
+        for (long dim : shape) {
+            if (dim < 0) {
+                throw new IllegalArgumentException("Invalid tensor shape: " + Arrays.toString(shape));
+            }
+            count *= dim;
+        }
+
+        long byteSize = count * elementSize;
+        if (byteSize > data.byteSize()) {
+            throw new IllegalArgumentException(String.format("Tensor of %d bytes doesn't fit in %d bytes", byteSize, data.byteSize()));
+        }
+
+        // The temporary arena holds only the arguments, which ORT copies.
+        try (Arena arena = Arena.ofConfined()) {
+            return new OrtValue(createTensor(arena, data, byteSize, shape, elementType), true);
+        }
+    }
+
     /**
      * Maps a SMILE {@link ScalarType} to an ONNX {@link ElementType}.
      *
@@ -360,6 +405,12 @@ public class OrtValue implements AutoCloseable {
     /** Internal factory that calls CreateTensorWithDataAsOrtValue. */
     private static OrtValue createWithData(Arena arena, MemorySegment data, long dataBytes,
                                            long[] shape, ElementType elementType) {
+        return new OrtValue(createTensor(arena, data, dataBytes, shape, elementType), arena);
+    }
+
+    /** Calls CreateTensorWithDataAsOrtValue and returns the OrtValue handle. */
+    private static MemorySegment createTensor(Arena arena, MemorySegment data, long dataBytes,
+                                              long[] shape, ElementType elementType) {
         MemorySegment api = OrtRuntime.api();
 
         // Build CPU memory info
@@ -388,8 +439,7 @@ public class OrtValue implements AutoCloseable {
 
         OrtApi.ReleaseMemoryInfo.invoke(OrtApi.ReleaseMemoryInfo(api), memInfo);
 
-        MemorySegment handle = pValue.get(onnxruntime_c_api_h.C_POINTER, 0);
-        return new OrtValue(handle, arena);
+        return pValue.get(onnxruntime_c_api_h.C_POINTER, 0);
     }
 
     // -----------------------------------------------------------------------
@@ -586,6 +636,22 @@ public class OrtValue implements AutoCloseable {
         }
     }
 
+    /**
+     * Returns the native memory of tensor data without copying. The memory
+     * is valid until this OrtValue is closed. The tensor must have an
+     * element type of fixed size.
+     *
+     * @return the native memory of tensor data.
+     */
+    public MemorySegment data() {
+        TensorInfo info = tensorInfo();
+        int elementSize = info.elementType().byteSize();
+        if (elementSize <= 0) {
+            throw new UnsupportedOperationException("Unsupported element type: " + info.elementType());
+        }
+        return getMutableDataPointer().reinterpret(info.elementCount() * elementSize);
+    }
+
     /** Returns a pointer to the raw tensor data buffer via GetTensorMutableData. */
     private MemorySegment getMutableDataPointer() {
         try (Arena a = Arena.ofConfined()) {
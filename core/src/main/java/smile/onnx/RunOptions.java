@@ -39,7 +39,10 @@ import smile.onnx.foreign.onnxruntime_c_api_h;
 public class RunOptions implements AutoCloseable {
     /** The ORT API pointer. */
     private final MemorySegment api;
-    /** Arena for temporary string allocations. */
+    /**
+     * Arena for temporary string allocations. It is shared so that the
+     * options may be closed by a thread other than the creator.
+     */
     private final Arena arena;
     /** Native OrtRunOptions pointer. */
     final MemorySegment handle;
@@ -49,7 +52,7 @@ public class RunOptions implements AutoCloseable {
      */
     public RunOptions() {
         this.api = OrtRuntime.api();
-        this.arena = Arena.ofConfined();
+        this.arena = Arena.ofShared();
         MemorySegment pOpts = arena.allocate(onnxruntime_c_api_h.C_POINTER);
         MemorySegment st = OrtApi.CreateRunOptions.invoke(OrtApi.CreateRunOptions(api), pOpts);
         OrtRuntime.checkStatus(api, st);
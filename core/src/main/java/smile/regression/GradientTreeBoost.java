@@ -137,6 +137,10 @@ public class GradientTreeBoost implements DataFrameRegression, TreeSHAP {
      * The shrinkage parameter in (0, 1] controls the learning rate of procedure.
      */
     private final double shrinkage;
+    /**
+     * The compiled trees for batch inference.
+     */
+    private transient volatile FlatForest compiled;
 
     /**
      * Constructor. Fits a gradient tree boosting for regression.
@@ -178,9 +182,12 @@ public class GradientTreeBoost implements DataFrameRegression, TreeSHAP {
      * @param subsample the sampling fraction for stochastic tree boosting.
      * @param test the optional test data for validation per epoch.
      * @param controller the optional training controller.
+     * @param bins the maximum number of bins per numeric column for
+     *             histogram-based split finding. If 0, the exact split
+     *             finding on sorted values is employed.
      */
     public record Options(Loss loss, int ntrees, int maxDepth, int maxNodes, int nodeSize, double shrinkage, double subsample,
-                          DataFrame test, IterativeAlgorithmController<TrainingStatus> controller) {
+                          DataFrame test, IterativeAlgorithmController<TrainingStatus> controller, int bins) {
         /** Constructor. */
         public Options {
             if (ntrees < 1) {
@@ -199,6 +206,10 @@ public class GradientTreeBoost implements DataFrameRegression, TreeSHAP {
                 throw new IllegalArgumentException("Invalid node size: " + nodeSize);
             }
 
+            if (bins != 0 && (bins < 2 || bins > 65536)) {
+                throw new IllegalArgumentException("Invalid number of bins: " + bins);
+            }
+
             if (shrinkage <= 0 || shrinkage > 1) {
                 throw new IllegalArgumentException("Invalid shrinkage: " + shrinkage);
             }
@@ -225,6 +236,23 @@ public class GradientTreeBoost implements DataFrameRegression, TreeSHAP {
             this(loss, ntrees, 20, 6, 5, 0.05, 0.7, null, null);
         }
 
+        /**
+         * Constructor with exact split finding.
+         * @param loss loss function for regression.
+         * @param ntrees the number of iterations (trees).
+         * @param maxDepth the maximum depth of the tree.
+         * @param maxNodes the maximum number of leaf nodes in the tree.
+         * @param nodeSize the minimum size of leaf nodes.
+         * @param shrinkage the shrinkage parameter in (0, 1] controls the learning rate of procedure.
+         * @param subsample the sampling fraction for stochastic tree boosting.
+         * @param test the optional test data for validation per epoch.
+         * @param controller the optional training controller.
+         */
+        public Options(Loss loss, int ntrees, int maxDepth, int maxNodes, int nodeSize, double shrinkage, double subsample,
+                       DataFrame test, IterativeAlgorithmController<TrainingStatus> controller) {
+            this(loss, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, test, controller, 0);
+        }
+
         /**
          * Returns the persistent set of hyperparameters.
          * @return the persistent set.
@@ -236,6 +264,7 @@ public class GradientTreeBoost implements DataFrameRegression, TreeSHAP {
             props.setProperty("smile.gradient_boost.max_depth", Integer.toString(maxDepth));
             props.setProperty("smile.gradient_boost.max_nodes", Integer.toString(maxNodes));
             props.setProperty("smile.gradient_boost.node_size", Integer.toString(nodeSize));
+            props.setProperty("smile.gradient_boost.bins", Integer.toString(bins));
             props.setProperty("smile.gradient_boost.shrinkage", Double.toString(shrinkage));
             props.setProperty("smile.gradient_boost.sampling_rate", Double.toString(subsample));
             return props;
@@ -253,9 +282,10 @@ public class GradientTreeBoost implements DataFrameRegression, TreeSHAP {
             int maxDepth = Integer.parseInt(props.getProperty("smile.gradient_boost.max_depth", "20"));
             int maxNodes = Integer.parseInt(props.getProperty("smile.gradient_boost.max_nodes", "6"));
             int nodeSize = Integer.parseInt(props.getProperty("smile.gradient_boost.node_size", "5"));
+            int bins = Integer.parseInt(props.getProperty("smile.gradient_boost.bins", "0"));
             double shrinkage = Double.parseDouble(props.getProperty("smile.gradient_boost.shrinkage", "0.05"));
             double subsample = Double.parseDouble(props.getProperty("smile.gradient_boost.sampling_rate", "0.7"));
-            return new Options(loss, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, null, null);
+            return new Options(loss, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, null, null, bins);
         }
     }
 
@@ -279,6 +309,31 @@ public class GradientTreeBoost implements DataFrameRegression, TreeSHAP {
      * @return the model.
      */
     public static GradientTreeBoost fit(Formula formula, DataFrame data, Options options) {
+        return fit(formula, data, options, null, null);
+    }
+
+    /**
+     * Fits a gradient tree boosting for regression on the sorted
+     * index that is shared read-only with other models, e.g. the
+     * concurrent trials of hyperparameter search on the same data.
+     *
+     * @param formula a symbolic description of the model to be fitted.
+     * @param data the data frame of the explanatory and response variables.
+     * @param options the hyperparameters.
+     * @param order the index of training values in ascending order of the
+     *              predictors {@code formula.x(data)}, which is computed by
+     *              {@link CART#order(DataFrame)}. If null, it is computed
+     *              from the data. Ignored by the histogram-based split finding.
+     * @param rank the rank of samples in the sorted index, which is computed
+     *             by {@link CART#rank(int[][])}. If null, each tree works on
+     *             its own copy of the sorted index.
+     * @return the model.
+     */
+    public static GradientTreeBoost fit(Formula formula, DataFrame data, Options options, int[][] order, int[][] rank) {
+        if (rank != null && order == null) {
+            throw new IllegalArgumentException("The sorted index is required with the ranks");
+        }
+
         long startTime = System.nanoTime();
         formula = formula.expand(data.schema());
         DataFrame x = formula.x(data);
@@ -289,7 +344,9 @@ public class GradientTreeBoost implements DataFrameRegression, TreeSHAP {
         var shrinkage = options.shrinkage;
         final int n = x.size();
         final int N = (int) Math.round(n * options.subsample);
-        final int[][] order = CART.order(x);
+        final Bins bins = options.bins > 0 ? Bins.of(x, options.bins) : null;
+        final int[][] sorted = bins != null ? null : order != null ? order : CART.order(x);
+        final int[][] ranks = bins != null ? null : rank;
 
         int[] permutation = IntStream.range(0, n).toArray();
         int[] samples = new int[n];
@@ -316,11 +373,10 @@ public class GradientTreeBoost implements DataFrameRegression, TreeSHAP {
                 samples[permutation[i]]++;
             }
 
-            trees[t] = new RegressionTree(x, loss, field, options.maxDepth, options.maxNodes, options.nodeSize, x.ncol(), samples, order);
+            var tree = new RegressionTree(x, loss, field, options.maxDepth, options.maxNodes, options.nodeSize, x.ncol(), samples, sorted, ranks, bins);
+            trees[t] = tree;
 
-            for (int i = 0; i < n; i++) {
-                residual[i] -= shrinkage * trees[t].predict(x.get(i));
-            }
+            IntStream.range(0, n).parallel().forEach(i -> residual[i] -= shrinkage * tree.predict(x.get(i)));
             double lossValue = loss.value();
             logger.info("Tree {}: loss = {}", t+1, lossValue);
 
@@ -328,7 +384,6 @@ public class GradientTreeBoost implements DataFrameRegression, TreeSHAP {
             RegressionMetrics metrics = null;
             if (options.test != null) {
                 long testStartTime = System.nanoTime();
-                var tree = trees[t];
                 for (int i = 0; i < testy.length; i++) {
                     prediction[i] += shrinkage * tree.predict(testx.get(i));
                 }
@@ -427,6 +482,41 @@ public class GradientTreeBoost implements DataFrameRegression, TreeSHAP {
         return y;
     }
 
+    /**
+     * Compiles the trees into flat arrays for fast batch inference.
+     * The output of compiled model is the prediction of this model.
+     *
+     * @return the compiled model.
+     */
+    public FlatForest compile() {
+        if (compiled == null) {
+            int ntrees = trees.length;
+            Node[] roots = Arrays.stream(trees).map(CART::root).toArray(Node[]::new);
+            double[] weight = new double[ntrees];
+            Arrays.fill(weight, shrinkage);
+            compiled = FlatForest.of(roots, weight, new int[ntrees], new double[]{b});
+        }
+        return compiled;
+    }
+
+    @Override
+    public double[] predict(DataFrame data) {
+        double[][] y = compile().score(formula.x(data));
+        return Arrays.stream(y).mapToDouble(yi -> yi[0]).toArray();
+    }
+
+    /**
+     * Predicts a batch of samples with the compiled trees.
+     *
+     * @param x the predictors, of which the columns are in the order of
+     *          {@code schema()}.
+     * @return the predicted values.
+     */
+    public double[] predict(double[][] x) {
+        double[][] y = compile().score(x);
+        return Arrays.stream(y).mapToDouble(yi -> yi[0]).toArray();
+    }
+
     /**
      * Test the model on a validation dataset.
      *
@@ -29,8 +29,11 @@ import smile.data.type.StructType;
 import smile.data.vector.ValueVector;
 import smile.feature.importance.TreeSHAP;
 import smile.math.MathEx;
+import smile.model.cart.Bins;
 import smile.model.cart.CART;
+import smile.model.cart.FlatForest;
 import smile.model.cart.Loss;
+import smile.model.cart.Node;
 import smile.util.IterativeAlgorithmController;
 import smile.validation.RegressionMetrics;
 
@@ -117,6 +120,11 @@ public class RandomForest implements DataFrameRegression, TreeSHAP {
      */
     private final double[] importance;
 
+    /**
+     * The compiled forest for batch inference.
+     */
+    private transient volatile FlatForest compiled;
+
     /**
      * Constructor.
      * @param formula a symbolic description of the model to be fitted.
@@ -154,9 +162,12 @@ public class RandomForest implements DataFrameRegression, TreeSHAP {
      *                  replacement. {@code < 1.0} means sampling without replacement.
      * @param seeds optional RNG seeds for each regression tree.
      * @param controller the optional training controller.
+     * @param bins the maximum number of bins per numeric column for
+     *             histogram-based split finding. If 0, the exact split
+     *             finding on sorted values is employed.
      */
     public record Options(int ntrees, int mtry, int maxDepth, int maxNodes, int nodeSize, double subsample,
-                          long[] seeds, IterativeAlgorithmController<TrainingStatus> controller) {
+                          long[] seeds, IterativeAlgorithmController<TrainingStatus> controller, int bins) {
         /** Constructor. */
         public Options {
             if (ntrees < 1) {
@@ -171,6 +182,10 @@ public class RandomForest implements DataFrameRegression, TreeSHAP {
                 throw new IllegalArgumentException("Invalid node size: " + nodeSize);
             }
 
+            if (bins != 0 && (bins < 2 || bins > 65536)) {
+                throw new IllegalArgumentException("Invalid number of bins: " + bins);
+            }
+
             if (subsample <= 0 || subsample > 1) {
                 throw new IllegalArgumentException("Invalid sampling rate: " + subsample);
             }
@@ -199,6 +214,23 @@ public class RandomForest implements DataFrameRegression, TreeSHAP {
             this(ntrees, mtry, 20, 0, 5, 1.0, null, null);
         }
 
+        /**
+         * Constructor with exact split finding.
+         * @param ntrees the number of trees.
+         * @param mtry the number of input variables to be used to determine the
+         *             decision at a node of the tree.
+         * @param maxDepth the maximum depth of the tree.
+         * @param maxNodes the maximum number of leaf nodes in the tree.
+         * @param nodeSize the minimum size of leaf nodes.
+         * @param subsample the sampling rate for training tree.
+         * @param seeds optional RNG seeds for each regression tree.
+         * @param controller the optional training controller.
+         */
+        public Options(int ntrees, int mtry, int maxDepth, int maxNodes, int nodeSize, double subsample,
+                       long[] seeds, IterativeAlgorithmController<TrainingStatus> controller) {
+            this(ntrees, mtry, maxDepth, maxNodes, nodeSize, subsample, seeds, controller, 0);
+        }
+
         /**
          * Returns the persistent set of hyperparameters.
          * @return the persistent set.
@@ -210,6 +242,7 @@ public class RandomForest implements DataFrameRegression, TreeSHAP {
             props.setProperty("smile.random_forest.max_depth", Integer.toString(maxDepth));
             props.setProperty("smile.random_forest.max_nodes", Integer.toString(maxNodes));
             props.setProperty("smile.random_forest.node_size", Integer.toString(nodeSize));
+            props.setProperty("smile.random_forest.bins", Integer.toString(bins));
             props.setProperty("smile.random_forest.sampling_rate", Double.toString(subsample));
             return props;
         }
@@ -226,8 +259,9 @@ public class RandomForest implements DataFrameRegression, TreeSHAP {
             int maxDepth = Integer.parseInt(props.getProperty("smile.random_forest.max_depth", "20"));
             int maxNodes = Integer.parseInt(props.getProperty("smile.random_forest.max_nodes", "0"));
             int nodeSize = Integer.parseInt(props.getProperty("smile.random_forest.node_size", "5"));
+            int bins = Integer.parseInt(props.getProperty("smile.random_forest.bins", "0"));
             double subsample = Double.parseDouble(props.getProperty("smile.random_forest.sampling_rate", "1.0"));
-            return new Options(ntrees, mtry, maxDepth, maxNodes, nodeSize, subsample, null, null);
+            return new Options(ntrees, mtry, maxDepth, maxNodes, nodeSize, subsample, null, null, bins);
         }
     }
 
@@ -251,6 +285,31 @@ public class RandomForest implements DataFrameRegression, TreeSHAP {
      * @return the model.
      */
     public static RandomForest fit(Formula formula, DataFrame data, Options options) {
+        return fit(formula, data, options, null, null);
+    }
+
+    /**
+     * Fits a random forest for regression on the sorted index that is shared
+     * read-only with other models, e.g. the concurrent trials of
+     * hyperparameter search on the same training data.
+     *
+     * @param formula a symbolic description of the model to be fitted.
+     * @param data the data frame of the explanatory and response variables.
+     * @param options the hyperparameters.
+     * @param order the index of training values in ascending order of the
+     *              predictors {@code formula.x(data)}, which is computed by
+     *              {@link CART#order(DataFrame)}. If null, it is computed
+     *              from the data. Ignored by the histogram-based split finding.
+     * @param rank the rank of samples in the sorted index, which is computed
+     *             by {@link CART#rank(int[][])}. If null, each tree works on
+     *             its own copy of the sorted index.
+     * @return the model.
+     */
+    public static RandomForest fit(Formula formula, DataFrame data, Options options, int[][] order, int[][] rank) {
+        if (rank != null && order == null) {
+            throw new IllegalArgumentException("The sorted index is required with the ranks");
+        }
+
         formula = formula.expand(data.schema());
         DataFrame x = formula.x(data);
         ValueVector response = formula.y(data);
@@ -269,7 +328,10 @@ public class RandomForest implements DataFrameRegression, TreeSHAP {
         final int n = x.size();
         double[] prediction = new double[n];
         int[] oob = new int[n];
-        final int[][] order = CART.order(x);
+        // The quantized features or the sorted index are shared by all trees.
+        final Bins bins = options.bins > 0 ? Bins.of(x, options.bins) : null;
+        final int[][] sorted = bins != null ? null : order != null ? order : CART.order(x);
+        final int[][] ranks = bins != null ? null : rank;
 
         // train trees with parallel stream
         Model[] models = IntStream.range(0, ntrees).parallel().mapToObj(t -> {
@@ -292,7 +354,7 @@ public class RandomForest implements DataFrameRegression, TreeSHAP {
             }
 
             long start = System.nanoTime();
-            RegressionTree tree = new RegressionTree(x, Loss.ls(y), field, options.maxDepth, maxNodes, options.nodeSize, mtry, samples, order);
+            RegressionTree tree = new RegressionTree(x, Loss.ls(y), field, options.maxDepth, maxNodes, options.nodeSize, mtry, samples, sorted, ranks, bins);
             double fitTime = (System.nanoTime() - start) / 1E6;
 
             // estimate OOB metrics
@@ -431,8 +493,10 @@ public class RandomForest implements DataFrameRegression, TreeSHAP {
             throw new IllegalArgumentException("Invalid new model size: " + ntrees);
         }
 
-        Arrays.sort(models);
-        return new RandomForest(formula, Arrays.copyOf(models, ntrees), metrics, importance);
+        // Sorts a copy so that the trees of this model stay in order.
+        Model[] forest = models.clone();
+        Arrays.sort(forest);
+        return new RandomForest(formula, Arrays.copyOf(forest, ntrees), metrics, importance);
     }
 
     /**
@@ -481,6 +545,48 @@ public class RandomForest implements DataFrameRegression, TreeSHAP {
         return y / models.length;
     }
 
+    /**
+     * Compiles the forest into flat arrays for fast batch inference.
+     * The output of compiled forest is the sum of tree predictions.
+     *
+     * @return the compiled forest.
+     */
+    public FlatForest compile() {
+        if (compiled == null) {
+            int ntrees = models.length;
+            Node[] roots = Arrays.stream(models).map(model -> model.tree.root()).toArray(Node[]::new);
+            double[] weight = new double[ntrees];
+            Arrays.fill(weight, 1.0);
+            compiled = FlatForest.of(roots, weight, new int[ntrees], new double[1]);
+        }
+        return compiled;
+    }
+
+    @Override
+    public double[] predict(DataFrame data) {
+        return average(compile().score(formula.x(data)));
+    }
+
+    /**
+     * Predicts a batch of samples with the compiled forest.
+     *
+     * @param x the predictors, of which the columns are in the order of
+     *          {@code schema()}.
+     * @return the predicted values.
+     */
+    public double[] predict(double[][] x) {
+        return average(compile().score(x));
+    }
+
+    /**
+     * Returns the average of tree predictions.
+     * @param y the sum of tree predictions.
+     * @return the average of tree predictions.
+     */
+    private double[] average(double[][] y) {
+        return Arrays.stream(y).mapToDouble(yi -> yi[0] / models.length).toArray();
+    }
+
     /**
      * Test the model on a validation dataset.
      *
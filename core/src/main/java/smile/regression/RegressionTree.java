@@ -187,24 +187,34 @@ public class RegressionTree extends CART implements DataFrameRegression {
                 split = new NominalSplit(leaf, j, splitValue, splitScore, lo, hi, splitTrueCount, splitFalseCount, (int o) -> xj.getInt(o) == value);
             }
         } else {
+            // The samples of node in ascending order of column j are
+            // at [lo, hi) of the per-tree sorted index, or sorted on
+            // demand if the sorted index is shared.
             int[] orderj = order[j];
+            int base = 0;
+            if (rank != null) {
+                orderj = sort(j, lo, hi);
+                base = lo;
+            }
+
             int bins = OS.getProperty("smile.regression_tree.bins", 100);
             int step = bins > 10 ? Math.max(1, y.length / bins) : 1;
             int k = 0;
             if ( step > 1) {
+                // The sample index holds the same samples before lo.
                 for (int i = 0; i < lo; i++) {
-                    k += samples[orderj[i]];
+                    k += samples[index[i]];
                 }
             }
             int checkpoint = k / step;
 
             double splitValue = 0.0;
             double trueSum = 0.0;
-            double prevx = xj.getDouble(orderj[lo]);
+            double prevx = xj.getDouble(orderj[lo - base]);
             int tc = 0;
 
             for (int i = lo; i < hi; i++) {
-                int o = orderj[i];
+                int o = orderj[i - base];
                 double xij = xj.getDouble(o);
 
                 if (!MathEx.isZero(xij - prevx, 1E-7)) {
@@ -242,6 +252,70 @@ public class RegressionTree extends CART implements DataFrameRegression {
         return Optional.ofNullable(split);
     }
 
+    @Override
+    protected int histogramWidth() {
+        return 2;
+    }
+
+    @Override
+    protected void accumulate(double[] histogram, int offset, int sample) {
+        histogram[offset] += samples[sample];
+        histogram[offset + 1] += y[sample] * samples[sample];
+    }
+
+    @Override
+    protected Optional<Split> findBestSplit(LeafNode leaf, int j, double impurity, int lo, int hi, double[] histogram) {
+        RegressionNode node = (RegressionNode) leaf;
+        int m = bins.size(j);
+        double sum = 0;
+        for (int b = 0; b < m; b++) {
+            sum += histogram[2 * b + 1];
+        }
+        double nodeMeanSquared = node.size() * node.mean() * node.mean();
+
+        int splitBin = -1;
+        double splitScore = 0.0;
+        int splitTrueCount = 0;
+        int splitFalseCount = 0;
+
+        // The last bin is not a candidate as the false branch would be empty.
+        int tc = 0;
+        double trueSum = 0.0;
+        for (int b = 0; b < m - 1; b++) {
+            int count = (int) histogram[2 * b];
+
+            // An empty bin yields the same split as the previous one.
+            if (count == 0) continue;
+
+            tc += count;
+            trueSum += histogram[2 * b + 1];
+            int fc = node.size() - tc;
+            if (tc < nodeSize) continue;
+            if (fc < nodeSize) break;
+
+            double trueMean = trueSum / tc;
+            double falseMean = (sum - trueSum) / fc;
+            double gain = (tc * trueMean * trueMean + fc * falseMean * falseMean) - nodeMeanSquared;
+
+            // new best split
+            if (gain > splitScore) {
+                splitBin = b;
+                splitTrueCount = tc;
+                splitFalseCount = fc;
+                splitScore = gain;
+            }
+        }
+
+        if (splitScore > 0.0) {
+            final int bin = splitBin;
+            final Bins quantizer = bins;
+            Split split = new OrdinalSplit(leaf, j, bins.cut(j, bin), splitScore, lo, hi, splitTrueCount, splitFalseCount, (int o) -> quantizer.bin(j, o) <= bin);
+            return Optional.of(split);
+        }
+
+        return Optional.empty();
+    }
+
     /**
      * Constructor. Fits a regression tree for AdaBoost and Random Forest.
      * @param x the data frame of the explanatory variable.
@@ -259,7 +333,55 @@ public class RegressionTree extends CART implements DataFrameRegression {
      *              that only numeric attributes need be sorted.
      */
     public RegressionTree(DataFrame x, Loss loss, StructField response, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order) {
-        super(x, response, maxDepth, maxNodes, nodeSize, mtry, samples, order);
+        this(x, loss, response, maxDepth, maxNodes, nodeSize, mtry, samples, order, null);
+    }
+
+    /**
+     * Constructor. Fits a regression tree for AdaBoost and Random Forest.
+     * @param x the data frame of the explanatory variable.
+     * @param loss the loss function.
+     * @param response the metadata of response variable.
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the minimum size of leaf nodes.
+     * @param mtry the number of input variables to pick to split on at each
+     *             node. It seems that sqrt(p) give generally good performance,
+     *             where p is the number of variables.
+     * @param samples the sample set of instances for stochastic learning.
+     *               samples[i] is the number of sampling for instance i.
+     * @param order the index of training values in ascending order. Note
+     *              that only numeric attributes need be sorted.
+     * @param bins the quantized numeric columns for histogram-based split
+     *             finding. If null, the exact split finding is employed.
+     */
+    public RegressionTree(DataFrame x, Loss loss, StructField response, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order, Bins bins) {
+        this(x, loss, response, maxDepth, maxNodes, nodeSize, mtry, samples, order, null, bins);
+    }
+
+    /**
+     * Constructor. Fits a regression tree on the sorted index shared with
+     * other trees, e.g. the per-class trees of gradient boosting that are
+     * trained concurrently.
+     * @param x the data frame of the explanatory variable.
+     * @param loss the loss function.
+     * @param response the metadata of response variable.
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the minimum size of leaf nodes.
+     * @param mtry the number of input variables to pick to split on at each
+     *             node. It seems that sqrt(p) give generally good performance,
+     *             where p is the number of variables.
+     * @param samples the sample set of instances for stochastic learning.
+     *               samples[i] is the number of sampling for instance i.
+     * @param order the index of training values in ascending order. Note
+     *              that only numeric attributes need be sorted.
+     * @param rank the rank of samples in the sorted index. If not null,
+     *             the sorted index is shared read-only.
+     * @param bins the quantized numeric columns for histogram-based split
+     *             finding. If null, the exact split finding is employed.
+     */
+    public RegressionTree(DataFrame x, Loss loss, StructField response, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order, int[][] rank, Bins bins) {
+        super(x, response, maxDepth, maxNodes, nodeSize, mtry, samples, order, rank, bins);
         this.loss = loss;
         this.y = loss.response();
 
@@ -292,8 +414,11 @@ public class RegressionTree extends CART implements DataFrameRegression {
      * @param maxDepth the maximum depth of the tree.
      * @param maxNodes the maximum number of leaf nodes in the tree.
      * @param nodeSize the minimum size of leaf nodes.
+     * @param bins the maximum number of bins per numeric column for
+     *             histogram-based split finding. If 0, the exact split
+     *             finding on sorted values is employed.
      */
-    public record Options(int maxDepth, int maxNodes, int nodeSize) {
+    public record Options(int maxDepth, int maxNodes, int nodeSize, int bins) {
         /** Constructor. */
         public Options {
             if (maxDepth < 2) {
@@ -303,6 +428,20 @@ public class RegressionTree extends CART implements DataFrameRegression {
             if (nodeSize < 1) {
                 throw new IllegalArgumentException("Invalid node size: " + nodeSize);
             }
+
+            if (bins != 0 && (bins < 2 || bins > 65536)) {
+                throw new IllegalArgumentException("Invalid number of bins: " + bins);
+            }
+        }
+
+        /**
+         * Constructor with exact split finding.
+         * @param maxDepth the maximum depth of the tree.
+         * @param maxNodes the maximum number of leaf nodes in the tree.
+         * @param nodeSize the minimum size of leaf nodes.
+         */
+        public Options(int maxDepth, int maxNodes, int nodeSize) {
+            this(maxDepth, maxNodes, nodeSize, 0);
         }
 
         /** Constructor. */
@@ -316,6 +455,7 @@ public class RegressionTree extends CART implements DataFrameRegression {
          * <li><code>smile.cart.max_depth</code>
          * <li><code>smile.cart.max_nodes</code>
          * <li><code>smile.cart.node_size</code>
+         * <li><code>smile.cart.bins</code>
          * </ul>
          * @return the persistent set.
          */
@@ -324,6 +464,7 @@ public class RegressionTree extends CART implements DataFrameRegression {
             props.setProperty("smile.cart.max_depth", Integer.toString(maxDepth));
             props.setProperty("smile.cart.max_nodes", Integer.toString(maxNodes));
             props.setProperty("smile.cart.node_size", Integer.toString(nodeSize));
+            props.setProperty("smile.cart.bins", Integer.toString(bins));
             return props;
         }
 
@@ -337,7 +478,8 @@ public class RegressionTree extends CART implements DataFrameRegression {
             int maxDepth = Integer.parseInt(props.getProperty("smile.cart.max_depth", "20"));
             int maxNodes = Integer.parseInt(props.getProperty("smile.cart.max_nodes", "0"));
             int nodeSize = Integer.parseInt(props.getProperty("smile.cart.node_size", "5"));
-            return new Options(maxDepth, maxNodes, nodeSize);
+            int bins = Integer.parseInt(props.getProperty("smile.cart.bins", "0"));
+            return new Options(maxDepth, maxNodes, nodeSize, bins);
         }
     }
 
@@ -364,7 +506,8 @@ public class RegressionTree extends CART implements DataFrameRegression {
         ValueVector y = formula.y(data);
         int mtry = x.ncol();
         int maxNodes = options.maxNodes > 0 ?  options.maxNodes : data.size() / options.nodeSize;
-        RegressionTree tree = new RegressionTree(x, Loss.ls(y.toDoubleArray()), y.field(), options.maxDepth, maxNodes, options.nodeSize, mtry, null, null);
+        Bins bins = options.bins > 0 ? Bins.of(x, options.bins) : null;
+        RegressionTree tree = new RegressionTree(x, Loss.ls(y.toDoubleArray()), y.field(), options.maxDepth, maxNodes, options.nodeSize, mtry, null, null, bins);
         tree.formula = formula;
         return tree;
     }
@@ -20,6 +20,7 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
 import smile.math.MathEx;
 import smile.tensor.DenseMatrix;
 
@@ -42,6 +43,11 @@ import smile.tensor.DenseMatrix;
 public class HMM implements Serializable {
     @Serial
     private static final long serialVersionUID = 2L;
+    /**
+     * The number of sequences per shard in the parallel Baum-Welch
+     * and batch Viterbi algorithms.
+     */
+    private static final int SHARD_SIZE = 256;
 
     /**
      * Initial state probabilities.
@@ -168,7 +174,7 @@ public class HMM implements Serializable {
         double[][] alpha = new double[o.length][a.nrow()];
         double[] scaling = new double[o.length];
 
-        forward(o, alpha, scaling);
+        forward(tables(), o, alpha, scaling);
 
         double p = 0.0;
         for (int t = 0; t < o.length; t++) {
@@ -178,10 +184,61 @@ public class HMM implements Serializable {
         return p;
     }
 
+    /**
+     * The model parameters in primitive arrays, which are copied once
+     * per call of dynamic programming instead of accessed per cell.
+     * The transposes are laid out for the sequential access of inner loops.
+     * They are not cached across calls because the getters return the
+     * live parameters, which the caller may modify.
+     *
+     * @param pi the initial state probabilities.
+     * @param a the state transition probabilities, of which a[i][j] is P(s_j | s_i).
+     * @param at the transpose of state transition probabilities.
+     * @param bt the transpose of symbol emission probabilities, of which
+     *           bt[j][i] is P(o_j | s_i).
+     */
+    private record Tables(double[] pi, double[][] a, double[][] at, double[][] bt) {
+
+    }
+
+    /**
+     * Returns the model parameters in primitive arrays.
+     * @param log if true, returns the log of probabilities.
+     */
+    private Tables tables(boolean log) {
+        int N = a.nrow();
+        int M = b.ncol();
+        double[] p = new double[N];
+        double[][] aa = new double[N][N];
+        double[][] at = new double[N][N];
+        double[][] bt = new double[M][N];
+        for (int i = 0; i < N; i++) {
+            p[i] = log ? MathEx.log(pi[i]) : pi[i];
+            for (int j = 0; j < N; j++) {
+                double aij = a.get(i, j);
+                aa[i][j] = log ? MathEx.log(aij) : aij;
+                at[j][i] = aa[i][j];
+            }
+
+            for (int j = 0; j < M; j++) {
+                double bij = b.get(i, j);
+                bt[j][i] = log ? MathEx.log(bij) : bij;
+            }
+        }
+        return new Tables(p, aa, at, bt);
+    }
+
+    /**
+     * Returns the model parameters in primitive arrays.
+     */
+    private Tables tables() {
+        return tables(false);
+    }
+
     /**
      * Normalize alpha[t] and put the normalization factor in scaling[t].
      */
-    private void scale(double[] scaling, double[][] alpha, int t) {
+    private static void scale(double[] scaling, double[][] alpha, int t) {
         double[] table = alpha[t];
 
         double sum = 0.0;
@@ -198,27 +255,33 @@ public class HMM implements Serializable {
     /**
      * Scaled forward procedure without underflow.
      *
+     * @param model the model parameters.
      * @param o an observation sequence.
      * @param alpha on output, alpha(i, j) holds the scaled total probability of
-     * ending up in state i at time j.
+     * ending up in state i at time j. It may have more rows than the sequence.
      * @param scaling on output, it holds scaling factors.
      */
-    private void forward(int[] o, double[][] alpha, double[] scaling) {
-        int N = a.nrow();
+    private static void forward(Tables model, int[] o, double[][] alpha, double[] scaling) {
+        int N = model.pi.length;
+        double[] bo = model.bt[o[0]];
         for (int k = 0; k < N; k++) {
-            alpha[0][k] = pi[k] * b.get(k, o[0]);
+            alpha[0][k] = model.pi[k] * bo[k];
         }
         scale(scaling, alpha, 0);
 
         for (int t = 1; t < o.length; t++) {
+            double[] prev = alpha[t - 1];
+            double[] cur = alpha[t];
+            bo = model.bt[o[t]];
             for (int k = 0; k < N; k++) {
+                double[] ak = model.at[k];
                 double sum = 0.0;
 
                 for (int i = 0; i < N; i++) {
-                    sum += alpha[t - 1][i] * a.get(i, k);
+                    sum += prev[i] * ak[i];
                 }
 
-                alpha[t][k] = sum * b.get(k, o[t]);
+                cur[k] = sum * bo[k];
             }
             scale(scaling, alpha, t);
         }
@@ -227,25 +290,29 @@ public class HMM implements Serializable {
     /**
      * Scaled backward procedure without underflow.
      *
+     * @param model the model parameters.
      * @param o an observation sequence.
      * @param beta on output, beta(i, j) holds the scaled total probability of
-     * starting up in state i at time j.
+     * starting up in state i at time j. It may have more rows than the sequence.
      * @param scaling on input, it should hold scaling factors computed by
      * forward procedure.
      */
-    private void backward(int[] o, double[][] beta, double[] scaling) {
-        int N = a.nrow();
+    private static void backward(Tables model, int[] o, double[][] beta, double[] scaling) {
+        int N = model.pi.length;
         int n = o.length - 1;
         for (int i = 0; i < N; i++) {
             beta[n][i] = 1.0 / scaling[n];
         }
 
         for (int t = n; t-- > 0;) {
+            double[] next = beta[t + 1];
+            double[] bo = model.bt[o[t + 1]];
             for (int i = 0; i < N; i++) {
+                double[] ai = model.a[i];
                 double sum = 0.;
 
                 for (int j = 0; j < N; j++) {
-                    sum += beta[t + 1][j] * a.get(i, j) * b.get(j, o[t + 1]);
+                    sum += next[j] * ai[j] * bo[j];
                 }
 
                 beta[t][i] = sum / scaling[t];
@@ -266,44 +333,99 @@ public class HMM implements Serializable {
         validateObservationSequence(o);
 
         int N = a.nrow();
-        // The probability of the most probable path.
-        double[][] trellis = new double[o.length][N];
-        // Backtrace.
-        int[][] psy = new int[o.length][N];
+        return viterbi(tables(true), o, new double[N], new double[N], new int[o.length][N]);
+    }
+
+    /**
+     * Returns the most likely state sequences of a batch of observation
+     * sequences by the Viterbi algorithm. The sequences are decoded in
+     * parallel. The log probabilities are computed once for the batch
+     * and the trellis buffers are reused across the sequences of a shard.
+     *
+     * @param o the observation sequences.
+     * @return the most likely state sequences.
+     */
+    public int[][] predict(int[][] o) {
+        for (int[] sequence : o) {
+            validateObservationSequence(sequence);
+        }
+
+        int N = a.nrow();
+        Tables model = tables(true);
+        int[][] s = new int[o.length][];
+        int shards = (o.length + SHARD_SIZE - 1) / SHARD_SIZE;
+        IntStream.range(0, shards).parallel().forEach(shard -> {
+            int start = shard * SHARD_SIZE;
+            int end = Math.min(o.length, start + SHARD_SIZE);
+            int length = 0;
+            for (int k = start; k < end; k++) {
+                length = Math.max(length, o[k].length);
+            }
+
+            double[] delta = new double[N];
+            double[] next = new double[N];
+            int[][] psy = new int[length][N];
+            for (int k = start; k < end; k++) {
+                s[k] = viterbi(model, o[k], delta, next, psy);
+            }
+        });
+
+        return s;
+    }
+
+    /**
+     * The Viterbi algorithm.
+     *
+     * @param model the log of model parameters.
+     * @param o an observation sequence.
+     * @param delta the workspace of the log probabilities of most probable paths.
+     * @param next the workspace of the log probabilities of most probable paths.
+     * @param psy the workspace of backtrace, which may have more rows than the sequence.
+     * @return the most likely state sequence.
+     */
+    private static int[] viterbi(Tables model, int[] o, double[] delta, double[] next, int[][] psy) {
+        int N = model.pi.length;
         // The most likely state sequence.
         int[] s = new int[o.length];
 
         // forward
+        double[] bo = model.bt[o[0]];
         for (int i = 0; i < N; i++) {
-            trellis[0][i] = MathEx.log(pi[i]) + MathEx.log(b.get(i, o[0]));
-            psy[0][i] = 0;
+            delta[i] = model.pi[i] + bo[i];
         }
 
         for (int t = 1; t < o.length; t++) {
+            bo = model.bt[o[t]];
+            int[] psi = psy[t];
             for (int j = 0; j < N; j++) {
+                double[] aj = model.at[j];
                 double maxDelta = Double.NEGATIVE_INFINITY;
                 int maxPsy = 0;
 
                 for (int i = 0; i < N; i++) {
-                    double delta = trellis[t - 1][i] + MathEx.log(a.get(i, j));
+                    double d = delta[i] + aj[i];
 
-                    if (maxDelta < delta) {
-                        maxDelta = delta;
+                    if (maxDelta < d) {
+                        maxDelta = d;
                         maxPsy = i;
                     }
                 }
 
-                trellis[t][j] = maxDelta + MathEx.log(b.get(j, o[t]));
-                psy[t][j] = maxPsy;
+                next[j] = maxDelta + bo[j];
+                psi[j] = maxPsy;
             }
+
+            double[] swap = delta;
+            delta = next;
+            next = swap;
         }
 
         // trace back
         int n = o.length - 1;
         double maxDelta = Double.NEGATIVE_INFINITY;
         for (int i = 0; i < N; i++) {
-            if (maxDelta < trellis[n][i]) {
-                maxDelta = trellis[n][i];
+            if (maxDelta < delta[i]) {
+                maxDelta = delta[i];
                 s[n] = i;
             }
         }
@@ -484,7 +606,59 @@ public class HMM implements Serializable {
     }
 
     /**
-     * Performs one iteration of the Baum-Welch algorithm.
+     * The expected sufficient statistics of Baum-Welch algorithm
+     * accumulated over a shard of sequences.
+     */
+    private static class Statistics {
+        /** The expected number of times in state i at time 0. */
+        final double[] pi;
+        /** The expected number of transitions from state i to j. */
+        final double[][] a;
+        /** The expected number of transitions from state i. */
+        final double[] aSum;
+        /** The expected number of times in state i emitting symbol j. */
+        final double[][] b;
+        /** The expected number of times in state i. */
+        final double[] bSum;
+
+        /**
+         * Constructor.
+         * @param N the number of states.
+         * @param M the number of symbols.
+         */
+        Statistics(int N, int M) {
+            pi = new double[N];
+            a = new double[N][N];
+            aSum = new double[N];
+            b = new double[N][M];
+            bSum = new double[N];
+        }
+
+        /**
+         * Adds the statistics of another shard.
+         * @param other the statistics of another shard.
+         */
+        void add(Statistics other) {
+            for (int i = 0; i < pi.length; i++) {
+                pi[i] += other.pi[i];
+                aSum[i] += other.aSum[i];
+                bSum[i] += other.bSum[i];
+                for (int j = 0; j < a[i].length; j++) {
+                    a[i][j] += other.a[i][j];
+                }
+                for (int j = 0; j < b[i].length; j++) {
+                    b[i][j] += other.b[i][j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs one iteration of the Baum-Welch algorithm. The E-step is
+     * sharded across the sequences in parallel. Each shard accumulates
+     * the expected sufficient statistics with its own forward/backward
+     * buffers, and the shards are reduced in order so that the result
+     * doesn't depend on the number of threads.
      *
      * @param sequences the training observation sequences.
      */
@@ -492,138 +666,108 @@ public class HMM implements Serializable {
         int N = a.nrow();
         int M = b.ncol();
 
-        // gamma[n] = gamma array associated to observation sequence n
-        double[][][] gamma = new double[sequences.length][][];
-
-        // a[i][j] = aijNum[i][j] / aijDen[i]
-        // aijDen[i] = expected number of transitions from state i
-        // aijNum[i][j] = expected number of transitions from state i to j
-        double[][] aijNum = new double[N][N];
-        double[] aijDen = new double[N];
-
         for (int k = 0; k < sequences.length; k++) {
             if (sequences[k].length <= 2) {
                 throw new IllegalArgumentException(String.format("Training sequence %d is too short.", k));
             }
+        }
 
-            int[] o = sequences[k];
-            double[][] alpha = new double[o.length][N];
-            double[][] beta = new double[o.length][N];
-            double[] scaling = new double[o.length];
-            forward(o, alpha, scaling);
-            backward(o, beta, scaling);
-
-            double[][][] xi = estimateXi(o, alpha, beta);
-            double[][] g = gamma[k] = estimateGamma(xi);
-
-            int n = o.length - 1;
-            for (int i = 0; i < N; i++) {
-                for (int t = 0; t < n; t++) {
-                    aijDen[i] += g[t][i];
+        Tables model = tables();
+        int shards = (sequences.length + SHARD_SIZE - 1) / SHARD_SIZE;
+        Statistics[] partials = IntStream.range(0, shards).parallel().mapToObj(shard -> {
+            int start = shard * SHARD_SIZE;
+            int end = Math.min(sequences.length, start + SHARD_SIZE);
+            int length = 0;
+            for (int k = start; k < end; k++) {
+                length = Math.max(length, sequences[k].length);
+            }
 
-                    for (int j = 0; j < N; j++) {
-                        aijNum[i][j] += xi[t][i][j];
-                    }
-                }
+            Statistics stats = new Statistics(N, M);
+            double[][] alpha = new double[length][N];
+            double[][] beta = new double[length][N];
+            double[] scaling = new double[length];
+            double[] last = new double[N];
+            for (int k = start; k < end; k++) {
+                estep(model, sequences[k], alpha, beta, scaling, last, stats);
             }
+            return stats;
+        }).toArray(Statistics[]::new);
+
+        Statistics stats = partials[0];
+        for (int i = 1; i < shards; i++) {
+            stats.add(partials[i]);
         }
 
         for (int i = 0; i < N; i++) {
-            if (aijDen[i] != 0.0) {
+            if (stats.aSum[i] != 0.0) {
                 for (int j = 0; j < N; j++) {
-                    a.set(i, j, aijNum[i][j] / aijDen[i]);
+                    a.set(i, j, stats.a[i][j] / stats.aSum[i]);
                 }
             }
         }
 
-        /*
-         * initial state probability computation
-         */
-        Arrays.fill(pi, 0.0);
-        for (int j = 0; j < sequences.length; j++) {
-            for (int i = 0; i < N; i++) {
-                pi[i] += gamma[j][0][i];
-            }
-        }
-
         for (int i = 0; i < N; i++) {
-            pi[i] /= sequences.length;
+            pi[i] = stats.pi[i] / sequences.length;
         }
 
-        /*
-         * emission probability computation
-         */
-        b.fill(0.0);
         for (int i = 0; i < N; i++) {
-            double sum = 0.0;
-
-            for (int j = 0; j < sequences.length; j++) {
-                int[] o = sequences[j];
-                for (int t = 0; t < o.length; t++) {
-                    b.add(i, o[t], gamma[j][t][i]);
-                    sum += gamma[j][t][i];
-                }
-            }
-
             for (int j = 0; j < M; j++) {
-                b.div(i, j, sum);
+                b.set(i, j, stats.b[i][j] / stats.bSum[i]);
             }
         }
     }
 
     /**
-     * Here, the xi (and, thus, gamma) values are not divided by the probability
-     * of the sequence because this probability might be too small and induce an
-     * underflow. xi[t][i][j] still can be interpreted as P(q_t = i and q_(t+1)
-     * = j | O, HMM) because we assume that the scaling factors are such that
-     * their product is equal to the inverse of the probability of the sequence.
+     * Accumulates the expected sufficient statistics of a sequence.
+     * Here, xi[t][i][j] = P(q_t = i and q_(t+1) = j | O, HMM) and
+     * gamma[t][i] = sum_j xi[t][i][j] are accumulated on the fly without
+     * being stored. They are not divided by the probability of the sequence
+     * because this probability might be too small and induce an underflow.
+     * xi still can be interpreted as the posterior probability because
+     * we assume that the scaling factors are such that their product is
+     * equal to the inverse of the probability of the sequence.
+     *
+     * @param model the model parameters.
+     * @param o an observation sequence.
+     * @param alpha the workspace of forward procedure.
+     * @param beta the workspace of backward procedure.
+     * @param scaling the workspace of scaling factors.
+     * @param last the workspace of gamma at the last time.
+     * @param stats the statistics to accumulate.
      */
-    private double[][][] estimateXi(int[] o, double[][] alpha, double[][] beta) {
-        if (o.length <= 1) {
-            throw new IllegalArgumentException("Observation sequence is too short.");
-        }
+    private static void estep(Tables model, int[] o, double[][] alpha, double[][] beta, double[] scaling, double[] last, Statistics stats) {
+        int N = model.pi.length;
+        forward(model, o, alpha, scaling);
+        backward(model, o, beta, scaling);
 
-        int N = a.nrow();
         int n = o.length - 1;
-        double[][][] xi = new double[n][N][N];
-
+        Arrays.fill(last, 0.0);
         for (int t = 0; t < n; t++) {
+            double[] alphat = alpha[t];
+            double[] next = beta[t + 1];
+            double[] bo = model.bt[o[t + 1]];
             for (int i = 0; i < N; i++) {
+                double[] ai = model.a[i];
+                double[] xi = stats.a[i];
+                double gamma = 0.0;
                 for (int j = 0; j < N; j++) {
-                    xi[t][i][j] = alpha[t][i] * a.get(i, j) * b.get(j, o[t + 1]) * beta[t + 1][j];
+                    double x = alphat[i] * ai[j] * bo[j] * next[j];
+                    xi[j] += x;
+                    gamma += x;
+                    if (t == n - 1) last[j] += x;
                 }
-            }
-        }
 
-        return xi;
-    }
-
-    /**
-     * gamma[][] could be computed directly using the alpha and beta arrays, but
-     * this (slower) method is preferred because it doesn't change if the xi
-     * array has been scaled (and should be changed with the scaled alpha and
-     * beta arrays).
-     */
-    private double[][] estimateGamma(double[][][] xi) {
-        int N = a.nrow();
-        double[][] gamma = new double[xi.length + 1][N];
-
-        for (int t = 0; t < xi.length; t++) {
-            for (int i = 0; i < N; i++) {
-                for (int j = 0; j < N; j++) {
-                    gamma[t][i] += xi[t][i][j];
-                }
+                if (t == 0) stats.pi[i] += gamma;
+                stats.aSum[i] += gamma;
+                stats.b[i][o[t]] += gamma;
+                stats.bSum[i] += gamma;
             }
         }
 
-        int n = xi.length - 1;
         for (int j = 0; j < N; j++) {
-            for (int i = 0; i < N; i++) {
-                gamma[xi.length][j] += xi[n][i][j];
-            }
+            stats.b[j][o[n]] += last[j];
+            stats.bSum[j] += last[j];
         }
-
-        return gamma;
     }
 
     @Override
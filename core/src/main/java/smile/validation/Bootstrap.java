@@ -34,6 +34,10 @@ import smile.stat.Sampling;
  * times (say k = 100), producing k bootstrap datasets. Then we refit the model
  * to each of the bootstrap datasets and examine the behavior of the fits over
  * the k replications.
+ * <p>
+ * The methods of this interface run the rounds sequentially. To run the
+ * rounds in parallel with a time budget, pass the data splits to
+ * {@link ValidationRunner}.
  *
  * @author Haifeng Li
  */
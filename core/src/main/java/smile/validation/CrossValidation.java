@@ -42,6 +42,10 @@ import smile.util.IntSet;
  * (called the validation set or testing set). To reduce variability, multiple
  * rounds of cross-validation are performed using different partitions, and the
  * validation results are averaged over the rounds.
+ * <p>
+ * The methods of this interface run the folds sequentially. To run the
+ * folds in parallel with a time budget, pass the data splits to
+ * {@link ValidationRunner}.
  *
  * @author Haifeng Li
  */
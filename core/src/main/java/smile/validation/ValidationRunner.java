@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.validation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+import smile.classification.Classifier;
+import smile.classification.DataFrameClassifier;
+import smile.data.DataFrame;
+import smile.data.formula.Formula;
+import smile.math.MathEx;
+import smile.regression.DataFrameRegression;
+import smile.regression.Regression;
+import smile.util.Index;
+
+/**
+ * Runs the rounds of model validation, e.g. the folds of (repeated)
+ * cross validation or the rounds of bootstrap, in parallel. The rounds
+ * are independent and each one trains and validates a model on its own
+ * data split. They are submitted to a bounded thread pool so that the
+ * concurrent model fits don't oversubscribe the CPU cores.
+ * <p>
+ * The validation results of rounds are streamed to an optional listener
+ * as the rounds finish, which is called on the thread invoking the runner
+ * so that it needs no synchronization. If a time budget is given, the
+ * runner stops waiting when the budget is exceeded, cancels the pending
+ * rounds, and returns the results of finished rounds. Note that the
+ * model fitting of running rounds is interrupted, but most learning
+ * algorithms don't respond to interrupts and will run to the end in the
+ * background.
+ * <p>
+ * As the rounds run on different threads, the trainer should be thread
+ * safe. The random number generators of {@link MathEx} are thread local.
+ * For repeatable results, randomized learning algorithms should set the
+ * seed in the trainer.
+ *
+ * <pre>{@code
+ * var runner = new ValidationRunner(8, Duration.ofMinutes(30));
+ * var result = runner.classification(CrossValidation.of(x.length, 10), x, y,
+ *         (x, y) -> LDA.fit(x, y),
+ *         (round, validation) -> System.out.println(round + ": " + validation));
+ * }</pre>
+ *
+ * @author Haifeng Li
+ */
+public class ValidationRunner {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ValidationRunner.class);
+
+    /** The executor to run the rounds. If null, a pool is created per run. */
+    private final ExecutorService executor;
+    /** The number of concurrent rounds if the runner creates the pool. */
+    private final int parallelism;
+    /** The time budget. If null, there is no time limit. */
+    private final Duration timeout;
+
+    /**
+     * Constructor with a pool of as many threads as the available
+     * processors and no time limit.
+     */
+    public ValidationRunner() {
+        this(Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * Constructor. A pool of given number of threads is created for each
+     * run and shut down at the end of run.
+     * @param parallelism the maximum number of concurrent rounds.
+     * @param timeout the time budget of a run. If null, there is no time limit.
+     */
+    public ValidationRunner(int parallelism, Duration timeout) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+
+        if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+            throw new IllegalArgumentException("Invalid timeout: " + timeout);
+        }
+
+        this.executor = null;
+        this.parallelism = parallelism;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Constructor with a custom executor, which is not shut down by
+     * the runner. The executor decides the parallelism, e.g. a fixed
+     * thread pool shared by multiple runners to bound the total CPU usage.
+     * @param executor the executor to run the rounds.
+     * @param timeout the time budget of a run. If null, there is no time limit.
+     */
+    public ValidationRunner(ExecutorService executor, Duration timeout) {
+        if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+            throw new IllegalArgumentException("Invalid timeout: " + timeout);
+        }
+
+        this.executor = executor;
+        this.parallelism = 0;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Trains and validates classification models on multiple data splits.
+     * @param bags the data splits.
+     * @param x the training data.
+     * @param y the class labels.
+     * @param trainer the lambda to train the model.
+     * @param <T> the data type of samples.
+     * @param <M> the model type.
+     * @return the validation results.
+     */
+    public <T, M extends Classifier<T>> ClassificationValidations<M> classification(Bag[] bags, T[] x, int[] y, BiFunction<T[], int[], M> trainer) {
+        return classification(bags, x, y, trainer, null);
+    }
+
+    /**
+     * Trains and validates classification models on multiple data splits.
+     * @param bags the data splits.
+     * @param x the training data.
+     * @param y the class labels.
+     * @param trainer the lambda to train the model.
+     * @param listener the callback of the round index and its validation
+     *                 results when a round finishes. May be null.
+     * @param <T> the data type of samples.
+     * @param <M> the model type.
+     * @return the validation results of finished rounds.
+     */
+    public <T, M extends Classifier<T>> ClassificationValidations<M> classification(Bag[] bags, T[] x, int[] y, BiFunction<T[], int[], M> trainer,
+                                                                                    BiConsumer<Integer, ClassificationValidation<M>> listener) {
+        var rounds = run(bags.length, i -> {
+            Bag bag = bags[i];
+            T[] trainx = MathEx.slice(x, bag.samples());
+            int[] trainy = MathEx.slice(y, bag.samples());
+            T[] testx = MathEx.slice(x, bag.oob());
+            int[] testy = MathEx.slice(y, bag.oob());
+            return ClassificationValidation.of(trainx, trainy, testx, testy, trainer);
+        }, listener);
+        return ClassificationValidations.of(rounds);
+    }
+
+    /**
+     * Trains and validates classification models on multiple data splits.
+     * @param bags the data splits.
+     * @param formula the model formula.
+     * @param data the data.
+     * @param trainer the lambda to train the model.
+     * @param <M> the model type.
+     * @return the validation results.
+     */
+    public <M extends DataFrameClassifier> ClassificationValidations<M> classification(Bag[] bags, Formula formula, DataFrame data, BiFunction<Formula, DataFrame, M> trainer) {
+        return classification(bags, formula, data, trainer, null);
+    }
+
+    /**
+     * Trains and validates classification models on multiple data splits.
+     * @param bags the data splits.
+     * @param formula the model formula.
+     * @param data the data.
+     * @param trainer the lambda to train the model.
+     * @param listener the callback of the round index and its validation
+     *                 results when a round finishes. May be null.
+     * @param <M> the model type.
+     * @return the validation results of finished rounds.
+     */
+    public <M extends DataFrameClassifier> ClassificationValidations<M> classification(Bag[] bags, Formula formula, DataFrame data, BiFunction<Formula, DataFrame, M> trainer,
+                                                                                       BiConsumer<Integer, ClassificationValidation<M>> listener) {
+        var rounds = run(bags.length, i -> {
+            Bag bag = bags[i];
+            return ClassificationValidation.of(copy(formula), data.get(Index.of(bag.samples())), data.get(Index.of(bag.oob())), trainer);
+        }, listener);
+        return ClassificationValidations.of(rounds);
+    }
+
+    /**
+     * Trains and validates regression models on multiple data splits.
+     * @param bags the data splits.
+     * @param x the training data.
+     * @param y the response variable.
+     * @param trainer the lambda to train the model.
+     * @param <T> the data type of samples.
+     * @param <M> the model type.
+     * @return the validation results.
+     */
+    public <T, M extends Regression<T>> RegressionValidations<M> regression(Bag[] bags, T[] x, double[] y, BiFunction<T[], double[], M> trainer) {
+        return regression(bags, x, y, trainer, null);
+    }
+
+    /**
+     * Trains and validates regression models on multiple data splits.
+     * @param bags the data splits.
+     * @param x the training data.
+     * @param y the response variable.
+     * @param trainer the lambda to train the model.
+     * @param listener the callback of the round index and its validation
+     *                 results when a round finishes. May be null.
+     * @param <T> the data type of samples.
+     * @param <M> the model type.
+     * @return the validation results of finished rounds.
+     */
+    public <T, M extends Regression<T>> RegressionValidations<M> regression(Bag[] bags, T[] x, double[] y, BiFunction<T[], double[], M> trainer,
+                                                                            BiConsumer<Integer, RegressionValidation<M>> listener) {
+        var rounds = run(bags.length, i -> {
+            Bag bag = bags[i];
+            T[] trainx = MathEx.slice(x, bag.samples());
+            double[] trainy = MathEx.slice(y, bag.samples());
+            T[] testx = MathEx.slice(x, bag.oob());
+            double[] testy = MathEx.slice(y, bag.oob());
+            return RegressionValidation.of(trainx, trainy, testx, testy, trainer);
+        }, listener);
+        return RegressionValidations.of(rounds);
+    }
+
+    /**
+     * Trains and validates regression models on multiple data splits.
+     * @param bags the data splits.
+     * @param formula the model formula.
+     * @param data the data.
+     * @param trainer the lambda to train the model.
+     * @param <M> the model type.
+     * @return the validation results.
+     */
+    public <M extends DataFrameRegression> RegressionValidations<M> regression(Bag[] bags, Formula formula, DataFrame data, BiFunction<Formula, DataFrame, M> trainer) {
+        return regression(bags, formula, data, trainer, null);
+    }
+
+    /**
+     * Trains and validates regression models on multiple data splits.
+     * @param bags the data splits.
+     * @param formula the model formula.
+     * @param data the data.
+     * @param trainer the lambda to train the model.
+     * @param listener the callback of the round index and its validation
+     *                 results when a round finishes. May be null.
+     * @param <M> the model type.
+     * @return the validation results of finished rounds.
+     */
+    public <M extends DataFrameRegression> RegressionValidations<M> regression(Bag[] bags, Formula formula, DataFrame data, BiFunction<Formula, DataFrame, M> trainer,
+                                                                               BiConsumer<Integer, RegressionValidation<M>> listener) {
+        var rounds = run(bags.length, i -> {
+            Bag bag = bags[i];
+            return RegressionValidation.of(copy(formula), data.get(Index.of(bag.samples())), data.get(Index.of(bag.oob())), trainer);
+        }, listener);
+        return RegressionValidations.of(rounds);
+    }
+
+    /**
+     * Returns a copy of formula. The formula caches the schema binding,
+     * which shouldn't be shared by the concurrent rounds.
+     */
+    private static Formula copy(Formula formula) {
+        return new Formula(formula.response(), formula.predictors());
+    }
+
+    /**
+     * Runs the rounds in parallel.
+     * @param k the number of rounds.
+     * @param round the function of round index to its validation results.
+     * @param listener the callback when a round finishes. May be null.
+     * @param <V> the type of validation results.
+     * @return the validation results of finished rounds in the order of round index.
+     */
+    private <V> List<V> run(int k, IntFunction<V> round, BiConsumer<Integer, V> listener) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Invalid number of rounds: " + k);
+        }
+
+        ExecutorService pool = executor != null ? executor : Executors.newFixedThreadPool(Math.min(parallelism, k));
+        CompletionService<Integer> service = new ExecutorCompletionService<>(pool);
+        List<Future<Integer>> futures = new ArrayList<>(k);
+        Object[] results = new Object[k];
+        boolean[] done = new boolean[k];
+        long deadline = timeout == null ? Long.MAX_VALUE : System.nanoTime() + timeout.toNanos();
+
+        int finished = 0;
+        try {
+            for (int i = 0; i < k; i++) {
+                final int index = i;
+                futures.add(service.submit(() -> {
+                    results[index] = round.apply(index);
+                    return index;
+                }));
+            }
+
+            for (; finished < k; finished++) {
+                Future<Integer> future;
+                if (timeout == null) {
+                    future = service.take();
+                } else {
+                    future = service.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (future == null) {
+                        logger.warn("Validation exceeded the time budget {}: {} of {} rounds finished", timeout, finished, k);
+                        break;
+                    }
+                }
+
+                int index = future.get();
+                done[index] = true;
+                if (listener != null) {
+                    @SuppressWarnings("unchecked")
+                    V result = (V) results[index];
+                    listener.accept(index, result);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Validation is interrupted");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException e) throw e;
+            if (cause instanceof Error e) throw e;
+            throw new IllegalStateException("Validation failed", cause);
+        } finally {
+            for (var future : futures) {
+                future.cancel(true);
+            }
+
+            if (executor == null) {
+                pool.shutdownNow();
+            }
+        }
+
+        if (finished == 0) {
+            throw new CancellationException("No validation round finished in the time budget " + timeout);
+        }
+
+        List<V> rounds = new ArrayList<>(finished);
+        for (int i = 0; i < k; i++) {
+            if (done[i]) {
+                @SuppressWarnings("unchecked")
+                V result = (V) results[i];
+                rounds.add(result);
+            }
+        }
+        return rounds;
+    }
+}
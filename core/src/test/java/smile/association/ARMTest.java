@@ -16,9 +16,13 @@
  */
 package smile.association;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import smile.math.MathEx;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -228,6 +232,42 @@ public class ARMTest {
         FPTree tree = FPTree.of(20, () -> ItemSetTestData.read("transaction/pima.D38.N768.C2"));
         Stream<AssociationRule> rules = ARM.apply(0.9, tree);
         assertEquals(6803, rules.count());
+
+        FPTree[] shards = FPTree.of(20, () -> ItemSetTestData.read("transaction/pima.D38.N768.C2"), 4);
+        assertEquals(6803, ARM.parallel(0.9, shards).count());
+    }
+
+    /** Returns the rules with sorted items. */
+    private static Set<String> normalize(Stream<AssociationRule> rules) {
+        return rules.map(rule -> {
+            int[] antecedent = rule.antecedent().clone();
+            int[] consequent = rule.consequent().clone();
+            Arrays.sort(antecedent);
+            Arrays.sort(consequent);
+            return String.format("%s => %s: %.10f, %.10f", Arrays.toString(antecedent), Arrays.toString(consequent), rule.support(), rule.confidence());
+        }).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testParallel() {
+        System.out.println("parallel");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        int[][] data = new int[2000][];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = new int[1 + MathEx.randomInt(10)];
+            for (int j = 0; j < data[i].length; j++) {
+                double u = MathEx.random();
+                data[i][j] = (int) (40 * u * u);
+            }
+        }
+
+        FPTree tree = FPTree.of(20, data);
+        Set<String> expected = normalize(ARM.apply(0.3, tree));
+        System.out.println(expected.size() + " rules");
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, normalize(ARM.parallel(0.3, tree)));
+        assertEquals(expected, normalize(ARM.parallel(0.3, FPTree.of(20, () -> Arrays.stream(data), 5))));
+        assertThrows(IllegalArgumentException.class, () -> ARM.parallel(1.5, tree));
     }
 
     @Test
@@ -16,8 +16,13 @@
  */
 package smile.association;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import smile.math.MathEx;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -108,6 +113,51 @@ public class FPGrowthTest {
 
         FPTree tree = FPTree.of(20, () -> ItemSetTestData.read("transaction/pima.D38.N768.C2"));
         assertEquals(1803, FPGrowth.apply(tree).count());
+        assertEquals(1803, FPGrowth.parallel(tree).count());
+
+        FPTree[] shards = FPTree.of(20, () -> ItemSetTestData.read("transaction/pima.D38.N768.C2"), 4);
+        assertEquals(1803, FPGrowth.parallel(shards).count());
+    }
+
+    /** Returns the item sets with sorted items. */
+    private static Set<String> normalize(Stream<ItemSet> itemsets) {
+        return itemsets.map(set -> {
+            int[] items = set.items().clone();
+            Arrays.sort(items);
+            return Arrays.toString(items) + ":" + set.support();
+        }).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testParallel() {
+        System.out.println("parallel");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        int[][] data = new int[2000][];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = new int[1 + MathEx.randomInt(10)];
+            for (int j = 0; j < data[i].length; j++) {
+                double u = MathEx.random();
+                data[i][j] = (int) (40 * u * u);
+            }
+        }
+
+        FPTree tree = FPTree.of(20, data);
+        Set<String> expected = normalize(FPGrowth.apply(tree));
+        System.out.println(expected.size() + " frequent item sets");
+        assertEquals(expected, normalize(FPGrowth.parallel(tree)));
+
+        for (int shards : new int[]{1, 3, 7, 64}) {
+            FPTree[] trees = FPTree.of(20, () -> Arrays.stream(data), shards);
+            assertEquals(shards, trees.length);
+            assertEquals(data.length, trees[0].size());
+            assertEquals(expected, normalize(FPGrowth.parallel(trees)));
+        }
+
+        FPTree[] trees = FPTree.of(0.01, () -> Arrays.stream(data), 3);
+        assertEquals(normalize(FPGrowth.apply(FPTree.of(0.01, data))), normalize(FPGrowth.parallel(trees)));
+
+        assertThrows(IllegalArgumentException.class, () -> FPTree.of(20, () -> Arrays.stream(data), 0));
+        assertThrows(IllegalArgumentException.class, () -> FPGrowth.parallel(Arrays.copyOf(trees, 2)));
     }
     
     @Test
@@ -17,11 +17,16 @@
 package smile.classification;
 
 import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
 import smile.classification.GradientTreeBoost.Options;
+import smile.data.DataFrame;
+import smile.data.formula.Formula;
+import smile.data.vector.IntVector;
 import smile.datasets.*;
 import smile.io.Read;
 import smile.io.Write;
 import smile.math.MathEx;
+import smile.regression.RegressionTree;
 import smile.util.IterativeAlgorithmController;
 import smile.validation.*;
 import smile.validation.metric.Accuracy;
@@ -136,6 +141,58 @@ public class GradientTreeBoostTest {
         assertEquals(0.9400, result.avg().accuracy(), 1E-4);
     }
 
+    @Test
+    public void testParallel() throws Exception {
+        System.out.println("Parallel");
+        // Large enough to search and partition the nodes in parallel.
+        int n = 20000;
+        double[][] x = new double[n][4];
+        int[] y = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < 4; j++) {
+                x[i][j] = MathEx.random();
+            }
+            double f = Math.sin(6 * x[i][0]) + x[i][1] * x[i][2];
+            y[i] = f < 0 ? 0 : (f < 0.8 ? 1 : 2);
+        }
+
+        var data = DataFrame.of(x, "a", "b", "c", "d").add(new IntVector("y", y));
+        var formula = Formula.lhs("y");
+        var options = new Options(20, 20, 6, 5, 0.1, 0.7, null, null);
+
+        MathEx.setSeed(19650218);
+        GradientTreeBoost model = GradientTreeBoost.fit(formula, data, options);
+
+        // The sequential reference runs all parallel streams and tasks
+        // in a single thread pool.
+        var pool = new ForkJoinPool(1);
+        GradientTreeBoost sequential = pool.submit(() -> {
+            MathEx.setSeed(19650218);
+            return GradientTreeBoost.fit(formula, data, options);
+        }).get();
+        pool.shutdown();
+
+        // The per-class trees and the node splits are built in parallel,
+        // which should not change the model.
+        int[] prediction = model.predict(data);
+        assertArrayEquals(sequential.predict(data), prediction);
+        assertArrayEquals(sequential.importance(), model.importance(), 1E-10);
+        RegressionTree[][] trees = model.trees();
+        RegressionTree[][] expected = sequential.trees();
+        for (int j = 0; j < trees.length; j++) {
+            for (int t = 0; t < trees[j].length; t++) {
+                assertEquals(expected[j][t].size(), trees[j][t].size());
+                for (int i = 0; i < n; i += 97) {
+                    assertEquals(expected[j][t].predict(data.get(i)), trees[j][t].predict(data.get(i)), 1E-10);
+                }
+            }
+        }
+
+        double accuracy = Accuracy.of(y, prediction);
+        System.out.println("Training accuracy = " + accuracy);
+        assertTrue(accuracy > 0.9);
+    }
+
     @Test
     public void testPenDigits() throws Exception {
         System.out.println("Pen Digits");
@@ -18,6 +18,10 @@ package smile.clustering;
 
 import java.util.Arrays;
 import java.util.Properties;
+import smile.math.MathEx;
+import smile.math.distance.EuclideanDistance;
+import smile.neighbor.KDTree;
+import smile.validation.metric.AdjustedRandIndex;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -99,4 +103,69 @@ public class HDBSCANTest {
         assertThrows(IllegalArgumentException.class,
                 () -> HDBSCAN.fit(x, (a, b) -> Double.POSITIVE_INFINITY, 2, 2));
     }
+
+    /**
+     * Returns the random points of four gaussian blobs. The point i belongs
+     * to the blob i % 5, where the fifth blob is the uniform noise.
+     */
+    private static double[][] blobs(int n, int d, boolean noise) {
+        double[][] x = new double[n][d];
+        for (int i = 0; i < n; i++) {
+            int blob = i % 5;
+            for (int j = 0; j < d; j++) {
+                x[i][j] = blob < 4 || !noise ? 10 * (blob % 4) * ((j % 2) * 2 - 1) + MathEx.randn() : MathEx.random(-40, 40);
+            }
+        }
+        return x;
+    }
+
+    @Test
+    public void testKnnBoruvkaMatchesPairwise() {
+        // Given
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[][] x = blobs(1000, 3, true);
+        HDBSCAN.Options options = new HDBSCAN.Options(5, 20);
+
+        // When
+        HDBSCAN<double[]> model = HDBSCAN.fit(x, KDTree.of(x), options);
+        HDBSCAN<double[]> dense = HDBSCAN.fit(x, new EuclideanDistance(), options);
+
+        // Then
+        // The cluster labels may be permuted.
+        assertEquals(dense.k(), model.k());
+        assertEquals(1.0, AdjustedRandIndex.of(dense.group(), model.group()), 1E-10);
+        assertArrayEquals(dense.coreDistance(), model.coreDistance(), 1E-10);
+        double[] stability = dense.stability().clone();
+        double[] stability2 = model.stability().clone();
+        Arrays.sort(stability);
+        Arrays.sort(stability2);
+        assertArrayEquals(stability, stability2, 1E-7);
+    }
+
+    @Test
+    public void testLargeData() {
+        // Given
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[][] x = blobs(200000, 2, false);
+
+        // When
+        long time = System.nanoTime();
+        HDBSCAN<double[]> model = HDBSCAN.fit(x, 10, 100);
+        time = System.nanoTime() - time;
+
+        // Then
+        System.out.format("HDBSCAN of %d points: k = %d in %.1f ms%n", x.length, model.k(), time / 1E6);
+        assertTrue(model.k() >= 4);
+        int[] group = model.group();
+        int[] label = new int[4];
+        for (int blob = 0; blob < 4; blob++) {
+            int[] count = new int[model.k()];
+            for (int i = blob; i < x.length; i += 5) {
+                if (group[i] != Clustering.OUTLIER) count[group[i]]++;
+            }
+            label[blob] = MathEx.whichMax(count);
+            assertTrue(count[label[blob]] > 0.8 * x.length / 5);
+        }
+        assertEquals(4, Arrays.stream(label).distinct().count());
+    }
 }
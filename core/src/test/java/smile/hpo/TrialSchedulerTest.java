@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.hpo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import smile.classification.RandomForest;
+import smile.data.DataFrame;
+import smile.data.formula.Formula;
+import smile.data.vector.DoubleVector;
+import smile.data.vector.IntVector;
+import smile.math.MathEx;
+import smile.validation.ClassificationMetrics;
+import smile.validation.CrossValidation;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class TrialSchedulerTest {
+
+    public TrialSchedulerTest() {
+    }
+
+    @Test
+    public void testSuccessiveHalving() {
+        System.out.println("successive halving");
+        List<Properties> configs = new ArrayList<>();
+        for (int i = 0; i < 27; i++) {
+            Properties params = new Properties();
+            params.setProperty("x", String.valueOf(i));
+            configs.add(params);
+        }
+
+        AtomicInteger trials = new AtomicInteger();
+        var scheduler = new TrialScheduler(4, "budget", 1, 9, 3);
+        var results = scheduler.successiveHalving(configs, trial -> {
+            trials.incrementAndGet();
+            int x = Integer.parseInt(trial.params().getProperty("x"));
+            int budget = Integer.parseInt(trial.params().getProperty("budget"));
+            assertEquals(trial.budget(), budget);
+            // The larger budget, the less noisy.
+            return -(x - 17) * (x - 17) + (x % 2) * 10.0 / budget;
+        });
+
+        // 27 trials with budget 1, 9 with budget 3 and 3 with budget 9.
+        assertEquals(39, trials.get());
+        assertEquals(39, results.size());
+        assertEquals(9, results.getFirst().budget());
+        assertEquals("17", results.getFirst().params().getProperty("x"));
+        assertEquals(3, results.stream().filter(r -> r.budget() == 9).count());
+
+        assertThrows(IllegalArgumentException.class, () -> new TrialScheduler(4, null, 10, 1, 3));
+        assertThrows(IllegalArgumentException.class, () -> new TrialScheduler(4, null, 1, 10, 1));
+    }
+
+    @Test
+    public void testPrune() {
+        System.out.println("prune");
+        List<Properties> configs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Properties params = new Properties();
+            params.setProperty("x", String.valueOf(i));
+            configs.add(params);
+        }
+
+        // Single thread so that the trials report in order.
+        var scheduler = new TrialScheduler(1, null, 1, 1, 3);
+        var results = scheduler.successiveHalving(configs, trial -> {
+            int x = Integer.parseInt(trial.params().getProperty("x"));
+            double score = 0.0;
+            for (int step = 0; step < 10; step++) {
+                score = x % 2 == 0 ? x : -x;
+                if (!trial.report(step, score)) break;
+            }
+            return score;
+        });
+
+        assertEquals(20, results.size());
+        assertFalse(results.getFirst().pruned());
+        assertEquals("18", results.getFirst().params().getProperty("x"));
+        assertTrue(results.stream().anyMatch(TrialScheduler.Result::pruned));
+        // The even configurations are always above the median so far.
+        assertTrue(results.stream().filter(r -> r.id() % 2 == 0).noneMatch(TrialScheduler.Result::pruned));
+    }
+
+    @Test
+    public void testHyperband() {
+        System.out.println("hyperband");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        int n = 300;
+        double[] x1 = new double[n];
+        double[] x2 = new double[n];
+        int[] y = new int[n];
+        for (int i = 0; i < n; i++) {
+            y[i] = i % 2;
+            x1[i] = MathEx.random(-1.5, 1.5) + y[i];
+            x2[i] = MathEx.random(-1.5, 1.5) - y[i];
+        }
+
+        DataFrame data = new DataFrame(new DoubleVector("x1", x1), new DoubleVector("x2", x2), new IntVector("y", y));
+        Formula formula = Formula.lhs("y");
+        var objective = TrialScheduler.classification(formula, data, CrossValidation.of(n, 3),
+                (f, df, params) -> RandomForest.fit(f, df, RandomForest.Options.of(params)),
+                ClassificationMetrics::accuracy);
+
+        var hp = new Hyperparameters()
+                .add("smile.random_forest.max_nodes", new int[] {2, 4, 8, 16, 32})
+                .add("smile.random_forest.node_size", new int[] {1, 5, 10});
+        var scheduler = new TrialScheduler(4, "smile.random_forest.trees", 3, 27, 3);
+        var results = scheduler.hyperband(hp, objective);
+
+        var best = results.getFirst();
+        System.out.println(best);
+        assertEquals(27, best.budget());
+        assertEquals("27", best.params().getProperty("smile.random_forest.trees"));
+        assertTrue(best.score() > 0.7);
+        // Brackets of 9, 5 and 3 configurations.
+        assertEquals(17, results.stream().mapToInt(TrialScheduler.Result::id).distinct().count());
+    }
+
+    /** Returns the random forest options with the seeds of trees. */
+    private static RandomForest.Options options(Properties params, long[] seeds) {
+        var options = RandomForest.Options.of(params);
+        return new RandomForest.Options(options.ntrees(), options.mtry(), options.rule(), options.maxDepth(),
+                options.maxNodes(), options.nodeSize(), options.subsample(), options.classWeight(), seeds, null, options.bins());
+    }
+
+    @Test
+    public void testSharedOrder() {
+        System.out.println("shared order");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        int n = 300;
+        double[] x1 = new double[n];
+        double[] x2 = new double[n];
+        int[] y = new int[n];
+        for (int i = 0; i < n; i++) {
+            y[i] = i % 2;
+            x1[i] = MathEx.random(-1.5, 1.5) + y[i];
+            x2[i] = MathEx.random(-1.5, 1.5) - y[i];
+        }
+
+        DataFrame data = new DataFrame(new DoubleVector("x1", x1), new DoubleVector("x2", x2), new IntVector("y", y));
+        Formula formula = Formula.lhs("y");
+        var bags = CrossValidation.of(n, 3);
+        long[] seeds = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        var objective = TrialScheduler.classification(formula, data, bags,
+                (f, df, params) -> RandomForest.fit(f, df, options(params, seeds)),
+                ClassificationMetrics::accuracy);
+        var shared = TrialScheduler.classification(formula, data, bags,
+                (f, df, params, order, rank) -> RandomForest.fit(f, df, options(params, seeds), order, rank),
+                ClassificationMetrics::accuracy);
+
+        // The trees on the shared sorted index are the same.
+        Properties params = new Properties();
+        params.setProperty("smile.random_forest.trees", "10");
+        params.setProperty("smile.random_forest.max_nodes", "8");
+        var trial = new TrialScheduler.Trial(0, params, 10, new ConcurrentHashMap<>());
+        assertEquals(objective.apply(trial), shared.apply(trial), 1E-10);
+
+        // The score of pruned trials is the mean over the evaluated folds.
+        var hp = new Hyperparameters()
+                .add("smile.random_forest.max_nodes", new int[] {2, 4, 8, 16, 32})
+                .add("smile.random_forest.node_size", new int[] {1, 5, 10});
+        var scheduler = new TrialScheduler(2, "smile.random_forest.trees", 3, 9, 3);
+        var results = scheduler.hyperband(hp, shared);
+        System.out.println(results.getFirst());
+        assertTrue(results.stream().allMatch(r -> r.score() > 0.6));
+    }
+}
@@ -422,6 +422,17 @@ public class ManifoldOptionsTest {
                 () -> new TSNE.Options(2, 20, 200, 12, 1000, 50, 1E-7, 0.5, 0.8, 1000, 0.01, null));
     }
 
+    @Test
+    public void givenInvalidTheta_whenTSNEOptions_thenThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TSNE.Options(2, 20, 200, 12, 1000, -0.1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TSNE.Options(2, 20, 200, 12, 1000, 1.5));
+        // Barnes-Hut t-SNE supports only 2-D and 3-D embedding.
+        assertThrows(IllegalArgumentException.class,
+                () -> new TSNE.Options(4, 20, 200, 12, 1000, 0.5));
+    }
+
     @Test
     public void givenValidOptions_whenTSNEOptionsRoundTrip_thenValuesPreserved() {
         TSNE.Options opts = new TSNE.Options(2, 30, 150, 10, 500);
@@ -66,10 +66,74 @@ public class TSNETest {
         assertEquals(1.4170, tsne.cost(), 1E-3);
     }
 
+    @Test
+    public void givenClusteredData_whenBarnesHut_thenClustersArePreserved() {
+        // Given: 3 well separated clusters in 10-D
+        int n = 600;
+        int[] y = new int[n];
+        double[][] X = new double[n][10];
+        for (int i = 0; i < n; i++) {
+            y[i] = i % 3;
+            for (int j = 0; j < 10; j++) {
+                X[i][j] = (j % 3 == y[i] ? 10.0 : 0.0) + MathEx.random();
+            }
+        }
+
+        // When
+        TSNE tsne = TSNE.fit(X, new TSNE.Options(2, 20, 200, 12, 300, 0.5));
+
+        // Then: the nearest neighbor in the embedding is of the same cluster
+        double[][] coordinates = tsne.coordinates();
+        assertEquals(n, coordinates.length);
+        assertEquals(2, coordinates[0].length);
+        assertTrue(Double.isFinite(tsne.cost()));
+        int correct = 0;
+        for (int i = 0; i < n; i++) {
+            int nearest = -1;
+            double dist = Double.MAX_VALUE;
+            for (int j = 0; j < n; j++) {
+                double d = MathEx.squaredDistance(coordinates[i], coordinates[j]);
+                if (i != j && d < dist) {
+                    dist = d;
+                    nearest = j;
+                }
+            }
+            if (y[nearest] == y[i]) correct++;
+        }
+        System.out.format("Barnes-Hut t-SNE 1-NN accuracy: %d/%d, cost = %.4f%n", correct, n, tsne.cost());
+        assertTrue(correct >= 0.95 * n);
+    }
+
+    @Test
+    public void givenDistanceMatrix_whenBarnesHut_thenOutputShapeIsCorrect() {
+        // Given
+        int n = 100;
+        double[][] X = new double[n][3];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < 3; j++) {
+                X[i][j] = MathEx.random();
+            }
+        }
+        double[][] D = new double[n][n];
+        MathEx.pdist(X, D, MathEx::squaredDistance);
+
+        // When
+        TSNE tsne = TSNE.fit(D, new TSNE.Options(3, 10, 200, 12, 250, 0.5));
+
+        // Then
+        assertEquals(n, tsne.coordinates().length);
+        assertEquals(3, tsne.coordinates()[0].length);
+        for (double[] row : tsne.coordinates()) {
+            for (double v : row) {
+                assertTrue(Double.isFinite(v));
+            }
+        }
+    }
+
     @Test
     public void givenOptions_whenRoundTripToProperties_thenValuesPreserved() {
         // Given
-        TSNE.Options options = new TSNE.Options(2, 25, 150, 10, 500);
+        TSNE.Options options = new TSNE.Options(2, 25, 150, 10, 500, 0.5);
 
         // When
         Properties props = options.toProperties();
@@ -87,6 +151,7 @@ public class TSNETest {
         assertEquals(options.finalMomentum(), restored.finalMomentum(), 1E-12);
         assertEquals(options.momentumSwitchIter(), restored.momentumSwitchIter());
         assertEquals(options.minGain(), restored.minGain(), 1E-12);
+        assertEquals(options.theta(), restored.theta(), 1E-12);
     }
 
     @Test
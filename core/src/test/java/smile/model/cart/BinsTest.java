@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.model.cart;
+
+import org.junit.jupiter.api.*;
+import smile.classification.DecisionTree;
+import smile.data.DataFrame;
+import smile.data.formula.Formula;
+import smile.data.measure.NominalScale;
+import smile.data.type.DataTypes;
+import smile.data.type.StructField;
+import smile.data.vector.DoubleVector;
+import smile.data.vector.IntVector;
+import smile.math.MathEx;
+import smile.regression.RegressionTree;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for histogram-based split finding.
+ *
+ * @author Haifeng Li
+ */
+public class BinsTest {
+
+    public BinsTest() {
+    }
+
+    @BeforeEach
+    public void setUp() {
+        MathEx.setSeed(19650218); // to get repeatable results.
+    }
+
+    /**
+     * Returns a data frame with n random samples of 3 numeric columns and
+     * a nominal one. The first two numeric columns have the given number
+     * of distinct values if levels > 0.
+     */
+    private static DataFrame data(int n, int levels) {
+        double[] a = new double[n];
+        double[] b = new double[n];
+        double[] c = new double[n];
+        int[] d = new int[n];
+        double[] y = new double[n];
+        int[] k = new int[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = MathEx.random();
+            b[i] = MathEx.random();
+            if (levels > 0) {
+                a[i] = Math.floor(a[i] * levels) / levels;
+                b[i] = Math.floor(b[i] * levels) / levels;
+            }
+            c[i] = MathEx.random(); // pure noise
+            d[i] = MathEx.randomInt(3);
+            y[i] = Math.sin(6 * a[i]) + 2 * b[i] + d[i] + 0.1 * c[i];
+            k[i] = y[i] > 1.5 ? 1 : 0;
+        }
+
+        return new DataFrame(
+                new DoubleVector("a", a),
+                new DoubleVector("b", b),
+                new DoubleVector("c", c),
+                new IntVector(new StructField("d", DataTypes.IntType, new NominalScale("x", "y", "z")), d),
+                new DoubleVector("y", y),
+                new IntVector("k", k));
+    }
+
+    @Test
+    public void testQuantize() {
+        System.out.println("quantize");
+        double[] x = {3.0, 1.0, 2.0, 2.0, Double.NaN, 5.0, 1.0};
+        DataFrame df = new DataFrame(new DoubleVector("x", x));
+        Bins bins = Bins.of(df, 8);
+        assertTrue(bins.isBinned(0));
+        // 4 distinct values yields 3 midpoint cuts and 4 bins.
+        assertEquals(4, bins.size(0));
+        assertEquals(1.5, bins.cut(0, 0), 1E-10);
+        assertEquals(2.5, bins.cut(0, 1), 1E-10);
+        assertEquals(4.0, bins.cut(0, 2), 1E-10);
+        int[] expected = {2, 0, 1, 1, 3, 3, 0};
+        for (int i = 0; i < x.length; i++) {
+            assertEquals(expected[i], bins.bin(0, i));
+        }
+    }
+
+    @Test
+    public void testQuantiles() {
+        System.out.println("quantiles");
+        DataFrame df = data(1000, 100);
+        for (int maxBins : new int[]{16, 256, 1024}) {
+            Bins bins = Bins.of(df, maxBins);
+            assertFalse(bins.isBinned(3));
+            for (int j = 0; j < 3; j++) {
+                assertTrue(bins.size(j) <= maxBins);
+                for (int i = 0; i < df.size(); i++) {
+                    double xij = df.getDouble(i, j);
+                    int b = bins.bin(j, i);
+                    assertTrue(b < bins.size(j));
+                    if (b < bins.size(j) - 1) assertTrue(xij <= bins.cut(j, b));
+                    if (b > 0) assertTrue(xij > bins.cut(j, b - 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidBins() {
+        System.out.println("invalid bins");
+        DataFrame df = data(10, 5);
+        assertThrows(IllegalArgumentException.class, () -> Bins.of(df, 1));
+        assertThrows(IllegalArgumentException.class, () -> Bins.of(df, 65537));
+        assertThrows(IllegalArgumentException.class, () -> new RegressionTree.Options(20, 0, 5, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DecisionTree.Options(SplitRule.GINI, 20, 0, 5, -1));
+    }
+
+    @Test
+    public void testExactRegressionTree() {
+        System.out.println("exact regression tree");
+        // If no column has more distinct values than bins, the histogram
+        // splits are identical to the exact splits.
+        DataFrame df = data(90, 0).drop("k");
+        Formula formula = Formula.lhs("y");
+        RegressionTree exact = RegressionTree.fit(formula, df, new RegressionTree.Options(20, 0, 3));
+        RegressionTree hist = RegressionTree.fit(formula, df, new RegressionTree.Options(20, 0, 3, 256));
+        assertArrayEquals(exact.predict(df), hist.predict(df), 1E-10);
+    }
+
+    @Test
+    public void testExactDecisionTree() {
+        System.out.println("exact decision tree");
+        // The exact split finding evaluates only the class boundaries,
+        // which may miss the best split if nodeSize > 1.
+        DataFrame df = data(200, 0).drop("y");
+        Formula formula = Formula.lhs("k");
+        DecisionTree exact = DecisionTree.fit(formula, df, new DecisionTree.Options(SplitRule.GINI, 20, 0, 1));
+        DecisionTree hist = DecisionTree.fit(formula, df, new DecisionTree.Options(SplitRule.GINI, 20, 0, 1, 256));
+        assertArrayEquals(exact.predict(df), hist.predict(df));
+        assertArrayEquals(exact.importance(), hist.importance(), 1E-10);
+    }
+
+    @Test
+    public void testHistogramRegressionTree() {
+        System.out.println("histogram regression tree");
+        DataFrame df = data(5000, 0).drop("k");
+        Formula formula = Formula.lhs("y");
+        double[] y = df.column("y").toDoubleArray();
+        for (int maxBins : new int[]{32, 255, 1000}) {
+            RegressionTree tree = RegressionTree.fit(formula, df, new RegressionTree.Options(20, 100, 5, maxBins));
+            double[] prediction = tree.predict(df);
+            double rss = 0.0;
+            for (int i = 0; i < y.length; i++) {
+                rss += MathEx.pow2(y[i] - prediction[i]);
+            }
+            double rmse = Math.sqrt(rss / y.length);
+            System.out.format("bins = %4d, RMSE = %.4f%n", maxBins, rmse);
+            assertTrue(rmse < 0.2);
+        }
+    }
+}
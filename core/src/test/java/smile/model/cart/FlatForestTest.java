@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.model.cart;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.*;
+import smile.classification.GradientTreeBoost;
+import smile.classification.RandomForest;
+import smile.data.DataFrame;
+import smile.data.formula.Formula;
+import smile.data.measure.NominalScale;
+import smile.data.type.DataTypes;
+import smile.data.type.StructField;
+import smile.data.vector.DoubleVector;
+import smile.data.vector.IntVector;
+import smile.math.MathEx;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for compiled tree ensembles.
+ *
+ * @author Haifeng Li
+ */
+public class FlatForestTest {
+
+    public FlatForestTest() {
+    }
+
+    @BeforeEach
+    public void setUp() {
+        MathEx.setSeed(19650218); // to get repeatable results.
+    }
+
+    /**
+     * Returns a data frame with n random samples of 3 numeric columns,
+     * a nominal one, a numeric response, and a class label of k classes.
+     */
+    private static DataFrame data(int n, int k) {
+        double[] a = new double[n];
+        double[] b = new double[n];
+        double[] c = new double[n];
+        int[] d = new int[n];
+        double[] y = new double[n];
+        int[] label = new int[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = MathEx.random();
+            b[i] = MathEx.random();
+            c[i] = MathEx.random();
+            d[i] = MathEx.randomInt(3);
+            y[i] = Math.sin(6 * a[i]) + 2 * b[i] + d[i] + 0.1 * c[i];
+            label[i] = Math.min(k - 1, (int) (y[i] * k / 4.0));
+        }
+
+        return new DataFrame(
+                new DoubleVector("a", a),
+                new DoubleVector("b", b),
+                new DoubleVector("c", c),
+                new IntVector(new StructField("d", DataTypes.IntType, new NominalScale("x", "y", "z")), d),
+                new DoubleVector("y", y),
+                new IntVector("label", label));
+    }
+
+    @Test
+    public void testRegressionForest() {
+        System.out.println("regression random forest");
+        DataFrame df = data(1000, 2).drop("label");
+        Formula formula = Formula.lhs("y");
+        var model = smile.regression.RandomForest.fit(formula, df, new smile.regression.RandomForest.Options(50));
+
+        double[] expected = df.stream().mapToDouble(model::predict).toArray();
+        assertArrayEquals(expected, model.predict(df), 1E-12);
+        assertArrayEquals(expected, model.predict(formula.x(df).toArray()), 1E-12);
+        assertEquals(50, model.compile().size());
+    }
+
+    @Test
+    public void testRegressionGradientBoost() {
+        System.out.println("regression gradient boost");
+        DataFrame df = data(1000, 2).drop("label");
+        Formula formula = Formula.lhs("y");
+        var model = smile.regression.GradientTreeBoost.fit(formula, df, new smile.regression.GradientTreeBoost.Options(50));
+
+        double[] expected = df.stream().mapToDouble(model::predict).toArray();
+        assertArrayEquals(expected, model.predict(df), 1E-12);
+        assertArrayEquals(expected, model.predict(formula.x(df).toArray()), 1E-12);
+    }
+
+    @Test
+    public void testClassificationForest() {
+        System.out.println("classification random forest");
+        DataFrame df = data(1000, 3).drop("y");
+        Formula formula = Formula.lhs("label");
+        RandomForest model = RandomForest.fit(formula, df, new RandomForest.Options(50));
+
+        int[] expected = df.stream().mapToInt(model::predict).toArray();
+        assertArrayEquals(expected, model.predict(df));
+        assertArrayEquals(expected, model.predict(formula.x(df).toArray()));
+
+        List<double[]> posteriori = new ArrayList<>();
+        int[] prediction = model.predict(df, posteriori);
+        double[] prob = new double[3];
+        for (int i = 0; i < df.size(); i++) {
+            assertEquals(model.predict(df.get(i), prob), prediction[i]);
+            assertArrayEquals(prob, posteriori.get(i), 1E-12);
+        }
+    }
+
+    @Test
+    public void testClassificationGradientBoost() {
+        System.out.println("classification gradient boost");
+        for (int k : new int[]{2, 3}) {
+            DataFrame df = data(1000, k).drop("y");
+            Formula formula = Formula.lhs("label");
+            GradientTreeBoost model = GradientTreeBoost.fit(formula, df, new GradientTreeBoost.Options(30));
+
+            int[] expected = df.stream().mapToInt(model::predict).toArray();
+            assertArrayEquals(expected, model.predict(df));
+            assertArrayEquals(expected, model.predict(formula.x(df).toArray()));
+
+            List<double[]> posteriori = new ArrayList<>();
+            int[] prediction = model.predict(df, posteriori);
+            double[] prob = new double[k];
+            for (int i = 0; i < df.size(); i++) {
+                assertEquals(model.predict(df.get(i), prob), prediction[i]);
+                assertArrayEquals(prob, posteriori.get(i), 1E-12);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidInput() {
+        System.out.println("invalid input");
+        DataFrame df = data(100, 2).drop("label");
+        var model = smile.regression.RandomForest.fit(Formula.lhs("y"), df, new smile.regression.RandomForest.Options(5));
+        FlatForest forest = model.compile();
+        assertThrows(IllegalArgumentException.class, () -> forest.score(new double[0]));
+        assertThrows(IllegalArgumentException.class, () -> FlatForest.of(new Node[0], new double[0], new int[0], new double[1]));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.model.svm;
+
+import smile.math.MathEx;
+import smile.math.kernel.GaussianKernel;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class KernelCacheTest {
+    /** Two gaussian blobs. */
+    double[][] x;
+    int[] y;
+    double[] r;
+    GaussianKernel kernel = new GaussianKernel(1.0);
+
+    public KernelCacheTest() {
+        MathEx.setSeed(19650218); // to get repeatable results.
+        int n = 300;
+        x = new double[n][2];
+        y = new int[n];
+        r = new double[n];
+        for (int i = 0; i < n; i++) {
+            y[i] = i % 2 == 0 ? 1 : -1;
+            x[i][0] = MathEx.random(-1.5, 1.5) + y[i];
+            x[i][1] = MathEx.random(-1.5, 1.5) - y[i];
+            r[i] = Math.sin(x[i][0]) + 0.5 * x[i][1];
+        }
+    }
+
+    @Test
+    public void testLRU() {
+        System.out.println("LRU");
+        // Budget of 3 rows.
+        KernelCache cache = new KernelCache(10, 3 * 10 * Double.BYTES, false);
+        assertEquals(3, cache.capacity());
+
+        KernelCache.Row r0 = cache.row(0, j -> j);
+        assertEquals(5.0, r0.get(5));
+        KernelCache.Row r1 = cache.row(1, j -> 10 + j);
+        cache.row(2, j -> 20 + j);
+        assertSame(r0, cache.row(0, j -> -1));
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+
+        // Row 1 is the least recently used and its array is recycled.
+        KernelCache.Row r3 = cache.row(3, j -> 30 + j);
+        assertSame(r1, r3);
+        assertEquals(35.0, r3.get(5));
+        assertFalse(cache.contains(1));
+        assertTrue(cache.contains(0));
+        assertTrue(cache.contains(2));
+        assertEquals(1, cache.evictions());
+        assertEquals(11.0, cache.row(1, j -> 10 + j).get(1));
+        assertFalse(cache.contains(2));
+
+        cache.remove(0);
+        assertFalse(cache.contains(0));
+        assertEquals(2, cache.size());
+
+        // The removed row is recycled and reset to NaN.
+        KernelCache.Row lazy = cache.row(4);
+        assertSame(r0, lazy);
+        assertTrue(Double.isNaN(lazy.get(7)));
+        lazy.set(7, 1.5);
+        assertEquals(1.5, cache.row(4).get(7));
+        assertEquals(0.25, cache.hitRate(), 1E-10);
+
+        // At least two rows are cached.
+        assertEquals(2, new KernelCache(10, 1, true).capacity());
+        assertEquals(10, new KernelCache(10).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new KernelCache(10, 0, false));
+    }
+
+    @Test
+    public void testSinglePrecision() {
+        System.out.println("single precision");
+        KernelCache cache = new KernelCache(10, 3 * 10 * Float.BYTES, true);
+        assertEquals(3, cache.capacity());
+        KernelCache.Row row = cache.row(0, j -> Math.PI * j);
+        assertEquals((float) (Math.PI * 3), row.get(3));
+        assertTrue(Double.isNaN(cache.row(1).get(0)));
+    }
+
+    @Test
+    public void testLASVM() {
+        System.out.println("LASVM");
+        MathEx.setSeed(19650218);
+        var full = new LASVM<>(kernel, 1.0, 1E-3).fit(x, y, 1);
+        MathEx.setSeed(19650218);
+        var lasvm = new LASVM<>(kernel, 1.0, 1.0, 1E-3, 1, false);
+        var bounded = lasvm.fit(x, y, 1);
+        System.out.println(lasvm.cache());
+        assertEquals(2, lasvm.cache().capacity());
+        assertTrue(lasvm.cache().evictions() > 0);
+        for (double[] xi : x) {
+            assertEquals(full.score(xi), bounded.score(xi), 1E-10);
+        }
+    }
+
+    @Test
+    public void testOCSVM() {
+        System.out.println("OCSVM");
+        MathEx.setSeed(19650218);
+        var full = new OCSVM<>(kernel, 0.2, 1E-3).fit(x);
+        MathEx.setSeed(19650218);
+        var ocsvm = new OCSVM<>(kernel, 0.2, 1E-3, 10L * x.length * Double.BYTES, false);
+        var bounded = ocsvm.fit(x);
+        System.out.println(ocsvm.cache());
+        assertEquals(10, ocsvm.cache().capacity());
+        for (double[] xi : x) {
+            assertEquals(full.score(xi), bounded.score(xi), 1E-10);
+        }
+
+        MathEx.setSeed(19650218);
+        var single = new OCSVM<>(kernel, 0.2, 1E-3, 10L * x.length * Float.BYTES, true).fit(x);
+        for (double[] xi : x) {
+            assertEquals(full.score(xi), single.score(xi), 1E-2);
+        }
+    }
+
+    @Test
+    public void testSVR() {
+        System.out.println("SVR");
+        var full = new SVR<>(kernel, 0.1, 1.0, 1E-3).fit(x, r);
+        var svr = new SVR<>(kernel, 0.1, 1.0, 1E-3, 1, false);
+        var bounded = svr.fit(x, r);
+        System.out.println(svr.cache());
+        assertTrue(svr.cache().hits() > 0);
+        for (double[] xi : x) {
+            assertEquals(full.score(xi), bounded.score(xi), 1E-10);
+        }
+    }
+}
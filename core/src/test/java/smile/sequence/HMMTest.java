@@ -16,6 +16,7 @@
  */
 package smile.sequence;
 
+import java.util.Arrays;
 import smile.math.MathEx;
 import smile.stat.distribution.EmpiricalDistribution;
 import smile.tensor.DenseMatrix;
@@ -165,6 +166,121 @@ public class HMMTest {
         }
     }
 
+    /**
+     * Returns the most likely state sequence by the Viterbi algorithm on
+     * the model matrices. Ties go to the smallest-index state.
+     */
+    private static int[] viterbi(HMM hmm, int[] o) {
+        double[] p = hmm.getInitialStateProbabilities();
+        DenseMatrix a = hmm.getStateTransitionProbabilities();
+        DenseMatrix b = hmm.getSymbolEmissionProbabilities();
+        int N = p.length;
+        int T = o.length;
+        double[][] delta = new double[T][N];
+        int[][] psi = new int[T][N];
+        for (int i = 0; i < N; i++) {
+            delta[0][i] = MathEx.log(p[i]) + MathEx.log(b.get(i, o[0]));
+        }
+
+        for (int t = 1; t < T; t++) {
+            for (int j = 0; j < N; j++) {
+                delta[t][j] = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < N; i++) {
+                    double d = delta[t - 1][i] + MathEx.log(a.get(i, j));
+                    if (d > delta[t][j]) {
+                        delta[t][j] = d;
+                        psi[t][j] = i;
+                    }
+                }
+                delta[t][j] += MathEx.log(b.get(j, o[t]));
+            }
+        }
+
+        int[] s = new int[T];
+        for (int i = 1; i < N; i++) {
+            if (delta[T - 1][i] > delta[T - 1][s[T - 1]]) s[T - 1] = i;
+        }
+        for (int t = T - 1; t > 0; t--) {
+            s[t - 1] = psi[t][s[t]];
+        }
+        return s;
+    }
+
+    /**
+     * Returns the maximum log joint probability over all state sequences
+     * with the given prefix.
+     */
+    private static double best(HMM hmm, int[] o, int[] s, int t) {
+        if (t == o.length) return hmm.logp(o, s);
+
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < hmm.getInitialStateProbabilities().length; i++) {
+            s[t] = i;
+            max = Math.max(max, best(hmm, o, s, t + 1));
+        }
+        return max;
+    }
+
+    /**
+     * Test of batch predict method, of class HMM.
+     */
+    @Test
+    public void testBatchPredict() {
+        System.out.println("batch predict");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[][] a2 = {{0.7, 0.2, 0.1}, {0.3, 0.5, 0.2}, {0.1, 0.3, 0.6}};
+        double[][] b2 = {{0.6, 0.3, 0.1}, {0.2, 0.5, 0.3}, {0.1, 0.2, 0.7}};
+        HMM hmm = new HMM(new double[]{0.5, 0.3, 0.2}, DenseMatrix.of(a2), DenseMatrix.of(b2));
+
+        int[][] o = new int[1000][];
+        for (int i = 0; i < o.length; i++) {
+            o[i] = new int[MathEx.randomInt(100) + 1];
+            for (int t = 0; t < o[i].length; t++) {
+                o[i][t] = MathEx.randomInt(3);
+            }
+        }
+
+        int[][] result = hmm.predict(o);
+        assertEquals(o.length, result.length);
+        for (int i = 0; i < o.length; i++) {
+            int[] expected = viterbi(hmm, o[i]);
+            assertArrayEquals(expected, result[i]);
+            assertArrayEquals(expected, hmm.predict(o[i]));
+        }
+
+        // The best path by exhaustive search over all state sequences.
+        for (int i = 0; i < o.length; i++) {
+            if (o[i].length <= 6) {
+                assertEquals(best(hmm, o[i], new int[o[i].length], 0), hmm.logp(o[i], result[i]), 1E-10);
+            }
+        }
+
+        // The decoding uses the parameters after update.
+        int[][] train = Arrays.stream(o).filter(x -> x.length > 2).toArray(int[][]::new);
+        hmm.update(train, 1);
+        result = hmm.predict(o);
+        for (int i = 0; i < o.length; i++) {
+            assertArrayEquals(viterbi(hmm, o[i]), result[i]);
+        }
+
+        // The decoding uses the parameters modified through the getters.
+        DenseMatrix transition = hmm.getStateTransitionProbabilities();
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                transition.set(i, j, i == j ? 0.1 : 0.45);
+            }
+        }
+        hmm.getInitialStateProbabilities()[2] = 0.9;
+        result = hmm.predict(o);
+        for (int i = 0; i < o.length; i++) {
+            int[] expected = viterbi(hmm, o[i]);
+            assertArrayEquals(expected, result[i]);
+            assertArrayEquals(expected, hmm.predict(o[i]));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> hmm.predict(new int[][] {{0, 1}, {0, 3}}));
+    }
+
     /**
      * Test of fit method, of class HMM.
      */
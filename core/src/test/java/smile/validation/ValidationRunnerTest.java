@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.validation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import smile.classification.KNN;
+import smile.data.DataFrame;
+import smile.data.formula.Formula;
+import smile.math.MathEx;
+import smile.regression.RegressionTree;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class ValidationRunnerTest {
+    /** Two gaussian blobs. */
+    double[][] x;
+    int[] y;
+    /** Linear response with noise. */
+    double[] r;
+
+    public ValidationRunnerTest() {
+        MathEx.setSeed(19650218); // to get repeatable results.
+        int n = 1000;
+        x = new double[n][2];
+        y = new int[n];
+        r = new double[n];
+        for (int i = 0; i < n; i++) {
+            y[i] = i % 2;
+            x[i][0] = MathEx.random(-1.5, 1.5) + y[i];
+            x[i][1] = MathEx.random(-1.5, 1.5) - y[i];
+            r[i] = 2 * x[i][0] - x[i][1] + MathEx.random(-0.1, 0.1);
+        }
+    }
+
+    @Test
+    public void testClassification() {
+        System.out.println("classification");
+        Bag[] bags = CrossValidation.of(x.length, 10);
+        var expected = ClassificationValidation.of(bags, x, y, (x, y) -> KNN.fit(x, y, 5));
+
+        List<Integer> finished = new ArrayList<>();
+        var runner = new ValidationRunner(4, null);
+        var result = runner.classification(bags, x, y, (x, y) -> KNN.fit(x, y, 5), (round, validation) -> finished.add(round));
+        System.out.println(result);
+
+        assertEquals(10, result.rounds().size());
+        assertEquals(10, finished.size());
+        assertEquals(10, finished.stream().distinct().count());
+        for (int i = 0; i < bags.length; i++) {
+            assertEquals(expected.rounds().get(i).metrics().error(), result.rounds().get(i).metrics().error());
+        }
+        assertEquals(expected.avg().accuracy(), result.avg().accuracy(), 1E-10);
+    }
+
+    @Test
+    public void testRegression() {
+        System.out.println("regression");
+        double[][] data = new double[x.length][];
+        for (int i = 0; i < x.length; i++) {
+            data[i] = new double[]{x[i][0], x[i][1], r[i]};
+        }
+
+        DataFrame df = DataFrame.of(data, "x1", "x2", "y");
+        Formula formula = Formula.lhs("y");
+        Bag[] bags = Bootstrap.of(x.length, 20);
+        var expected = RegressionValidation.of(bags, formula, df, RegressionTree::fit);
+
+        try (var executor = Executors.newFixedThreadPool(3)) {
+            var runner = new ValidationRunner(executor, Duration.ofMinutes(1));
+            var result = runner.regression(bags, formula, df, RegressionTree::fit);
+            System.out.println(result);
+
+            assertEquals(20, result.rounds().size());
+            for (int i = 0; i < bags.length; i++) {
+                assertEquals(expected.rounds().get(i).metrics().rmse(), result.rounds().get(i).metrics().rmse(), 1E-10);
+            }
+            assertFalse(executor.isShutdown());
+        }
+    }
+
+    @Test
+    public void testTimeout() {
+        System.out.println("timeout");
+        Bag[] bags = CrossValidation.of(x.length, 10);
+        var runner = new ValidationRunner(1, Duration.ofMillis(500));
+        var result = runner.classification(bags, x, y, (x, y) -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return KNN.fit(x, y, 5);
+        });
+
+        System.out.println(result.rounds().size() + " rounds finished");
+        assertTrue(result.rounds().size() > 0);
+        assertTrue(result.rounds().size() < 10);
+
+        var tooShort = new ValidationRunner(1, Duration.ofMillis(1));
+        assertThrows(CancellationException.class, () -> tooShort.classification(bags, x, y, (x, y) -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return KNN.fit(x, y, 5);
+        }));
+
+        assertThrows(IllegalArgumentException.class, () -> new ValidationRunner(0, null));
+        assertThrows(IllegalArgumentException.class, () -> new ValidationRunner(2, Duration.ZERO));
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.llm.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import smile.deep.tensor.Tensor;
+
+/**
+ * Thread-safe radix tree-based KV cache that many request threads may
+ * share. Lookups run in parallel with each other; only the structural
+ * changes of the tree are exclusive.
+ *
+ * <h2>Concurrency</h2>
+ * The tree is guarded by a read-write lock.
+ * <ul>
+ * <li>{@link #matchPrefix} walks the tree under the shared read lock.
+ *     Only when the match ends inside a stored node, which has to be
+ *     split, the walk is repeated under the exclusive write lock. Because
+ *     a split is made once per distinct boundary, the lookups of hot
+ *     prefixes (e.g., shared system prompts) never block each other.</li>
+ * <li>{@link #matchAndLock}, {@link #incLockRef} and {@link #decLockRef}
+ *     also run under the read lock. The lock reference counts and the
+ *     evictable/protected sizes are updated atomically, and the nodes
+ *     whose counts changed are queued. Their leaf status is re-evaluated
+ *     under the write lock before the next structural change, so that
+ *     eviction sees every released node.</li>
+ * <li>{@link #insert} copies the KV slot indices out of the tensor,
+ *     which is a native round trip, before taking the write lock, so that
+ *     the lock is held only to link the new nodes.</li>
+ * <li>{@link #evict} releases the write lock after every
+ *     {@code evictionBatchSize} tokens so that lookups may interleave
+ *     with a large eviction. {@link #evictAsync} runs the eviction on a
+ *     dedicated background thread.</li>
+ * </ul>
+ *
+ * <p>A node returned by {@link #matchPrefix} may be evicted by another
+ * thread before the caller locks it with {@link #incLockRef}. Use
+ * {@link #matchAndLock} to find and protect a prefix atomically, and
+ * release it with {@link #decLockRef} after use.
+ *
+ * <p>The least-recently-used order is maintained on a best-effort basis.
+ * Concurrent lookups may record their access times in any order, but
+ * each time is written atomically.
+ *
+ * @author Haifeng Li
+ */
+public class ConcurrentRadixCache extends RadixCache implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentRadixCache.class);
+    /** The default maximum number of tokens evicted per write lock hold. */
+    private static final int DEFAULT_EVICTION_BATCH_SIZE = 256;
+    /** The atomic access to {@link RadixTreeNode#lockRef}. */
+    private static final VarHandle LOCK_REF;
+    /** The atomic access to {@link RadixTreeNode#stale}. */
+    private static final VarHandle STALE;
+    /** The atomic access to {@link RadixCache#evictableSize}. */
+    private static final VarHandle EVICTABLE_SIZE;
+    /** The atomic access to {@link RadixCache#protectedSize}. */
+    private static final VarHandle PROTECTED_SIZE;
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            LOCK_REF = lookup.findVarHandle(RadixTreeNode.class, "lockRef", int.class);
+            STALE = lookup.findVarHandle(RadixTreeNode.class, "stale", boolean.class);
+            EVICTABLE_SIZE = lookup.findVarHandle(RadixCache.class, "evictableSize", int.class);
+            PROTECTED_SIZE = lookup.findVarHandle(RadixCache.class, "protectedSize", int.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    /** The read-write lock of tree. */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** The maximum number of tokens evicted per write lock hold. */
+    private final int evictionBatchSize;
+    /** The background eviction thread, created lazily. */
+    private ExecutorService evictor;
+    /** The nodes whose lock reference counts changed under the read lock. */
+    private final ConcurrentLinkedQueue<RadixTreeNode> staleNodes = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor.
+     * @param pageSize the number of tokens per KV cache page (must be &ge; 1).
+     * @param evictionBatchSize the maximum number of tokens evicted per
+     *                          write lock hold (must be &ge; 1).
+     * @throws IllegalArgumentException if {@code pageSize < 1} or
+     *         {@code evictionBatchSize < 1}.
+     */
+    public ConcurrentRadixCache(int pageSize, int evictionBatchSize) {
+        super(pageSize);
+        if (evictionBatchSize < 1) {
+            throw new IllegalArgumentException("Invalid eviction batch size: " + evictionBatchSize);
+        }
+        this.evictionBatchSize = evictionBatchSize;
+    }
+
+    /**
+     * Constructor.
+     * @param pageSize the number of tokens per KV cache page (must be &ge; 1).
+     * @throws IllegalArgumentException if {@code pageSize < 1}.
+     */
+    public ConcurrentRadixCache(int pageSize) {
+        this(pageSize, DEFAULT_EVICTION_BATCH_SIZE);
+    }
+
+    /** Constructs a cache with the default page size of 1. */
+    public ConcurrentRadixCache() {
+        this(1);
+    }
+
+    @Override
+    public void reset() {
+        // Called by the super constructor before the lock is initialized.
+        if (lock == null) {
+            super.reset();
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            staleNodes.clear();
+            super.reset();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public MatchResult matchPrefix(int[] tokenIds) {
+        return matchPrefix(tokenIds, null);
+    }
+
+    @Override
+    public MatchResult matchPrefix(int[] tokenIds, String extraKey) {
+        lock.readLock().lock();
+        try {
+            var result = match(tokenIds, extraKey, false);
+            if (result != null) return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // The match ends inside a node. Split it under the write lock.
+        lock.writeLock().lock();
+        try {
+            refresh();
+            return match(tokenIds, extraKey, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the longest cached prefix of the given token sequence and
+     * protects it from eviction in one atomic step. The caller must
+     * release the protection with {@link #decLockRef} on
+     * {@link MatchResult#lastNode()} after use.
+     *
+     * @param tokenIds the token ID sequence to look up.
+     * @param extraKey optional namespace tag, or {@code null} for the default namespace.
+     * @return the match result.
+     */
+    public MatchResult matchAndLock(int[] tokenIds, String extraKey) {
+        // The node cannot be evicted while the read lock is held.
+        lock.readLock().lock();
+        try {
+            var result = match(tokenIds, extraKey, false);
+            if (result != null) {
+                lock(result.lastNode());
+                return result;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            refresh();
+            var result = match(tokenIds, extraKey, true);
+            super.incLockRef(result.lastNode());
+            return result;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public InsertResult insert(int[] tokenIds, Tensor kvIndices) {
+        return insert(tokenIds, kvIndices, null, 0);
+    }
+
+    @Override
+    public InsertResult insert(int[] tokenIds, Tensor kvIndices, String extraKey, int priority) {
+        var alignedLen = (tokenIds.length / pageSize) * pageSize;
+        // Copies the indices out of the tensor without holding the lock.
+        var allKvIndices = alignedLen == 0 ? new long[0] : kvIndices.longArray();
+        lock.writeLock().lock();
+        try {
+            refresh();
+            return insert(tokenIds, allKvIndices, extraKey, priority);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Evicts LRU leaf nodes until at least {@code numTokens} KV cache token
+     * slots have been freed. The write lock is released after every
+     * {@code evictionBatchSize} tokens so that concurrent lookups are not
+     * stalled by a large eviction. The {@code freeCallback} is invoked
+     * while the write lock is held.
+     *
+     * @param numTokens    the minimum number of token slots to reclaim.
+     * @param freeCallback invoked with the {@code int64} KV index tensor of each
+     *                     evicted node. May be {@code null}.
+     * @return the actual number of token slots freed (may exceed {@code numTokens}).
+     */
+    @Override
+    public int evict(int numTokens, Consumer<Tensor> freeCallback) {
+        var numEvicted = 0;
+        while (numEvicted < numTokens) {
+            int n;
+            lock.writeLock().lock();
+            try {
+                refresh();
+                n = super.evict(Math.min(numTokens - numEvicted, evictionBatchSize), freeCallback);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            if (n == 0) break;
+            numEvicted += n;
+        }
+        return numEvicted;
+    }
+
+    /**
+     * Evicts LRU leaf nodes on the background eviction thread. The requests
+     * are served in the order of submission.
+     *
+     * @param numTokens    the minimum number of token slots to reclaim.
+     * @param freeCallback invoked on the eviction thread with the {@code int64}
+     *                     KV index tensor of each evicted node. May be {@code null}.
+     * @return the future of the actual number of token slots freed.
+     */
+    public CompletableFuture<Integer> evictAsync(int numTokens, Consumer<Tensor> freeCallback) {
+        return CompletableFuture.supplyAsync(() -> evict(numTokens, freeCallback), evictor());
+    }
+
+    /**
+     * Returns the background eviction thread.
+     * @return the background eviction thread.
+     */
+    private synchronized ExecutorService evictor() {
+        if (evictor == null) {
+            evictor = Executors.newSingleThreadExecutor(task -> {
+                var thread = new Thread(task, "radix-cache-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return evictor;
+    }
+
+    @Override
+    public int incLockRef(RadixTreeNode node) {
+        lock.readLock().lock();
+        try {
+            return lock(node);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int decLockRef(RadixTreeNode node) {
+        lock.readLock().lock();
+        try {
+            return unlock(node);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Atomically increments the lock reference count on a node and its
+     * ancestors. The caller must hold the read lock.
+     * @param node the node to protect (may be {@code null}).
+     * @return the change in evictable size.
+     */
+    private int lock(RadixTreeNode node) {
+        if (node == null) return 0;
+        var delta = 0;
+        while (node != root) {
+            if ((int) LOCK_REF.getAndAdd(node, 1) == 0) {
+                var length = node.key.length;
+                EVICTABLE_SIZE.getAndAdd(this, -length);
+                PROTECTED_SIZE.getAndAdd(this, length);
+                delta -= length;
+                stale(node);
+            }
+            node = node.parent;
+        }
+        return delta;
+    }
+
+    /**
+     * Atomically decrements the lock reference count on a node and its
+     * ancestors. The caller must hold the read lock.
+     * @param node the node to release (may be {@code null}).
+     * @return the change in evictable size.
+     */
+    private int unlock(RadixTreeNode node) {
+        if (node == null) return 0;
+        var delta = 0;
+        while (node != root) {
+            int count = (int) LOCK_REF.getAndAdd(node, -1);
+            if (count <= 0) {
+                LOCK_REF.getAndAdd(node, 1);
+                logger.warn("Attempted to decrement lock reference count below 0 for node {}", node.id);
+            } else if (count == 1) {
+                var length = node.key.length;
+                EVICTABLE_SIZE.getAndAdd(this, length);
+                PROTECTED_SIZE.getAndAdd(this, -length);
+                delta += length;
+                stale(node);
+            }
+            node = node.parent;
+        }
+        return delta;
+    }
+
+    /**
+     * Queues a node whose lock reference count became zero or positive,
+     * unless it is already queued.
+     * @param node the node.
+     */
+    private void stale(RadixTreeNode node) {
+        if (STALE.compareAndSet(node, false, true)) {
+            staleNodes.add(node);
+        }
+    }
+
+    /**
+     * Re-evaluates the leaf status of queued nodes. The caller must hold
+     * the write lock.
+     */
+    private void refresh() {
+        RadixTreeNode node;
+        while ((node = staleNodes.poll()) != null) {
+            node.stale = false;
+            updateLeafStatus(node);
+        }
+    }
+
+    @Override
+    public int evictableSize() {
+        return (int) EVICTABLE_SIZE.getVolatile(this);
+    }
+
+    @Override
+    public int protectedSize() {
+        return (int) PROTECTED_SIZE.getVolatile(this);
+    }
+
+    @Override
+    public int totalSize() {
+        lock.readLock().lock();
+        try {
+            return super.totalSize();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void prettyPrint() {
+        lock.readLock().lock();
+        try {
+            super.prettyPrint();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Shuts down the background eviction thread after the pending
+     * evictions are done. The cached data are kept.
+     */
+    @Override
+    public synchronized void close() {
+        if (evictor != null) {
+            evictor.close();
+            evictor = null;
+        }
+    }
+}
@@ -44,7 +44,16 @@ import smile.util.Tuple2;
  * system prompts and conversation history can be reused without recomputation.
  * Attention layers write and read activations through {@link #put} /
  * {@link #get} using request-scoped contiguous slot ranges established by
- * {@link #bindRequests}.
+ * {@link #bindRequests}. An iteration-level scheduler may further restrict
+ * the layers to a subset of the bound requests, each at its own position,
+ * with {@link #selectRequests}.
+ *
+ * <p>Since each bound request attends to its own contiguous range, a cached
+ * prefix is reused by copying its KV activations from the radix-owned slots
+ * into the range of a new request with {@link #restorePrefix}, which is far
+ * cheaper than recomputing them through all transformer layers. Likewise,
+ * {@link #cachePrefix} copies the activations of a finished request into
+ * freshly allocated slots owned by the radix tree.
  *
  * @author Haifeng Li
  * @see RadixCache
@@ -88,6 +97,32 @@ public class KvCachePool implements AutoCloseable {
     private int[] requestBases;
     /** Contiguous capacity (slots) reserved for each bound request. */
     private int requestCapacity;
+    /** The number of prefix lookups. */
+    private long lookups;
+    /** The number of prefix lookups that hit the cache. */
+    private long hits;
+    /** The number of looked up prompt tokens. */
+    private long promptTokens;
+    /** The number of prompt tokens whose KV activations are reused. */
+    private long savedTokens;
+    /** The number of prefixes that cannot be cached for lack of free slots. */
+    private long failures;
+    /**
+     * The snapshot of prefix cache metrics. The counters are updated by
+     * the thread that runs the model, and published together in a new
+     * snapshot so that other threads read a consistent view.
+     */
+    private volatile PrefixCacheMetrics metrics = new PrefixCacheMetrics(0, 0, 0, 0, 0, 0);
+    /**
+     * The bound requests that {@link #put}/{@link #get} operate on.
+     * {@code null} for all bound requests.
+     */
+    private int[] selectedRows;
+    /**
+     * The per-request start positions of {@link #put} for the selected
+     * requests. {@code null} to use the start position of the call.
+     */
+    private int[] selectedPositions;
 
     /**
      * Constructor.
@@ -165,8 +200,9 @@ public class KvCachePool implements AutoCloseable {
             logger.info("KV cache budget: {} / {} free bytes (fraction={})",
                     budget, free, memFraction);
         } else {
-            // CPU fallback: size to maxBatchSize × maxSeqLen (tests / CPU inference).
-            budget = bytesPerToken * args.maxBatchSize() * args.maxSeqLen();
+            // CPU fallback: size to maxBatchSize × maxSeqLen plus one sequence
+            // for the prefix cache (tests / CPU inference).
+            budget = bytesPerToken * (args.maxBatchSize() + 1L) * args.maxSeqLen();
         }
 
         int numSlots = (int) Math.min(Integer.MAX_VALUE, Math.max(pageSize, budget / bytesPerToken));
@@ -194,7 +230,9 @@ public class KvCachePool implements AutoCloseable {
     }
 
     /**
-     * Creates a small pool sized to {@code maxBatchSize × maxSeqLen} for unit tests.
+     * Creates a small pool sized to {@code (maxBatchSize + 1) × maxSeqLen} for
+     * unit tests and CPU inference. Besides the bound requests, the pool has
+     * room for one sequence of prefixes cached in the radix tree.
      *
      * @param args   model hyperparameters.
      * @param device compute device.
@@ -202,7 +240,7 @@ public class KvCachePool implements AutoCloseable {
      */
     public static KvCachePool forTesting(ModelArgs args, Device device) {
         int pageSize = 1;
-        int numSlots = args.maxBatchSize() * args.maxSeqLen();
+        int numSlots = (args.maxBatchSize() + 1) * args.maxSeqLen();
         int numKvHeads = args.numKvHeads() != null ? args.numKvHeads() : args.numHeads();
         int headDim = args.dim() / args.numHeads();
         return new KvCachePool(args.numLayers(), numSlots, numKvHeads, headDim,
@@ -276,6 +314,8 @@ public class KvCachePool implements AutoCloseable {
      * Does not touch radix-tree entries.
      */
     public void unbindRequests() {
+        selectedRows = null;
+        selectedPositions = null;
         if (requestBases == null) return;
         for (int base : requestBases) {
             freeContiguous(base, requestCapacity);
@@ -284,15 +324,71 @@ public class KvCachePool implements AutoCloseable {
         requestCapacity = 0;
     }
 
+    /**
+     * Restricts {@link #put}/{@link #get} to a subset of the bound requests
+     * so that requests can join and leave a running batch without touching
+     * the slots of the others. The batch dimension of the tensors passed to
+     * {@link #put} then corresponds to {@code rows}.
+     *
+     * @param rows      the indices of bound requests, or {@code null} to
+     *                  clear the selection.
+     * @param positions the per-request start positions of {@link #put}, or
+     *                  {@code null} to use the start position of the call.
+     */
+    public void selectRequests(int[] rows, int[] positions) {
+        if (rows == null) {
+            selectedRows = null;
+            selectedPositions = null;
+            return;
+        }
+
+        ensureBound();
+        if (positions != null && positions.length != rows.length) {
+            throw new IllegalArgumentException(String.format(
+                    "rows and positions have different length: %d != %d", rows.length, positions.length));
+        }
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] < 0 || rows[i] >= requestBases.length) {
+                throw new IllegalArgumentException("Invalid request index: " + rows[i]);
+            }
+            if (positions != null && (positions[i] < 0 || positions[i] >= requestCapacity)) {
+                throw new IllegalArgumentException("Invalid request position: " + positions[i]);
+            }
+        }
+        selectedRows = rows;
+        selectedPositions = positions;
+    }
+
+    /**
+     * Returns the number of bound requests.
+     * @return the number of bound requests, or 0 if none is bound.
+     */
+    public int boundRequests() {
+        return requestBases == null ? 0 : requestBases.length;
+    }
+
     /**
      * Ensures a request binding large enough for {@code endPos} tokens exists.
      * Lazily binds when none is active (convenient for unit tests); grows by
-     * rebinding when the current capacity is insufficient.
+     * rebinding when the current capacity is insufficient. When a subset of
+     * requests is selected, the binding is never changed as it is shared
+     * with the unselected requests.
      *
      * @param batchSize number of parallel requests.
      * @param endPos    exclusive end position that will be accessed.
      */
     public void ensureRequest(int batchSize, int endPos) {
+        if (selectedRows != null) {
+            if (selectedRows.length != batchSize) {
+                throw new IllegalArgumentException(String.format(
+                        "Batch size %d doesn't match %d selected requests", batchSize, selectedRows.length));
+            }
+            if (endPos > requestCapacity) {
+                throw new IllegalStateException("KV write exceeds bound request capacity");
+            }
+            return;
+        }
+
         if (requestBases != null
                 && requestBases.length == batchSize
                 && requestCapacity >= endPos) {
@@ -318,9 +414,13 @@ public class KvCachePool implements AutoCloseable {
 
         long[] indices = new long[batch * seqlen];
         for (int b = 0; b < batch; b++) {
-            int base = requestBases[b];
+            int base = requestBases[selectedRows == null ? b : selectedRows[b]];
+            int start = selectedPositions == null ? startPos : selectedPositions[b];
+            if (start + seqlen > requestCapacity) {
+                throw new IllegalStateException("KV write exceeds bound request capacity");
+            }
             for (int t = 0; t < seqlen; t++) {
-                indices[b * seqlen + t] = base + startPos + t;
+                indices[b * seqlen + t] = base + start + t;
             }
         }
 
@@ -337,7 +437,7 @@ public class KvCachePool implements AutoCloseable {
 
     /**
      * Reads key/value activations for positions {@code [0, length)} of the
-     * bound batch.
+     * bound batch, or of the selected requests if any.
      *
      * @param layer  layer index.
      * @param length number of positions to read.
@@ -349,10 +449,10 @@ public class KvCachePool implements AutoCloseable {
         if (length > requestCapacity) {
             throw new IllegalArgumentException("KV read exceeds bound request capacity");
         }
-        int batch = requestBases.length;
+        int batch = selectedRows == null ? requestBases.length : selectedRows.length;
         long[] indices = new long[batch * length];
         for (int b = 0; b < batch; b++) {
-            int base = requestBases[b];
+            int base = requestBases[selectedRows == null ? b : selectedRows[b]];
             for (int t = 0; t < length; t++) {
                 indices[b * length + t] = base + t;
             }
@@ -371,20 +471,144 @@ public class KvCachePool implements AutoCloseable {
         }
     }
 
+    /**
+     * Copies the KV activations of the longest cached prefix of
+     * {@code tokens} into the slot range of a bound request, so that
+     * only the remaining suffix has to be computed. The last token is
+     * never matched so that the caller always has a token to run the
+     * transformer on for the next-token logits.
+     *
+     * <p>The matched node is locked by {@link RadixCache#incLockRef} to
+     * protect the prefix from eviction while the request is in flight.
+     * The caller should release it with {@link RadixCache#decLockRef}
+     * when the request completes.
+     *
+     * @param row    the index of bound request.
+     * @param tokens the prompt tokens of the request.
+     * @return the match result, whose length is the number of restored
+     *         positions {@code [0, length)}.
+     */
+    public MatchResult restorePrefix(int row, int[] tokens) {
+        ensureBound();
+        if (row < 0 || row >= requestBases.length) {
+            throw new IllegalArgumentException("Invalid request index: " + row);
+        }
+
+        int limit = Math.min(tokens.length - 1, requestCapacity);
+        var match = radix.matchPrefix(Arrays.copyOf(tokens, Math.max(limit, 0)));
+        int length = match.length();
+        lookups++;
+        promptTokens += tokens.length;
+        if (length > 0) {
+            hits++;
+            savedTokens += length;
+            radix.incLockRef(match.lastNode());
+
+            long[] slots = new long[length];
+            int base = requestBases[row];
+            for (int t = 0; t < length; t++) {
+                slots[t] = base + t;
+            }
+            copy(match.indices().longArray(), slots);
+        }
+        updateMetrics();
+        return match;
+    }
+
+    /**
+     * Caches the KV activations of positions {@code [0, tokens.length)} of a
+     * bound request in the radix tree. Only the page-aligned part that is not
+     * in the tree yet is copied into newly allocated slots, which are not
+     * necessarily contiguous. If the pool cannot allocate the slots even
+     * after evicting the unlocked prefixes, nothing is cached and the
+     * failure is counted in {@link #metrics()}.
+     *
+     * @param row    the index of bound request.
+     * @param tokens the tokens whose KV activations are in the slot range
+     *               of request.
+     * @return true if the prefix is in the radix tree afterwards, false if
+     *         the pool cannot allocate the slots.
+     */
+    public boolean cachePrefix(int row, int[] tokens) {
+        ensureBound();
+        if (row < 0 || row >= requestBases.length) {
+            throw new IllegalArgumentException("Invalid request index: " + row);
+        }
+
+        int length = (Math.min(tokens.length, requestCapacity) / pageSize) * pageSize;
+        if (length == 0) return true;
+
+        int[] key = Arrays.copyOf(tokens, length);
+        try (var match = radix.matchPrefix(key)) {
+            int cached = match.length();
+            if (cached == length) return true;
+
+            // Protect the cached part from the eviction triggered by alloc().
+            radix.incLockRef(match.lastNode());
+            try {
+                long[] slots = alloc(length - cached);
+                long[] indices = new long[length];
+                System.arraycopy(match.indices().longArray(), 0, indices, 0, cached);
+                System.arraycopy(slots, 0, indices, cached, length - cached);
+
+                long[] source = new long[length - cached];
+                int base = requestBases[row];
+                for (int t = 0; t < source.length; t++) {
+                    source[t] = base + cached + t;
+                }
+                copy(source, slots);
+
+                try (var value = Tensor.of(indices)) {
+                    radix.insert(key, value);
+                }
+                return true;
+            } catch (IllegalStateException ex) {
+                failures++;
+                logger.warn("Cannot cache the prefix of {} tokens: {}", length, ex.getMessage());
+                return false;
+            } finally {
+                radix.decLockRef(match.lastNode());
+                updateMetrics();
+            }
+        }
+    }
+
+    /**
+     * Returns the prefix cache metrics. It is safe to call from any thread.
+     * @return the snapshot of prefix cache metrics.
+     */
+    public PrefixCacheMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Publishes a new snapshot of prefix cache metrics.
+     */
+    private void updateMetrics() {
+        metrics = new PrefixCacheMetrics(lookups, hits, promptTokens, savedTokens,
+                radix.evictableSize() + radix.protectedSize(), failures);
+    }
+
     /**
      * Allocates {@code numTokens} slots (page-aligned) and returns their indices.
-     * Used by the inference engine when inserting into the radix tree.
+     * Used by the inference engine when inserting into the radix tree. As the
+     * radix tree maps each token to its own slot, the pages are not necessarily
+     * contiguous, which avoids failures of a fragmented pool.
      *
      * @param numTokens number of tokens to allocate.
      * @return slot indices of length {@code alignedLen}.
+     * @throws IllegalStateException if the pool lacks free pages after
+     *         evicting the unlocked prefixes.
      */
     public long[] alloc(int numTokens) {
         int pagesNeeded = (numTokens + pageSize - 1) / pageSize;
-        int aligned = pagesNeeded * pageSize;
-        int base = allocContiguous(aligned);
-        long[] slots = new long[aligned];
-        for (int i = 0; i < aligned; i++) {
-            slots[i] = base + i;
+        reclaim(pagesNeeded);
+        long[] slots = new long[pagesNeeded * pageSize];
+        for (int i = 0, k = 0; i < pagesNeeded; i++) {
+            long base = (long) freePages.removeFirst() * pageSize;
+            for (int t = 0; t < pageSize; t++) {
+                slots[k++] = base + t;
+            }
         }
         return slots;
     }
@@ -410,6 +634,7 @@ public class KvCachePool implements AutoCloseable {
     public void close() {
         unbindRequests();
         radix.reset();
+        updateMetrics();
         kCache.close();
         vCache.close();
         freePages.clear();
@@ -417,16 +642,37 @@ public class KvCachePool implements AutoCloseable {
 
     // ===== Internal helpers =====
 
+    /**
+     * Copies the KV activations of all layers between slots.
+     * @param from the source slots.
+     * @param to   the destination slots.
+     */
+    private void copy(long[] from, long[] to) {
+        try (var src = Tensor.of(from);
+             var dst = Tensor.of(to);
+             var srcIdx = Index.of(src);
+             var dstIdx = Index.of(dst);
+             var keys = kCache.get(Index.Colon, srcIdx);
+             var values = vCache.get(Index.Colon, srcIdx)) {
+            kCache.put_(keys, Index.Colon, dstIdx);
+            vCache.put_(values, Index.Colon, dstIdx);
+        }
+    }
+
     private void ensureBound() {
         if (requestBases == null) {
             throw new IllegalStateException("No request bound; call bindRequests() first");
         }
     }
 
-    private int allocContiguous(int numSlotsNeeded) {
-        int pagesNeeded = numSlotsNeeded / pageSize;
+    /**
+     * Evicts the unlocked prefixes from the radix tree if there are less
+     * than the given number of free pages.
+     * @param pagesNeeded the number of pages needed.
+     * @throws IllegalStateException if the pool still lacks free pages.
+     */
+    private void reclaim(int pagesNeeded) {
         if (freePages.size() < pagesNeeded) {
-            // Try to reclaim from the radix tree.
             int tokensNeeded = (pagesNeeded - freePages.size()) * pageSize;
             radix.evict(tokensNeeded, value -> {
                 free(value.longArray());
@@ -437,6 +683,11 @@ public class KvCachePool implements AutoCloseable {
                         "KV cache OOM: need %d pages, have %d free", pagesNeeded, freePages.size()));
             }
         }
+    }
+
+    private int allocContiguous(int numSlotsNeeded) {
+        int pagesNeeded = numSlotsNeeded / pageSize;
+        reclaim(pagesNeeded);
 
         // Prefer contiguous pages when possible; otherwise pack from free list
         // into a freshly coalesced range by sorting.
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.llm.cache;
+
+/**
+ * The prefix cache metrics of a {@link KvCachePool}.
+ *
+ * @param lookups      the number of prompts looked up in the cache.
+ * @param hits         the number of prompts with a cached prefix.
+ * @param promptTokens the total number of prompt tokens looked up.
+ * @param savedTokens  the number of prompt tokens whose KV activations
+ *                     are reused instead of recomputed.
+ * @param cachedTokens the number of tokens currently in the radix tree.
+ * @param failures     the number of prefixes that are not cached because
+ *                     the pool has no free slots left for the radix tree.
+ *
+ * @author Haifeng Li
+ */
+public record PrefixCacheMetrics(long lookups, long hits, long promptTokens, long savedTokens, int cachedTokens,
+                                 long failures) {
+    /**
+     * Returns the fraction of prompts with a cached prefix.
+     * @return the hit rate.
+     */
+    public double hitRate() {
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    /**
+     * Returns the fraction of prompt tokens that are not recomputed.
+     * @return the saved token rate.
+     */
+    public double savedTokenRate() {
+        return promptTokens == 0 ? 0.0 : (double) savedTokens / promptTokens;
+    }
+}
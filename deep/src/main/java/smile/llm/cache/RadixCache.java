@@ -159,6 +159,20 @@ public class RadixCache {
      *         tensor automatically, or call {@link MatchResult#close()} explicitly.
      */
     public MatchResult matchPrefix(int[] tokenIds, String extraKey) {
+        return match(tokenIds, extraKey, true);
+    }
+
+    /**
+     * Finds the longest cached prefix of the given token sequence within a namespace.
+     *
+     * @param tokenIds the token ID sequence to look up.
+     * @param extraKey optional namespace tag, or {@code null} for the default namespace.
+     * @param split if false, the tree is not modified and {@code null} is
+     *              returned when the match ends inside a stored node.
+     * @return the match result, or {@code null} if the node should be split
+     *         but {@code split} is false.
+     */
+    MatchResult match(int[] tokenIds, String extraKey, boolean split) {
         var alignedLen = (tokenIds.length / pageSize) * pageSize;
         if (alignedLen == 0) {
             return new MatchResult(emptyTensor(), root);
@@ -182,6 +196,7 @@ public class RadixCache {
 
             if (prefixLen < child.key.length) {
                 // Partial match: split child so future lookups land on a precise boundary.
+                if (!split) return null;
                 var newNode = splitNode(child, prefixLen);
                 chunks.add(newNode.value.longArray());
                 node = newNode;
@@ -239,7 +254,24 @@ public class RadixCache {
 
         // Extract all indices once; sliced copies are made below without repeated
         // native-to-Java round-trips for each page.
-        var allKvIndices = kvIndices.longArray();
+        return insert(tokenIds, kvIndices.longArray(), extraKey, priority);
+    }
+
+    /**
+     * Inserts a token sequence and its KV cache slot indices into the radix tree.
+     *
+     * @param tokenIds     the token ID sequence to cache.
+     * @param allKvIndices the KV cache slot indices
+     *                     ({@code allKvIndices.length >= tokenIds.length}).
+     * @param extraKey     optional namespace tag, or {@code null} for the default namespace.
+     * @param priority     eviction priority; higher values delay eviction.
+     * @return the insert result.
+     */
+    InsertResult insert(int[] tokenIds, long[] allKvIndices, String extraKey, int priority) {
+        var alignedLen = (tokenIds.length / pageSize) * pageSize;
+        if (alignedLen == 0) {
+            return new InsertResult(0, root);
+        }
 
         var accessTime = System.nanoTime() * 1e-9;
         root.lastAccessTime = accessTime;
@@ -557,7 +589,7 @@ public class RadixCache {
      *   <li>every child (if any) has already been evicted.</li>
      * </ol>
      */
-    private void updateLeafStatus(RadixTreeNode node) {
+    void updateLeafStatus(RadixTreeNode node) {
         if (node.isEvicted() || node.lockRef > 0) {
             evictableLeaves.remove(node);
             return;
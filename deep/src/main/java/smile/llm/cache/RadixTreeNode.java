@@ -76,8 +76,15 @@ public class RadixTreeNode {
     /**
      * Monotonic timestamp (seconds) of the last access to this node.
      * Updated on every {@link RadixCache#matchPrefix} and {@link RadixCache#insert} traversal.
+     * It is volatile as concurrent lookups may update it under a shared lock.
      */
-    double lastAccessTime;
+    volatile double lastAccessTime;
+
+    /**
+     * True if the lock reference count changed under a shared lock and the
+     * leaf status of node has to be re-evaluated by {@link ConcurrentRadixCache}.
+     */
+    boolean stale;
 
     /** Monotonic timestamp (seconds) when this node was created. */
     double creationTime;
@@ -0,0 +1,622 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.llm.llama;
+
+import java.nio.charset.CharacterCodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import smile.deep.tensor.Device;
+import smile.deep.tensor.Index;
+import smile.deep.tensor.Tensor;
+import smile.llm.ChatCompletion;
+import smile.llm.FinishReason;
+import smile.llm.Message;
+import smile.llm.cache.KvCachePool;
+import smile.llm.cache.PrefixCacheMetrics;
+import smile.llm.cache.RadixTreeNode;
+import smile.torch.smile_torch_h;
+import smile.util.AutoScope;
+
+/**
+ * Iteration-level scheduler of text generation, a.k.a. continuous batching.
+ * Unlike {@link Llama#generate}, which runs a fixed batch until its longest
+ * sequence completes, the scheduler admits new requests into the running
+ * batch and retires finished ones at every decoding step. Therefore, a short
+ * request doesn't wait for the long ones, and a free row of the batch
+ * doesn't idle until the next batch starts.
+ *
+ * <p>A dedicated worker thread owns the model. It binds one slot range of
+ * the {@link KvCachePool} to each row of the batch on start. A new request
+ * takes a free row and is prefilled alone. The KV activations of the longest
+ * prefix of its prompt in the radix cache, e.g. the shared system prompt
+ * and the previous turns of a conversation, are restored instead of being
+ * recomputed, so that only the new suffix runs through the transformer.
+ * When a request completes, its prompt and response are cached for the
+ * next turn. Then all running requests, each
+ * at its own position, are decoded together one token per step. Each request
+ * streams its generated text to its own {@link SubmissionPublisher}. If the
+ * publisher is closed by the consumer, e.g. the client disconnects, the
+ * request is cancelled and leaves the batch at the next step.
+ *
+ * <p>The model must not be used by others, e.g. {@link Llama#generate},
+ * while the scheduler is running as they share the KV cache pool.
+ *
+ * @author Haifeng Li
+ */
+public class GenerationScheduler implements AutoCloseable {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(GenerationScheduler.class);
+    /** The poll timeout of idle worker thread to check if the scheduler is closed. */
+    private static final long POLL_MILLIS = 100;
+    /** The number of tokens between two streamed chunks. */
+    private static final int CHUNK_SIZE = 20;
+
+    /** A generation request and its decoding state. */
+    private static class Request {
+        /** The prompt tokens. */
+        final int[] prompt;
+        /** The maximum number of generated tokens. */
+        final int maxGenLen;
+        /** The temperature of sampling. */
+        final double temperature;
+        /** The top-p probability threshold of nucleus sampling. */
+        final double topp;
+        /** The optional random number generation seed. */
+        final long seed;
+        /** The optional flow publisher of generated chunks. */
+        final SubmissionPublisher<String> publisher;
+        /** The future of completion. */
+        final CompletableFuture<ChatCompletion> future = new CompletableFuture<>();
+        /** The generated tokens. */
+        final int[] completion;
+        /** The log probabilities of generated tokens, or null if not requested. */
+        final float[] logprobs;
+        /** The number of generated tokens. */
+        int length = 0;
+        /** The number of generated tokens that have been streamed. */
+        int streamed = 0;
+        /** The row of batch and KV cache pool. */
+        int row = -1;
+        /** The number of positions whose KV activations are in the row. */
+        int computed = 0;
+        /** The locked radix tree node of reused prompt prefix. */
+        RadixTreeNode prefix;
+
+        /** Constructor. */
+        Request(int[] prompt, int maxGenLen, double temperature, double topp,
+                boolean logprobs, long seed, SubmissionPublisher<String> publisher) {
+            this.prompt = prompt;
+            this.maxGenLen = maxGenLen;
+            this.temperature = temperature;
+            this.topp = topp;
+            this.seed = seed;
+            this.publisher = publisher;
+            this.completion = new int[maxGenLen];
+            this.logprobs = logprobs ? new float[maxGenLen] : null;
+        }
+
+        /** Returns the position of the last generated token. */
+        int position() {
+            return prompt.length + length - 1;
+        }
+    }
+
+    /** The model. */
+    private final Llama llama;
+    /** The maximum sequence length of prompt and generated tokens. */
+    private final int maxSeqLen;
+    /** The pending requests. */
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    /** The running requests by row. */
+    private final Request[] batch;
+    /** The stop tokens. */
+    private final int[] stopTokens;
+    /** The worker thread. */
+    private final Thread worker;
+    /** The number of running requests. */
+    private volatile int running = 0;
+    /** True if the scheduler is closed. */
+    private volatile boolean closed = false;
+    /** The number of completed requests. */
+    private final LongAdder requests = new LongAdder();
+    /** The number of decoding steps. */
+    private final LongAdder steps = new LongAdder();
+    /** The number of generated tokens. */
+    private final LongAdder tokens = new LongAdder();
+
+    /**
+     * Constructor. Each row of the batch reserves a slot range of max_seq_len
+     * tokens in the KV cache pool, and the pool keeps room for a sequence of
+     * max_seq_len tokens besides the rows for the prefixes cached in the radix
+     * tree. The batch size is capped accordingly. If the pool fits only one
+     * sequence, the scheduler runs one request at a time without prefix
+     * caching, which is reported by {@link PrefixCacheMetrics#failures()}.
+     *
+     * @param llama the model.
+     * @param maxBatchSize the maximum number of concurrently decoded requests.
+     */
+    public GenerationScheduler(Llama llama, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Invalid maximum batch size: " + maxBatchSize);
+        }
+
+        this.llama = llama;
+        this.maxSeqLen = llama.model.params().maxSeqLen();
+        KvCachePool pool = llama.model.kvCachePool();
+        int pageSize = pool.pageSize();
+        int capacity = (maxSeqLen + pageSize - 1) / pageSize * pageSize;
+        int sequences = pool.numSlots() / capacity;
+        if (sequences < 1) {
+            throw new IllegalStateException("KV cache pool cannot fit a sequence of max_seq_len tokens");
+        }
+        if (sequences < 2) {
+            logger.warn("KV cache pool fits only one sequence of {} tokens; prefix caching is disabled", maxSeqLen);
+        }
+
+        // One sequence of the pool is reserved for the prefix cache.
+        int batchSize = Math.min(maxBatchSize, Math.max(1, sequences - 1));
+        if (batchSize < maxBatchSize) {
+            logger.warn("KV cache pool fits {} sequences of {} tokens besides the prefix cache; batch size reduced from {}",
+                    batchSize, maxSeqLen, maxBatchSize);
+        }
+        pool.bindRequests(batchSize, maxSeqLen);
+
+        this.batch = new Request[batchSize];
+        this.stopTokens = llama.tokenizer.stopTokens();
+        this.worker = Thread.ofPlatform().name("llm-scheduler").daemon().start(this::run);
+    }
+
+    /**
+     * Returns the maximum number of concurrently decoded requests.
+     * @return the maximum number of concurrently decoded requests.
+     */
+    public int batchSize() {
+        return batch.length;
+    }
+
+    /**
+     * Returns the number of requests waiting to join the batch.
+     * @return the number of pending requests.
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of requests in the running batch.
+     * @return the number of running requests.
+     */
+    public int running() {
+        return running;
+    }
+
+    /**
+     * Returns the number of completed requests.
+     * @return the number of completed requests.
+     */
+    public long requests() {
+        return requests.sum();
+    }
+
+    /**
+     * Returns the number of decoding steps.
+     * @return the number of decoding steps.
+     */
+    public long steps() {
+        return steps.sum();
+    }
+
+    /**
+     * Returns the number of generated tokens.
+     * @return the number of generated tokens.
+     */
+    public long tokens() {
+        return tokens.sum();
+    }
+
+    /**
+     * Returns the prefix cache metrics. It is safe to call while the
+     * scheduler is running as the pool publishes consistent snapshots.
+     * @return the prefix cache metrics.
+     */
+    public PrefixCacheMetrics prefixCacheMetrics() {
+        return llama.model.kvCachePool().metrics();
+    }
+
+    /**
+     * Submits a text generation request.
+     * @param prompt the tokenized prompt.
+     * @param maxGenLen Maximum length of the generated text sequence.
+     * @param temperature Temperature value for controlling randomness in sampling.
+     * @param topp Top-p probability threshold for nucleus sampling.
+     * @param logprobs Flag indicating whether to compute token log probabilities.
+     * @param seed the optional random number generation seed. As the random
+     *             number generator is shared by the batch, the sampling is
+     *             deterministic only if the request runs alone.
+     * @param publisher an optional flow publisher that asynchronously issues
+     *                  generated chunks. It is closed when the request completes.
+     * @return the future of generated text completion.
+     */
+    public CompletableFuture<ChatCompletion> generate(int[] prompt, int maxGenLen, double temperature,
+                                                      double topp, boolean logprobs, long seed,
+                                                      SubmissionPublisher<String> publisher) {
+        if (prompt.length == 0) {
+            throw new IllegalArgumentException("Empty prompt");
+        }
+        if (prompt.length >= maxSeqLen) {
+            throw new IllegalArgumentException("The prompt length is not less than max_seq_len");
+        }
+        if (maxGenLen < 1) {
+            throw new IllegalArgumentException("Invalid maximum generation length: " + maxGenLen);
+        }
+
+        int len = Math.min(maxGenLen, maxSeqLen - prompt.length);
+        var request = new Request(prompt, len, temperature, topp, logprobs, seed, publisher);
+        if (closed) {
+            fail(request, new IllegalStateException("Scheduler is closed"));
+        } else {
+            queue.add(request);
+        }
+        return request.future;
+    }
+
+    /**
+     * Submits a text completion request.
+     * @param prompt the text prompt.
+     * @param maxGenLen Maximum length of the generated text sequence.
+     * @param temperature Temperature value for controlling randomness in sampling.
+     * @param topp Top-p probability threshold for nucleus sampling.
+     * @param logprobs Flag indicating whether to compute token log probabilities.
+     * @param seed the optional random number generation seed.
+     * @param publisher an optional flow publisher that asynchronously issues generated chunks.
+     * @return the future of generated text completion.
+     */
+    public CompletableFuture<ChatCompletion> complete(String prompt, int maxGenLen, double temperature,
+                                                      double topp, boolean logprobs, long seed,
+                                                      SubmissionPublisher<String> publisher) {
+        int[] tokens = llama.tokenizer.encode(prompt, true, false);
+        return generate(tokens, maxGenLen, temperature, topp, logprobs, seed, publisher);
+    }
+
+    /**
+     * Submits a request to generate the assistant response of a dialog.
+     * @param dialog the conversational dialog.
+     * @param maxGenLen Maximum length of the generated text sequence.
+     * @param temperature Temperature value for controlling randomness in sampling.
+     * @param topp Top-p probability threshold for nucleus sampling.
+     * @param logprobs Flag indicating whether to compute token log probabilities.
+     * @param seed the optional random number generation seed.
+     * @param publisher an optional flow publisher that asynchronously issues generated chunks.
+     * @return the future of generated chat response.
+     */
+    public CompletableFuture<ChatCompletion> chat(Message[] dialog, int maxGenLen, double temperature,
+                                                  double topp, boolean logprobs, long seed,
+                                                  SubmissionPublisher<String> publisher) {
+        int[] tokens = llama.tokenizer.encodeDialog(dialog);
+        return generate(tokens, maxGenLen, temperature, topp, logprobs, seed, publisher);
+    }
+
+    /** The loop of worker thread. */
+    private void run() {
+        try (var guard = Tensor.noGradGuard()) {
+            while (!closed || !queue.isEmpty() || running > 0) {
+                try {
+                    admit();
+                    if (running > 0) {
+                        step();
+                    }
+                } catch (InterruptedException ex) {
+                    break;
+                }
+            }
+        } finally {
+            var ex = new IllegalStateException("Scheduler is closed");
+            for (var request : batch) {
+                if (request != null) fail(request, ex);
+            }
+            llama.model.kvCachePool().unbindRequests();
+        }
+    }
+
+    /**
+     * Moves pending requests into the free rows of batch and prefills them.
+     * Blocks for a while if there are no running requests.
+     */
+    private void admit() throws InterruptedException {
+        if (running == batch.length) return;
+
+        List<Request> requests = new ArrayList<>();
+        if (running == 0) {
+            var first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (first == null) return;
+            requests.add(first);
+        }
+        queue.drainTo(requests, batch.length - running - requests.size());
+
+        int row = 0;
+        for (var request : requests) {
+            while (batch[row] != null) row++;
+            request.row = row;
+            batch[row] = request;
+            running++;
+            prefill(request);
+        }
+    }
+
+    /**
+     * Runs the transformer over the uncached suffix of the prompt of a new
+     * request and samples its first token.
+     * @param request the new request.
+     */
+    private void prefill(Request request) {
+        if (request.seed != 0) {
+            smile_torch_h.smile_manual_seed(request.seed);
+        }
+
+        try (var scope = new AutoScope()) {
+            Tensor.push(scope);
+            try {
+                int cached;
+                try (var match = llama.model.kvCachePool().restorePrefix(request.row, request.prompt)) {
+                    cached = match.length();
+                    if (cached > 0) request.prefix = match.lastNode();
+                }
+
+                long[] suffix = Arrays.stream(request.prompt).skip(cached).asLongStream().toArray();
+                Tensor input = Tensor.of(suffix, 1, suffix.length).to(llama.model.device());
+                Tensor logits = llama.model.forward(input, new int[]{request.row}, new int[]{cached});
+                request.computed = request.prompt.length;
+                Tensor last = logits.get(Index.Colon, Index.of(-1));
+                sample(last, new Request[]{request});
+            } finally {
+                Tensor.pop();
+            }
+        } catch (Throwable ex) {
+            logger.error("Failed to prefill the prompt", ex);
+            fail(request, ex);
+        }
+    }
+
+    /**
+     * Decodes one token for each running request.
+     */
+    private void step() {
+        int n = running;
+        Request[] requests = new Request[n];
+        int[] rows = new int[n];
+        int[] positions = new int[n];
+        long[] input = new long[n];
+        for (int i = 0, j = 0; i < batch.length; i++) {
+            var request = batch[i];
+            if (request != null) {
+                requests[j] = request;
+                rows[j] = i;
+                positions[j] = request.position();
+                input[j] = request.completion[request.length - 1];
+                request.computed = positions[j] + 1;
+                j++;
+            }
+        }
+
+        steps.increment();
+        try (var scope = new AutoScope()) {
+            Tensor.push(scope);
+            try {
+                Tensor tokens = Tensor.of(input, n, 1).to(llama.model.device());
+                Tensor logits = llama.model.forward(tokens, rows, positions);
+                Tensor last = logits.get(Index.Colon, Index.of(-1));
+                sample(last, requests);
+            } finally {
+                Tensor.pop();
+            }
+        } catch (Throwable ex) {
+            logger.error("Failed to decode the batch", ex);
+            for (var request : requests) {
+                fail(request, ex);
+            }
+        }
+    }
+
+    /**
+     * Samples the next token of each request from the logits of last position.
+     * @param logits the logits of shape {@code [n, vocabSize]}.
+     * @param requests the requests of each row.
+     */
+    private void sample(Tensor logits, Request[] requests) {
+        int n = requests.length;
+        long[] next;
+        try (var argmax = logits.argmax(-1, false);
+             var cpu = argmax.to(Device.CPU())) {
+            next = cpu.longArray();
+        }
+
+        boolean logprobs = false;
+        for (int i = 0; i < n; i++) {
+            var request = requests[i];
+            logprobs |= request.logprobs != null;
+            if (request.temperature > 0) {
+                try (var span = Index.slice(i, i + 1);
+                     var row = logits.get(span);
+                     var scaled = row.div(request.temperature);
+                     var probs = scaled.softmax(-1);
+                     var token = probs.topp(request.topp);
+                     var cpu = token.to(Device.CPU())) {
+                    next[i] = cpu.longArray()[0];
+                }
+            }
+        }
+
+        float[] probs = null;
+        if (logprobs) {
+            try (var target = Tensor.of(next).to(logits.device());
+                 var entropy = Tensor.crossEntropy(logits, target, "none", -100).neg_();
+                 var cpu = entropy.to(Device.CPU())) {
+                probs = cpu.floatArray();
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            int token = (int) next[i];
+            boolean stop = Arrays.stream(stopTokens).anyMatch(t -> t == token);
+            accept(requests[i], token, probs == null ? 0.0f : probs[i], stop);
+        }
+    }
+
+    /**
+     * Appends the next token to a request, streams the new text,
+     * and retires the request if it is finished.
+     * @param request the request.
+     * @param token the next token.
+     * @param logprob the log probability of next token.
+     * @param stop true if the next token is a stop token.
+     */
+    private void accept(Request request, int token, float logprob, boolean stop) {
+        if (request.future.isDone()) return;
+
+        var publisher = request.publisher;
+        if (publisher != null && publisher.isClosed()) {
+            fail(request, new CancellationException("Publisher is closed"));
+            return;
+        }
+
+        if (!stop) {
+            tokens.increment();
+            request.completion[request.length] = token;
+            if (request.logprobs != null) {
+                request.logprobs[request.length] = logprob;
+            }
+            request.length++;
+        }
+
+        boolean done = stop || request.length == request.maxGenLen;
+        if (publisher != null && (done || request.length - request.streamed >= CHUNK_SIZE)) {
+            stream(request, done);
+        }
+
+        if (done) {
+            finish(request, stop ? FinishReason.stop : FinishReason.length);
+        }
+    }
+
+    /**
+     * Publishes the generated text that has not been streamed.
+     * @param request the request.
+     * @param last true if this is the last chunk.
+     */
+    private void stream(Request request, boolean last) {
+        if (request.length == request.streamed) return;
+
+        int[] chunk = Arrays.copyOfRange(request.completion, request.streamed, request.length);
+        try {
+            // Skip special tokens so chat headers/eot are not shown as text.
+            String text = llama.tokenizer.tryDecode(chunk, true);
+            request.streamed = request.length; // advance only after a successful UTF-8 decode
+            if (!text.isEmpty()) {
+                request.publisher.submit(text);
+            }
+        } catch (CharacterCodingException ex) {
+            // Incomplete multibyte sequence at chunk boundary — wait for more tokens.
+            logger.debug("Cannot decode a chunk", ex);
+            if (last) {
+                request.streamed = request.length;
+                request.publisher.submit(llama.tokenizer.decode(chunk));
+            }
+        }
+    }
+
+    /**
+     * Completes a request and frees its row.
+     * @param request the request.
+     * @param reason the finish reason.
+     */
+    private void finish(Request request, FinishReason reason) {
+        try {
+            // A failure for lack of free slots is logged and counted by the pool.
+            int[] tokens = Arrays.copyOf(request.prompt, request.computed);
+            System.arraycopy(request.completion, 0, tokens, request.prompt.length, request.computed - request.prompt.length);
+            llama.model.kvCachePool().cachePrefix(request.row, tokens);
+        } catch (Throwable ex) {
+            logger.warn("Failed to cache the prefix", ex);
+        }
+
+        release(request);
+        requests.increment();
+        int[] completion = Arrays.copyOf(request.completion, request.length);
+        float[] logprobs = request.logprobs == null ? null : Arrays.copyOf(request.logprobs, request.length);
+        var result = new ChatCompletion(llama.name, llama.tokenizer.decode(completion),
+                request.prompt, completion, reason, logprobs);
+        if (request.publisher != null) request.publisher.close();
+        request.future.complete(result);
+    }
+
+    /**
+     * Fails a request and frees its row.
+     * @param request the request.
+     * @param ex the cause.
+     */
+    private void fail(Request request, Throwable ex) {
+        release(request);
+        if (request.publisher != null) request.publisher.closeExceptionally(ex);
+        request.future.completeExceptionally(ex);
+    }
+
+    /**
+     * Frees the row of a request and unlocks its prompt prefix.
+     * @param request the request.
+     */
+    private void release(Request request) {
+        if (request.row >= 0 && batch[request.row] == request) {
+            batch[request.row] = null;
+            running--;
+        }
+        request.row = -1;
+
+        if (request.prefix != null) {
+            llama.model.kvCachePool().radix().decLockRef(request.prefix);
+            request.prefix = null;
+        }
+    }
+
+    /**
+     * Stops accepting requests, completes the pending and running ones,
+     * and waits for the worker thread to exit. The KV cache pool is
+     * released for other use afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            worker.join();
+        } catch (InterruptedException ex) {
+            worker.interrupt();
+            Thread.currentThread().interrupt();
+        }
+
+        // Requests that raced with close() after the worker exited.
+        Request request;
+        while ((request = queue.poll()) != null) {
+            fail(request, new IllegalStateException("Scheduler is closed"));
+        }
+    }
+}
@@ -99,7 +99,9 @@ public interface RotaryPositionalEncoding {
     /**
      * Reshapes the cis tensor to match the shape of the target tensor x for
      * broadcasting purposes, allowing for element-wise operations between
-     * tensors of compatible shapes.
+     * tensors of compatible shapes. The cis tensor is either shared by the
+     * batch, i.e. {@code [seqlen, dim]}, or has the per-sequence positions
+     * of a batch, i.e. {@code [batch, seqlen, dim]}.
      * @param cis the frequency tensor for complex exponentials.
      * @param x the target tensor for broadcasting.
      * @return the reshaped cis tensor view.
@@ -109,6 +111,7 @@ public interface RotaryPositionalEncoding {
         long[] xs = x.shape();
         long[] shape = new long[dim];
         Arrays.fill(shape, 1);
+        if (cis.dim() == 3) shape[0] = xs[0];
         shape[1] = xs[1];
         shape[dim-1] = xs[dim-1];
         return cis.view(shape);
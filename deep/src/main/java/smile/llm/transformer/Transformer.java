@@ -18,6 +18,7 @@ package smile.llm.transformer;
 
 import java.lang.foreign.MemorySegment;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import smile.deep.layer.EmbeddingLayer;
 import smile.deep.layer.LinearLayer;
@@ -200,6 +201,64 @@ public class Transformer extends LayerBlock {
         }
     }
 
+    /**
+     * Forward pass through the model for a subset of the requests bound to
+     * the KV cache pool, each of which starts at its own position. This is
+     * the step of continuous batching, where requests join and leave the
+     * running batch between iterations.
+     *
+     * @param tokens the input token indices of shape {@code [n, seqlen]}.
+     * @param rows the indices of bound requests in the KV cache pool.
+     * @param positions the starting position of each request.
+     * @return the output tensor.
+     */
+    public Tensor forward(Tensor tokens, int[] rows, int[] positions) {
+        long[] shape = tokens.shape();
+        int n = (int) shape[0];
+        int seqlen = (int) shape[1];
+        if (rows.length != n || positions.length != n) {
+            throw new IllegalArgumentException(String.format(
+                    "tokens, rows and positions have different size: %d, %d, %d", n, rows.length, positions.length));
+        }
+
+        int maxPos = 0;
+        for (int pos : positions) {
+            maxPos = Math.max(maxPos, pos);
+        }
+        int length = maxPos + seqlen;
+
+        // The sequence i attends to the cached positions [0, positions[i] + s]
+        // at its step s. The slots beyond that belong to nothing yet, or to
+        // a previous request of the same row, and are masked out.
+        long[] pos = new long[n * seqlen];
+        float[] bias = new float[n * seqlen * length];
+        for (int i = 0; i < n; i++) {
+            for (int s = 0; s < seqlen; s++) {
+                int end = positions[i] + s;
+                pos[i * seqlen + s] = end;
+                int offset = (i * seqlen + s) * length;
+                Arrays.fill(bias, offset + end + 1, offset + length, Float.NEGATIVE_INFINITY);
+            }
+        }
+
+        kvCachePool.selectRequests(rows, positions);
+        try (var scope = new AutoScope()) {
+            Tensor h = scope.add(tokEmbeddings.forward(tokens));
+            Tensor index = scope.add(scope.add(Tensor.of(pos)).to(cis.device()));
+            Tensor freqs = scope.add(scope.add(cis.get(index)).view(n, seqlen, -1));
+            Tensor mask = scope.add(scope.add(Tensor.of(bias, n, 1, seqlen, length)).to(h.device(), h.dtype()));
+
+            for (var layer : layers) {
+                h = scope.add(layer.forward(h, maxPos, freqs, mask));
+            }
+
+            Tensor normalized = scope.add(norm.forward(h));
+            return output.forward(normalized).to(ScalarType.Float);
+        } finally {
+            kvCachePool.selectRequests(null, null);
+        }
+    }
+
     @Override
     public Tensor forward(Tensor tokens) {
         return forward(tokens, 0);
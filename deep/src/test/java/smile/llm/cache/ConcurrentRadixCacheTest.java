@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.llm.cache;
+
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.junit.jupiter.api.*;
+import smile.deep.tensor.Tensor;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and stress tests for {@link ConcurrentRadixCache}.
+ *
+ * @author Haifeng Li
+ */
+public class ConcurrentRadixCacheTest {
+
+    /**
+     * Returns the KV slot indices of a token sequence. The slot of a token
+     * depends only on the token and its position so that sequences sharing
+     * a prefix share the slots of the prefix as well.
+     */
+    private static long[] slots(int[] tokens) {
+        var slots = new long[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            slots[i] = tokens[i] * 1000L + i;
+        }
+        return slots;
+    }
+
+    /** Returns a random sequence of one of a few shared prefixes followed by a random suffix. */
+    private static int[] sequence(ThreadLocalRandom random) {
+        var prefix = random.nextInt(4);
+        var length = 8 + random.nextInt(24);
+        var tokens = new int[length];
+        for (int i = 0; i < length; i++) {
+            tokens[i] = i < 6 ? prefix * 10 + i : random.nextInt(8);
+        }
+        return tokens;
+    }
+
+    @Test
+    public void testGivenPartialMatchWhenMatchPrefixThenNodeIsSplit() {
+        // Given
+        var cache = new ConcurrentRadixCache();
+        try (var kv = Tensor.of(slots(new int[]{1, 2, 3, 4}))) {
+            cache.insert(new int[]{1, 2, 3, 4}, kv);
+        }
+
+        // When – the match ends inside the stored edge
+        try (var result = cache.matchPrefix(new int[]{1, 2, 9})) {
+            // Then
+            assertArrayEquals(slots(new int[]{1, 2}), result.indices().longArray());
+            assertEquals(2, result.lastNode().key.length);
+        }
+
+        // And a repeated lookup lands on the split boundary.
+        try (var result = cache.matchPrefix(new int[]{1, 2})) {
+            assertArrayEquals(slots(new int[]{1, 2}), result.indices().longArray());
+        }
+        assertEquals(4, cache.totalSize());
+        cache.reset();
+    }
+
+    @Test
+    public void testGivenLockedMatchWhenEvictThenMatchIsProtected() {
+        // Given
+        var cache = new ConcurrentRadixCache(1, 1);
+        var tokens = new int[]{1, 2, 3};
+        try (var kv = Tensor.of(slots(tokens))) {
+            cache.insert(tokens, kv);
+        }
+        try (var kv = Tensor.of(slots(new int[]{7, 8}))) {
+            cache.insert(new int[]{7, 8}, kv);
+        }
+
+        // When
+        try (var result = cache.matchAndLock(tokens, null)) {
+            int evicted = cache.evict(100, null);
+
+            // Then – only the unlocked sequence is evicted
+            assertEquals(2, evicted);
+            assertEquals(3, cache.protectedSize());
+            assertEquals(0, cache.evictableSize());
+            cache.decLockRef(result.lastNode());
+        }
+        assertEquals(3, cache.evictableSize());
+        cache.reset();
+    }
+
+    @Test
+    public void testGivenCachedSequencesWhenEvictAsyncThenSlotsAreFreed() throws Exception {
+        // Given
+        try (var cache = new ConcurrentRadixCache(1, 2)) {
+            for (int i = 0; i < 10; i++) {
+                var tokens = new int[]{i, i + 1, i + 2};
+                try (var kv = Tensor.of(slots(tokens))) {
+                    cache.insert(tokens, kv);
+                }
+            }
+
+            // When
+            var freed = new AtomicInteger();
+            int evicted = cache.evictAsync(30, kv -> {
+                freed.addAndGet((int) kv.length());
+                kv.close();
+            }).get(10, TimeUnit.SECONDS);
+
+            // Then
+            assertEquals(30, evicted);
+            assertEquals(30, freed.get());
+            assertEquals(0, cache.totalSize());
+            assertEquals(0, cache.evictableSize());
+            cache.reset();
+        }
+    }
+
+    @Test
+    public void testGivenManyThreadsWhenMatchInsertAndEvictThenCacheStaysConsistent() throws Exception {
+        // Given
+        int numThreads = 8;
+        int numIterations = 2000;
+        var cache = new ConcurrentRadixCache(1, 16);
+        var lookups = new AtomicLong();
+        var executor = Executors.newFixedThreadPool(numThreads + 1);
+        var start = new CountDownLatch(1);
+        var done = new AtomicInteger();
+
+        // When – readers and writers share the tree with a background evictor
+        var futures = new ArrayList<Future<?>>();
+        for (int t = 0; t < numThreads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                var random = ThreadLocalRandom.current();
+                for (int i = 0; i < numIterations; i++) {
+                    var tokens = sequence(random);
+                    try (var result = cache.matchAndLock(tokens, null)) {
+                        var matched = result.indices().longArray();
+                        var expected = slots(tokens);
+                        for (int j = 0; j < matched.length; j++) {
+                            assertEquals(expected[j], matched[j]);
+                        }
+
+                        if (matched.length < tokens.length) {
+                            try (var kv = Tensor.of(expected)) {
+                                cache.insert(tokens, kv);
+                            }
+                        }
+                        cache.decLockRef(result.lastNode());
+                    }
+
+                    try (var result = cache.matchPrefix(tokens)) {
+                        assertTrue(result.indices().length() <= tokens.length);
+                    }
+                    lookups.addAndGet(2);
+                }
+                done.incrementAndGet();
+                return null;
+            }));
+        }
+
+        futures.add(executor.submit(() -> {
+            start.await();
+            while (done.get() < numThreads) {
+                cache.evict(64, null);
+                Thread.yield();
+            }
+            return null;
+        }));
+
+        long time = System.nanoTime();
+        start.countDown();
+        for (var future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        time = System.nanoTime() - time;
+        executor.shutdown();
+
+        // Then – no lock is leaked and the size accounting matches the tree
+        System.out.format("%d lookups in %.1f ms: %.0f lookups/s%n",
+                lookups.get(), time / 1E6, lookups.get() / (time / 1E9));
+        assertEquals(0, cache.protectedSize());
+        assertEquals(cache.totalSize(), cache.evictableSize());
+
+        cache.evict(Integer.MAX_VALUE, null);
+        assertEquals(0, cache.totalSize());
+        assertEquals(0, cache.evictableSize());
+        cache.reset();
+    }
+
+    /**
+     * Runs the hot-prefix lookup workload of the benchmark. Every thread
+     * matches, locks and unlocks one of a few shared prefixes.
+     */
+    private static double lookups(int numThreads, int numIterations, Function<int[], RadixTreeNode> lock,
+                                  Consumer<RadixTreeNode> unlock) throws Exception {
+        var executor = Executors.newFixedThreadPool(numThreads);
+        var start = new CountDownLatch(1);
+        var futures = new ArrayList<Future<?>>();
+        for (int t = 0; t < numThreads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                var random = ThreadLocalRandom.current();
+                for (int i = 0; i < numIterations; i++) {
+                    var prefix = random.nextInt(4);
+                    var tokens = new int[]{prefix * 10, prefix * 10 + 1, prefix * 10 + 2, prefix * 10 + 3, prefix * 10 + 4, prefix * 10 + 5};
+                    unlock.accept(lock.apply(tokens));
+                }
+                return null;
+            }));
+        }
+
+        long time = System.nanoTime();
+        start.countDown();
+        for (var future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        time = System.nanoTime() - time;
+        executor.shutdown();
+        return (double) numThreads * numIterations / (time / 1E9);
+    }
+
+    @Test
+    public void testBenchmark() throws Exception {
+        System.out.println("Hot prefix lookup benchmark");
+        int numThreads = 8;
+        int numIterations = 20000;
+        var concurrent = new ConcurrentRadixCache();
+        var global = new RadixCache();
+        for (int prefix = 0; prefix < 4; prefix++) {
+            var tokens = new int[]{prefix * 10, prefix * 10 + 1, prefix * 10 + 2, prefix * 10 + 3, prefix * 10 + 4, prefix * 10 + 5};
+            try (var kv = Tensor.of(slots(tokens))) {
+                concurrent.insert(tokens, kv);
+                global.insert(tokens, kv);
+            }
+        }
+
+        // Baseline: the single-threaded cache behind one global lock.
+        double baseline = lookups(numThreads, numIterations, tokens -> {
+            synchronized (global) {
+                try (var result = global.matchPrefix(tokens)) {
+                    global.incLockRef(result.lastNode());
+                    return result.lastNode();
+                }
+            }
+        }, node -> {
+            synchronized (global) {
+                global.decLockRef(node);
+            }
+        });
+
+        double throughput = lookups(numThreads, numIterations, tokens -> {
+            try (var result = concurrent.matchAndLock(tokens, null)) {
+                return result.lastNode();
+            }
+        }, concurrent::decLockRef);
+
+        System.out.format("Global lock:          %.0f lookups/s%n", baseline);
+        System.out.format("ConcurrentRadixCache: %.0f lookups/s%n", throughput);
+        assertEquals(0, concurrent.protectedSize());
+        assertEquals(0, global.protectedSize());
+        concurrent.reset();
+        global.reset();
+    }
+}
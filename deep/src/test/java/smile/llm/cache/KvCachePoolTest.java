@@ -41,7 +41,7 @@ public class KvCachePoolTest {
         // Given
         ModelArgs args = tinyArgs(2, 1, 32);
         try (var pool = KvCachePool.forTesting(args, Device.CPU())) {
-            assertEquals(1 * 32, pool.numSlots());
+            assertEquals((1 + 1) * 32, pool.numSlots());
             pool.bindRequests(1, 16);
 
             // When – write 4 tokens at startPos=0
@@ -89,6 +89,79 @@ public class KvCachePoolTest {
         }
     }
 
+    @Test
+    public void testGivenSelectedRequestsWhenPutThenOtherRequestsUntouched() {
+        // Given – two bound requests, the second one at position 2
+        try (var pool = new KvCachePool(1, 64, 2, 16, 16, Device.CPU(), ScalarType.Float)) {
+            pool.bindRequests(2, 16);
+            pool.selectRequests(new int[]{1}, new int[]{2});
+
+            // When – write one token for the second request only
+            Tensor k = Tensor.full(3.0f, 1, 1, 2, 16);
+            Tensor v = Tensor.full(4.0f, 1, 1, 2, 16);
+            pool.put(0, 0, k, v);
+
+            // Then – the selected request sees its token at position 2
+            var cached = pool.get(0, 3);
+            assertArrayEquals(new long[]{1, 3, 2, 16}, cached._1().shape());
+            assertEquals(0.0f, cached._1().getFloat(0, 1, 0, 0), 1e-5);
+            assertEquals(3.0f, cached._1().getFloat(0, 2, 0, 0), 1e-5);
+            assertEquals(4.0f, cached._2().getFloat(0, 2, 0, 0), 1e-5);
+            cached._1().close();
+            cached._2().close();
+
+            // and the first request is not affected
+            pool.selectRequests(null, null);
+            var all = pool.get(0, 3);
+            assertEquals(0.0f, all._1().getFloat(0, 2, 0, 0), 1e-5);
+            assertEquals(3.0f, all._1().getFloat(1, 2, 0, 0), 1e-5);
+            all._1().close();
+            all._2().close();
+            k.close();
+            v.close();
+
+            assertThrows(IllegalArgumentException.class, () -> pool.selectRequests(new int[]{2}, null));
+        }
+    }
+
+    @Test
+    public void testGivenCachedPrefixWhenRestoredThenActivationsAreReused() {
+        // Given – the first request has computed 5 positions
+        try (var pool = new KvCachePool(1, 64, 2, 16, 1, Device.CPU(), ScalarType.Float)) {
+            pool.bindRequests(2, 16);
+            pool.selectRequests(new int[]{0}, null);
+            Tensor k = Tensor.full(5.0f, 1, 5, 2, 16);
+            Tensor v = Tensor.full(6.0f, 1, 5, 2, 16);
+            pool.put(0, 0, k, v);
+            pool.selectRequests(null, null);
+            pool.cachePrefix(0, new int[]{1, 2, 3, 4, 5});
+            assertEquals(5, pool.radix().totalSize());
+
+            // When – the second request shares the prefix
+            try (var match = pool.restorePrefix(1, new int[]{1, 2, 3, 4, 5, 6, 7})) {
+                // Then
+                assertEquals(5, match.length());
+                pool.radix().decLockRef(match.lastNode());
+            }
+
+            pool.selectRequests(new int[]{1}, null);
+            var cached = pool.get(0, 5);
+            assertEquals(5.0f, cached._1().getFloat(0, 4, 1, 15), 1e-5);
+            assertEquals(6.0f, cached._2().getFloat(0, 4, 1, 15), 1e-5);
+            cached._1().close();
+            cached._2().close();
+            k.close();
+            v.close();
+
+            var metrics = pool.metrics();
+            assertEquals(1, metrics.lookups());
+            assertEquals(1, metrics.hits());
+            assertEquals(7, metrics.promptTokens());
+            assertEquals(5, metrics.savedTokens());
+            assertEquals(1.0, metrics.hitRate(), 1e-10);
+        }
+    }
+
     @Test
     public void testGivenInsufficientPagesWhenBindThenThrows() {
         // Given – tiny pool of 16 slots (1 page)
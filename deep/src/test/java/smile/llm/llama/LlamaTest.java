@@ -114,6 +114,119 @@ public class LlamaTest {
         assertNotNull(results[0]);
     }
 
+    // -----------------------------------------------------------------------
+    // GenerationScheduler — continuous batching
+    // -----------------------------------------------------------------------
+
+    @Test
+    public void testGivenSchedulerWithConcurrentRequestsThenMatchesGenerate() {
+        // maxBatchSize=2 so that the third request joins when a row is free.
+        ModelArgs args = new ModelArgs(64, 1, 4, null, 100, 256, null, 1e-5, 10000.0, false, 2, 16);
+        Transformer transformer = new Transformer(args, Device.CPU());
+        Tokenizer tokenizer = createTinyTokenizer();
+        Llama llama = new Llama("test", transformer, tokenizer);
+        transformer.eval();
+        int[][] prompts = {{1, 2, 3}, {4, 5, 6, 7, 8}, {9}};
+        int[] maxGenLen = {4, 2, 6};
+
+        int[][] expected = new int[prompts.length][];
+        for (int i = 0; i < prompts.length; i++) {
+            int[][] prompt = {prompts[i]};
+            expected[i] = llama.generate(prompt, maxGenLen[i], 0.0, 0.9, false, 0, null)[0].completionTokens();
+        }
+
+        try (var scheduler = new GenerationScheduler(llama, 2)) {
+            assertEquals(2, scheduler.batchSize());
+            var futures = new java.util.ArrayList<java.util.concurrent.CompletableFuture<smile.llm.ChatCompletion>>();
+            for (int i = 0; i < prompts.length; i++) {
+                futures.add(scheduler.generate(prompts[i], maxGenLen[i], 0.0, 0.9, true, 0, null));
+            }
+
+            for (int i = 0; i < prompts.length; i++) {
+                var completion = futures.get(i).join();
+                assertArrayEquals(expected[i], completion.completionTokens());
+                assertEquals(completion.completionTokens().length, completion.logprobs().length);
+            }
+            assertEquals(3, scheduler.requests());
+            assertEquals(12, scheduler.tokens());
+        }
+    }
+
+    @Test
+    public void testGivenSchedulerWithRepeatedPromptThenPrefixIsReused() {
+        // The default pool fits the bound request and one sequence for the prefix cache.
+        ModelArgs args = new ModelArgs(64, 1, 4, null, 100, 256, null, 1e-5, 10000.0, false, 1, 16);
+        Transformer transformer = new Transformer(args, Device.CPU());
+        Llama llama = new Llama("test", transformer, createTinyTokenizer());
+        transformer.eval();
+        int[] prompt = {1, 2, 3, 4, 5, 6};
+
+        try (var scheduler = new GenerationScheduler(llama, 1)) {
+            var first = scheduler.generate(prompt, 4, 0.0, 0.9, false, 0, null).join();
+            var second = scheduler.generate(prompt, 4, 0.0, 0.9, false, 0, null).join();
+            assertArrayEquals(first.completionTokens(), second.completionTokens());
+
+            var metrics = scheduler.prefixCacheMetrics();
+            assertEquals(2, metrics.lookups());
+            assertEquals(1, metrics.hits());
+            assertEquals(5, metrics.savedTokens());
+            assertEquals(0, metrics.failures());
+        }
+    }
+
+    @Test
+    public void testGivenSchedulerWithLargeBatchThenPrefixCacheIsReserved() {
+        // The default pool fits 2 sequences: one row and the prefix cache.
+        ModelArgs args = new ModelArgs(64, 1, 4, null, 100, 256, null, 1e-5, 10000.0, false, 1, 16);
+        Transformer transformer = new Transformer(args, Device.CPU());
+        Llama llama = new Llama("test", transformer, createTinyTokenizer());
+        transformer.eval();
+        int[] prompt = {1, 2, 3, 4, 5, 6};
+
+        try (var scheduler = new GenerationScheduler(llama, 4)) {
+            assertEquals(1, scheduler.batchSize());
+            scheduler.generate(prompt, 4, 0.0, 0.9, false, 0, null).join();
+            scheduler.generate(prompt, 4, 0.0, 0.9, false, 0, null).join();
+
+            var metrics = scheduler.prefixCacheMetrics();
+            assertEquals(1, metrics.hits());
+            assertEquals(0, metrics.failures());
+        }
+    }
+
+    @Test
+    public void testGivenSchedulerWithFullPoolThenCacheFailureIsReported() {
+        // The pool fits only the bound request, so no prefix can be cached.
+        ModelArgs args = new ModelArgs(64, 1, 4, null, 100, 256, null, 1e-5, 10000.0, false, 1, 16);
+        var pool = new smile.llm.cache.KvCachePool(1, 16, 4, 16, 1, Device.CPU(), smile.deep.tensor.ScalarType.Float);
+        Transformer transformer = new Transformer(args, Device.CPU(), pool);
+        Llama llama = new Llama("test", transformer, createTinyTokenizer());
+        transformer.eval();
+        int[] prompt = {1, 2, 3, 4, 5, 6};
+
+        try (var scheduler = new GenerationScheduler(llama, 1)) {
+            var first = scheduler.generate(prompt, 4, 0.0, 0.9, false, 0, null).join();
+            var second = scheduler.generate(prompt, 4, 0.0, 0.9, false, 0, null).join();
+            assertArrayEquals(first.completionTokens(), second.completionTokens());
+
+            var metrics = scheduler.prefixCacheMetrics();
+            assertEquals(2, metrics.lookups());
+            assertEquals(0, metrics.hits());
+            assertEquals(2, metrics.failures());
+        }
+    }
+
+    @Test
+    public void testGivenSchedulerWithPromptTooLongThenThrowsIllegalArgument() {
+        ModelArgs args = new ModelArgs(64, 1, 4, null, 100, 256, null, 1e-5, 10000.0, false, 1, 8);
+        Transformer transformer = new Transformer(args, Device.CPU());
+        Llama llama = new Llama("test", transformer, createTinyTokenizer());
+        try (var scheduler = new GenerationScheduler(llama, 1)) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> scheduler.generate(new int[8], 5, 0.0, 0.9, false, 0, null));
+        }
+    }
+
     // -----------------------------------------------------------------------
     // Helper — create a tiny tokenizer with ranks for IDs 0..99
     // -----------------------------------------------------------------------
@@ -85,7 +85,7 @@ public class TransformerTest {
         ModelArgs args = new ModelArgs(64, 1, 4, null, 100, 256, null, 1e-5, 10000.0, false, 2, 32);
         var pool = smile.llm.cache.KvCachePool.forTesting(args, Device.CPU());
         GroupedQueryAttention attn = new GroupedQueryAttention(args, pool, 0);
-        assertEquals(2 * 32, pool.numSlots());
+        assertEquals((2 + 1) * 32, pool.numSlots());
         assertEquals(0, attn.layerId);
         assertEquals(16, attn.headDim);
         assertEquals(4, attn.numKvHeads);
@@ -71,6 +71,17 @@ public interface Corpus {
      */
     int count(Bigram bigram);
 
+    /**
+     * Returns the iterator over the documents in the corpus. Each call
+     * starts a new pass over the documents. The default implementation
+     * throws {@link UnsupportedOperationException} as a corpus may not
+     * keep its documents.
+     * @return the iterator of documents.
+     */
+    default Iterator<Document> documents() {
+        throw new UnsupportedOperationException("The corpus doesn't keep the documents");
+    }
+
     /**
      * Returns the iterator over the terms in the corpus.
      * @return the iterator of terms.
@@ -214,6 +214,11 @@ public class SimpleCorpus implements Corpus {
         return count == null ? 0 : count.value;
     }
 
+    @Override
+    public Iterator<Document> documents() {
+        return docs.iterator();
+    }
+
     @Override
     public Iterator<String> terms() {
         return freq.keySet().iterator();
@@ -25,13 +25,26 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import smile.data.DataFrame;
 import smile.data.vector.FloatVector;
+import smile.math.MathEx;
+import smile.neighbor.HNSW;
 
 /**
  * Word embedding. Word embedding is the collective name for a set
@@ -81,16 +94,166 @@ import smile.data.vector.FloatVector;
  * differences in the word vector space. Because these ratios can encode
  * some form of meaning, this information gets encoded as vector differences
  * as well.
+ * <p>
+ * Besides loading pre-trained models, this class trains skip-gram or CBOW
+ * models with negative sampling by {@link #fit(Corpus, Options)}. As the
+ * original implementation, the training is lock-free (Hogwild): sentences
+ * are processed by many threads in parallel, which update the shared
+ * parameters without synchronization. As the updates of a sentence touch
+ * only a small fraction of parameters, the collisions are rare and don't
+ * hurt the convergence.
+ * <p>
+ * The similarity queries {@link #nearest(String, int)} and
+ * {@link #analogy(String, String, String, int)} scan the unit-normalized
+ * embedding matrix in parallel for the exact top-k. For very large
+ * vocabularies, {@link #index(int, int)} builds an approximate nearest
+ * neighbor index.
+ *
+ * <h2>References</h2>
+ * <ol>
+ * <li>Tomas Mikolov, Ilya Sutskever, Kai Chen, Greg Corrado, and Jeffrey Dean.
+ *     Distributed Representations of Words and Phrases and their
+ *     Compositionality. NIPS, 2013.</li>
+ * <li>Feng Niu, Benjamin Recht, Christopher Re, and Stephen J. Wright.
+ *     HOGWILD!: A Lock-Free Approach to Parallelizing Stochastic Gradient
+ *     Descent. NIPS, 2011.</li>
+ * </ol>
  *
  * @author Haifeng Li
  */
 public class Word2Vec {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(Word2Vec.class);
+    /**
+     * The maximum number of words in a training sentence. Longer sentences
+     * are split so that the learning rate and progress are updated often
+     * enough, as the original tool.
+     */
+    private static final int MAX_SENTENCE_LENGTH = 1000;
+    /** The number of sentences encoded and trained in parallel at a time. */
+    private static final int BATCH_SIZE = 10000;
+
+    /**
+     * The word and its cosine similarity to the query.
+     * @param word the word.
+     * @param similarity the cosine similarity.
+     */
+    public record Match(String word, double similarity) { }
+
+    /**
+     * Word2Vec training hyperparameters.
+     * @param cbow if true, train the continuous bag-of-words model.
+     *             Otherwise, train the skip-gram model.
+     * @param dimension the dimension of embedding vectors.
+     * @param window the maximum distance between the current and context
+     *               words. The actual window size of each word is sampled
+     *               uniformly from {@code [1, window]}.
+     * @param negative the number of negative samples per positive sample.
+     * @param minCount the minimum frequency of words in the vocabulary.
+     * @param subsample the threshold of down-sampling frequent words,
+     *                  typically in {@code [1E-5, 1E-3]}. Set to 0 to
+     *                  disable down-sampling.
+     * @param learningRate the initial learning rate, which decays linearly.
+     * @param epochs the number of passes over the corpus.
+     */
+    public record Options(boolean cbow, int dimension, int window, int negative, int minCount,
+                          double subsample, double learningRate, int epochs) {
+        /** Constructor. */
+        public Options {
+            if (dimension <= 0) {
+                throw new IllegalArgumentException("Invalid dimension: " + dimension);
+            }
+            if (window <= 0) {
+                throw new IllegalArgumentException("Invalid window size: " + window);
+            }
+            if (negative <= 0) {
+                throw new IllegalArgumentException("Invalid number of negative samples: " + negative);
+            }
+            if (minCount <= 0) {
+                throw new IllegalArgumentException("Invalid minimum count: " + minCount);
+            }
+            if (subsample < 0) {
+                throw new IllegalArgumentException("Invalid subsample threshold: " + subsample);
+            }
+            if (learningRate <= 0) {
+                throw new IllegalArgumentException("Invalid learning rate: " + learningRate);
+            }
+            if (epochs <= 0) {
+                throw new IllegalArgumentException("Invalid number of epochs: " + epochs);
+            }
+        }
+
+        /**
+         * Constructor of skip-gram model with default hyperparameters.
+         * @param dimension the dimension of embedding vectors.
+         */
+        public Options(int dimension) {
+            this(false, dimension);
+        }
+
+        /**
+         * Constructor with default hyperparameters.
+         * @param cbow if true, train the continuous bag-of-words model.
+         *             Otherwise, train the skip-gram model.
+         * @param dimension the dimension of embedding vectors.
+         */
+        public Options(boolean cbow, int dimension) {
+            this(cbow, dimension, 5, 5, 5, 1E-3, learningRate(cbow), 5);
+        }
+
+        /**
+         * Returns the default initial learning rate, which is 0.05
+         * for CBOW and 0.025 for skip-gram as the original tool.
+         * @param cbow true for the continuous bag-of-words model.
+         * @return the default initial learning rate.
+         */
+        public static double learningRate(boolean cbow) {
+            return cbow ? 0.05 : 0.025;
+        }
+
+        /**
+         * Returns the persistent set of hyperparameters.
+         * @return the persistent set.
+         */
+        public Properties toProperties() {
+            Properties props = new Properties();
+            props.setProperty("smile.word2vec.cbow", Boolean.toString(cbow));
+            props.setProperty("smile.word2vec.dimension", Integer.toString(dimension));
+            props.setProperty("smile.word2vec.window", Integer.toString(window));
+            props.setProperty("smile.word2vec.negative", Integer.toString(negative));
+            props.setProperty("smile.word2vec.min_count", Integer.toString(minCount));
+            props.setProperty("smile.word2vec.subsample", Double.toString(subsample));
+            props.setProperty("smile.word2vec.learning_rate", Double.toString(learningRate));
+            props.setProperty("smile.word2vec.epochs", Integer.toString(epochs));
+            return props;
+        }
+
+        /**
+         * Returns the options from properties.
+         *
+         * @param props the hyperparameters.
+         * @return the options.
+         */
+        public static Options of(Properties props) {
+            boolean cbow = Boolean.parseBoolean(props.getProperty("smile.word2vec.cbow", "false"));
+            int dimension = Integer.parseInt(props.getProperty("smile.word2vec.dimension", "100"));
+            int window = Integer.parseInt(props.getProperty("smile.word2vec.window", "5"));
+            int negative = Integer.parseInt(props.getProperty("smile.word2vec.negative", "5"));
+            int minCount = Integer.parseInt(props.getProperty("smile.word2vec.min_count", "5"));
+            double subsample = Double.parseDouble(props.getProperty("smile.word2vec.subsample", "1E-3"));
+            double learningRate = Double.parseDouble(props.getProperty("smile.word2vec.learning_rate", Double.toString(learningRate(cbow))));
+            int epochs = Integer.parseInt(props.getProperty("smile.word2vec.epochs", "5"));
+            return new Options(cbow, dimension, window, negative, minCount, subsample, learningRate, epochs);
+        }
+    }
+
     /** The vocabulary. */
     public final String[] words;
     /** The vector space. */
     public final DataFrame vectors;
     /** The word-to-index map. */
     private final HashMap<String, Integer> map;
+    /** The unit-normalized vectors in row-major order, built lazily. */
+    private volatile float[] unit;
 
     /**
      * Constructor.
@@ -192,6 +355,495 @@ public class Word2Vec {
         return java.util.OptionalDouble.of(dot / denom);
     }
 
+    /**
+     * Returns the k words most similar to the given word in terms of
+     * cosine similarity, excluding the word itself.
+     *
+     * @param word the query word.
+     * @param k the number of words to return.
+     * @return the most similar words in descending order of similarity,
+     *         or an empty list if the word is not in the vocabulary.
+     */
+    public List<Match> nearest(String word, int k) {
+        Integer index = map.get(word);
+        if (index == null) return List.of();
+
+        int i = index;
+        int d = dimension();
+        float[] q = Arrays.copyOfRange(unit(), i * d, (i + 1) * d);
+        return nearest(q, k, j -> j == i);
+    }
+
+    /**
+     * Returns the k words most similar to the given vector in terms of
+     * cosine similarity.
+     *
+     * @param vector the query vector.
+     * @param k the number of words to return.
+     * @return the most similar words in descending order of similarity.
+     */
+    public List<Match> nearest(float[] vector, int k) {
+        if (vector.length != dimension()) {
+            throw new IllegalArgumentException(String.format("Invalid vector dimension: %d != %d", vector.length, dimension()));
+        }
+
+        float[] q = vector.clone();
+        normalize(q, 0, q.length);
+        return nearest(q, k, j -> false);
+    }
+
+    /**
+     * Solves the analogy "a is to b as c is to ?" by the words closest
+     * to {@code b - a + c} in terms of cosine similarity, e.g. "man is
+     * to king as woman is to queen". The query words are excluded.
+     *
+     * @param a the first word.
+     * @param b the word related to a.
+     * @param c the word of which the counterpart is asked.
+     * @param k the number of words to return.
+     * @return the answers in descending order of similarity, or an empty
+     *         list if any query word is not in the vocabulary.
+     */
+    public List<Match> analogy(String a, String b, String c, int k) {
+        Integer ia = map.get(a);
+        Integer ib = map.get(b);
+        Integer ic = map.get(c);
+        if (ia == null || ib == null || ic == null) return List.of();
+
+        float[] unit = unit();
+        int d = dimension();
+        float[] q = new float[d];
+        for (int j = 0; j < d; j++) {
+            q[j] = unit[ib * d + j] - unit[ia * d + j] + unit[ic * d + j];
+        }
+        normalize(q, 0, d);
+        return nearest(q, k, j -> j == ia || j == ib || j == ic);
+    }
+
+    /**
+     * Builds an approximate nearest neighbor index of the unit-normalized
+     * vectors in cosine space, of which the data objects are the words.
+     * It is much faster than the exact search of {@link #nearest(float[], int)}
+     * on vocabularies of millions of words.
+     *
+     * @param M the number of links per element on the upper layers.
+     * @param efConstruction the beam width during the construction.
+     * @return the index.
+     */
+    public HNSW<String> index(int M, int efConstruction) {
+        float[] unit = unit();
+        int d = dimension();
+        HNSW<String> index = new HNSW<>(d, words.length, HNSW.Space.COSINE, M, efConstruction);
+        IntStream.range(0, words.length).parallel().forEach(i ->
+                index.put(Arrays.copyOfRange(unit, i * d, (i + 1) * d), words[i]));
+        return index;
+    }
+
+    /** A candidate of top-k search. */
+    private record Candidate(int index, float similarity) { }
+
+    /**
+     * Returns the k rows of unit-normalized matrix most similar to the
+     * unit query vector. The rows are scanned in blocks in parallel, each
+     * of which keeps its top-k in a heap.
+     */
+    private List<Match> nearest(float[] q, int k, IntPredicate exclude) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+
+        float[] unit = unit();
+        int n = words.length;
+        int d = q.length;
+        int blockSize = 4096;
+        int blocks = (n + blockSize - 1) / blockSize;
+        Comparator<Candidate> order = Comparator.comparingDouble(Candidate::similarity);
+        List<Candidate> candidates = IntStream.range(0, blocks).parallel().mapToObj(b -> {
+            PriorityQueue<Candidate> heap = new PriorityQueue<>(k + 1, order);
+            int end = Math.min(n, (b + 1) * blockSize);
+            for (int i = b * blockSize; i < end; i++) {
+                if (exclude.test(i)) continue;
+
+                float s = 0.0f;
+                for (int j = 0, l = i * d; j < d; j++, l++) {
+                    s += q[j] * unit[l];
+                }
+
+                if (heap.size() < k) {
+                    heap.add(new Candidate(i, s));
+                } else if (s > heap.peek().similarity()) {
+                    heap.poll();
+                    heap.add(new Candidate(i, s));
+                }
+            }
+            return heap;
+        }).flatMap(PriorityQueue::stream).collect(Collectors.toList());
+
+        candidates.sort(order.reversed());
+        return candidates.stream().limit(k)
+                .map(c -> new Match(words[c.index()], c.similarity()))
+                .toList();
+    }
+
+    /**
+     * Returns the unit-normalized vectors in row-major order.
+     * @return the unit-normalized vectors.
+     */
+    private float[] unit() {
+        float[] matrix = unit;
+        if (matrix == null) {
+            synchronized (this) {
+                matrix = unit;
+                if (matrix == null) {
+                    int n = words.length;
+                    int d = dimension();
+                    float[] data = new float[matrixSize(n, d)];
+                    IntStream.range(0, n).parallel().forEach(i -> {
+                        for (int j = 0; j < d; j++) {
+                            data[i * d + j] = vectors.getFloat(i, j);
+                        }
+                        normalize(data, i * d, d);
+                    });
+                    unit = matrix = data;
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Returns the number of elements of n x d matrix in a flat array.
+     * @param n the number of rows.
+     * @param d the number of columns.
+     * @return the number of elements.
+     */
+    private static int matrixSize(int n, int d) {
+        long size = (long) n * d;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("Too many words (%d) for dimension %d: %d elements exceed the maximum array size", n, d, size));
+        }
+        return (int) size;
+    }
+
+    /** Normalizes a vector to unit length in place. Zero vector is unchanged. */
+    private static void normalize(float[] x, int offset, int length) {
+        double norm = 0.0;
+        for (int j = offset; j < offset + length; j++) {
+            norm += (double) x[j] * x[j];
+        }
+
+        if (norm > 0.0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int j = offset; j < offset + length; j++) {
+                x[j] *= scale;
+            }
+        }
+    }
+
+    /**
+     * Trains a word2vec model on the documents of a corpus. Each document
+     * is a sentence, i.e. the context window doesn't cross documents.
+     * The documents are streamed from the corpus in two passes, one to
+     * build the vocabulary and one per epoch to train, without holding
+     * the whole corpus in memory.
+     *
+     * @param corpus the corpus.
+     * @param options the hyperparameters.
+     * @return the model.
+     */
+    public static Word2Vec fit(Corpus corpus, Options options) {
+        return fit(() -> new Iterator<>() {
+            final Iterator<Document> docs = corpus.documents();
+
+            @Override
+            public boolean hasNext() {
+                return docs.hasNext();
+            }
+
+            @Override
+            public String[] next() {
+                Document doc = docs.next();
+                List<String> words = new ArrayList<>(doc.size());
+                doc.words().forEach(words::add);
+                return words.toArray(new String[0]);
+            }
+        }, options);
+    }
+
+    /**
+     * Trains a word2vec model with negative sampling.
+     *
+     * @param sentences the tokenized sentences.
+     * @param options the hyperparameters.
+     * @return the model.
+     */
+    public static Word2Vec fit(List<String[]> sentences, Options options) {
+        return fit(sentences::iterator, options);
+    }
+
+    /**
+     * Trains a word2vec model with negative sampling. The sentences are
+     * iterated once to build the vocabulary and once per epoch to train.
+     * Each pass encodes a batch of sentences at a time, which are trained
+     * in parallel.
+     *
+     * @param sentences the supplier of a new pass over the tokenized sentences.
+     * @param options the hyperparameters.
+     * @return the model.
+     */
+    private static Word2Vec fit(Supplier<Iterator<String[]>> sentences, Options options) {
+        // The vocabulary of frequent words in descending order of frequency.
+        HashMap<String, long[]> frequency = new HashMap<>();
+        for (var it = sentences.get(); it.hasNext(); ) {
+            for (String word : it.next()) {
+                frequency.computeIfAbsent(word, w -> new long[1])[0]++;
+            }
+        }
+
+        String[] words = frequency.entrySet().stream()
+                .filter(e -> e.getValue()[0] >= options.minCount)
+                .sorted(Comparator.<Map.Entry<String, long[]>>comparingLong(e -> -e.getValue()[0]).thenComparing(Map.Entry::getKey))
+                .map(Map.Entry::getKey)
+                .toArray(String[]::new);
+
+        if (words.length == 0) {
+            throw new IllegalArgumentException("No word occurs at least " + options.minCount + " times");
+        }
+
+        int n = words.length;
+        long[] count = new long[n];
+        HashMap<String, Integer> index = new HashMap<>(n * 4 / 3 + 3);
+        for (int i = 0; i < n; i++) {
+            index.put(words[i], i);
+            count[i] = frequency.get(words[i])[0];
+        }
+        frequency = null;
+
+        Trainer trainer = new Trainer(count, options);
+        long seed = MathEx.randomLong();
+        List<int[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int epoch = 0; epoch < options.epochs; epoch++) {
+            // The number of sentences trained so far, to seed the next batch.
+            long trained = 0;
+            for (var it = sentences.get(); it.hasNext(); ) {
+                // Encode the sentence, dropping infrequent words, and
+                // split it into the chunks of at most MAX_SENTENCE_LENGTH.
+                int[] sentence = Arrays.stream(it.next())
+                        .map(index::get)
+                        .filter(Objects::nonNull)
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+                for (int from = 0; from < sentence.length; from += MAX_SENTENCE_LENGTH) {
+                    batch.add(Arrays.copyOfRange(sentence, from, Math.min(sentence.length, from + MAX_SENTENCE_LENGTH)));
+                }
+
+                if (batch.size() >= BATCH_SIZE || !it.hasNext()) {
+                    long base = seed + trained;
+                    IntStream.range(0, batch.size()).parallel().forEach(i -> trainer.train(batch.get(i), base + i));
+                    trained += batch.size();
+                    batch.clear();
+                }
+            }
+            seed += trained;
+            logger.info("Word2Vec epoch {}/{}: learning rate = {}", epoch + 1, options.epochs, trainer.learningRate());
+        }
+
+        int d = options.dimension;
+        float[][] vectors = new float[d][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < d; j++) {
+                vectors[j][i] = trainer.syn0[i * d + j];
+            }
+        }
+
+        return new Word2Vec(words, vectors);
+    }
+
+    /**
+     * The lock-free trainer of skip-gram and CBOW with negative sampling.
+     * The parameters are shared by all threads without synchronization.
+     */
+    private static class Trainer {
+        /** The sigmoid function is saturated beyond this value. */
+        static final float MAX_EXP = 6.0f;
+        /** The hyperparameters. */
+        final Options options;
+        /** The dimension of vectors. */
+        final int d;
+        /** The word vectors in row-major order. */
+        final float[] syn0;
+        /** The context vectors of negative sampling in row-major order. */
+        final float[] syn1;
+        /** The unigram table of negative sampling. */
+        final int[] table;
+        /** The probability to keep each word in down-sampling. */
+        final float[] keep;
+        /** The total number of words to process in all epochs. */
+        final long work;
+        /** The number of processed words. */
+        final AtomicLong progress = new AtomicLong();
+
+        /**
+         * Constructor.
+         * @param count the frequency of words.
+         * @param options the hyperparameters.
+         */
+        Trainer(long[] count, Options options) {
+            this.options = options;
+            int n = count.length;
+            d = options.dimension;
+            long total = 0;
+            for (long c : count) total += c;
+            work = options.epochs * total;
+
+            syn0 = new float[matrixSize(n, d)];
+            for (int i = 0; i < syn0.length; i++) {
+                syn0[i] = (float) ((MathEx.random() - 0.5) / d);
+            }
+            syn1 = new float[syn0.length];
+
+            keep = new float[n];
+            double threshold = options.subsample * total;
+            for (int i = 0; i < n; i++) {
+                keep[i] = threshold > 0 ? (float) ((Math.sqrt(count[i] / threshold) + 1) * threshold / count[i]) : 1.0f;
+            }
+
+            // Sample words proportional to the 3/4 power of frequency.
+            table = new int[(int) Math.min(100_000_000L, Math.max(1_000_000L, 100L * n))];
+            double norm = 0.0;
+            for (long c : count) norm += Math.pow(c, 0.75);
+            int w = 0;
+            double cdf = Math.pow(count[0], 0.75) / norm;
+            for (int a = 0; a < table.length; a++) {
+                table[a] = w;
+                if ((double) a / table.length > cdf && w < n - 1) {
+                    w++;
+                    cdf += Math.pow(count[w], 0.75) / norm;
+                }
+            }
+        }
+
+        /**
+         * Returns the current learning rate, which decays linearly.
+         * @return the current learning rate.
+         */
+        float learningRate() {
+            return (float) (options.learningRate * Math.max(1.0 - (double) progress.get() / (work + 1), 1E-4));
+        }
+
+        /** Returns the next random number of linear congruential generator. */
+        static long next(long random) {
+            return random * 25214903917L + 11;
+        }
+
+        /**
+         * Trains on a sentence. The learning rate is updated once per
+         * sentence, which has at most {@code MAX_SENTENCE_LENGTH} words.
+         * @param words the word indices of sentence.
+         * @param seed the random seed.
+         */
+        void train(int[] words, long seed) {
+            long random = seed;
+            int[] sentence = new int[words.length];
+            int length = 0;
+            for (int word : words) {
+                if (keep[word] < 1.0f) {
+                    random = next(random);
+                    if (keep[word] < (random & 0xFFFF) / 65536.0f) continue;
+                }
+                sentence[length++] = word;
+            }
+
+            int window = options.window;
+            float[] neu1 = new float[d];
+            float[] neu1e = new float[d];
+            float alpha = learningRate();
+            for (int pos = 0; pos < length; pos++) {
+                random = next(random);
+                int b = (int) ((random >>> 16) % window);
+                int word = sentence[pos];
+                int from = Math.max(0, pos - window + b);
+                int to = Math.min(length - 1, pos + window - b);
+
+                if (options.cbow) {
+                    Arrays.fill(neu1, 0.0f);
+                    Arrays.fill(neu1e, 0.0f);
+                    int cw = 0;
+                    for (int c = from; c <= to; c++) {
+                        if (c == pos) continue;
+                        int l1 = sentence[c] * d;
+                        for (int j = 0; j < d; j++) neu1[j] += syn0[l1 + j];
+                        cw++;
+                    }
+
+                    if (cw > 0) {
+                        for (int j = 0; j < d; j++) neu1[j] /= cw;
+                        random = negativeSampling(word, neu1, 0, neu1e, alpha, random);
+                        for (int c = from; c <= to; c++) {
+                            if (c == pos) continue;
+                            int l1 = sentence[c] * d;
+                            for (int j = 0; j < d; j++) syn0[l1 + j] += neu1e[j];
+                        }
+                    }
+                } else {
+                    for (int c = from; c <= to; c++) {
+                        if (c == pos) continue;
+                        int l1 = sentence[c] * d;
+                        Arrays.fill(neu1e, 0.0f);
+                        random = negativeSampling(word, syn0, l1, neu1e, alpha, random);
+                        for (int j = 0; j < d; j++) syn0[l1 + j] += neu1e[j];
+                    }
+                }
+            }
+
+            progress.addAndGet(words.length);
+        }
+
+        /**
+         * Updates the context vectors of the word and negative samples, and
+         * accumulates the gradient of input vector.
+         * @param word the target word.
+         * @param input the array of input vector.
+         * @param offset the offset of input vector.
+         * @param neu1e the gradient of input vector.
+         * @param alpha the learning rate.
+         * @param random the state of random number generator.
+         * @return the new state of random number generator.
+         */
+        long negativeSampling(int word, float[] input, int offset, float[] neu1e, float alpha, long random) {
+            for (int k = 0; k <= options.negative; k++) {
+                int target;
+                int label;
+                if (k == 0) {
+                    target = word;
+                    label = 1;
+                } else {
+                    random = next(random);
+                    target = table[(int) ((random >>> 16) % table.length)];
+                    if (target == word) continue;
+                    label = 0;
+                }
+
+                int l2 = target * d;
+                float f = 0.0f;
+                for (int j = 0; j < d; j++) f += input[offset + j] * syn1[l2 + j];
+
+                float g;
+                if (f > MAX_EXP) {
+                    g = (label - 1) * alpha;
+                } else if (f < -MAX_EXP) {
+                    g = label * alpha;
+                } else {
+                    g = (label - (float) (1.0 / (1.0 + Math.exp(-f)))) * alpha;
+                }
+
+                for (int j = 0; j < d; j++) neu1e[j] += g * syn1[l2 + j];
+                for (int j = 0; j < d; j++) syn1[l2 + j] += g * input[offset + j];
+            }
+            return random;
+        }
+    }
+
     /**
      * Loads a <a href="https://code.google.com/archive/p/word2vec/">pre-trained</a>
      * word2vec model from binary file of ByteOrder.LITTLE_ENDIAN.
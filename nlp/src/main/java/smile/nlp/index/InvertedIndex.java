@@ -0,0 +1,724 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.nlp.index;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import smile.nlp.Corpus;
+import smile.nlp.Document;
+import smile.nlp.relevance.BM25;
+import smile.nlp.relevance.RelevanceRanker;
+import smile.nlp.relevance.TFIDF;
+import smile.util.IntArrayList;
+
+/**
+ * Disk-based inverted index with top-k retrieval by block-max WAND.
+ * Documents are buffered in memory and written as immutable segments,
+ * which are memory-mapped for search. In a segment, the postings of
+ * each term are sorted by document and compressed in blocks with
+ * delta and variable-byte encoding. Only the buffered documents and
+ * the list of segments are kept on the heap.
+ * <p>
+ * Similar segments are merged incrementally at the end of {@link #flush()},
+ * which {@link #add(String, List)} calls when the buffer is full. The merge
+ * runs synchronously in the calling thread while searches continue on the
+ * current segments. Whenever there are {@code mergeFactor} trailing
+ * segments of the same size level (in the logarithmic scale of
+ * {@code mergeFactor}), they are merged into one. Therefore, the
+ * number of segments grows logarithmically with the number of documents.
+ * {@link #merge()} merges all segments into one for the fastest search.
+ * <p>
+ * Instead of scoring every document that contains any query term,
+ * WAND (Weak AND) skips the documents whose score upper bound, i.e.
+ * the sum of maximum scores of the contained terms, cannot beat the
+ * current k-th best score. Block-max WAND refines the bound with the
+ * maximum score of the current postings block of each term, and skips
+ * whole blocks without decoding. The result is exactly the same top-k
+ * as exhaustive evaluation. {@link BM25} and {@link TFIDF} rankers are
+ * supported, which are monotone in term frequency and document length.
+ * <p>
+ * The documents are numbered in the order of addition. Searches may run
+ * concurrently with each other and with the updates. The documents are
+ * searchable after {@link #flush()}.
+ *
+ * <h2>References</h2>
+ * <ol>
+ * <li>A. Z. Broder, D. Carmel, M. Herscovici, A. Soffer, and J. Zien.
+ *     Efficient query evaluation using a two-level retrieval process.
+ *     CIKM, 2003.</li>
+ * <li>S. Ding and T. Suel. Faster top-k document retrieval using
+ *     block-max indexes. SIGIR, 2011.</li>
+ * </ol>
+ *
+ * @author Haifeng Li
+ */
+public class InvertedIndex implements AutoCloseable {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(InvertedIndex.class);
+    /** The file name of segment list. */
+    private static final String MANIFEST = "segments";
+
+    /**
+     * A search hit.
+     * @param doc the document number.
+     * @param id the document ID.
+     * @param score the relevance score.
+     */
+    public record Hit(int doc, String id, double score) { }
+
+    /** The index directory. */
+    private final Path dir;
+    /** The maximum number of buffered documents before flush. */
+    private final int maxBufferedDocs;
+    /** The number of similar segments to merge. */
+    private final int mergeFactor;
+    /** The segments in the order of documents. */
+    private volatile List<Segment> segments;
+    /** The lock between searches and replacing segments. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** The sequence number of next segment file. */
+    private int nextSegment;
+
+    /** The buffered postings of terms. Each posting is a pair of document and term frequency. */
+    private final HashMap<String, IntArrayList> buffer = new HashMap<>();
+    /** The IDs of buffered documents. */
+    private final List<String> bufferedIds = new ArrayList<>();
+    /** The lengths of buffered documents. */
+    private final IntArrayList bufferedLengths = new IntArrayList();
+    /** The maximum term frequencies of buffered documents. */
+    private final IntArrayList bufferedMaxtf = new IntArrayList();
+
+    /**
+     * Constructor.
+     * @param dir the index directory.
+     * @param segments the segments.
+     * @param nextSegment the sequence number of next segment file.
+     * @param maxBufferedDocs the maximum number of buffered documents before flush.
+     * @param mergeFactor the number of similar segments to merge.
+     */
+    private InvertedIndex(Path dir, List<Segment> segments, int nextSegment, int maxBufferedDocs, int mergeFactor) {
+        this.dir = dir;
+        this.segments = segments;
+        this.nextSegment = nextSegment;
+        this.maxBufferedDocs = maxBufferedDocs;
+        this.mergeFactor = mergeFactor;
+    }
+
+    /**
+     * Opens or creates an index with 100,000 buffered documents and
+     * merge factor 10.
+     * @param dir the index directory.
+     * @return the index.
+     * @throws IOException when fails to open the index.
+     */
+    public static InvertedIndex open(Path dir) throws IOException {
+        return open(dir, 100000, 10);
+    }
+
+    /**
+     * Opens or creates an index.
+     * @param dir the index directory.
+     * @param maxBufferedDocs the maximum number of buffered documents before flush.
+     * @param mergeFactor the number of similar segments to merge.
+     * @return the index.
+     * @throws IOException when fails to open the index.
+     */
+    public static InvertedIndex open(Path dir, int maxBufferedDocs, int mergeFactor) throws IOException {
+        if (maxBufferedDocs <= 0) {
+            throw new IllegalArgumentException("Invalid maximum number of buffered documents: " + maxBufferedDocs);
+        }
+
+        if (mergeFactor < 2) {
+            throw new IllegalArgumentException("Invalid merge factor: " + mergeFactor);
+        }
+
+        Files.createDirectories(dir);
+        List<Segment> segments = new ArrayList<>();
+        int next = 0;
+        Path manifest = dir.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            try {
+                for (String name : Files.readAllLines(manifest)) {
+                    if (name.isBlank()) continue;
+                    segments.add(new Segment(dir.resolve(name)));
+                    next = Math.max(next, Integer.parseInt(name.substring(4, name.indexOf('.'))) + 1);
+                }
+            } catch (IOException | RuntimeException ex) {
+                segments.forEach(Segment::close);
+                throw ex;
+            }
+        }
+
+        return new InvertedIndex(dir, List.copyOf(segments), next, maxBufferedDocs, mergeFactor);
+    }
+
+    /**
+     * Creates an index of the documents of a corpus.
+     * @param dir the index directory.
+     * @param corpus the corpus.
+     * @return the index.
+     * @throws IOException when fails to write the index.
+     */
+    public static InvertedIndex of(Path dir, Corpus corpus) throws IOException {
+        InvertedIndex index = open(dir);
+        try {
+            var iterator = corpus.documents();
+            while (iterator.hasNext()) {
+                index.add(iterator.next());
+            }
+            index.flush();
+            return index;
+        } catch (IOException | RuntimeException ex) {
+            index.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the number of searchable documents.
+     * @return the number of searchable documents.
+     */
+    public int size() {
+        int n = 0;
+        for (var segment : segments) n += segment.docCount;
+        return n;
+    }
+
+    /**
+     * Returns the number of segments.
+     * @return the number of segments.
+     */
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Returns the average length of searchable documents.
+     * @return the average length of documents.
+     */
+    public double avgDocSize() {
+        long length = 0;
+        int n = 0;
+        for (var segment : segments) {
+            length += segment.totalLength;
+            n += segment.docCount;
+        }
+        return n == 0 ? 0.0 : (double) length / n;
+    }
+
+    /**
+     * Returns the number of searchable documents containing the term.
+     * @param term the term.
+     * @return the document frequency.
+     */
+    public int df(String term) {
+        lock.readLock().lock();
+        try {
+            int df = 0;
+            for (var segment : segments) {
+                int i = segment.find(term);
+                if (i >= 0) df += segment.df(i);
+            }
+            return df;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a document.
+     * @param doc the document.
+     * @return the document number.
+     * @throws IOException when fails to flush the buffered documents.
+     */
+    public int add(Document doc) throws IOException {
+        List<String> words = new ArrayList<>(doc.size());
+        doc.words().forEach(words::add);
+        return add(doc.id(), words);
+    }
+
+    /**
+     * Adds a document. The buffered documents are flushed to a new
+     * segment when the buffer is full.
+     * @param id the document ID.
+     * @param words the words of document.
+     * @return the document number.
+     * @throws IOException when fails to flush the buffered documents.
+     */
+    public synchronized int add(String id, List<String> words) throws IOException {
+        int doc = bufferedIds.size();
+        TreeMap<String, Integer> tf = new TreeMap<>();
+        for (String word : words) {
+            tf.merge(word, 1, Integer::sum);
+        }
+
+        int maxtf = 0;
+        for (var entry : tf.entrySet()) {
+            IntArrayList postings = buffer.computeIfAbsent(entry.getKey(), k -> new IntArrayList());
+            postings.add(doc, entry.getValue());
+            maxtf = Math.max(maxtf, entry.getValue());
+        }
+
+        bufferedIds.add(id);
+        bufferedLengths.add(words.size());
+        bufferedMaxtf.add(Math.max(1, maxtf));
+
+        int number = size() + doc;
+        if (bufferedIds.size() >= maxBufferedDocs) {
+            flush();
+        }
+        return number;
+    }
+
+    /**
+     * Writes the buffered documents to a new segment, and merges similar
+     * segments.
+     * @throws IOException when fails to write the segment.
+     */
+    public synchronized void flush() throws IOException {
+        if (bufferedIds.isEmpty()) return;
+
+        Path path = newSegmentPath();
+        try (SegmentWriter writer = new SegmentWriter(path)) {
+            for (int i = 0; i < bufferedIds.size(); i++) {
+                writer.addDocument(bufferedIds.get(i), bufferedLengths.get(i), bufferedMaxtf.get(i));
+            }
+
+            String[] terms = buffer.keySet().toArray(new String[0]);
+            Arrays.sort(terms);
+            for (String term : terms) {
+                IntArrayList postings = buffer.get(term);
+                writer.startTerm(term);
+                for (int i = 0; i < postings.size(); i += 2) {
+                    int doc = postings.get(i);
+                    writer.addPosting(doc, postings.get(i + 1), bufferedLengths.get(doc), bufferedMaxtf.get(doc));
+                }
+                writer.endTerm();
+            }
+        }
+
+        List<Segment> list = new ArrayList<>(segments);
+        list.add(new Segment(path));
+        replace(list, List.of());
+
+        buffer.clear();
+        bufferedIds.clear();
+        bufferedLengths.clear();
+        bufferedMaxtf.clear();
+
+        // Merge the trailing segments of the same size level.
+        while (true) {
+            List<Segment> current = segments;
+            int n = current.size();
+            if (n < mergeFactor) break;
+            int level = level(current.get(n - 1));
+            boolean similar = true;
+            for (int i = n - mergeFactor; i < n - 1; i++) {
+                if (level(current.get(i)) != level) {
+                    similar = false;
+                    break;
+                }
+            }
+            if (!similar) break;
+            merge(n - mergeFactor, n);
+        }
+    }
+
+    /**
+     * Merges all segments into one.
+     * @throws IOException when fails to write the segment.
+     */
+    public synchronized void merge() throws IOException {
+        flush();
+        if (segments.size() > 1) {
+            merge(0, segments.size());
+        }
+    }
+
+    /** Returns the size level of segment. */
+    private int level(Segment segment) {
+        double size = Math.max(1.0, (double) segment.docCount / maxBufferedDocs);
+        return (int) Math.floor(Math.log(size) / Math.log(mergeFactor) + 1E-9);
+    }
+
+    /** Returns the path of new segment file. */
+    private Path newSegmentPath() {
+        return dir.resolve(String.format("seg-%d.idx", nextSegment++));
+    }
+
+    /**
+     * Merges a range of adjacent segments into one.
+     * @param from the first segment, inclusive.
+     * @param to the last segment, exclusive.
+     */
+    private void merge(int from, int to) throws IOException {
+        List<Segment> current = segments;
+        List<Segment> sources = current.subList(from, to);
+        Path path = newSegmentPath();
+        long time = System.nanoTime();
+
+        int[] base = new int[sources.size()];
+        try (SegmentWriter writer = new SegmentWriter(path)) {
+            int docs = 0;
+            for (int s = 0; s < sources.size(); s++) {
+                Segment segment = sources.get(s);
+                base[s] = docs;
+                for (int doc = 0; doc < segment.docCount; doc++) {
+                    writer.addDocument(segment.id(doc), segment.length(doc), segment.maxtf(doc));
+                }
+                docs += segment.docCount;
+            }
+
+            // k-way merge of sorted term tables.
+            int[] next = new int[sources.size()];
+            String[] heads = new String[sources.size()];
+            PriorityQueue<Integer> queue = new PriorityQueue<>(
+                    Comparator.<Integer, String>comparing(s -> heads[s]).thenComparingInt(s -> s));
+            for (int s = 0; s < sources.size(); s++) {
+                if (sources.get(s).termCount > 0) {
+                    heads[s] = sources.get(s).term(0);
+                    queue.add(s);
+                }
+            }
+
+            while (!queue.isEmpty()) {
+                String term = heads[queue.peek()];
+                writer.startTerm(term);
+                while (!queue.isEmpty() && heads[queue.peek()].equals(term)) {
+                    int s = queue.poll();
+                    Segment segment = sources.get(s);
+                    PostingCursor cursor = segment.postings(next[s]);
+                    for (int doc = cursor.doc(); doc != PostingCursor.END; cursor.next(), doc = cursor.doc()) {
+                        writer.addPosting(base[s] + doc, cursor.tf(), segment.length(doc), segment.maxtf(doc));
+                    }
+
+                    if (++next[s] < segment.termCount) {
+                        heads[s] = segment.term(next[s]);
+                        queue.add(s);
+                    }
+                }
+                writer.endTerm();
+            }
+        }
+
+        List<Segment> list = new ArrayList<>(current.subList(0, from));
+        list.add(new Segment(path));
+        list.addAll(current.subList(to, current.size()));
+        replace(list, sources);
+        logger.info("Merged {} index segments into {} in {} ms", sources.size(), path.getFileName(), (System.nanoTime() - time) / 1000000);
+    }
+
+    /**
+     * Replaces the segment list and deletes the obsolete segments.
+     * @param list the new segment list.
+     * @param obsolete the obsolete segments.
+     */
+    private void replace(List<Segment> list, List<Segment> obsolete) throws IOException {
+        // Commit the new list before deleting the obsolete segments.
+        // The segment files are synced by SegmentWriter. Sync the new list
+        // before the atomic rename, and the directory after it, so that the
+        // manifest never refers to a partially written file after a crash.
+        Path manifest = dir.resolve(MANIFEST);
+        Path temp = dir.resolve(MANIFEST + ".tmp");
+        Files.write(temp, list.stream().map(s -> s.path.getFileName().toString()).toList());
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+
+        lock.writeLock().lock();
+        try {
+            segments = List.copyOf(list);
+            for (var segment : obsolete) {
+                segment.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        for (var segment : obsolete) {
+            Files.deleteIfExists(segment.path);
+        }
+    }
+
+    /**
+     * Syncs the index directory to persist the renaming of manifest.
+     * It is skipped on the platforms that cannot open a directory,
+     * e.g. Windows.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            logger.debug("Failed to sync the index directory {}: {}", dir, ex.getMessage());
+        }
+    }
+
+    /**
+     * Returns the top k documents of a query in descending order of
+     * relevance, evaluated by block-max WAND.
+     *
+     * @param ranker the relevance ranker, either {@link BM25} or {@link TFIDF}.
+     * @param terms the query terms.
+     * @param k the number of documents to return.
+     * @return the top k documents.
+     */
+    public List<Hit> search(RelevanceRanker ranker, String[] terms, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+
+        if (!(ranker instanceof BM25) && !(ranker instanceof TFIDF)) {
+            throw new IllegalArgumentException("Unsupported relevance ranker: " + ranker.getClass().getName());
+        }
+
+        String[] query = new LinkedHashSet<>(Arrays.asList(terms)).toArray(new String[0]);
+        lock.readLock().lock();
+        try {
+            List<Segment> list = segments;
+            int N = size();
+            double avgDocSize = avgDocSize();
+            int[] df = new int[query.length];
+            for (int t = 0; t < query.length; t++) {
+                for (var segment : list) {
+                    int i = segment.find(query[t]);
+                    if (i >= 0) df[t] += segment.df(i);
+                }
+            }
+
+            Scorer[] scorers = new Scorer[query.length];
+            for (int t = 0; t < query.length; t++) {
+                scorers[t] = df[t] == 0 ? null : scorer(ranker, N, df[t], avgDocSize);
+            }
+
+            // The segments are searched in parallel with their own heaps.
+            Comparator<Hit> order = Comparator.comparingDouble(Hit::score).thenComparing(Comparator.comparingInt(Hit::doc).reversed());
+            int[] base = new int[list.size()];
+            for (int s = 1; s < base.length; s++) {
+                base[s] = base[s - 1] + list.get(s - 1).docCount;
+            }
+
+            List<Hit> hits = IntStream.range(0, list.size()).parallel()
+                    .mapToObj(s -> search(list.get(s), base[s], query, scorers, k, order))
+                    .flatMap(List::stream)
+                    .sorted(order.reversed())
+                    .limit(k)
+                    .toList();
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The scoring function of a term with the global statistics.
+     */
+    private interface Scorer {
+        /**
+         * Returns the score of a posting.
+         * @param tf the term frequency.
+         * @param length the document length.
+         * @param maxtf the maximum term frequency of document.
+         * @return the score.
+         */
+        double score(int tf, int length, int maxtf);
+
+        /**
+         * Returns the upper bound of score of postings.
+         * @param maxTf the maximum term frequency.
+         * @param minLength the minimum document length.
+         * @param maxRatio the maximum ratio of term frequency to the maximum term frequency of document.
+         * @return the upper bound of score.
+         */
+        double bound(int maxTf, int minLength, float maxRatio);
+    }
+
+    /** Returns the scorer of a term. */
+    private static Scorer scorer(RelevanceRanker ranker, int N, int df, double avgDocSize) {
+        if (ranker instanceof BM25 bm25) {
+            return new Scorer() {
+                @Override
+                public double score(int tf, int length, int maxtf) {
+                    return bm25.score(tf, length, avgDocSize, N, df);
+                }
+
+                @Override
+                public double bound(int maxTf, int minLength, float maxRatio) {
+                    return bm25.score(maxTf, minLength, avgDocSize, N, df);
+                }
+            };
+        }
+
+        TFIDF tfidf = (TFIDF) ranker;
+        double a = tfidf.smoothing();
+        double idf = Math.log((double) N / df);
+        return new Scorer() {
+            @Override
+            public double score(int tf, int length, int maxtf) {
+                return tfidf.rank(tf, maxtf, N, df);
+            }
+
+            @Override
+            public double bound(int maxTf, int minLength, float maxRatio) {
+                // Rounding up the float ratio keeps the bound safe.
+                return (a + (1 - a) * Math.min(1.0, Math.nextUp(maxRatio))) * idf;
+            }
+        };
+    }
+
+    /**
+     * Block-max WAND on a segment.
+     * @param segment the segment.
+     * @param base the number of documents before the segment.
+     * @param query the query terms.
+     * @param scorers the scorers of query terms.
+     * @param k the number of documents to return.
+     * @param order the order of hits.
+     * @return the top k hits of segment.
+     */
+    private static List<Hit> search(Segment segment, int base, String[] query, Scorer[] scorers, int k, Comparator<Hit> order) {
+        List<PostingCursor> list = new ArrayList<>();
+        List<Scorer> scorerList = new ArrayList<>();
+        for (int t = 0; t < query.length; t++) {
+            if (scorers[t] == null) continue;
+            int i = segment.find(query[t]);
+            if (i >= 0) {
+                list.add(segment.postings(i));
+                scorerList.add(scorers[t]);
+            }
+        }
+
+        int n = list.size();
+        PostingCursor[] cursors = list.toArray(new PostingCursor[0]);
+        Scorer[] scorer = scorerList.toArray(new Scorer[0]);
+        double[] maxScore = new double[n];
+        for (int i = 0; i < n; i++) {
+            PostingCursor c = cursors[i];
+            maxScore[i] = scorer[i].bound(c.maxTf, c.minLength, c.maxRatio);
+        }
+
+        // Cursor indices sorted by current document.
+        Integer[] sorted = new Integer[n];
+        for (int i = 0; i < n; i++) sorted[i] = i;
+
+        PriorityQueue<Hit> heap = new PriorityQueue<>(k + 1, order);
+        double threshold = Double.NEGATIVE_INFINITY;
+        while (true) {
+            Arrays.sort(sorted, Comparator.comparingInt(i -> cursors[i].doc()));
+
+            // Find the pivot term.
+            double acc = 0.0;
+            int pivot = -1;
+            for (int p = 0; p < n; p++) {
+                PostingCursor c = cursors[sorted[p]];
+                if (c.doc() == PostingCursor.END) break;
+                acc += maxScore[sorted[p]];
+                if (acc > threshold) {
+                    pivot = p;
+                    break;
+                }
+            }
+
+            if (pivot < 0) break;
+
+            int pivotDoc = cursors[sorted[pivot]].doc();
+            while (pivot + 1 < n && cursors[sorted[pivot + 1]].doc() == pivotDoc) {
+                pivot++;
+            }
+
+            // The block-max bound of the pivot document.
+            double bound = 0.0;
+            int next = pivot + 1 < n ? cursors[sorted[pivot + 1]].doc() : PostingCursor.END;
+            for (int p = 0; p <= pivot; p++) {
+                PostingCursor c = cursors[sorted[p]];
+                if (c.shallowAdvance(pivotDoc)) {
+                    bound += scorer[sorted[p]].bound(c.shallowMaxTf(), c.shallowMinLength(), c.shallowMaxRatio());
+                    int last = c.shallowLastDoc();
+                    if (last < PostingCursor.END - 1) next = Math.min(next, last + 1);
+                }
+            }
+
+            if (bound > threshold) {
+                if (cursors[sorted[0]].doc() == pivotDoc) {
+                    // All the terms up to the pivot are in the document.
+                    int length = segment.length(pivotDoc);
+                    int maxtf = segment.maxtf(pivotDoc);
+                    double score = 0.0;
+                    for (int p = 0; p <= pivot; p++) {
+                        PostingCursor c = cursors[sorted[p]];
+                        score += scorer[sorted[p]].score(c.tf(), length, maxtf);
+                        c.next();
+                    }
+
+                    if (score > threshold) {
+                        heap.add(new Hit(base + pivotDoc, null, score));
+                        if (heap.size() > k) heap.poll();
+                        if (heap.size() == k) threshold = heap.peek().score();
+                    }
+                } else {
+                    for (int p = 0; p < pivot; p++) {
+                        cursors[sorted[p]].advance(pivotDoc);
+                    }
+                }
+            } else {
+                // No document before the end of current blocks can beat the threshold.
+                next = Math.max(next, pivotDoc + 1);
+                for (int p = 0; p <= pivot; p++) {
+                    cursors[sorted[p]].advance(next);
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(heap.size());
+        for (var hit : heap) {
+            hits.add(new Hit(hit.doc(), segment.id(hit.doc() - base), hit.score()));
+        }
+        return hits;
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            segments.forEach(Segment::close);
+            segments = List.of();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InvertedIndex(%s, %d documents, %d segments)", dir, size(), segmentCount());
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.nlp.index;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * The cursor over the postings of a term in a segment. Besides the
+ * sequential iteration, the cursor skips blocks by their last document
+ * and provides the score bound of the block containing a document
+ * without decoding it, which are the building blocks of WAND and
+ * block-max WAND.
+ *
+ * @author Haifeng Li
+ */
+final class PostingCursor {
+    /** The document number of exhausted cursor. */
+    static final int END = Integer.MAX_VALUE;
+
+    /** The segment. */
+    final Segment segment;
+    /** The memory-mapped segment file. */
+    private final MemorySegment data;
+    /** The first block of term. */
+    private final long firstBlock;
+    /** The number of blocks of term. */
+    final int blockCount;
+    /** The maximum term frequency of term. */
+    final int maxTf;
+    /** The minimum document length of term. */
+    final int minLength;
+    /** The maximum normalized term frequency of term. */
+    final float maxRatio;
+    /** The decoded documents of current block. */
+    private final int[] docs = new int[Segment.BLOCK_SIZE];
+    /** The decoded term frequencies of current block. */
+    private final int[] tfs = new int[Segment.BLOCK_SIZE];
+    /** The current block. */
+    private int block = -1;
+    /** The number of postings in current block. */
+    private int count;
+    /** The position in current block. */
+    private int pos;
+    /** The current document. */
+    private int doc;
+    /** The block of the last shallow advance. */
+    private int shallow = 0;
+
+    /**
+     * Constructor.
+     * @param segment the segment.
+     * @param firstBlock the first block of term.
+     * @param blockCount the number of blocks of term.
+     * @param maxTf the maximum term frequency of term.
+     * @param minLength the minimum document length of term.
+     * @param maxRatio the maximum normalized term frequency of term.
+     */
+    PostingCursor(Segment segment, long firstBlock, int blockCount, int maxTf, int minLength, float maxRatio) {
+        this.segment = segment;
+        this.data = segment.data;
+        this.firstBlock = firstBlock;
+        this.blockCount = blockCount;
+        this.maxTf = maxTf;
+        this.minLength = minLength;
+        this.maxRatio = maxRatio;
+        decode(0);
+    }
+
+    /**
+     * Returns the current document.
+     * @return the current document, or {@link #END} if exhausted.
+     */
+    int doc() {
+        return doc;
+    }
+
+    /**
+     * Returns the term frequency in the current document.
+     * @return the term frequency in the current document.
+     */
+    int tf() {
+        return tfs[pos];
+    }
+
+    /** Moves to the next document. */
+    void next() {
+        if (++pos < count) {
+            doc = docs[pos];
+        } else if (block + 1 < blockCount) {
+            decode(block + 1);
+        } else {
+            doc = END;
+        }
+    }
+
+    /**
+     * Moves to the first document greater than or equal to the target.
+     * @param target the target document.
+     */
+    void advance(int target) {
+        if (doc >= target) return;
+
+        if (target > lastDoc(block)) {
+            int b = find(target, block + 1);
+            if (b < 0) {
+                doc = END;
+                return;
+            }
+            decode(b);
+        }
+
+        while (docs[pos] < target) pos++;
+        doc = docs[pos];
+    }
+
+    /**
+     * Moves the shallow pointer to the block that may contain the target
+     * without decoding it.
+     * @param target the target document.
+     * @return true if such a block exists.
+     */
+    boolean shallowAdvance(int target) {
+        int from = Math.max(shallow, block);
+        if (from < blockCount && lastDoc(from) >= target) {
+            shallow = from;
+            return true;
+        }
+
+        int b = find(target, from + 1);
+        if (b < 0) {
+            shallow = blockCount;
+            return false;
+        }
+        shallow = b;
+        return true;
+    }
+
+    /**
+     * Returns the last document of the block of the last shallow advance.
+     * @return the last document of the block.
+     */
+    int shallowLastDoc() {
+        return lastDoc(shallow);
+    }
+
+    /**
+     * Returns the maximum term frequency of the block of the last shallow advance.
+     * @return the maximum term frequency of the block.
+     */
+    int shallowMaxTf() {
+        return data.get(Segment.INT, segment.block(firstBlock + shallow) + 16);
+    }
+
+    /**
+     * Returns the minimum document length of the block of the last shallow advance.
+     * @return the minimum document length of the block.
+     */
+    int shallowMinLength() {
+        return data.get(Segment.INT, segment.block(firstBlock + shallow) + 20);
+    }
+
+    /**
+     * Returns the maximum normalized term frequency of the block of the last shallow advance.
+     * @return the maximum normalized term frequency of the block.
+     */
+    float shallowMaxRatio() {
+        return data.get(Segment.FLOAT, segment.block(firstBlock + shallow) + 24);
+    }
+
+    /** Returns the last document of a block. */
+    private int lastDoc(int b) {
+        return data.get(Segment.INT, segment.block(firstBlock + b));
+    }
+
+    /**
+     * Returns the first block at or after the given one of which the last
+     * document is greater than or equal to the target, by galloping search.
+     */
+    private int find(int target, int from) {
+        if (from >= blockCount || lastDoc(blockCount - 1) < target) return -1;
+
+        int lo = from;
+        int step = 1;
+        int hi = from;
+        while (hi < blockCount - 1 && lastDoc(hi) < target) {
+            lo = hi + 1;
+            hi = Math.min(blockCount - 1, hi + step);
+            step <<= 1;
+        }
+
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (lastDoc(mid) < target) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Decodes a block and moves to its first document. */
+    private void decode(int b) {
+        long entry = segment.block(firstBlock + b);
+        long offset = data.get(Segment.LONG, entry + 4);
+        count = data.get(Segment.INT, entry + 12);
+
+        int prev = b == 0 ? -1 : lastDoc(b - 1);
+        for (int i = 0; i < count; i++) {
+            int value = 0;
+            int shift = 0;
+            byte v;
+            do {
+                v = data.get(ValueLayout.JAVA_BYTE, offset++);
+                value |= (v & 0x7F) << shift;
+                shift += 7;
+            } while (v < 0);
+            prev += value;
+            docs[i] = prev;
+
+            value = 0;
+            shift = 0;
+            do {
+                v = data.get(ValueLayout.JAVA_BYTE, offset++);
+                value |= (v & 0x7F) << shift;
+                shift += 7;
+            } while (v < 0);
+            tfs[i] = value;
+        }
+
+        block = b;
+        pos = 0;
+        doc = docs[0];
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.nlp.index;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An immutable memory-mapped index segment written by {@link SegmentWriter}.
+ * The file consists of the postings blocks, the document table, the document
+ * IDs, the term table sorted by term, the term strings, the block table,
+ * and a fixed size footer with the offsets of tables. Only the footer is
+ * read on the heap. The terms are looked up by binary search on the
+ * mapped term table.
+ *
+ * @author Haifeng Li
+ */
+final class Segment implements AutoCloseable {
+    /** The magic number of segment file. */
+    static final int MAGIC = 0x534D4958;
+    /** The version of segment file format. */
+    static final int VERSION = 1;
+    /** The number of postings per block. */
+    static final int BLOCK_SIZE = 128;
+    /** The size of footer in bytes. */
+    static final long FOOTER_SIZE = 4 * Integer.BYTES + 8 * Long.BYTES;
+    /** The size of document table entry in bytes. */
+    static final long DOC_ENTRY_SIZE = 8;
+    /** The size of term table entry in bytes. */
+    static final long TERM_ENTRY_SIZE = 40;
+    /** The size of block table entry in bytes. */
+    static final long BLOCK_ENTRY_SIZE = 28;
+    /** The int layout of segment file. */
+    static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    /** The long layout of segment file. */
+    static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    /** The float layout of segment file. */
+    static final ValueLayout.OfFloat FLOAT = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /** The segment file path. */
+    final Path path;
+    /** The arena of memory mapping. */
+    private final Arena arena;
+    /** The memory-mapped file. */
+    final MemorySegment data;
+    /** The number of documents. */
+    final int docCount;
+    /** The number of terms. */
+    final int termCount;
+    /** The total length of documents. */
+    final long totalLength;
+    /** The offset of document table. */
+    private final long docOffset;
+    /** The offset of document ID offsets. */
+    private final long idOffset;
+    /** The offset of document IDs. */
+    private final long idBlobOffset;
+    /** The offset of term table. */
+    private final long termOffset;
+    /** The offset of term strings. */
+    private final long termStringOffset;
+    /** The offset of block table. */
+    private final long blockOffset;
+
+    /**
+     * Maps a segment file.
+     * @param path the segment file path.
+     * @throws IOException when fails to map the file or the file is corrupted.
+     */
+    Segment(Path path) throws IOException {
+        this.path = path;
+        arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+        } catch (IOException | RuntimeException ex) {
+            arena.close();
+            throw ex;
+        }
+
+        long footer = data.byteSize() - FOOTER_SIZE;
+        if (footer < 0 || data.get(INT, footer) != MAGIC) {
+            arena.close();
+            throw new IOException("Invalid index segment: " + path);
+        }
+
+        int version = data.get(INT, footer + 4);
+        if (version != VERSION) {
+            arena.close();
+            throw new IOException("Unsupported index segment version: " + version);
+        }
+
+        docCount = data.get(INT, footer + 8);
+        termCount = data.get(INT, footer + 12);
+        totalLength = data.get(LONG, footer + 24);
+        docOffset = data.get(LONG, footer + 32);
+        idOffset = data.get(LONG, footer + 40);
+        idBlobOffset = data.get(LONG, footer + 48);
+        termOffset = data.get(LONG, footer + 56);
+        termStringOffset = data.get(LONG, footer + 64);
+        blockOffset = data.get(LONG, footer + 72);
+    }
+
+    /**
+     * Returns the length of document.
+     * @param doc the document number in the segment.
+     * @return the length of document.
+     */
+    int length(int doc) {
+        return data.get(INT, docOffset + doc * DOC_ENTRY_SIZE);
+    }
+
+    /**
+     * Returns the maximum term frequency in the document.
+     * @param doc the document number in the segment.
+     * @return the maximum term frequency in the document.
+     */
+    int maxtf(int doc) {
+        return data.get(INT, docOffset + doc * DOC_ENTRY_SIZE + 4);
+    }
+
+    /**
+     * Returns the document ID.
+     * @param doc the document number in the segment.
+     * @return the document ID.
+     */
+    String id(int doc) {
+        long begin = data.get(LONG, idOffset + doc * 8L);
+        long end = data.get(LONG, idOffset + (doc + 1) * 8L);
+        return string(idBlobOffset + begin, (int) (end - begin));
+    }
+
+    /**
+     * Returns the i-th term in ascending order.
+     * @param i the index of term.
+     * @return the term.
+     */
+    String term(int i) {
+        long entry = termOffset + i * TERM_ENTRY_SIZE;
+        return string(termStringOffset + data.get(LONG, entry), data.get(INT, entry + 8));
+    }
+
+    /**
+     * Returns the index of term by binary search.
+     * @param term the term.
+     * @return the index of term, or -1 if not found.
+     */
+    int find(String term) {
+        int lo = 0;
+        int hi = termCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = term(mid).compareTo(term);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of documents containing the term.
+     * @param i the index of term.
+     * @return the document frequency.
+     */
+    int df(int i) {
+        return data.get(INT, termOffset + i * TERM_ENTRY_SIZE + 12);
+    }
+
+    /**
+     * Returns the postings cursor of the term.
+     * @param i the index of term.
+     * @return the postings cursor.
+     */
+    PostingCursor postings(int i) {
+        long entry = termOffset + i * TERM_ENTRY_SIZE;
+        return new PostingCursor(this,
+                data.get(LONG, entry + 16),
+                data.get(INT, entry + 24),
+                data.get(INT, entry + 28),
+                data.get(INT, entry + 32),
+                data.get(FLOAT, entry + 36));
+    }
+
+    /** Returns the offset of block table entry. */
+    long block(long b) {
+        return blockOffset + b * BLOCK_ENTRY_SIZE;
+    }
+
+    /** Decodes a UTF-8 string. */
+    private String string(long offset, int length) {
+        byte[] bytes = new byte[length];
+        MemorySegment.copy(data, ValueLayout.JAVA_BYTE, offset, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Segment(%s, %d docs, %d terms)", path.getFileName(), docCount, termCount);
+    }
+}
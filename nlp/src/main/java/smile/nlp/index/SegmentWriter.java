@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.nlp.index;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes an immutable index segment. The documents are added first and
+ * then the terms in ascending order, each with its postings in ascending
+ * order of document. The postings are grouped in blocks of
+ * {@link Segment#BLOCK_SIZE}, of which the document gaps and term
+ * frequencies are variable-byte encoded. For dynamic pruning, each block
+ * records its last document and the statistics bounding the score of its
+ * postings, i.e. the maximum term frequency, the minimum document length
+ * and the maximum ratio of term frequency to the maximum term frequency
+ * of document.
+ * <p>
+ * While the postings are written to the segment file directly, the
+ * tables are streamed to temporary files next to it, which are appended
+ * to the segment file on close. Therefore, the size of segment is not
+ * bounded by the heap. The segment file is synced to the disk on close.
+ *
+ * @author Haifeng Li
+ */
+final class SegmentWriter implements Closeable {
+    /** The channel of segment file. */
+    private final FileChannel channel;
+    /** The output stream of segment file. */
+    private final DataOutputStream out;
+    /** The number of bytes written to the file. */
+    private long position = 0;
+    /** The document table. */
+    private final Table docs;
+    /** The offsets of document IDs. */
+    private final Table idOffsets;
+    /** The UTF-8 bytes of document IDs. */
+    private final Table ids;
+    /** The term table. */
+    private final Table terms;
+    /** The UTF-8 bytes of terms. */
+    private final Table termStrings;
+    /** The block table. */
+    private final Table blocks;
+    /** The number of documents. */
+    private int docCount = 0;
+    /** The total length of documents. */
+    private long totalLength = 0;
+    /** The number of terms. */
+    private int termCount = 0;
+    /** The number of blocks. */
+    private long blockCount = 0;
+
+    /** The current term. */
+    private String term;
+    /** The number of documents containing the current term. */
+    private int df;
+    /** The first block of the current term. */
+    private long firstBlock;
+    /** The maximum term frequency of the current term. */
+    private int termMaxTf;
+    /** The minimum document length of the current term. */
+    private int termMinLength;
+    /** The maximum normalized term frequency of the current term. */
+    private float termMaxRatio;
+
+    /** The documents of the current block. */
+    private final int[] blockDocs = new int[Segment.BLOCK_SIZE];
+    /** The term frequencies of the current block. */
+    private final int[] blockTfs = new int[Segment.BLOCK_SIZE];
+    /** The number of postings in the current block. */
+    private int blockSize = 0;
+    /** The maximum term frequency of the current block. */
+    private int blockMaxTf;
+    /** The minimum document length of the current block. */
+    private int blockMinLength;
+    /** The maximum normalized term frequency of the current block. */
+    private float blockMaxRatio;
+    /** The last document of the previous block of the current term. */
+    private int lastDoc;
+    /** The buffer of variable-byte encoding. */
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    /**
+     * Constructor.
+     * @param path the segment file path.
+     * @throws IOException when fails to create the file.
+     */
+    SegmentWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+        docs = new Table(path, "docs");
+        idOffsets = new Table(path, "ids");
+        ids = new Table(path, "idstr");
+        terms = new Table(path, "terms");
+        termStrings = new Table(path, "termstr");
+        blocks = new Table(path, "blocks");
+    }
+
+    /**
+     * A table streamed to a temporary file.
+     */
+    private static final class Table implements Closeable {
+        /** The temporary file. */
+        final Path path;
+        /** The output stream of temporary file. */
+        final DataOutputStream out;
+        /** The number of bytes written. */
+        long size = 0;
+
+        /**
+         * Constructor.
+         * @param segment the segment file path.
+         * @param name the table name.
+         * @throws IOException when fails to create the file.
+         */
+        Table(Path segment, String name) throws IOException {
+            path = segment.resolveSibling(segment.getFileName() + "." + name + ".tmp");
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+        }
+
+        /** Writes an int. */
+        void writeInt(int value) throws IOException {
+            out.writeInt(value);
+            size += Integer.BYTES;
+        }
+
+        /** Writes a long. */
+        void writeLong(long value) throws IOException {
+            out.writeLong(value);
+            size += Long.BYTES;
+        }
+
+        /** Writes a float. */
+        void writeFloat(float value) throws IOException {
+            out.writeFloat(value);
+            size += Float.BYTES;
+        }
+
+        /** Writes the bytes. */
+        void write(byte[] bytes) throws IOException {
+            out.write(bytes);
+            size += bytes.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Adds a document. The document number is the order of addition.
+     * @param id the document ID.
+     * @param length the number of words in the document.
+     * @param maxtf the maximum term frequency in the document.
+     * @throws IOException when fails to write the document.
+     */
+    void addDocument(String id, int length, int maxtf) throws IOException {
+        docs.writeInt(length);
+        docs.writeInt(maxtf);
+        idOffsets.writeLong(ids.size);
+        ids.write(id.getBytes(StandardCharsets.UTF_8));
+        docCount++;
+        totalLength += length;
+    }
+
+    /**
+     * Starts the postings of a term, which must be greater than the
+     * previous term.
+     * @param term the term.
+     */
+    void startTerm(String term) {
+        if (this.term != null && this.term.compareTo(term) >= 0) {
+            throw new IllegalStateException("Terms out of order: " + this.term + " >= " + term);
+        }
+
+        this.term = term;
+        df = 0;
+        firstBlock = blockCount;
+        termMaxTf = 0;
+        termMinLength = Integer.MAX_VALUE;
+        termMaxRatio = 0.0f;
+        lastDoc = -1;
+        startBlock();
+    }
+
+    /**
+     * Adds a posting of the current term.
+     * @param doc the document number, greater than the previous one.
+     * @param tf the term frequency in the document.
+     * @param length the length of document.
+     * @param maxtf the maximum term frequency in the document.
+     * @throws IOException when fails to write the postings.
+     */
+    void addPosting(int doc, int tf, int length, int maxtf) throws IOException {
+        blockDocs[blockSize] = doc;
+        blockTfs[blockSize] = tf;
+        blockSize++;
+        df++;
+
+        float ratio = (float) tf / maxtf;
+        blockMaxTf = Math.max(blockMaxTf, tf);
+        blockMinLength = Math.min(blockMinLength, length);
+        blockMaxRatio = Math.max(blockMaxRatio, ratio);
+        termMaxTf = Math.max(termMaxTf, tf);
+        termMinLength = Math.min(termMinLength, length);
+        termMaxRatio = Math.max(termMaxRatio, ratio);
+
+        if (blockSize == Segment.BLOCK_SIZE) {
+            writeBlock();
+            startBlock();
+        }
+    }
+
+    /**
+     * Ends the postings of the current term.
+     * @throws IOException when fails to write the postings.
+     */
+    void endTerm() throws IOException {
+        if (blockSize > 0) {
+            writeBlock();
+        }
+
+        if (df > 0) {
+            byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+            terms.writeLong(termStrings.size);
+            terms.writeInt(bytes.length);
+            terms.writeInt(df);
+            terms.writeLong(firstBlock);
+            terms.writeInt((int) (blockCount - firstBlock));
+            terms.writeInt(termMaxTf);
+            terms.writeInt(termMinLength);
+            terms.writeFloat(termMaxRatio);
+            termStrings.write(bytes);
+            termCount++;
+        }
+    }
+
+    /** Resets the statistics of block. */
+    private void startBlock() {
+        blockSize = 0;
+        blockMaxTf = 0;
+        blockMinLength = Integer.MAX_VALUE;
+        blockMaxRatio = 0.0f;
+    }
+
+    /** Writes the current block. */
+    private void writeBlock() throws IOException {
+        buffer.reset();
+        int prev = lastDoc;
+        for (int i = 0; i < blockSize; i++) {
+            writeVarInt(buffer, blockDocs[i] - prev);
+            writeVarInt(buffer, blockTfs[i]);
+            prev = blockDocs[i];
+        }
+
+        lastDoc = prev;
+        blocks.writeInt(lastDoc);
+        blocks.writeLong(position);
+        blocks.writeInt(blockSize);
+        blocks.writeInt(blockMaxTf);
+        blocks.writeInt(blockMinLength);
+        blocks.writeFloat(blockMaxRatio);
+        blockCount++;
+
+        buffer.writeTo(out);
+        position += buffer.size();
+    }
+
+    /** Writes a non-negative integer in variable-byte encoding. */
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /** Appends a table to the segment file and returns its offset. */
+    private long write(Table table) throws IOException {
+        long offset = position;
+        table.out.close();
+        Files.copy(table.path, out);
+        position += table.size;
+        return offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (channel; out; docs; idOffsets; ids; terms; termStrings; blocks) {
+            idOffsets.writeLong(ids.size);
+            writeFooter();
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    /** Appends the tables and the footer. */
+    private void writeFooter() throws IOException {
+        long docOffset = write(docs);
+        long idOffset = write(idOffsets);
+        long idBlobOffset = write(ids);
+        long termOffset = write(terms);
+        long termStringOffset = write(termStrings);
+        long blockOffset = write(blocks);
+
+        // The fixed size footer.
+        out.writeInt(Segment.MAGIC);
+        out.writeInt(Segment.VERSION);
+        out.writeInt(docCount);
+        out.writeInt(termCount);
+        out.writeLong(blockCount);
+        out.writeLong(totalLength);
+        out.writeLong(docOffset);
+        out.writeLong(idOffset);
+        out.writeLong(idBlobOffset);
+        out.writeLong(termOffset);
+        out.writeLong(termStringOffset);
+        out.writeLong(blockOffset);
+    }
+}
@@ -20,8 +20,12 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.OptionalDouble;
+import java.util.Properties;
+import smile.math.MathEx;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
@@ -95,4 +99,66 @@ public class Word2VecTest {
         tmp.toFile().deleteOnExit();
         assertThrows(IllegalArgumentException.class, () -> Word2Vec.glove(tmp));
     }
+    @Test public void testNearest() {
+        List<Word2Vec.Match> nearest = model.nearest("king", 2);
+        assertEquals(2, nearest.size());
+        assertEquals("queen", nearest.getFirst().word());
+        assertEquals(model.similarity("king", "queen").getAsDouble(), nearest.getFirst().similarity(), 1e-5);
+        assertTrue(nearest.get(0).similarity() >= nearest.get(1).similarity());
+        assertEquals("dog", model.nearest("cat", 1).getFirst().word());
+        assertEquals("king", model.nearest(model.apply("king"), 1).getFirst().word());
+        assertTrue(model.nearest("banana", 1).isEmpty());
+    }
+    @Test public void testAnalogy() {
+        assertEquals("queen", model.analogy("man", "woman", "king", 1).getFirst().word());
+        assertEquals(7, model.analogy("man", "woman", "king", 100).size());
+        assertTrue(model.analogy("man", "woman", "banana", 1).isEmpty());
+    }
+    @Test public void testIndex() {
+        var index = model.index(4, 20);
+        assertEquals(10, index.size());
+        assertEquals("software", index.search(model.apply("computer"), 2)[1].value());
+    }
+    @Test public void testFit() {
+        // Sentences of 4 topics, each of which has its own 10 words.
+        MathEx.setSeed(19650218); // to get repeatable results.
+        List<String[]> sentences = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int topic = i % 4;
+            String[] sentence = new String[20];
+            for (int j = 0; j < sentence.length; j++) {
+                sentence[j] = "w" + topic + MathEx.randomInt(10);
+            }
+            sentences.add(sentence);
+        }
+
+        for (boolean cbow : new boolean[]{false, true}) {
+            var options = new Word2Vec.Options(cbow, 20, 5, 5, 1, 0.0, cbow ? 0.05 : 0.025, 3);
+            Word2Vec w2v = Word2Vec.fit(sentences, options);
+            assertEquals(40, w2v.size());
+            assertEquals(20, w2v.dimension());
+            for (var match : w2v.nearest("w21", 5)) {
+                assertTrue(match.word().startsWith("w2"), match.word());
+            }
+        }
+
+        // The documents of a corpus are streamed in the same way.
+        SimpleCorpus corpus = new SimpleCorpus();
+        for (String[] sentence : sentences) {
+            corpus.add(corpus.doc(String.join(" ", sentence)));
+        }
+        Word2Vec w2v = Word2Vec.fit(corpus, new Word2Vec.Options(false, 20, 5, 5, 1, 0.0, 0.025, 3));
+        assertEquals(40, w2v.size());
+        for (var match : w2v.nearest("w31", 5)) {
+            assertTrue(match.word().startsWith("w3"), match.word());
+        }
+
+        var options = Word2Vec.Options.of(new Word2Vec.Options(16).toProperties());
+        assertEquals(new Word2Vec.Options(16), options);
+        Properties props = new Properties();
+        props.setProperty("smile.word2vec.cbow", "true");
+        assertEquals(new Word2Vec.Options(true, 100), Word2Vec.Options.of(props));
+        assertEquals(0.05, new Word2Vec.Options(true, 100).learningRate());
+        assertThrows(IllegalArgumentException.class, () -> Word2Vec.fit(sentences, new Word2Vec.Options(false, 10, 5, 5, 100000, 0.0, 0.025, 1)));
+    }
 }
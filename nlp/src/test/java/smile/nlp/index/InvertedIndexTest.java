@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.nlp.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import smile.math.MathEx;
+import smile.nlp.SimpleCorpus;
+import smile.nlp.Text;
+import smile.nlp.relevance.BM25;
+import smile.nlp.relevance.RelevanceRanker;
+import smile.nlp.relevance.TFIDF;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class InvertedIndexTest {
+    /** Random documents of Zipfian words. */
+    List<List<String>> docs = new ArrayList<>();
+
+    public InvertedIndexTest() {
+        MathEx.setSeed(19650218); // to get repeatable results.
+        for (int i = 0; i < 3000; i++) {
+            int length = 5 + MathEx.randomInt(60);
+            List<String> words = new ArrayList<>(length);
+            for (int j = 0; j < length; j++) {
+                double u = MathEx.random();
+                words.add("w" + (int) (1000 * u * u * u));
+            }
+            docs.add(words);
+        }
+    }
+
+    /** Returns the exhaustive scores of documents. */
+    private double[] bruteForce(RelevanceRanker ranker, String[] query) {
+        int N = docs.size();
+        double avg = docs.stream().mapToInt(List::size).average().orElse(0);
+        double[] scores = new double[N];
+        for (String term : Arrays.stream(query).distinct().toArray(String[]::new)) {
+            int df = (int) docs.stream().filter(d -> d.contains(term)).count();
+            if (df == 0) continue;
+            for (int i = 0; i < N; i++) {
+                List<String> doc = docs.get(i);
+                HashMap<String, Integer> tf = new HashMap<>();
+                doc.forEach(w -> tf.merge(w, 1, Integer::sum));
+                int f = tf.getOrDefault(term, 0);
+                if (f == 0) continue;
+                int maxtf = tf.values().stream().max(Integer::compare).orElse(1);
+                scores[i] += ranker instanceof BM25 bm25 ?
+                        bm25.score(f, doc.size(), avg, N, df) :
+                        ((TFIDF) ranker).rank(f, maxtf, N, df);
+            }
+        }
+        return scores;
+    }
+
+    /** Asserts the hits are the top k of exhaustive scores. */
+    private void assertTopK(double[] scores, List<InvertedIndex.Hit> hits, int k) {
+        double[] sorted = Arrays.stream(scores).filter(s -> s > 0).boxed()
+                .sorted(Comparator.reverseOrder()).mapToDouble(Double::doubleValue).toArray();
+        assertEquals(Math.min(k, sorted.length), hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            var hit = hits.get(i);
+            assertEquals(sorted[i], hit.score(), 1E-10);
+            assertEquals(scores[hit.doc()], hit.score(), 1E-10);
+            assertEquals("doc" + hit.doc(), hit.id());
+        }
+    }
+
+    private InvertedIndex build(Path dir) throws IOException {
+        InvertedIndex index = InvertedIndex.open(dir, 200, 3);
+        for (int i = 0; i < docs.size(); i++) {
+            assertEquals(i, index.add("doc" + i, docs.get(i)));
+        }
+        index.flush();
+        return index;
+    }
+
+    @Test
+    public void testSearch() throws IOException {
+        System.out.println("search");
+        Path dir = Files.createTempDirectory("smile-index");
+        try (InvertedIndex index = build(dir)) {
+            System.out.println(index);
+            assertEquals(docs.size(), index.size());
+            assertTrue(index.segmentCount() > 1);
+            assertEquals(docs.stream().mapToInt(List::size).average().orElse(0), index.avgDocSize(), 1E-10);
+            assertEquals(docs.stream().filter(d -> d.contains("w3")).count(), index.df("w3"));
+            assertEquals(0, index.df("unknown"));
+
+            String[][] queries = {
+                {"w0"}, {"w1", "w50", "w300"}, {"w2", "w999", "w10", "w10"},
+                {"w100", "w200", "w400", "w800", "unknown"}, {"unknown"}
+            };
+
+            for (RelevanceRanker ranker : new RelevanceRanker[]{new BM25(), new TFIDF()}) {
+                for (String[] query : queries) {
+                    double[] scores = bruteForce(ranker, query);
+                    for (int k : new int[]{1, 10, 100}) {
+                        assertTopK(scores, index.search(ranker, query, k), k);
+                    }
+                }
+            }
+
+            // The search results don't depend on the segmentation.
+            var before = index.search(new BM25(), queries[1], 20);
+            index.merge();
+            assertEquals(1, index.segmentCount());
+            // Only the manifest and the segment are left in the directory.
+            try (var files = Files.list(dir)) {
+                assertEquals(2, files.count());
+            }
+            var after = index.search(new BM25(), queries[1], 20);
+            assertEquals(before.size(), after.size());
+            for (int i = 0; i < before.size(); i++) {
+                assertEquals(before.get(i).doc(), after.get(i).doc());
+                assertEquals(before.get(i).score(), after.get(i).score(), 1E-10);
+            }
+
+            assertThrows(IllegalArgumentException.class, () -> index.search(new BM25(), queries[0], 0));
+        }
+
+        // Reopen the index.
+        try (InvertedIndex index = InvertedIndex.open(dir)) {
+            assertEquals(docs.size(), index.size());
+            assertEquals(1, index.segmentCount());
+            assertTopK(bruteForce(new BM25(), new String[]{"w5"}), index.search(new BM25(), new String[]{"w5"}, 10), 10);
+        }
+    }
+
+    @Test
+    public void testCorpus() throws IOException {
+        System.out.println("corpus");
+        SimpleCorpus corpus = new SimpleCorpus();
+        var doc1 = corpus.doc(Text.of("The quick brown fox jumps over the lazy dog."));
+        var doc2 = corpus.doc(Text.of("A quick brown dog outpaces a quick fox."));
+        var doc3 = corpus.doc(Text.of("Lazy afternoons are for sleeping."));
+        corpus.add(doc1);
+        corpus.add(doc2);
+        corpus.add(doc3);
+
+        Path dir = Files.createTempDirectory("smile-index");
+        try (InvertedIndex index = InvertedIndex.of(dir, corpus)) {
+            assertEquals(3, index.size());
+            var hits = index.search(new BM25(), new String[]{"quick", "fox"}, 10);
+            assertEquals(2, hits.size());
+            assertEquals(doc2.id(), hits.getFirst().id());
+            assertEquals(doc1.id(), hits.get(1).id());
+            assertEquals(2, index.search(new BM25(), new String[]{"lazy"}, 10).size());
+            assertEquals(0, index.search(new BM25(), new String[]{"cat"}, 10).size());
+        }
+    }
+}
@@ -25,7 +25,9 @@ import java.util.List;
 import java.util.LinkedHashSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.SubmissionPublisher;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import io.quarkus.runtime.Startup;
@@ -33,6 +35,7 @@ import org.jboss.logging.Logger;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 import smile.llm.*;
+import smile.llm.cache.PrefixCacheMetrics;
 import smile.llm.llama.*;
 import smile.util.HuggingFaceHub;
 
@@ -55,6 +58,10 @@ import smile.util.HuggingFaceHub;
  * <p>If the model cannot be loaded, the service starts in an
  * <em>unavailable</em> state and every chat request returns HTTP 503.
  *
+ * <p>Concurrent requests are served by a {@link GenerationScheduler} with
+ * continuous batching: up to {@code smile.chat.max-batch-size} conversations
+ * are decoded together, and each joins or leaves the batch at any step.
+ *
  * @author Haifeng Li
  */
 @Startup
@@ -64,6 +71,8 @@ public class ChatService {
 
     /** The loaded LLM; {@code null} when the model failed to load. */
     private Llama model;
+    /** The continuous batching scheduler of the loaded LLM. */
+    private GenerationScheduler scheduler;
     /**
      * Public model id exposed by the chat API (HF repo id or local directory
      * name). Independent of {@link Llama#toString()}, which still embeds a
@@ -116,6 +125,10 @@ public class ChatService {
                 logger.warnf("Chat model '%s' is neither a local directory nor a Hugging Face "
                         + "repository ID; chat completions will return HTTP 503", modelSpec);
             }
+
+            if (model != null) {
+                scheduler = new GenerationScheduler(model, config.maxBatchSize());
+            }
         } catch (Exception ex) {
             // Keep the service up in an unavailable state so classic ML / ONNX
             // endpoints still work; chat requests return HTTP 503.
@@ -218,11 +231,21 @@ public class ChatService {
         if (!modelId.equals(id.trim())) {
             return Optional.empty();
         }
-        LlmModelDetails llm = detailed ? LlmModelDetails.of(model, source) : null;
+        LlmModelDetails llm = detailed ? LlmModelDetails.of(model, source, prefixCacheMetrics()) : null;
         return Optional.of(ModelObject.of(modelId, createdAt, ownedBy, ModelObject.KIND_LLM,
                 null, null, llm));
     }
 
+    /**
+     * Returns the prefix cache metrics of the loaded model, i.e. the hit rate
+     * and the number of prompt tokens whose KV activations are reused.
+     *
+     * @return the prefix cache metrics, or {@code null} when the model is not loaded.
+     */
+    public PrefixCacheMetrics prefixCacheMetrics() {
+        return scheduler != null ? scheduler.prefixCacheMetrics() : null;
+    }
+
     /**
      * Looks up the loaded chat model as a lean OpenAI {@link ModelObject}.
      *
@@ -292,16 +315,32 @@ public class ChatService {
     }
 
     /**
-     * Completes a chat dialog.
+     * Stops the generation scheduler on shutdown.
+     */
+    @PreDestroy
+    void close() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    /**
+     * Completes a chat dialog. The request joins the running batch of
+     * other conversations and the call blocks until it completes.
      *
      * @param request   the chat completion request.
      * @param publisher the flow publisher that receives streamed token chunks.
      * @return the array of completion results, one per dialog in the batch.
      */
     public ChatCompletion[] complete(CompletionRequest request, SubmissionPublisher<String> publisher) {
-        Message[][] dialogs = { request.messages };
-        return model.chat(dialogs, request.resolveMaxTokens(), request.temperature,
+        var future = scheduler.chat(request.messages, request.resolveMaxTokens(), request.temperature,
                 request.topP, request.logprobs, request.seed, publisher);
+        try {
+            return new ChatCompletion[] { future.join() };
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
     }
 
     /**
@@ -45,7 +45,9 @@ public interface ChatServiceConfig {
     int maxSeqLen();
 
     /**
-     * Maximum batch size for parallel generation.
+     * Maximum number of conversations decoded together by continuous
+     * batching. It is capped by the number of {@code max-seq-len}
+     * sequences that fit in the KV cache pool.
      * Defaults to {@code 1}.
      */
     @WithDefault("1")
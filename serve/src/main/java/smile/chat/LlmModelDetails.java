@@ -19,6 +19,7 @@ package smile.chat;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import smile.llm.cache.PrefixCacheMetrics;
 import smile.llm.llama.Llama;
 import smile.llm.transformer.ModelArgs;
 
@@ -38,6 +39,7 @@ import smile.llm.transformer.ModelArgs;
  * @param intermediateSize explicit FFN hidden size when set, else {@code null}.
  * @param maxBatchSize     configured max batch size.
  * @param maxSeqLen        configured max sequence length.
+ * @param prefixCache      prefix cache hit rate and saved tokens, or {@code null}.
  *
  * @author Haifeng Li
  */
@@ -53,7 +55,34 @@ public record LlmModelDetails(
         Integer vocabSize,
         Integer intermediateSize,
         Integer maxBatchSize,
-        Integer maxSeqLen) {
+        Integer maxSeqLen,
+        PrefixCache prefixCache) {
+
+    /**
+     * The prefix cache metrics of chat LLM.
+     *
+     * @param lookups        the number of prompts looked up in the cache.
+     * @param hits           the number of prompts with a cached prefix.
+     * @param hitRate        the fraction of prompts with a cached prefix.
+     * @param promptTokens   the total number of prompt tokens.
+     * @param savedTokens    the number of prompt tokens not recomputed.
+     * @param savedTokenRate the fraction of prompt tokens not recomputed.
+     * @param cachedTokens   the number of tokens in the cache.
+     * @param failures       the number of prefixes not cached for lack of free slots.
+     */
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+    public record PrefixCache(long lookups, long hits, double hitRate, long promptTokens,
+                              long savedTokens, double savedTokenRate, int cachedTokens, long failures) {
+        /**
+         * Returns the prefix cache details of metrics.
+         * @param metrics the prefix cache metrics.
+         * @return the prefix cache details.
+         */
+        public static PrefixCache of(PrefixCacheMetrics metrics) {
+            return new PrefixCache(metrics.lookups(), metrics.hits(), metrics.hitRate(), metrics.promptTokens(),
+                    metrics.savedTokens(), metrics.savedTokenRate(), metrics.cachedTokens(), metrics.failures());
+        }
+    }
 
     /**
      * Builds details from a loaded {@link Llama} instance.
@@ -63,6 +92,18 @@ public record LlmModelDetails(
      * @return llm details for retrieve responses.
      */
     public static LlmModelDetails of(Llama llama, String source) {
+        return of(llama, source, null);
+    }
+
+    /**
+     * Builds details from a loaded {@link Llama} instance.
+     *
+     * @param llama   the loaded model.
+     * @param source  {@code "huggingface"} or {@code "local"}.
+     * @param metrics the prefix cache metrics, or {@code null}.
+     * @return llm details for retrieve responses.
+     */
+    public static LlmModelDetails of(Llama llama, String source, PrefixCacheMetrics metrics) {
         ModelArgs args = llama.params();
         return new LlmModelDetails(
                 llama.family(),
@@ -74,6 +115,7 @@ public record LlmModelDetails(
                 args.vocabSize(),
                 args.intermediateSize(),
                 args.maxBatchSize(),
-                args.maxSeqLen());
+                args.maxSeqLen(),
+                metrics == null ? null : PrefixCache.of(metrics));
     }
 }
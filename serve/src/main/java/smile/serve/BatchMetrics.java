@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE Serve is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE Serve is distributed in the hope that it will be useful,
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.serve;
+
+/**
+ * The queue depth and batch size metrics of a micro-batcher.
+ *
+ * @param maxBatchSize   the maximum number of requests in a batch.
+ * @param maxWaitMillis  the maximum time in milliseconds to wait for more requests.
+ * @param queueDepth     the number of pending requests.
+ * @param requests       the number of processed requests.
+ * @param batches        the number of processed batches.
+ * @param meanBatchSize  the average number of requests per batch.
+ * @param largestBatch   the size of the largest processed batch.
+ * @param workers        the number of worker threads.
+ * @author Haifeng Li
+ */
+public record BatchMetrics(int maxBatchSize,
+                           double maxWaitMillis,
+                           int queueDepth,
+                           long requests,
+                           long batches,
+                           double meanBatchSize,
+                           int largestBatch,
+                           int workers) {
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE Serve is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE Serve is distributed in the hope that it will be useful,
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.serve;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import io.vertx.core.json.JsonObject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.MediaType;
+import org.jboss.resteasy.reactive.RestMediaType;
+import smile.data.DataFrame;
+import smile.data.type.StructField;
+import smile.data.type.StructType;
+import smile.data.vector.*;
+import smile.io.Arrow;
+
+/**
+ * Parses the body of a bulk inference request into a stream of data
+ * frames with the model schema. The body is read incrementally so that
+ * only a few chunks are held in memory at a time. The text lines are
+ * parsed directly into the columns of a chunk without materializing
+ * row tuples, and the columns of Arrow record batches are converted to
+ * the data types of model schema if they differ.
+ *
+ * @author Haifeng Li
+ */
+final class BatchReader {
+    /** The MIME type of CSV. */
+    static final String TEXT_CSV = "text/csv";
+    /** The MIME type of Arrow IPC stream. */
+    static final String APPLICATION_ARROW_STREAM = "application/vnd.apache.arrow.stream";
+
+    /**
+     * Parses a text line into the columns of a chunk.
+     */
+    private interface LineParser {
+        /**
+         * Parses a line.
+         * @param line the text line.
+         * @param row the row index in the chunk.
+         * @param columns the columns of chunk.
+         */
+        void parse(String line, int row, Column[] columns);
+    }
+
+    /** Private constructor to prevent object creation. */
+    private BatchReader() {
+
+    }
+
+    /**
+     * Returns the stream of data frames in the request body.
+     * The stream should be closed after use.
+     *
+     * @param model       the model.
+     * @param contentType the MIME type of request body. NDJSON (or JSON),
+     *                    Arrow IPC stream, or CSV otherwise.
+     * @param header      true if the first line of CSV is the header.
+     * @param input       the request body.
+     * @param size        the maximum number of rows per data frame of
+     *                    NDJSON and CSV. Arrow record batches are kept as is.
+     * @return the stream of data frames.
+     * @throws IOException if fails to read the Arrow stream header.
+     */
+    static Stream<DataFrame> of(InferenceModel model, String contentType, boolean header,
+                                InputStream input, int size) throws IOException {
+        var schema = model.model().schema();
+        String type = contentType == null ? TEXT_CSV : contentType.toLowerCase();
+        if (type.startsWith(APPLICATION_ARROW_STREAM)) {
+            return new Arrow().stream(input, schema.names()).map(batch -> convert(schema, batch));
+        }
+
+        var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        if (type.startsWith(RestMediaType.APPLICATION_NDJSON) || type.startsWith(MediaType.APPLICATION_JSON)) {
+            return lines(schema, reader, size, false, BatchReader::json);
+        }
+        return lines(schema, reader, size, header, BatchReader::csv);
+    }
+
+    /**
+     * Parses a JSON object into a row of columns. Each field in the
+     * model schema must be present as a key.
+     */
+    private static void json(String line, int row, Column[] columns) {
+        var values = new JsonObject(line);
+        for (var column : columns) {
+            String name = column.field.name();
+            if (!values.containsKey(name)) {
+                throw new BadRequestException("Missing required field: " + name);
+            }
+            column.set(row, values.getValue(name));
+        }
+    }
+
+    /**
+     * Parses a CSV line into a row of columns. The number of comma-separated
+     * tokens must be at least the number of fields in the model schema.
+     */
+    private static void csv(String line, int row, Column[] columns) {
+        var values = line.split(",", -1);   // -1 keeps trailing empty tokens
+        if (values.length < columns.length) {
+            throw new BadRequestException(
+                    "Expected at least %d CSV columns but got %d".formatted(columns.length, values.length));
+        }
+
+        for (int j = 0; j < columns.length; j++) {
+            columns[j].set(row, values[j].trim());
+        }
+    }
+
+    /**
+     * Converts the columns of an Arrow record batch to the data types of
+     * model schema.
+     *
+     * @param schema the model schema.
+     * @param batch  the record batch.
+     * @return the data frame of model schema.
+     */
+    private static DataFrame convert(StructType schema, DataFrame batch) {
+        int n = batch.size();
+        var vectors = new ValueVector[schema.length()];
+        for (int j = 0; j < vectors.length; j++) {
+            var field = schema.field(j);
+            var vector = batch.column(field.name());
+            if (vector.dtype().equals(field.dtype())) {
+                vectors[j] = vector;
+            } else {
+                var column = new Column(field, n);
+                for (int i = 0; i < n; i++) {
+                    column.set(i, vector.get(i));
+                }
+                vectors[j] = column.toVector(n);
+            }
+        }
+        return new DataFrame(vectors);
+    }
+
+    /**
+     * Returns the stream of data frames of text lines.
+     *
+     * @param schema the model schema.
+     * @param reader the text reader.
+     * @param size   the maximum number of rows per data frame.
+     * @param header true if the first line should be skipped.
+     * @param parser the line parser.
+     * @return the stream of data frames.
+     */
+    private static Stream<DataFrame> lines(StructType schema, BufferedReader reader, int size, boolean header,
+                                           LineParser parser) {
+        var iterator = new Iterator<DataFrame>() {
+            /** The line number of the last read line. */
+            long lineNumber = 0;
+            /** The next chunk. */
+            DataFrame chunk = null;
+            /** True if the reader reaches the end of stream. */
+            boolean done = false;
+
+            @Override
+            public boolean hasNext() {
+                if (chunk == null && !done) {
+                    chunk = read();
+                }
+                return chunk != null;
+            }
+
+            @Override
+            public DataFrame next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                var next = chunk;
+                chunk = null;
+                return next;
+            }
+
+            /** Reads the next chunk, or null if there are no more lines. */
+            private DataFrame read() {
+                var columns = schema.fields().stream().map(field -> new Column(field, size)).toArray(Column[]::new);
+                int rows = 0;
+                try {
+                    String line;
+                    while (rows < size && (line = reader.readLine()) != null) {
+                        if (lineNumber++ == 0 && header) continue;
+                        if (line.isBlank()) continue;
+                        try {
+                            parser.parse(line, rows++, columns);
+                        } catch (WebApplicationException ex) {
+                            throw new BadRequestException("Line " + lineNumber + ": " + ex.getMessage());
+                        } catch (RuntimeException ex) {
+                            throw new BadRequestException("Line " + lineNumber + ": invalid input: " + ex.getMessage());
+                        }
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+
+                if (rows == 0) {
+                    done = true;
+                    return null;
+                }
+
+                int n = rows;
+                return new DataFrame(Arrays.stream(columns).map(column -> column.toVector(n)).toArray(ValueVector[]::new));
+            }
+        };
+
+        var spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    /**
+     * A column of chunk being filled, backed by an array of the field's
+     * primitive type if any.
+     */
+    private static class Column {
+        /** The field of column. */
+        final StructField field;
+        /** The array of values. */
+        final Object data;
+        /** The null values. */
+        final BitSet nullMask = new BitSet();
+
+        /**
+         * Constructor.
+         * @param field the field of column.
+         * @param capacity the maximum number of rows.
+         */
+        Column(StructField field, int capacity) {
+            this.field = field;
+            this.data = switch (field.dtype().id()) {
+                case Boolean -> new boolean[capacity];
+                case Byte -> new byte[capacity];
+                case Char -> new char[capacity];
+                case Short -> new short[capacity];
+                case Int -> new int[capacity];
+                case Long -> new long[capacity];
+                case Float -> new float[capacity];
+                case Double -> new double[capacity];
+                case String -> new String[capacity];
+                default -> new Object[capacity];
+            };
+        }
+
+        /**
+         * Sets a value, which is parsed by the field if it is a string
+         * but the field is not of string type.
+         * @param i the row index.
+         * @param value the value.
+         */
+        void set(int i, Object value) {
+            if (value instanceof String s && !field.dtype().isString()) {
+                value = s.isEmpty() ? null : field.valueOf(s);
+            }
+
+            if (value == null) {
+                nullMask.set(i);
+                switch (data) {
+                    case int[] a -> a[i] = Integer.MIN_VALUE;
+                    case long[] a -> a[i] = Long.MIN_VALUE;
+                    case float[] a -> a[i] = Float.NaN;
+                    case double[] a -> a[i] = Double.NaN;
+                    case byte[] a -> a[i] = Byte.MIN_VALUE;
+                    case short[] a -> a[i] = Short.MIN_VALUE;
+                    case char[] a -> a[i] = Character.MIN_VALUE;
+                    default -> { }
+                }
+                return;
+            }
+
+            switch (data) {
+                case double[] a -> a[i] = ((Number) value).doubleValue();
+                case float[] a -> a[i] = ((Number) value).floatValue();
+                case int[] a -> a[i] = ((Number) value).intValue();
+                case long[] a -> a[i] = ((Number) value).longValue();
+                case short[] a -> a[i] = ((Number) value).shortValue();
+                case byte[] a -> a[i] = ((Number) value).byteValue();
+                case boolean[] a -> a[i] = value instanceof Boolean b ? b : ((Number) value).intValue() != 0;
+                case char[] a -> a[i] = value instanceof Character c ? c : value.toString().charAt(0);
+                case String[] a -> a[i] = value.toString();
+                case Object[] a -> a[i] = value;
+                default -> throw new IllegalStateException("Unsupported column type: " + field.dtype());
+            }
+        }
+
+        /**
+         * Returns the vector of first n values.
+         * @param n the number of rows.
+         * @return the vector.
+         */
+        ValueVector toVector(int n) {
+            boolean nullable = field.dtype().isNullable();
+            return switch (data) {
+                case boolean[] a -> nullable ? new NullableBooleanVector(field, Arrays.copyOf(a, n), nullMask) : new BooleanVector(field, Arrays.copyOf(a, n));
+                case byte[] a -> nullable ? new NullableByteVector(field, Arrays.copyOf(a, n), nullMask) : new ByteVector(field, Arrays.copyOf(a, n));
+                case char[] a -> nullable ? new NullableCharVector(field, Arrays.copyOf(a, n), nullMask) : new CharVector(field, Arrays.copyOf(a, n));
+                case short[] a -> nullable ? new NullableShortVector(field, Arrays.copyOf(a, n), nullMask) : new ShortVector(field, Arrays.copyOf(a, n));
+                case int[] a -> nullable ? new NullableIntVector(field, Arrays.copyOf(a, n), nullMask) : new IntVector(field, Arrays.copyOf(a, n));
+                case long[] a -> nullable ? new NullableLongVector(field, Arrays.copyOf(a, n), nullMask) : new LongVector(field, Arrays.copyOf(a, n));
+                case float[] a -> nullable ? new NullableFloatVector(field, Arrays.copyOf(a, n), nullMask) : new FloatVector(field, Arrays.copyOf(a, n));
+                case double[] a -> nullable ? new NullableDoubleVector(field, Arrays.copyOf(a, n), nullMask) : new DoubleVector(field, Arrays.copyOf(a, n));
+                case String[] a -> new StringVector(field, Arrays.copyOf(a, n));
+                case Object[] a -> new ObjectVector<>(field, Arrays.copyOf(a, n));
+                default -> throw new IllegalStateException("Unsupported column type: " + field.dtype());
+            };
+        }
+    }
+}
@@ -17,8 +17,20 @@
 package smile.serve;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import io.vertx.core.json.JsonObject;
 import jakarta.ws.rs.BadRequestException;
+import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.type.StructType;
 import smile.io.Paths;
@@ -27,16 +39,38 @@ import smile.model.*;
 /**
  * The metadata of model.
  *
+ * <p>If micro-batching is enabled, the concurrent single-sample requests
+ * are collected by a {@link MicroBatcher} and scored together as a data
+ * frame, which amortizes the per-request dispatch cost and takes the
+ * vectorized inference path of models such as tree ensembles.
+ *
  * @author Haifeng Li
  */
-public class InferenceModel {
+public class InferenceModel implements AutoCloseable {
     private final String id;
     private final Model model;
     private final Path path;
     private final boolean isSoft;
+    /** The micro-batcher. Null if micro-batching is disabled. */
+    private final MicroBatcher<Tuple, InferenceResponse> batcher;
 
-    /** Constructor. */
+    /** Constructor without micro-batching. */
     public InferenceModel(Model model, Path path) {
+        this(model, path, 1, 1, Duration.ZERO);
+    }
+
+    /**
+     * Constructor.
+     * @param model the model.
+     * @param path the model file path.
+     * @param workers the number of threads that score micro-batches
+     *                concurrently.
+     * @param maxBatchSize the maximum number of requests in a micro-batch.
+     *                     Micro-batching is disabled if it is 1.
+     * @param maxWait the maximum time to wait for more requests once a
+     *                micro-batch is started.
+     */
+    public InferenceModel(Model model, Path path, int workers, int maxBatchSize, Duration maxWait) {
         this.id = model.getTag(Model.ID, Paths.getFileName(path)) + "-"
                 + model.getTag(Model.VERSION, "1");
         this.model = model;
@@ -46,6 +80,10 @@ public class InferenceModel {
         } else {
             isSoft = false;
         }
+
+        batcher = maxBatchSize > 1
+                ? new MicroBatcher<Tuple, InferenceResponse>("smile-batcher-" + id, workers, maxBatchSize, maxWait, this::predict)
+                : null;
     }
 
     /**
@@ -102,11 +140,138 @@ public class InferenceModel {
     }
 
     /**
-     * Performs inference.
+     * Returns the micro-batching metrics.
+     * @return the micro-batching metrics, or null if micro-batching is disabled.
+     */
+    public BatchMetrics metrics() {
+        return batcher == null ? null : batcher.metrics();
+    }
+
+    @Override
+    public void close() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    /**
+     * Performs inference. The request is scored together with other
+     * concurrent requests if micro-batching is enabled.
      * @param x the input tuple.
      * @return the inference result.
      */
     public InferenceResponse predict(Tuple x) {
+        if (batcher == null) {
+            return score(x);
+        }
+
+        return join(batcher.submit(x));
+    }
+
+    /**
+     * Performs inference on a batch of tuples as a data frame.
+     * @param batch the input tuples.
+     * @return the inference results.
+     */
+    public List<InferenceResponse> predict(List<Tuple> batch) {
+        int n = batch.size();
+        if (n == 1) {
+            return List.of(score(batch.getFirst()));
+        }
+
+        return predict(DataFrame.of(model.schema(), batch));
+    }
+
+    /**
+     * Performs inference on a data frame.
+     * @param data the input data, which must contain the columns of model schema.
+     * @return the inference results.
+     */
+    public List<InferenceResponse> predict(DataFrame data) {
+        int n = data.size();
+        var responses = new InferenceResponse[n];
+        switch (model) {
+            case ClassificationModel m -> {
+                if (isSoft) {
+                    List<double[]> probabilities = new ArrayList<>(n);
+                    int[] y = m.classifier().predict(data, probabilities);
+                    for (int i = 0; i < n; i++) {
+                        responses[i] = new InferenceResponse(y[i], probabilities.get(i));
+                    }
+                } else {
+                    int[] y = m.classifier().predict(data);
+                    for (int i = 0; i < n; i++) {
+                        responses[i] = new InferenceResponse(y[i]);
+                    }
+                }
+            }
+            case RegressionModel m -> {
+                double[] y = m.regression().predict(data);
+                for (int i = 0; i < n; i++) {
+                    responses[i] = new InferenceResponse(y[i]);
+                }
+            }
+            default -> throw new IllegalStateException("Unsupported model type: " + model.getClass().getName());
+        }
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * Performs inference on a stream of data frames, e.g. the chunks of a
+     * bulk request. Up to {@code parallelism} chunks are scored concurrently
+     * while the next ones are read, and the results are passed to the sink
+     * in the order of chunks as soon as they are available. If a chunk
+     * fails, the pending chunks are cancelled.
+     *
+     * <p>The executor should not be the one that runs the caller, which
+     * blocks on the chunks.
+     *
+     * @param batches     the chunks of input data.
+     * @param executor    the executor to score the chunks.
+     * @param parallelism the maximum number of chunks being scored at a time.
+     * @param sink        the consumer of inference results of each chunk.
+     */
+    public void predict(Iterator<DataFrame> batches, Executor executor, int parallelism,
+                        Consumer<List<InferenceResponse>> sink) {
+        Deque<CompletableFuture<List<InferenceResponse>>> pending = new ArrayDeque<>();
+        try {
+            while (batches.hasNext()) {
+                DataFrame batch = batches.next();
+                pending.add(CompletableFuture.supplyAsync(() -> predict(batch), executor));
+                if (pending.size() >= parallelism) {
+                    sink.accept(join(pending.poll()));
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                sink.accept(join(pending.poll()));
+            }
+        } finally {
+            // Cancels the chunks not yet scored if any chunk fails.
+            pending.forEach(future -> future.cancel(false));
+        }
+    }
+
+    /**
+     * Waits for a future and unwraps the cause of its failure.
+     * @param future the future.
+     * @return the result of future.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
+    }
+
+    /**
+     * Performs inference on a single tuple.
+     * @param x the input tuple.
+     * @return the inference result.
+     */
+    private InferenceResponse score(Tuple x) {
         double[] probabilities = null;
         Number y = switch (model) {
             case ClassificationModel m -> {
@@ -118,7 +283,7 @@ public class InferenceModel {
                 }
             }
             case RegressionModel m -> m.predict(x);
-            default -> 0;
+            default -> throw new IllegalStateException("Unsupported model type: " + model.getClass().getName());
         };
         return new InferenceResponse(y, probabilities);
     }
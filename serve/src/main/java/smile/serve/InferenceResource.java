@@ -21,16 +21,20 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.infrastructure.Infrastructure;
 import io.vertx.core.json.JsonObject;
+import org.jboss.resteasy.reactive.RestMediaType;
 import org.jboss.resteasy.reactive.RestStreamElementType;
 
 /**
@@ -41,6 +45,8 @@ import org.jboss.resteasy.reactive.RestStreamElementType;
  *   <li>{@code GET  /ml/models/{id}}      – retrieve model metadata.</li>
  *   <li>{@code POST /ml/models/{id}}      – single JSON inference request.</li>
  *   <li>{@code POST /ml/models/{id}/stream} – streaming inference (JSON lines or CSV).</li>
+ *   <li>{@code POST /ml/models/{id}/batch} – bulk inference (NDJSON, CSV or Arrow IPC stream).</li>
+ *   <li>{@code GET  /ml/models/{id}/metrics} – micro-batching metrics.</li>
  * </ul>
  *
  * <p>The unified model catalog is {@code GET /api/v1/models}.
@@ -49,6 +55,8 @@ import org.jboss.resteasy.reactive.RestStreamElementType;
  */
 @Path("/ml/models")
 public class InferenceResource {
+    /** The number of rows per chunk of bulk inference. */
+    private static final int CHUNK_SIZE = 4096;
 
     @Inject
     InferenceService service;
@@ -66,6 +74,22 @@ public class InferenceResource {
         return service.getModel(id).metadata();
     }
 
+    /**
+     * Returns the micro-batching metrics of a model, i.e. the queue depth
+     * and batch sizes.
+     *
+     * @param id the model ID.
+     * @return the micro-batching metrics (404 if not found or micro-batching is disabled).
+     */
+    @GET
+    @Path("/{id}/metrics")
+    @Produces(MediaType.APPLICATION_JSON)
+    public BatchMetrics metrics(@PathParam("id") String id) {
+        var metrics = service.getModel(id).metrics();
+        if (metrics == null) throw new NotFoundException("Micro-batching is disabled: " + id);
+        return metrics;
+    }
+
     /**
      * Performs a single inference on JSON-encoded feature values.
      *
@@ -121,4 +145,48 @@ public class InferenceResource {
             });
         });
     }
+
+    /**
+     * Performs bulk inference, e.g. for backfills. The request body is
+     * parsed incrementally into data frames of the model schema, which
+     * are scored in parallel across cores. The results are streamed back
+     * as NDJSON in the order of input rows as soon as they are produced.
+     *
+     * <p>The body may be newline-delimited JSON objects
+     * ({@code application/x-ndjson}), multi-line CSV ({@code text/csv} or
+     * {@code text/plain}), or an Arrow IPC stream
+     * ({@code application/vnd.apache.arrow.stream}) whose columns are
+     * selected by the names in model schema.
+     *
+     * @param contentType the MIME type of request body.
+     * @param id          the model ID.
+     * @param header      true if the first line of CSV is the header.
+     * @param input       the request body input stream.
+     * @return a reactive stream of inference responses.
+     */
+    @POST
+    @Path("/{id}/batch")
+    @Consumes({RestMediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON, BatchReader.TEXT_CSV,
+               MediaType.TEXT_PLAIN, BatchReader.APPLICATION_ARROW_STREAM})
+    @Produces(RestMediaType.APPLICATION_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<InferenceResponse> batch(@HeaderParam("Content-Type") String contentType,
+                                          @PathParam("id") String id,
+                                          @QueryParam("header") @DefaultValue("false") boolean header,
+                                          InputStream input) {
+        var model = service.getModel(id);
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        return Multi.createFrom().emitter(emitter -> {
+            // The request body is read on the worker pool while the chunks
+            // are scored on the dedicated executor of service.
+            Infrastructure.getDefaultWorkerPool().submit(() -> {
+                try (var batches = BatchReader.of(model, contentType, header, input, CHUNK_SIZE)) {
+                    model.predict(batches.iterator(), service.executor(), parallelism, responses -> responses.forEach(emitter::emit));
+                    emitter.complete();
+                } catch (Exception ex) {
+                    emitter.fail(ex);
+                }
+            });
+        });
+    }
 }
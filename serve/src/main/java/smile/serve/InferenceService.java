@@ -25,9 +25,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 import io.quarkus.runtime.Startup;
 import io.vertx.core.json.JsonObject;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.BadRequestException;
@@ -55,6 +58,16 @@ public class InferenceService {
     private static final Logger logger = Logger.getLogger(InferenceService.class);
     /** Loaded models, keyed by {@code <id>-<version>}. Sorted for stable list order. */
     private final Map<String, InferenceModel> models = Collections.synchronizedSortedMap(new TreeMap<>());
+    /** The service configuration. */
+    private final InferenceServiceConfig config;
+    /**
+     * The executor that scores the chunks of bulk requests. It is separate
+     * from the request worker pool, on which the bulk requests wait for
+     * their chunks, so that the waiting requests cannot starve the scoring.
+     */
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            Thread.ofPlatform().name("smile-batch-", 0).daemon().factory());
 
     /**
      * Loads ML models upon application start.
@@ -64,6 +77,7 @@ public class InferenceService {
      */
     @Inject
     public InferenceService(InferenceServiceConfig config) {
+        this.config = config;
         var path = Path.of(config.model()).toAbsolutePath().normalize();
         if (Files.isRegularFile(path)) {
             loadModel(path);
@@ -89,7 +103,8 @@ public class InferenceService {
             logger.infof("Loading model from '%s'", path);
             var obj = Read.object(path);
             if (obj instanceof Model m) {
-                var model = new InferenceModel(m, path);
+                int workers = config.batchWorkers() > 0 ? config.batchWorkers() : Runtime.getRuntime().availableProcessors();
+                var model = new InferenceModel(m, path, workers, config.batchMaxSize(), config.batchMaxWait());
                 models.put(model.id(), model);
                 logger.infof("Model '%s' loaded successfully", model.id());
             } else {
@@ -101,6 +116,26 @@ public class InferenceService {
         }
     }
 
+    /**
+     * Returns the executor that scores the chunks of bulk requests.
+     * @return the executor that scores the chunks of bulk requests.
+     */
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * Stops the micro-batchers of models and the bulk scoring executor
+     * on shutdown.
+     */
+    @PreDestroy
+    void close() {
+        synchronized (models) {
+            models.values().forEach(InferenceModel::close);
+        }
+        executor.shutdownNow();
+    }
+
     /**
      * Returns OpenAI-shaped descriptors for every loaded SMILE {@code .sml} model.
      *
@@ -16,7 +16,10 @@
  */
 package smile.serve;
 
+import java.time.Duration;
 import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
 
 /**
  * The inference service configuration.
@@ -27,4 +30,33 @@ import io.smallrye.config.ConfigMapping;
 public interface InferenceServiceConfig {
     /** The location of pre-trained model(s) for inference. */
     String model();
+
+    /**
+     * Maximum number of concurrent requests scored together in a
+     * micro-batch per model. Micro-batching is disabled if it is 1,
+     * which is the default, so that the requests are scored directly
+     * on the request threads.
+     */
+    @WithName("batch.max-size")
+    @WithDefault("1")
+    int batchMaxSize();
+
+    /**
+     * Maximum time to wait for more requests once a micro-batch is
+     * started. Defaults to {@code 0}, i.e. a batch takes only the
+     * requests already queued, which grows with the load but adds
+     * no latency at low load.
+     */
+    @WithName("batch.max-wait")
+    @WithDefault("0")
+    Duration batchMaxWait();
+
+    /**
+     * The number of worker threads per model that score micro-batches
+     * concurrently. Defaults to {@code 0}, i.e. the number of available
+     * processors.
+     */
+    @WithName("batch.workers")
+    @WithDefault("0")
+    int batchWorkers();
 }
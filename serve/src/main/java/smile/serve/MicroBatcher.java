@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE Serve is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE Serve is distributed in the hope that it will be useful,
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.serve;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Collects concurrent requests into batches that are processed by a
+ * single call of a batch function, and fans the results back out to
+ * the callers.
+ *
+ * <p>Each of the worker threads takes the first pending request, drains
+ * the other pending requests up to {@code maxBatchSize}, and then waits
+ * at most {@code maxWait} for more requests before processing the batch.
+ * With several workers, batches are processed concurrently so that the
+ * batcher doesn't serialize the requests of a model that is safe to be
+ * called from multiple threads.
+ * The batching is adaptive: as requests queue up while a batch is being
+ * processed, the batch size grows with the load even if {@code maxWait}
+ * is zero, which adds no latency to a request arriving at an idle batcher.
+ *
+ * <p>If the batch function fails, each request of the batch is retried
+ * alone so that a bad input fails only its own request.
+ *
+ * @param <T> the type of request.
+ * @param <R> the type of response.
+ * @author Haifeng Li
+ */
+public class MicroBatcher<T, R> implements AutoCloseable {
+    /** The poll timeout of worker thread to check if the batcher is closed. */
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * A pending request.
+     * @param input the request input.
+     * @param future the future of response.
+     */
+    private record Request<T, R>(T input, CompletableFuture<R> future) { }
+
+    /** The batch function. */
+    private final Function<List<T>, List<R>> function;
+    /** The maximum number of requests in a batch. */
+    private final int maxBatchSize;
+    /** The maximum time to wait for more requests. */
+    private final long maxWaitNanos;
+    /** The pending requests. */
+    private final BlockingQueue<Request<T, R>> queue = new LinkedBlockingQueue<>();
+    /** The worker threads. */
+    private final Thread[] workers;
+    /** True if the batcher is closed. */
+    private volatile boolean closed = false;
+    /** The number of processed requests. */
+    private final LongAdder requests = new LongAdder();
+    /** The number of processed batches. */
+    private final LongAdder batches = new LongAdder();
+    /** The size of the largest processed batch. */
+    private final AtomicInteger largestBatch = new AtomicInteger();
+
+    /**
+     * Constructor with a single worker thread.
+     *
+     * @param name         the name of worker thread.
+     * @param maxBatchSize the maximum number of requests in a batch.
+     * @param maxWait      the maximum time to wait for more requests
+     *                     once a batch is started.
+     * @param function     the batch function, which must return a list
+     *                     of responses in the order of requests.
+     */
+    public MicroBatcher(String name, int maxBatchSize, Duration maxWait, Function<List<T>, List<R>> function) {
+        this(name, 1, maxBatchSize, maxWait, function);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param name         the name prefix of worker threads.
+     * @param workers      the number of worker threads, i.e. the maximum
+     *                     number of batches processed concurrently.
+     * @param maxBatchSize the maximum number of requests in a batch.
+     * @param maxWait      the maximum time to wait for more requests
+     *                     once a batch is started.
+     * @param function     the batch function, which must return a list
+     *                     of responses in the order of requests.
+     */
+    public MicroBatcher(String name, int workers, int maxBatchSize, Duration maxWait, Function<List<T>, List<R>> function) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Invalid number of workers: " + workers);
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Invalid maximum batch size: " + maxBatchSize);
+        }
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("Invalid maximum wait time: " + maxWait);
+        }
+
+        this.function = function;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.workers = new Thread[workers];
+        var factory = Thread.ofPlatform().name(name + "-", 0).daemon().factory();
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = factory.newThread(this::run);
+            this.workers[i].start();
+        }
+    }
+
+    /**
+     * Submits a request.
+     *
+     * @param input the request input.
+     * @return the future of response.
+     */
+    public CompletableFuture<R> submit(T input) {
+        var request = new Request<T, R>(input, new CompletableFuture<>());
+        if (closed) {
+            request.future.completeExceptionally(new IllegalStateException("Batcher is closed"));
+        } else {
+            queue.add(request);
+        }
+        return request.future;
+    }
+
+    /**
+     * Returns the queue depth and batch size metrics.
+     * @return the batch metrics.
+     */
+    public BatchMetrics metrics() {
+        long n = requests.sum();
+        long m = batches.sum();
+        return new BatchMetrics(maxBatchSize, maxWaitNanos / 1E6, queue.size(),
+                n, m, m == 0 ? 0.0 : (double) n / m, largestBatch.get(), workers.length);
+    }
+
+    /** The loop of worker threads. */
+    private void run() {
+        List<Request<T, R>> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                if (maxWaitNanos > 0) {
+                    long deadline = System.nanoTime() + maxWaitNanos;
+                    while (batch.size() < maxBatchSize) {
+                        var next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) break;
+                        batch.add(next);
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                    }
+                }
+
+                process(batch);
+            } catch (InterruptedException ex) {
+                // Complete the requests in hand before exiting.
+                process(batch);
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Processes a batch of requests.
+     * @param batch the requests.
+     */
+    private void process(List<Request<T, R>> batch) {
+        int n = batch.size();
+        if (n == 0) return;
+
+        requests.add(n);
+        batches.increment();
+        largestBatch.accumulateAndGet(n, Math::max);
+
+        try {
+            List<T> inputs = batch.stream().map(Request::input).toList();
+            List<R> outputs = function.apply(inputs);
+            if (outputs.size() != n) {
+                throw new IllegalStateException(String.format("Batch function returns %d responses for %d requests", outputs.size(), n));
+            }
+            for (int i = 0; i < n; i++) {
+                batch.get(i).future.complete(outputs.get(i));
+            }
+        } catch (Throwable ex) {
+            if (n == 1) {
+                batch.getFirst().future.completeExceptionally(ex);
+            } else {
+                for (var request : batch) {
+                    try {
+                        request.future.complete(function.apply(List.of(request.input)).getFirst());
+                    } catch (Throwable e) {
+                        request.future.completeExceptionally(e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting requests, processes the pending ones, and waits
+     * for the worker threads to exit.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (var worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException ex) {
+                for (var w : workers) w.interrupt();
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // Requests that raced with close() after the worker exited.
+        Request<T, R> request;
+        while ((request = queue.poll()) != null) {
+            request.future.completeExceptionally(new IllegalStateException("Batcher is closed"));
+        }
+    }
+}
@@ -16,18 +16,31 @@
  */
 package smile.serve;
 
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.nio.file.Path;
-import java.util.LinkedHashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import jakarta.ws.rs.BadRequestException;
+import org.jboss.logging.Logger;
 import smile.chat.OnnxModelDetails;
 import smile.onnx.ElementType;
 import smile.onnx.InferenceSession;
+import smile.onnx.IoBinding;
 import smile.onnx.NodeInfo;
+import smile.onnx.OnnxException;
 import smile.onnx.OrtValue;
+import smile.onnx.RunOptions;
 import smile.onnx.TensorInfo;
 
 /**
@@ -58,9 +71,34 @@ import smile.onnx.TensorInfo;
  * }
  * }</pre>
  *
+ * <h2>Execution</h2>
+ * <p>The session is shared by a pool of run contexts, each of which has
+ * its own {@link IoBinding}, {@link RunOptions} and native input/output
+ * buffers. The buffers are allocated once, grown on demand, and reused
+ * across requests, so that the request values are written directly into
+ * native memory and the outputs are read from it, without per-request
+ * tensor allocation. Up to {@code poolSize} requests run concurrently.
+ *
+ * <p>If every input declares a dynamic leading (batch) dimension and the
+ * other dimensions are static, the concurrent requests are collected by a
+ * {@link MicroBatcher}, concatenated along the batch dimension, and run
+ * together. The outputs are split back along the batch dimension. The
+ * batcher has one worker per run context so that up to {@code poolSize}
+ * micro-batches run concurrently.
+ *
+ * <p>The outputs of which only the batch dimension is dynamic are written
+ * into preallocated buffers. If a run fails because the actual output
+ * shape differs from the declared one, that run is retried with ORT
+ * allocated outputs. Other failures are not retried.
+ *
  * @author Haifeng Li
  */
 public class OnnxModel implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(OnnxModel.class);
+    /** The ORT error code of general failure. */
+    private static final int ORT_FAIL = 1;
+    /** The ORT error code of invalid argument. */
+    private static final int ORT_INVALID_ARGUMENT = 2;
 
     /** The model ID (file stem). */
     private final String id;
@@ -70,24 +108,64 @@ public class OnnxModel implements AutoCloseable {
     private final InferenceSession session;
     /** Cached metadata DTO. */
     private final OnnxModelInfo info;
+    /** The input node information. */
+    private final List<NodeInfo> inputInfos;
+    /** The output node information. */
+    private final List<NodeInfo> outputInfos;
+    /**
+     * The number of elements per batch row of inputs, or null if the
+     * requests cannot be concatenated along the batch dimension.
+     */
+    private final long[] rowSize;
+    /** The pool of run contexts. */
+    private final BlockingQueue<RunContext> pool;
+    /** All run contexts, to be closed with the model. */
+    private final List<RunContext> contexts = new ArrayList<>();
+    /** The micro-batcher. Null if micro-batching is disabled. */
+    private final MicroBatcher<JsonObject, JsonObject> batcher;
 
     /**
-     * Constructs an {@code OnnxModel} from an open session.
+     * Constructs an {@code OnnxModel} from an open session with a single
+     * run context and without micro-batching.
      *
      * @param id      the model ID.
      * @param path    the source file path.
      * @param session the loaded ONNX inference session (this model takes ownership).
      */
     public OnnxModel(String id, Path path, InferenceSession session) {
+        this(id, path, session, 1, 1, Duration.ZERO);
+    }
+
+    /**
+     * Constructs an {@code OnnxModel} from an open session.
+     *
+     * @param id           the model ID.
+     * @param path         the source file path.
+     * @param session      the loaded ONNX inference session (this model takes ownership).
+     * @param poolSize     the number of run contexts, i.e. the maximum number
+     *                     of concurrent runs on the session.
+     * @param maxBatchSize the maximum number of requests in a micro-batch.
+     *                     Micro-batching is disabled if it is 1 or the model
+     *                     has no dynamic batch dimension.
+     * @param maxWait      the maximum time to wait for more requests once a
+     *                     micro-batch is started.
+     */
+    public OnnxModel(String id, Path path, InferenceSession session, int poolSize, int maxBatchSize, Duration maxWait) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Invalid pool size: " + poolSize);
+        }
+
         this.id = id;
         this.path = path;
         this.session = session;
+        this.inputInfos = session.inputInfos();
+        this.outputInfos = session.outputInfos();
 
         // Build the info DTO eagerly
         var onnxMeta = session.metadata();
-        var inputs = session.inputInfos().stream()
+        var inputs = inputInfos.stream()
                 .map(OnnxModelInfo.NodeDescriptor::of).toList();
-        var outputs = session.outputInfos().stream()
+        var outputs = outputInfos.stream()
                 .map(OnnxModelInfo.NodeDescriptor::of).toList();
         this.info = new OnnxModelInfo(
                 id,
@@ -97,6 +175,23 @@ public class OnnxModel implements AutoCloseable {
                 inputs,
                 outputs,
                 onnxMeta.customMetadata());
+
+        this.rowSize = batchRowSize(inputInfos, outputInfos);
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                var context = new RunContext("smile-onnx-" + id + "-" + i);
+                contexts.add(context);
+                pool.add(context);
+            }
+        } catch (RuntimeException ex) {
+            contexts.forEach(RunContext::close);
+            throw ex;
+        }
+
+        batcher = maxBatchSize > 1 && rowSize != null
+                ? new MicroBatcher<JsonObject, JsonObject>("smile-onnx-batcher-" + id, poolSize, maxBatchSize, maxWait, this::run)
+                : null;
     }
 
     /**
@@ -135,6 +230,14 @@ public class OnnxModel implements AutoCloseable {
         return OnnxModelDetails.of(session.metadata(), info);
     }
 
+    /**
+     * Returns the micro-batching metrics.
+     * @return the micro-batching metrics, or null if micro-batching is disabled.
+     */
+    public BatchMetrics metrics() {
+        return batcher == null ? null : batcher.metrics();
+    }
+
     // -----------------------------------------------------------------------
     // Inference — JSON object
     // -----------------------------------------------------------------------
@@ -155,28 +258,11 @@ public class OnnxModel implements AutoCloseable {
     public JsonObject predict(JsonObject request) throws BadRequestException {
         if (request == null) throw new BadRequestException("Request body must not be null");
 
-        List<NodeInfo> inputInfos = session.inputInfos();
-        Map<String, OrtValue> inputs = new LinkedHashMap<>(inputInfos.size());
-
-        try {
-            for (NodeInfo info : inputInfos) {
-                String name = info.name();
-                JsonArray arr = request.getJsonArray(name);
-                if (arr == null) {
-                    throw new BadRequestException("Missing required input: " + name);
-                }
-                inputs.put(name, jsonArrayToOrtValue(arr, info.tensorInfo()));
-            }
-
-            OrtValue[] outputs = session.run(inputs);
-            try {
-                return ortValuesToJson(session.outputInfos(), outputs);
-            } finally {
-                for (var v : outputs) v.close();
-            }
-        } finally {
-            for (var v : inputs.values()) v.close();
+        if (batcher == null) {
+            return run(List.of(request)).getFirst();
         }
+
+        return join(batcher.submit(request));
     }
 
     // -----------------------------------------------------------------------
@@ -201,45 +287,347 @@ public class OnnxModel implements AutoCloseable {
             throw new BadRequestException("CSV line must not be blank");
         }
 
-        List<NodeInfo> inputInfos = session.inputInfos();
         if (inputInfos.isEmpty()) {
             throw new BadRequestException("Model has no inputs");
         }
 
+        if (inputInfos.size() > 1) {
+            throw new BadRequestException(
+                    "CSV input is only supported for single-input models. "
+                    + "Use the JSON endpoint for multi-input models.");
+        }
+
         // Parse the CSV as float values
         String[] tokens = line.split(",", -1);
-        float[] data = new float[tokens.length];
+        var data = new JsonArray(new ArrayList<>(tokens.length));
         try {
-            for (int i = 0; i < tokens.length; i++) {
-                data[i] = Float.parseFloat(tokens[i].trim());
+            for (String token : tokens) {
+                data.add(Float.parseFloat(token.trim()));
             }
         } catch (NumberFormatException ex) {
             throw new BadRequestException("Failed to parse CSV: " + ex.getMessage());
         }
 
-        // Use the first input node only
-        NodeInfo firstInput = inputInfos.getFirst();
-        TensorInfo ti = firstInput.tensorInfo();
-        long[] shape = resolveShape(ti, data.length);
+        return predict(new JsonObject().put(inputInfos.getFirst().name(), data));
+    }
 
-        Map<String, OrtValue> inputs = new LinkedHashMap<>();
-        try (OrtValue input = OrtValue.fromFloatArray(data, shape)) {
-            inputs.put(firstInput.name(), input);
+    /**
+     * Runs a batch of requests on a pooled run context. The requests are
+     * concatenated along the batch dimension if there are more than one.
+     *
+     * @param requests the requests.
+     * @return the responses in the order of requests.
+     */
+    private List<JsonObject> run(List<JsonObject> requests) {
+        RunContext context;
+        try {
+            context = pool.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for ONNX run context", ex);
+        }
 
-            // If the model has more than one input, add empty placeholders
-            // for any remaining static-shape inputs (advanced use-cases
-            // should use the JSON endpoint instead).
-            if (inputInfos.size() > 1) {
-                throw new BadRequestException(
-                        "CSV input is only supported for single-input models. "
-                        + "Use the JSON endpoint for multi-input models.");
+        try {
+            return context.run(requests);
+        } finally {
+            pool.add(context);
+        }
+    }
+
+    /**
+     * Returns true if the run failed because an output doesn't fit the
+     * shape of its preallocated buffer, e.g. ORT's "Shape mismatch
+     * attempting to re-use buffer". Such a run can be retried with
+     * ORT allocated outputs.
+     *
+     * @param ex the exception of run.
+     * @return true if the exception is an output shape mismatch.
+     */
+    static boolean isOutputShapeError(OnnxException ex) {
+        String message = ex.getMessage();
+        return (ex.errorCode() == ORT_FAIL || ex.errorCode() == ORT_INVALID_ARGUMENT)
+                && message != null && message.toLowerCase(Locale.ROOT).contains("shape mismatch");
+    }
+
+    /**
+     * Waits for a future and unwraps the cause of its failure.
+     * @param future the future.
+     * @return the result of future.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
+    }
+
+    /**
+     * The context of a run on the shared session, i.e. the I/O binding,
+     * run options and reusable native buffers. A context is used by one
+     * thread at a time.
+     */
+    private class RunContext implements AutoCloseable {
+        /** The I/O binding. */
+        final IoBinding binding;
+        /** The per-run options. */
+        final RunOptions runOptions;
+        /** The input buffers. */
+        final Buffer[] inputs;
+        /** The output buffers. */
+        final Buffer[] outputs;
+
+        /**
+         * Constructor.
+         * @param tag the log tag of runs.
+         */
+        RunContext(String tag) {
+            runOptions = new RunOptions().setLogTag(tag);
+            try {
+                binding = session.createIoBinding();
+            } catch (RuntimeException ex) {
+                runOptions.close();
+                throw ex;
+            }
+
+            inputs = new Buffer[inputInfos.size()];
+            for (int i = 0; i < inputs.length; i++) inputs[i] = new Buffer();
+            outputs = new Buffer[outputInfos.size()];
+            for (int i = 0; i < outputs.length; i++) outputs[i] = new Buffer();
+        }
+
+        /**
+         * Runs a batch of requests.
+         * @param requests the requests.
+         * @return the responses in the order of requests.
+         */
+        List<JsonObject> run(List<JsonObject> requests) {
+            int n = requests.size();
+            if (n > 1 && rowSize == null) {
+                throw new IllegalStateException("The model doesn't support batching");
+            }
+
+            // The number of batch rows of each request.
+            long[] rows = new long[n];
+            long totalRows = 0;
+            List<OrtValue> values = new ArrayList<>(inputInfos.size() + outputInfos.size());
+            try {
+                for (int k = 0; k < inputInfos.size(); k++) {
+                    NodeInfo node = inputInfos.get(k);
+                    String name = node.name();
+                    TensorInfo ti = node.tensorInfo();
+                    ElementType type = ti != null ? ti.elementType() : ElementType.FLOAT;
+                    int elementSize = type.byteSize();
+
+                    long elements = 0;
+                    JsonArray[] arrays = new JsonArray[n];
+                    for (int r = 0; r < n; r++) {
+                        JsonObject request = requests.get(r);
+                        JsonArray arr = request == null ? null : request.getJsonArray(name);
+                        if (arr == null) {
+                            throw new BadRequestException("Missing required input: " + name);
+                        }
+                        arrays[r] = arr;
+                        elements += arr.size();
+
+                        if (rowSize != null) {
+                            long m = arr.size() / rowSize[k];
+                            if (m * rowSize[k] != arr.size()) {
+                                throw new BadRequestException(
+                                        "Input '%s' has %d elements, not a multiple of %d".formatted(name, arr.size(), rowSize[k]));
+                            }
+                            if (k == 0) {
+                                rows[r] = m;
+                                totalRows += m;
+                            } else if (rows[r] != m) {
+                                throw new BadRequestException(
+                                        "Input '%s' has %d rows but '%s' has %d".formatted(name, m, inputInfos.getFirst().name(), rows[r]));
+                            }
+                        }
+                    }
+
+                    long[] shape;
+                    if (rowSize != null) {
+                        shape = ti.shape().clone();
+                        shape[0] = totalRows;
+                    } else {
+                        shape = resolveShape(ti, (int) elements);
+                    }
+
+                    MemorySegment buffer = inputs[k].reserve(elements * elementSize);
+                    long offset = 0;
+                    for (JsonArray arr : arrays) {
+                        write(name, arr, type, buffer, offset);
+                        offset += arr.size();
+                    }
+
+                    OrtValue value = OrtValue.fromMemorySegment(buffer, shape, type);
+                    values.add(value);
+                    binding.bindInput(name, value);
+                }
+
+                boolean preallocated = bindOutputs(totalRows, values);
+                try {
+                    session.run(binding, runOptions);
+                } catch (OnnxException ex) {
+                    if (!preallocated || !isOutputShapeError(ex)) throw ex;
+                    // The declared output shape is not the actual one of this run.
+                    logger.debugf("ONNX model '%s' output doesn't fit the preallocated buffer, retry with ORT allocated outputs: %s", id, ex.getMessage());
+                    binding.clearOutputs();
+                    for (NodeInfo node : outputInfos) {
+                        binding.bindOutput(node.name());
+                    }
+                    session.run(binding, runOptions);
+                }
+
+                return responses(rows, totalRows);
+            } finally {
+                binding.clearInputs();
+                binding.clearOutputs();
+                for (var value : values) value.close();
             }
+        }
+
+        /**
+         * Binds the outputs to the preallocated buffers if the shape is
+         * known, or to the CPU otherwise.
+         * @param totalRows the number of batch rows.
+         * @param values the list to add the output values to close after run.
+         * @return true if any output is preallocated.
+         */
+        boolean bindOutputs(long totalRows, List<OrtValue> values) {
+            boolean preallocated = false;
+            for (int k = 0; k < outputInfos.size(); k++) {
+                NodeInfo node = outputInfos.get(k);
+                long[] shape = outputShape(node.tensorInfo(), totalRows);
+                if (shape == null) {
+                    binding.bindOutput(node.name());
+                } else {
+                    ElementType type = node.tensorInfo().elementType();
+                    long elements = 1;
+                    for (long dim : shape) elements *= dim;
+                    MemorySegment buffer = outputs[k].reserve(elements * type.byteSize());
+                    OrtValue value = OrtValue.fromMemorySegment(buffer, shape, type);
+                    values.add(value);
+                    binding.bindOutput(node.name(), value);
+                    preallocated = true;
+                }
+            }
+            return preallocated;
+        }
+
+        /**
+         * Returns the output shape to preallocate, or null if unknown.
+         * @param ti the declared output tensor info.
+         * @param totalRows the number of batch rows.
+         * @return the output shape, or null if unknown.
+         */
+        long[] outputShape(TensorInfo ti, long totalRows) {
+            if (ti == null || ti.elementType().byteSize() <= 0 || !isJsonType(ti.elementType())) return null;
+            long[] shape = ti.shape().clone();
+            for (int i = 0; i < shape.length; i++) {
+                if (shape[i] < 0) {
+                    // Only the batch dimension of batchable models is known.
+                    if (i > 0 || rowSize == null) return null;
+                    shape[i] = totalRows;
+                }
+            }
+            return shape;
+        }
 
-            OrtValue[] outputs = session.run(inputs);
+        /**
+         * Converts the outputs of last run into the responses, splitting
+         * them along the batch dimension.
+         * @param rows the number of batch rows of each request.
+         * @param totalRows the number of batch rows.
+         * @return the responses.
+         */
+        List<JsonObject> responses(long[] rows, long totalRows) {
+            int n = rows.length;
+            List<JsonObject> responses = new ArrayList<>(n);
+            for (int r = 0; r < n; r++) responses.add(new JsonObject());
+
+            OrtValue[] values = binding.outputs();
             try {
-                return ortValuesToJson(session.outputInfos(), outputs);
+                for (int i = 0; i < values.length; i++) {
+                    String name = (i < outputInfos.size()) ? outputInfos.get(i).name() : "output_" + i;
+                    OrtValue value = values[i];
+                    if (!value.isTensor()) {
+                        for (var response : responses) response.put(name, new JsonArray());
+                        continue;
+                    }
+
+                    TensorInfo ti = value.tensorInfo();
+                    MemorySegment data = value.data();
+                    long count = ti.elementCount();
+                    if (n == 1) {
+                        responses.getFirst().put(name, toJsonArray(data, ti.elementType(), 0, count));
+                        continue;
+                    }
+
+                    long[] shape = ti.shape();
+                    if (shape.length == 0 || shape[0] != totalRows) {
+                        throw new IllegalStateException(
+                                "Output '%s' of shape %s cannot be split into %d rows".formatted(name, Arrays.toString(shape), totalRows));
+                    }
+
+                    long rowElements = count / totalRows;
+                    long offset = 0;
+                    for (int r = 0; r < n; r++) {
+                        long size = rows[r] * rowElements;
+                        responses.get(r).put(name, toJsonArray(data, ti.elementType(), offset, offset + size));
+                        offset += size;
+                    }
+                }
             } finally {
-                for (var v : outputs) v.close();
+                for (var value : values) value.close();
+            }
+            return responses;
+        }
+
+        @Override
+        public void close() {
+            binding.close();
+            runOptions.close();
+            for (var buffer : inputs) buffer.close();
+            for (var buffer : outputs) buffer.close();
+        }
+    }
+
+    /**
+     * A growable native buffer. The memory is shared across threads as
+     * a run context may be used by different request threads.
+     */
+    private static class Buffer implements AutoCloseable {
+        /** The alignment of buffers. */
+        static final long ALIGNMENT = 64;
+        /** The arena of current memory. */
+        Arena arena;
+        /** The current memory. */
+        MemorySegment segment = MemorySegment.NULL;
+
+        /**
+         * Returns the memory of at least the given size. The previous
+         * content is discarded if the buffer grows.
+         * @param bytes the number of bytes.
+         * @return the memory.
+         */
+        MemorySegment reserve(long bytes) {
+            if (bytes > segment.byteSize() || arena == null) {
+                close();
+                long capacity = Math.max(ALIGNMENT, Math.max(bytes, 2 * segment.byteSize()));
+                arena = Arena.ofShared();
+                segment = arena.allocate(capacity, ALIGNMENT);
+            }
+            return segment;
+        }
+
+        @Override
+        public void close() {
+            if (arena != null) {
+                arena.close();
+                arena = null;
             }
         }
     }
@@ -249,50 +637,79 @@ public class OnnxModel implements AutoCloseable {
     // -----------------------------------------------------------------------
 
     /**
-     * Converts a flat JSON array to an {@link OrtValue} tensor.
-     * The element type is taken from the model's declared input type info;
-     * defaults to {@link ElementType#FLOAT} if the info is absent.
+     * Returns the number of elements per batch row of inputs if the model
+     * supports batching, i.e. every input is a tensor whose only dynamic
+     * dimension is the leading one and every output is a tensor with
+     * dynamic leading dimension. Otherwise, returns null.
      */
-    private static OrtValue jsonArrayToOrtValue(JsonArray arr, TensorInfo ti) {
-        int n = arr.size();
-        ElementType elemType = (ti != null) ? ti.elementType() : ElementType.FLOAT;
-        long[] shape = (ti != null) ? resolveShape(ti, n) : new long[]{1, n};
-
-        return switch (elemType) {
-            case FLOAT -> {
-                float[] data = new float[n];
-                for (int i = 0; i < n; i++) data[i] = ((Number) arr.getValue(i)).floatValue();
-                yield OrtValue.fromFloatArray(data, shape);
-            }
-            case DOUBLE -> {
-                double[] data = new double[n];
-                for (int i = 0; i < n; i++) data[i] = ((Number) arr.getValue(i)).doubleValue();
-                yield OrtValue.fromDoubleArray(data, shape);
-            }
-            case INT32 -> {
-                int[] data = new int[n];
-                for (int i = 0; i < n; i++) data[i] = ((Number) arr.getValue(i)).intValue();
-                yield OrtValue.fromIntArray(data, shape);
-            }
-            case INT64 -> {
-                long[] data = new long[n];
-                for (int i = 0; i < n; i++) data[i] = ((Number) arr.getValue(i)).longValue();
-                yield OrtValue.fromLongArray(data, shape);
-            }
-            case INT8, UINT8, BOOL -> {
-                byte[] data = new byte[n];
-                for (int i = 0; i < n; i++) data[i] = ((Number) arr.getValue(i)).byteValue();
-                yield OrtValue.fromByteArray(data, shape);
-            }
-            default -> {
-                // Fallback: treat as float
-                float[] data = new float[n];
-                for (int i = 0; i < n; i++) data[i] = ((Number) arr.getValue(i)).floatValue();
-                yield OrtValue.fromFloatArray(data, shape);
+    private static long[] batchRowSize(List<NodeInfo> inputInfos, List<NodeInfo> outputInfos) {
+        if (inputInfos.isEmpty()) return null;
+
+        long[] rowSize = new long[inputInfos.size()];
+        for (int k = 0; k < rowSize.length; k++) {
+            TensorInfo ti = inputInfos.get(k).tensorInfo();
+            if (!inputInfos.get(k).isTensor() || ti == null || !isJsonType(ti.elementType())) return null;
+
+            long[] shape = ti.shape();
+            if (shape.length == 0 || shape[0] >= 0) return null;
+            long size = 1;
+            for (int i = 1; i < shape.length; i++) {
+                if (shape[i] <= 0) return null;
+                size *= shape[i];
             }
+            rowSize[k] = size;
+        }
+
+        for (NodeInfo node : outputInfos) {
+            TensorInfo ti = node.tensorInfo();
+            if (!node.isTensor() || ti == null || ti.shape().length == 0 || ti.shape()[0] >= 0) return null;
+        }
+        return rowSize;
+    }
+
+    /** Returns true if the element type may be converted from/to JSON numbers. */
+    private static boolean isJsonType(ElementType type) {
+        return switch (type) {
+            case FLOAT, DOUBLE, INT32, INT64, INT8, UINT8, BOOL -> true;
+            default -> false;
         };
     }
 
+    /**
+     * Writes a flat JSON array into native memory as the given element type.
+     *
+     * @param name   the input name.
+     * @param arr    the JSON array of numbers.
+     * @param type   the element type.
+     * @param data   the native memory.
+     * @param offset the element offset to write at.
+     */
+    private static void write(String name, JsonArray arr, ElementType type, MemorySegment data, long offset) {
+        int n = arr.size();
+        try {
+            switch (type) {
+                case FLOAT -> {
+                    for (int i = 0; i < n; i++) data.setAtIndex(ValueLayout.JAVA_FLOAT, offset + i, ((Number) arr.getValue(i)).floatValue());
+                }
+                case DOUBLE -> {
+                    for (int i = 0; i < n; i++) data.setAtIndex(ValueLayout.JAVA_DOUBLE, offset + i, ((Number) arr.getValue(i)).doubleValue());
+                }
+                case INT32 -> {
+                    for (int i = 0; i < n; i++) data.setAtIndex(ValueLayout.JAVA_INT, offset + i, ((Number) arr.getValue(i)).intValue());
+                }
+                case INT64 -> {
+                    for (int i = 0; i < n; i++) data.setAtIndex(ValueLayout.JAVA_LONG, offset + i, ((Number) arr.getValue(i)).longValue());
+                }
+                case INT8, UINT8, BOOL -> {
+                    for (int i = 0; i < n; i++) data.set(ValueLayout.JAVA_BYTE, offset + i, ((Number) arr.getValue(i)).byteValue());
+                }
+                default -> throw new BadRequestException("Unsupported element type of input '%s': %s".formatted(name, type));
+            }
+        } catch (ClassCastException | NullPointerException ex) {
+            throw new BadRequestException("Input '%s' must be an array of numbers".formatted(name));
+        }
+    }
+
     /**
      * Resolves the concrete tensor shape from the declared shape and the
      * actual number of elements provided. Dynamic dimensions ({@code -1})
@@ -339,48 +756,34 @@ public class OnnxModel implements AutoCloseable {
     }
 
     /**
-     * Converts an array of output {@link OrtValue}s into a JSON object.
-     * Each tensor is flattened into a JSON array of numbers.
-     */
-    private static JsonObject ortValuesToJson(List<NodeInfo> outputInfos,
-                                               OrtValue[] outputs) {
-        var result = new JsonObject();
-        for (int i = 0; i < outputs.length; i++) {
-            String name = (i < outputInfos.size()) ? outputInfos.get(i).name() : "output_" + i;
-            result.put(name, ortValueToJsonArray(outputs[i]));
-        }
-        return result;
-    }
-
-    /**
-     * Flattens a tensor {@link OrtValue} into a {@link JsonArray} of numbers.
-     * Supports {@code FLOAT}, {@code DOUBLE}, {@code INT32}, {@code INT64},
-     * {@code INT8}, {@code UINT8}, and {@code BOOL} element types.
+     * Converts a range of tensor elements in native memory into a
+     * {@link JsonArray} of numbers. Supports {@code FLOAT}, {@code DOUBLE},
+     * {@code INT32}, {@code INT64}, {@code INT8}, {@code UINT8}, and
+     * {@code BOOL} element types.
      *
      * <p>Note: ImageNet classifiers typically emit <em>raw logits</em>. Apply
      * {@code MathEx.softmax} (as in {@code InferenceSessionTest}) if you need
      * class probabilities.
      */
-    private static JsonArray ortValueToJsonArray(OrtValue value) {
-        if (!value.isTensor()) {
-            return new JsonArray();
-        }
-        TensorInfo ti = value.tensorInfo();
-        var arr = new JsonArray();
-        switch (ti.elementType()) {
-            case FLOAT -> { for (float v : value.toFloatArray())   arr.add(v); }
-            case DOUBLE -> { for (double v : value.toDoubleArray()) arr.add(v); }
-            case INT32 -> { for (int v : value.toIntArray())        arr.add(v); }
-            case INT64 -> { for (long v : value.toLongArray())      arr.add(v); }
-            case INT8  -> { for (byte v : value.toByteArray())      arr.add(v); }
-            case UINT8, BOOL -> { for (byte v : value.toByteArray()) arr.add(Byte.toUnsignedInt(v)); }
-            default    -> { for (float v : value.toFloatArray())    arr.add(v); }
+    private static JsonArray toJsonArray(MemorySegment data, ElementType type, long from, long to) {
+        var arr = new JsonArray(new ArrayList<>((int) (to - from)));
+        switch (type) {
+            case DOUBLE -> { for (long i = from; i < to; i++) arr.add(data.getAtIndex(ValueLayout.JAVA_DOUBLE, i)); }
+            case INT32  -> { for (long i = from; i < to; i++) arr.add(data.getAtIndex(ValueLayout.JAVA_INT, i)); }
+            case INT64  -> { for (long i = from; i < to; i++) arr.add(data.getAtIndex(ValueLayout.JAVA_LONG, i)); }
+            case INT8   -> { for (long i = from; i < to; i++) arr.add(data.get(ValueLayout.JAVA_BYTE, i)); }
+            case UINT8, BOOL -> { for (long i = from; i < to; i++) arr.add(Byte.toUnsignedInt(data.get(ValueLayout.JAVA_BYTE, i))); }
+            default     -> { for (long i = from; i < to; i++) arr.add(data.getAtIndex(ValueLayout.JAVA_FLOAT, i)); }
         }
         return arr;
     }
 
     @Override
     public void close() {
+        if (batcher != null) {
+            batcher.close();
+        }
+        contexts.forEach(RunContext::close);
         session.close();
     }
 
@@ -389,4 +792,3 @@ public class OnnxModel implements AutoCloseable {
         return "OnnxModel{id='" + id + "', path=" + path + "}";
     }
 }
-
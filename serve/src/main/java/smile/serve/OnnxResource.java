@@ -23,6 +23,7 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
@@ -42,6 +43,7 @@ import org.jboss.resteasy.reactive.RestStreamElementType;
  *   <li>{@code POST /onnx/{id}}          – single JSON inference request.</li>
  *   <li>{@code POST /onnx/{id}/stream}   – streaming inference (JSON lines
  *       or CSV text for single-input models).</li>
+ *   <li>{@code GET  /onnx/{id}/metrics}  – micro-batching metrics.</li>
  * </ul>
  *
  * <p>The unified model catalog is {@code GET /api/v1/models}.
@@ -88,6 +90,22 @@ public class OnnxResource {
         return service.getModel(id).info();
     }
 
+    /**
+     * Returns the micro-batching metrics of an ONNX model, i.e. the queue
+     * depth and batch sizes.
+     *
+     * @param id the model ID.
+     * @return the micro-batching metrics (404 if not found or micro-batching is disabled).
+     */
+    @GET
+    @Path("/{id}/metrics")
+    @Produces(MediaType.APPLICATION_JSON)
+    public BatchMetrics metrics(@PathParam("id") String id) {
+        var metrics = service.getModel(id).metrics();
+        if (metrics == null) throw new NotFoundException("Micro-batching is disabled: " + id);
+        return metrics;
+    }
+
     /**
      * Runs a single inference with JSON-encoded inputs.
      *
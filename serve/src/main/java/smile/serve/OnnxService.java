@@ -28,6 +28,7 @@ import java.util.TreeMap;
 import java.util.stream.Stream;
 import io.quarkus.runtime.Startup;
 import io.vertx.core.json.JsonObject;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.BadRequestException;
@@ -57,6 +58,8 @@ public class OnnxService {
     private static final Logger logger = Logger.getLogger(OnnxService.class);
     /** Loaded models, keyed by model ID. Sorted for stable list order. */
     private final Map<String, OnnxModel> models = Collections.synchronizedSortedMap(new TreeMap<>());
+    /** The service configuration. */
+    private final OnnxServiceConfig config;
 
     /**
      * Loads ONNX models upon application start.
@@ -65,6 +68,7 @@ public class OnnxService {
      */
     @Inject
     public OnnxService(OnnxServiceConfig config) {
+        this.config = config;
         var path = Path.of(config.model()).toAbsolutePath().normalize();
         if (Files.isRegularFile(path) && path.toString().endsWith(".onnx")) {
             loadModel(path);
@@ -90,7 +94,8 @@ public class OnnxService {
             logger.infof("Loading ONNX model from '%s'", path);
             String id = Paths.getFileName(path);
             var session = InferenceSession.create(path.toString());
-            var model = new OnnxModel(id, path, session);
+            var model = new OnnxModel(id, path, session,
+                    config.poolSize(), config.batchMaxSize(), config.batchMaxWait());
             models.put(id, model);
             logger.infof("ONNX model '%s' loaded successfully (inputs=%s, outputs=%s)",
                     id, session.inputNames(), session.outputNames());
@@ -107,6 +112,16 @@ public class OnnxService {
         }
     }
 
+    /**
+     * Releases the sessions and native buffers of models upon shutdown.
+     */
+    @PreDestroy
+    void close() {
+        synchronized (models) {
+            models.values().forEach(OnnxModel::close);
+        }
+    }
+
     /**
      * Returns OpenAI-shaped descriptors for every loaded ONNX model.
      *
@@ -16,8 +16,10 @@
  */
 package smile.serve;
 
+import java.time.Duration;
 import io.smallrye.config.ConfigMapping;
 import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
 
 /**
  * Configuration for the ONNX inference service.
@@ -34,5 +36,32 @@ public interface OnnxServiceConfig {
      */
     @WithDefault("../model")
     String model();
+
+    /**
+     * The number of run contexts of each model, i.e. the maximum number of
+     * concurrent runs on a shared session. Each context owns its I/O binding
+     * and native input/output buffers. With micro-batching, it is also the
+     * number of micro-batches that run concurrently.
+     */
+    @WithName("pool.size")
+    @WithDefault("4")
+    int poolSize();
+
+    /**
+     * The maximum number of concurrent requests concatenated along the
+     * dynamic batch dimension. Micro-batching is disabled if it is 1.
+     */
+    @WithName("batch.max-size")
+    @WithDefault("64")
+    int batchMaxSize();
+
+    /**
+     * The maximum time to wait for more requests once a micro-batch is
+     * started. With the default zero, a batch consists of the requests
+     * queued while the previous batch runs.
+     */
+    @WithName("batch.max-wait")
+    @WithDefault("0")
+    Duration batchMaxWait();
 }
 
@@ -16,10 +16,13 @@
  */
 package smile.serve;
 
+import java.nio.file.Files;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import smile.data.DataFrame;
+import smile.io.Arrow;
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -268,4 +271,109 @@ public class InferenceResourceTest {
             .then()
                 .statusCode(404);
     }
-}
\ No newline at end of file
+    // --------------------------------------------------------------- batch
+    /**
+     * POST /ml/models/{id}/batch with an NDJSON body should return one NDJSON
+     * result per input line, identical to the single-sample response.
+     */
+    @Test
+    public void testBatchNdjsonReturnsPredictions() {
+        // Given two JSON-lines rows for the iris model
+        var jsonLines = "{\"petallength\":5.1,\"petalwidth\":3.5,\"sepallength\":1.4,\"sepalwidth\":0.2}\n"
+                + "\n"
+                + "{\"petallength\":6.7,\"petalwidth\":3.0,\"sepallength\":5.2,\"sepalwidth\":2.3}\n";
+        // When posting to the batch endpoint with application/x-ndjson
+        // Then the response contains two JSON lines in the input order
+        String body = given()
+            .contentType("application/x-ndjson")
+            .body(jsonLines)
+            .when().post("/api/v1/ml/models/iris_random_forest-1/batch")
+            .then()
+                .statusCode(200)
+                .extract().body().asString();
+        var lines = body.lines().filter(l -> !l.isBlank()).toList();
+        Assertions.assertEquals(2, lines.size(), "Expected 2 NDJSON lines but got: " + body);
+        Assertions.assertEquals("{\"prediction\":2,\"probabilities\":[0.052,0.187,0.761]}", lines.getFirst());
+    }
+    /**
+     * POST /ml/models/{id}/batch with a CSV body and a header line should
+     * skip the header and return one result per data row.
+     */
+    @Test
+    public void testBatchCsvWithHeaderReturnsPredictions() {
+        // Given a header and three CSV rows for the iris model
+        var csvBody = "petallength,petalwidth,sepallength,sepalwidth\n"
+                + "5.1,3.5,1.4,0.2\n6.7,3.0,5.2,2.3\n5.8,2.7,4.1,1.0\n";
+        // When posting to the batch endpoint with text/csv
+        // Then the response contains three JSON lines with a prediction
+        String body = given()
+            .contentType("text/csv")
+            .queryParam("header", true)
+            .body(csvBody)
+            .when().post("/api/v1/ml/models/iris_random_forest-1/batch")
+            .then()
+                .statusCode(200)
+                .extract().body().asString();
+        var lines = body.lines().filter(l -> !l.isBlank()).toList();
+        Assertions.assertEquals(3, lines.size(), "Expected 3 NDJSON lines but got: " + body);
+        for (var line : lines) {
+            Assertions.assertTrue(line.startsWith("{\"prediction\":"), "Unexpected line: " + line);
+        }
+    }
+    /**
+     * POST /ml/models/{id}/batch with an Arrow IPC stream of double columns
+     * should convert them to the float columns of model schema.
+     */
+    @Test
+    public void testBatchArrowConvertsColumnTypes() throws Exception {
+        // Given an Arrow stream whose columns are double but the model expects float
+        var data = DataFrame.of(new double[][] {
+                {5.1, 3.5, 1.4, 0.2},
+                {6.7, 3.0, 5.2, 2.3}
+        }, "petallength", "petalwidth", "sepallength", "sepalwidth");
+        var file = Files.createTempFile("smile-batch", ".arrow");
+        try {
+            new Arrow().write(data, file);
+            // When posting to the batch endpoint with the Arrow stream
+            // Then the response is the same as the NDJSON input
+            String body = given()
+                .contentType("application/vnd.apache.arrow.stream")
+                .body(Files.readAllBytes(file))
+                .when().post("/api/v1/ml/models/iris_random_forest-1/batch")
+                .then()
+                    .statusCode(200)
+                    .extract().body().asString();
+            var lines = body.lines().filter(l -> !l.isBlank()).toList();
+            Assertions.assertEquals(2, lines.size(), "Expected 2 NDJSON lines but got: " + body);
+            Assertions.assertEquals("{\"prediction\":2,\"probabilities\":[0.052,0.187,0.761]}", lines.getFirst());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    /**
+     * POST /ml/models/{id}/batch for an unknown model should return HTTP 404.
+     */
+    @Test
+    public void testBatchUnknownModelReturns404() {
+        given()
+            .contentType("text/csv")
+            .body("5.1,3.5,1.4,0.2\n")
+            .when().post("/api/v1/ml/models/ghost-model-1/batch")
+            .then()
+                .statusCode(404);
+    }
+    // --------------------------------------------------------------- metrics
+    /**
+     * GET /ml/models/{id}/metrics should return the micro-batching metrics.
+     */
+    @Test
+    public void testGetBatchMetrics() {
+        given()
+            .when().get("/api/v1/ml/models/iris_random_forest-1/metrics")
+            .then()
+                .statusCode(200)
+                .contentType(ContentType.JSON)
+                .body("maxBatchSize", is(64))
+                .body("queueDepth", notNullValue());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE Serve is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE Serve is distributed in the hope that it will be useful,
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.serve;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link MicroBatcher}.
+ */
+public class MicroBatcherTest {
+    /** Squares the inputs after a delay that simulates the batch cost. */
+    private static List<Integer> square(List<Integer> batch) {
+        try {
+            Thread.sleep(2);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return batch.stream().map(x -> {
+            if (x < 0) throw new IllegalArgumentException("Negative input: " + x);
+            return x * x;
+        }).toList();
+    }
+
+    /**
+     * Concurrent requests should be grouped into batches and each caller
+     * should receive its own result.
+     */
+    @Test
+    public void testBatching() {
+        try (var batcher = new MicroBatcher<Integer, Integer>("test-batcher", 16, Duration.ofMillis(1), MicroBatcherTest::square)) {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                futures.add(batcher.submit(i));
+            }
+
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i * i, (int) futures.get(i).join());
+            }
+
+            var metrics = batcher.metrics();
+            assertEquals(1000, metrics.requests());
+            assertTrue(metrics.batches() < 1000);
+            assertTrue(metrics.largestBatch() <= 16);
+            assertTrue(metrics.largestBatch() > 1);
+            assertEquals(0, metrics.queueDepth());
+            assertEquals(1000.0 / metrics.batches(), metrics.meanBatchSize(), 1E-10);
+        }
+    }
+
+    /**
+     * Requests from many threads should all complete with correct results.
+     */
+    @Test
+    public void testConcurrentCallers() {
+        try (var batcher = new MicroBatcher<Integer, Integer>("test-batcher", 64, Duration.ZERO, MicroBatcherTest::square)) {
+            IntStream.range(0, 2000).parallel().forEach(i -> assertEquals(i * i, (int) batcher.submit(i).join()));
+            assertEquals(2000, batcher.metrics().requests());
+        }
+    }
+
+    /**
+     * Several workers should process batches concurrently.
+     */
+    @Test
+    public void testWorkers() {
+        var running = new AtomicInteger();
+        var peak = new AtomicInteger();
+        var latch = new CountDownLatch(4);
+        try (var batcher = new MicroBatcher<Integer, Integer>("test-batcher", 4, 1, Duration.ZERO, batch -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            latch.countDown();
+            try {
+                // Hold the batch until all workers are busy.
+                latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return square(batch);
+        })) {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(batcher.submit(i));
+            }
+
+            for (int i = 0; i < 4; i++) {
+                assertEquals(i * i, (int) futures.get(i).join());
+            }
+            assertEquals(4, peak.get());
+            assertEquals(4, batcher.metrics().workers());
+        }
+    }
+
+    /**
+     * A bad input should fail only its own request, not the whole batch.
+     */
+    @Test
+    public void testFailureIsolation() {
+        try (var batcher = new MicroBatcher<Integer, Integer>("test-batcher", 8, Duration.ofMillis(50), MicroBatcherTest::square)) {
+            var good = batcher.submit(3);
+            var bad = batcher.submit(-1);
+            var other = batcher.submit(4);
+            assertEquals(9, (int) good.join());
+            assertEquals(16, (int) other.join());
+            var ex = assertThrows(CompletionException.class, bad::join);
+            assertInstanceOf(IllegalArgumentException.class, ex.getCause());
+        }
+    }
+
+    /**
+     * Pending requests should be processed on close, and new requests
+     * should be rejected afterwards.
+     */
+    @Test
+    public void testClose() {
+        var batcher = new MicroBatcher<Integer, Integer>("test-batcher", 4, Duration.ZERO, MicroBatcherTest::square);
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(batcher.submit(i));
+        }
+        batcher.close();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * i, (int) futures.get(i).join());
+        }
+
+        var ex = assertThrows(CompletionException.class, () -> batcher.submit(1).join());
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+    }
+
+    /**
+     * Invalid settings should be rejected.
+     */
+    @Test
+    public void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new MicroBatcher<Integer, Integer>("test-batcher", 0, Duration.ZERO, MicroBatcherTest::square));
+        assertThrows(IllegalArgumentException.class,
+                () -> new MicroBatcher<Integer, Integer>("test-batcher", 8, Duration.ofMillis(-1), MicroBatcherTest::square));
+        assertThrows(IllegalArgumentException.class,
+                () -> new MicroBatcher<Integer, Integer>("test-batcher", 0, 8, Duration.ZERO, MicroBatcherTest::square));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2010-2026 Haifeng Li. All rights reserved.
+ *
+ * SMILE is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SMILE is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SMILE. If not, see <https://www.gnu.org/licenses/>.
+ */
+package smile.serve;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import smile.onnx.InferenceSession;
+import smile.onnx.OnnxException;
+import smile.onnx.OrtValue;
+import smile.onnx.RunOptions;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link OnnxModel}. The tests run the light SqueezeNet
+ * fixture of the core module, whose output shape is static and therefore
+ * bound to a preallocated buffer.
+ */
+public class OnnxModelTest {
+    /** The light SqueezeNet model, relative to the root project directory. */
+    private static final Path MODEL = Path.of("core/src/test/resources/onnx/light/light_squeezenet.onnx");
+
+    /** Returns the number of elements of a shape. */
+    private static int size(long[] shape) {
+        long n = 1;
+        for (long d : shape) n *= d;
+        return (int) n;
+    }
+
+    /** Returns a request of the given input with all values set to x. */
+    private static JsonObject request(InferenceSession session, float x) {
+        var node = session.inputInfos().getFirst();
+        var data = new JsonArray();
+        for (int i = size(node.tensorInfo().shape()); i > 0; i--) data.add(x);
+        return new JsonObject().put(node.name(), data);
+    }
+
+    /** Runs the model without I/O binding on the input of all x. */
+    private static float[] expected(InferenceSession session, float x) {
+        var node = session.inputInfos().getFirst();
+        long[] shape = node.tensorInfo().shape();
+        float[] data = new float[size(shape)];
+        Arrays.fill(data, x);
+        try (var input = OrtValue.fromFloatArray(data, shape)) {
+            OrtValue[] outputs = session.run(Map.of(node.name(), input));
+            try {
+                return outputs[0].toFloatArray();
+            } finally {
+                for (var output : outputs) output.close();
+            }
+        }
+    }
+
+    /**
+     * The outputs written into the preallocated buffers should match the
+     * outputs allocated by ORT, also when the buffers are reused.
+     */
+    @Test
+    public void testPreallocatedOutputs() {
+        Assumptions.assumeTrue(Files.exists(MODEL), MODEL + " not found");
+        try (var session = InferenceSession.create(MODEL.toString());
+             var model = new OnnxModel("squeezenet", MODEL, InferenceSession.create(MODEL.toString()))) {
+            String output = session.outputNames().getFirst();
+            for (float x : new float[]{0.0f, 0.5f, 0.0f}) {
+                float[] expected = expected(session, x);
+                var response = model.predict(request(session, x)).getJsonArray(output);
+                assertEquals(expected.length, response.size());
+                for (int i = 0; i < expected.length; i++) {
+                    assertEquals(expected[i], response.getFloat(i), 1E-5f);
+                }
+            }
+        }
+    }
+
+    /**
+     * Concurrent requests should run on all run contexts and each caller
+     * should receive its own result.
+     */
+    @Test
+    public void testConcurrentRuns() {
+        Assumptions.assumeTrue(Files.exists(MODEL), MODEL + " not found");
+        try (var session = InferenceSession.create(MODEL.toString());
+             var model = new OnnxModel("squeezenet", MODEL, InferenceSession.create(MODEL.toString()), 4, 8, Duration.ZERO)) {
+            String output = session.outputNames().getFirst();
+            float[] zero = expected(session, 0.0f);
+            float[] half = expected(session, 0.5f);
+
+            List<CompletableFuture<JsonObject>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                var request = request(session, i % 2 == 0 ? 0.0f : 0.5f);
+                futures.add(CompletableFuture.supplyAsync(() -> model.predict(request)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                float[] expected = i % 2 == 0 ? zero : half;
+                var response = futures.get(i).join().getJsonArray(output);
+                for (int j = 0; j < expected.length; j++) {
+                    assertEquals(expected[j], response.getFloat(j), 1E-5f);
+                }
+            }
+        }
+    }
+
+    /**
+     * A preallocated output of the wrong shape should fail with an error
+     * that triggers the fallback, and the run should succeed with ORT
+     * allocated outputs. An invalid input should not trigger the fallback.
+     */
+    @Test
+    public void testOutputShapeFallback() {
+        Assumptions.assumeTrue(Files.exists(MODEL), MODEL + " not found");
+        try (var session = InferenceSession.create(MODEL.toString());
+             var binding = session.createIoBinding();
+             var runOptions = new RunOptions()) {
+            var input = session.inputInfos().getFirst();
+            var output = session.outputInfos().getFirst();
+            long[] shape = input.tensorInfo().shape();
+            long[] wrong = output.tensorInfo().shape().clone();
+            wrong[1] -= 1;
+
+            try (var x = OrtValue.fromFloatArray(new float[size(shape)], shape);
+                 var y = OrtValue.fromFloatArray(new float[size(wrong)], wrong)) {
+                binding.bindInput(input.name(), x);
+                binding.bindOutput(output.name(), y);
+                var ex = assertThrows(OnnxException.class, () -> session.run(binding, runOptions));
+                assertTrue(OnnxModel.isOutputShapeError(ex), ex.getMessage());
+
+                binding.clearOutputs();
+                binding.bindOutput(output.name());
+                session.run(binding, runOptions);
+                OrtValue[] outputs = binding.outputs();
+                try {
+                    assertArrayEquals(expected(session, 0.0f), outputs[0].toFloatArray(), 1E-5f);
+                } finally {
+                    for (var value : outputs) value.close();
+                }
+            }
+
+            long[] invalid = shape.clone();
+            invalid[2] -= 1;
+            try (var x = OrtValue.fromFloatArray(new float[size(invalid)], invalid)) {
+                binding.clearInputs();
+                binding.clearOutputs();
+                binding.bindInput(input.name(), x);
+                binding.bindOutput(output.name());
+                var ex = assertThrows(OnnxException.class, () -> session.run(binding, runOptions));
+                assertFalse(OnnxModel.isOutputShapeError(ex), ex.getMessage());
+            }
+        }
+
+        assertFalse(OnnxModel.isOutputShapeError(new OnnxException(6, "Shape mismatch in a kernel")));
+        assertTrue(OnnxModel.isOutputShapeError(new OnnxException(1, "Shape mismatch attempting to re-use buffer. {1,1000,1,1} != {1,999,1,1}")));
+    }
+}